@@ -86,6 +86,9 @@ public interface Images {
     @StaticResource
     String FLAT_TABLE_VIEW_ICON_PATH = "org/netbeans/modules/mongodb/images/flat_table.png"; //NOI18N
 
+    @StaticResource
+    String VIRTUAL_TABLE_VIEW_ICON_PATH = "org/netbeans/modules/mongodb/images/virtual_table.png"; //NOI18N
+
     @StaticResource
     String EXPAND_TREE_PATH = "org/netbeans/modules/mongodb/images/expandTree.png"; //NOI18N
 
@@ -122,6 +125,8 @@ public interface Images {
 
     Image FLAT_TABLE_VIEW_ICON = ImageUtilities.loadImage(FLAT_TABLE_VIEW_ICON_PATH);
 
+    Image VIRTUAL_TABLE_VIEW_ICON = ImageUtilities.loadImage(VIRTUAL_TABLE_VIEW_ICON_PATH);
+
     Image EXPAND_TREE_ICON = ImageUtilities.loadImage(EXPAND_TREE_PATH);
 
     Image COLLAPSE_TREE_ICON = ImageUtilities.loadImage(COLLAPSE_TREE_PATH);
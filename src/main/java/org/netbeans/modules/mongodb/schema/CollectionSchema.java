@@ -0,0 +1,197 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2014 Yann D'Isanto.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.netbeans.modules.mongodb.schema;
+
+import com.mongodb.BasicDBList;
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBObject;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import lombok.Getter;
+import org.bson.BSONObject;
+import org.bson.LazyBSONObject;
+
+/**
+ * The schema of a collection inferred from a sample of its documents: the
+ * paths of the fields, in order of first occurrence, with their presence
+ * frequency and type distribution. Fields of embedded documents are recorded
+ * down to {@link #MAX_DEPTH} levels, array elements are not.
+ *
+ * <p>
+ * A schema is built in a single thread and is read only once published.</p>
+ *
+ * @author Yann D'Isanto
+ */
+public final class CollectionSchema {
+
+    /**
+     * The maximum depth of the recorded fields, 1 meaning top level fields
+     * only.
+     */
+    public static final int MAX_DEPTH = 4;
+
+    private final Map<String, FieldStats> fields = new LinkedHashMap<>();
+
+    /**
+     * The number of sampled documents.
+     */
+    @Getter
+    private int sampleSize;
+
+    /**
+     * The time the collection was sampled, in milliseconds.
+     */
+    @Getter
+    private final long sampleTime;
+
+    public CollectionSchema(long sampleTime) {
+        this.sampleTime = sampleTime;
+    }
+
+    /**
+     * Records the fields of a sampled document.
+     *
+     * @param document a document
+     */
+    public void record(BSONObject document) {
+        sampleSize++;
+        record(null, document, 1);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void record(String parentPath, BSONObject document, int depth) {
+        final Collection<Map.Entry<String, Object>> entries = document instanceof LazyBSONObject
+            ? ((LazyBSONObject) document).entrySet()
+            : ((Map<String, Object>) document.toMap()).entrySet();
+        for (Map.Entry<String, Object> entry : entries) {
+            final String path = parentPath != null
+                ? parentPath + '.' + entry.getKey()
+                : entry.getKey();
+            final Object value = entry.getValue();
+            final FieldType type = FieldType.of(value);
+            getOrCreateField(path).record(type);
+            if (type == FieldType.DOCUMENT && depth < MAX_DEPTH) {
+                record(path, (BSONObject) value, depth + 1);
+            }
+        }
+    }
+
+    private FieldStats getOrCreateField(String path) {
+        FieldStats field = fields.get(path);
+        if (field == null) {
+            field = new FieldStats(path);
+            fields.put(path, field);
+        }
+        return field;
+    }
+
+    /**
+     * @param path a dotted field path
+     * @return the statistics of the field or null if it was not sampled.
+     */
+    public FieldStats getField(String path) {
+        return fields.get(path);
+    }
+
+    /**
+     * @return the statistics of all the fields, in order of first
+     * occurrence.
+     */
+    public Collection<FieldStats> getFields() {
+        return Collections.unmodifiableCollection(fields.values());
+    }
+
+    /**
+     * Returns the names of the top level fields: "_id" first, then the other
+     * ones in order of first occurrence.
+     *
+     * @return the top level field names.
+     */
+    public List<String> getTopLevelFieldNames() {
+        final List<String> names = new ArrayList<>();
+        names.add("_id");
+        for (FieldStats field : fields.values()) {
+            if (field.isTopLevel() && "_id".equals(field.getPath()) == false) {
+                names.add(field.getPath());
+            }
+        }
+        return names;
+    }
+
+    /**
+     * @param path a dotted field path
+     * @return the ratio of the sampled documents having the field.
+     */
+    public double getPresence(String path) {
+        final FieldStats field = fields.get(path);
+        return field != null && sampleSize > 0
+            ? (double) field.getCount() / sampleSize
+            : 0;
+    }
+
+    public DBObject toDBObject() {
+        final BasicDBList fieldList = new BasicDBList();
+        for (FieldStats field : fields.values()) {
+            final BasicDBObject types = new BasicDBObject();
+            for (FieldType type : FieldType.values()) {
+                if (field.getTypeCount(type) > 0) {
+                    types.append(type.name(), field.getTypeCount(type));
+                }
+            }
+            fieldList.add(new BasicDBObject("path", field.getPath()).append("types", types));
+        }
+        return new BasicDBObject("sampleTime", sampleTime)
+            .append("sampleSize", sampleSize)
+            .append("fields", fieldList);
+    }
+
+    /**
+     * Reads a schema written with {@link #toDBObject()}.
+     *
+     * @param object the schema object
+     * @return the schema.
+     * @throws IllegalArgumentException if the object is not a valid schema
+     */
+    public static CollectionSchema fromDBObject(DBObject object) {
+        try {
+            final CollectionSchema schema = new CollectionSchema(((Number) object.get("sampleTime")).longValue());
+            schema.sampleSize = ((Number) object.get("sampleSize")).intValue();
+            for (Object item : (List<?>) object.get("fields")) {
+                final DBObject fieldObject = (DBObject) item;
+                final FieldStats field = schema.getOrCreateField((String) fieldObject.get("path"));
+                final DBObject types = (DBObject) fieldObject.get("types");
+                for (String typeName : types.keySet()) {
+                    field.setTypeCount(FieldType.valueOf(typeName), ((Number) types.get(typeName)).intValue());
+                }
+            }
+            return schema;
+        } catch (ClassCastException | NullPointerException ex) {
+            throw new IllegalArgumentException(ex);
+        }
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2014 Yann D'Isanto.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.netbeans.modules.mongodb.schema;
+
+import lombok.Getter;
+
+/**
+ * The statistics of a field over the sampled documents of a collection.
+ *
+ * @author Yann D'Isanto
+ */
+public final class FieldStats {
+
+    /**
+     * The dotted path of the field.
+     */
+    @Getter
+    private final String path;
+
+    /**
+     * The number of sampled documents having the field.
+     */
+    @Getter
+    private int count;
+
+    /**
+     * The number of values of each type, indexed by type ordinal.
+     */
+    private final int[] typeCounts = new int[FieldType.values().length];
+
+    FieldStats(String path) {
+        this.path = path;
+    }
+
+    void record(FieldType type) {
+        count++;
+        typeCounts[type.ordinal()]++;
+    }
+
+    void setTypeCount(FieldType type, int typeCount) {
+        count += typeCount - typeCounts[type.ordinal()];
+        typeCounts[type.ordinal()] = typeCount;
+    }
+
+    /**
+     * @param type a value type
+     * @return the number of sampled values of the specified type.
+     */
+    public int getTypeCount(FieldType type) {
+        return typeCounts[type.ordinal()];
+    }
+
+    /**
+     * @return the most frequent type of the sampled values.
+     */
+    public FieldType getDominantType() {
+        FieldType dominantType = FieldType.NULL;
+        for (FieldType type : FieldType.values()) {
+            if (typeCounts[type.ordinal()] > typeCounts[dominantType.ordinal()]) {
+                dominantType = type;
+            }
+        }
+        return dominantType;
+    }
+
+    /**
+     * @return true if the field is a top level field.
+     */
+    public boolean isTopLevel() {
+        return path.indexOf('.') == -1;
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2014 Yann D'Isanto.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.netbeans.modules.mongodb.schema;
+
+import java.util.Date;
+import java.util.List;
+import org.bson.BSONObject;
+import org.bson.types.Binary;
+import org.bson.types.ObjectId;
+
+/**
+ * The types of the values of a document field.
+ *
+ * @author Yann D'Isanto
+ */
+public enum FieldType {
+
+    NULL, STRING, INT, LONG, DOUBLE, BOOLEAN, DATE, OBJECT_ID, DOCUMENT, ARRAY, BINARY, OTHER;
+
+    /**
+     * Returns the type of the specified value.
+     *
+     * @param value a field value
+     * @return the value type.
+     */
+    public static FieldType of(Object value) {
+        if (value == null) {
+            return NULL;
+        } else if (value instanceof String) {
+            return STRING;
+        } else if (value instanceof Integer) {
+            return INT;
+        } else if (value instanceof Long) {
+            return LONG;
+        } else if (value instanceof Double) {
+            return DOUBLE;
+        } else if (value instanceof Boolean) {
+            return BOOLEAN;
+        } else if (value instanceof Date) {
+            return DATE;
+        } else if (value instanceof ObjectId) {
+            return OBJECT_ID;
+        } else if (value instanceof List) {
+            return ARRAY;
+        } else if (value instanceof BSONObject) {
+            return DOCUMENT;
+        } else if (value instanceof byte[] || value instanceof Binary) {
+            return BINARY;
+        }
+        return OTHER;
+    }
+}
@@ -0,0 +1,220 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2014 Yann D'Isanto.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.netbeans.modules.mongodb.schema;
+
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBCollection;
+import com.mongodb.DBCursor;
+import com.mongodb.DBObject;
+import com.mongodb.LazyDBDecoder;
+import com.mongodb.MongoException;
+import com.mongodb.util.JSON;
+import com.mongodb.util.JSONParseException;
+import java.io.File;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.swing.SwingUtilities;
+import javax.swing.event.ChangeListener;
+import org.netbeans.modules.mongodb.ui.windows.collectionview.QueryExecutor;
+import org.openide.modules.Places;
+import org.openide.util.ChangeSupport;
+
+/**
+ * Infers the schema of collections by sampling their most recently inserted
+ * documents in background. Schemas are cached in memory and on disk, and
+ * sampled again once older than {@link #MAX_AGE}.
+ *
+ * @author Yann D'Isanto
+ */
+public final class SchemaInference {
+
+    private static final Logger LOG = Logger.getLogger(SchemaInference.class.getName());
+
+    /**
+     * The number of sampled documents.
+     */
+    public static final int SAMPLE_SIZE = 1000;
+
+    /**
+     * The age in milliseconds after which a schema is sampled again.
+     */
+    public static final long MAX_AGE = 24L * 60 * 60 * 1000;
+
+    /**
+     * The maximum time in milliseconds of the sampling query.
+     */
+    private static final int SAMPLE_MAX_TIME = 10000;
+
+    private static final String CACHE_FOLDER = "nbmongo/schemas"; //NOI18N
+
+    private static final SchemaInference DEFAULT = new SchemaInference();
+
+    private final Map<String, CollectionSchema> schemas = new HashMap<>();
+
+    /**
+     * The listeners of the schemas being inferred.
+     */
+    private final Map<String, ChangeSupport> pendingInferences = new HashMap<>();
+
+    public static SchemaInference getDefault() {
+        return DEFAULT;
+    }
+
+    private SchemaInference() {
+    }
+
+    /**
+     * Returns the cached schema of a collection, without blocking.
+     *
+     * @param key the collection key
+     * @return the schema or null if not available yet.
+     */
+    public synchronized CollectionSchema getSchema(String key) {
+        return schemas.get(key);
+    }
+
+    /**
+     * Makes the schema of the specified collection available: from the disk
+     * cache if up to date, by sampling the collection otherwise. Does nothing
+     * if the cached schema is up to date.
+     *
+     * @param key the collection key, unique across connections
+     * @param dbCollection the collection
+     * @param listener notified in the event dispatch thread once the schema
+     * is available
+     */
+    public void inferSchema(final String key, final DBCollection dbCollection, ChangeListener listener) {
+        synchronized (this) {
+            final CollectionSchema schema = schemas.get(key);
+            if (schema != null && isUpToDate(schema)) {
+                return;
+            }
+            ChangeSupport changeSupport = pendingInferences.get(key);
+            if (changeSupport != null) {
+                changeSupport.addChangeListener(listener);
+                return;
+            }
+            changeSupport = new ChangeSupport(this);
+            changeSupport.addChangeListener(listener);
+            pendingInferences.put(key, changeSupport);
+        }
+        QueryExecutor.getRequestProcessor(dbCollection.getDB().getMongo()).post(new Runnable() {
+
+            @Override
+            public void run() {
+                CollectionSchema schema = readSchema(key);
+                if (schema == null || isUpToDate(schema) == false) {
+                    try {
+                        schema = sample(dbCollection);
+                        writeSchema(key, schema);
+                    } catch (MongoException ex) {
+                        LOG.log(Level.INFO, "schema sampling failed", ex);
+                    }
+                }
+                schemaInferred(key, schema);
+            }
+        });
+    }
+
+    private void schemaInferred(String key, CollectionSchema schema) {
+        final ChangeSupport changeSupport;
+        synchronized (this) {
+            if (schema != null) {
+                schemas.put(key, schema);
+            }
+            changeSupport = pendingInferences.remove(key);
+        }
+        if (schema != null) {
+            SwingUtilities.invokeLater(new Runnable() {
+
+                @Override
+                public void run() {
+                    changeSupport.fireChange();
+                }
+            });
+        }
+    }
+
+    private static boolean isUpToDate(CollectionSchema schema) {
+        return System.currentTimeMillis() - schema.getSampleTime() < MAX_AGE;
+    }
+
+    /**
+     * Samples the most recently inserted documents of the specified
+     * collection. The documents are decoded lazily, only their keys and value
+     * types being read.
+     */
+    private static CollectionSchema sample(DBCollection dbCollection) {
+        final CollectionSchema schema = new CollectionSchema(System.currentTimeMillis());
+        try (DBCursor cursor = dbCollection.find()) {
+            cursor.sort(new BasicDBObject("$natural", -1))
+                .limit(SAMPLE_SIZE)
+                .addSpecial("$maxTimeMS", SAMPLE_MAX_TIME);
+            cursor.setDecoderFactory(LazyDBDecoder.FACTORY);
+            for (DBObject document : cursor) {
+                schema.record(document);
+            }
+        }
+        return schema;
+    }
+
+    private static File getCacheFile(String key) {
+        try {
+            final String fileName = URLEncoder.encode(key, "UTF-8") + ".json";
+            return new File(Places.getCacheSubdirectory(CACHE_FOLDER), fileName);
+        } catch (UnsupportedEncodingException ex) {
+            throw new AssertionError(ex);
+        }
+    }
+
+    private static CollectionSchema readSchema(String key) {
+        final File file = getCacheFile(key);
+        if (file.isFile() == false) {
+            return null;
+        }
+        try {
+            final String json = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+            return CollectionSchema.fromDBObject((DBObject) JSON.parse(json));
+        } catch (IOException | JSONParseException | ClassCastException | IllegalArgumentException ex) {
+            LOG.log(Level.INFO, "invalid schema cache file: " + file, ex);
+            return null;
+        }
+    }
+
+    private static void writeSchema(String key, CollectionSchema schema) {
+        final File file = getCacheFile(key);
+        try {
+            Files.write(file.toPath(), JSON.serialize(schema.toDBObject()).getBytes(StandardCharsets.UTF_8));
+        } catch (IOException ex) {
+            LOG.log(Level.INFO, "schema cache file writing failed: " + file, ex);
+        }
+    }
+}
@@ -45,6 +45,7 @@ import org.netbeans.modules.mongodb.ui.util.ValidatingInputLine;
 import org.netbeans.modules.mongodb.ui.windows.CollectionView;
 import org.netbeans.modules.mongodb.ui.wizards.ExportWizardAction;
 import org.netbeans.modules.mongodb.ui.wizards.ImportWizardAction;
+import org.netbeans.modules.mongodb.ui.wizards.ResumeImportAction;
 import org.netbeans.modules.mongodb.util.SystemCollectionPredicate;
 import org.openide.DialogDisplayer;
 import org.openide.NotifyDescriptor;
@@ -136,10 +137,12 @@ final class CollectionNode extends AbstractNode {
         properties.put(ExportWizardAction.PROP_COLLECTION, collection.getName());
         properties.put(ImportWizardAction.PROP_COLLECTION, collection.getName());
         final Action importAction = new ImportWizardAction(getLookup(), properties);
+        final Action resumeImportAction = new ResumeImportAction(getLookup());
         final Action renameAction = new RenameCollectionAction();
         final Action dropAction = new DropCollectionAction();
         if (SystemCollectionPredicate.get().eval(collection.getName())) {
             importAction.setEnabled(false);
+            resumeImportAction.setEnabled(false);
             renameAction.setEnabled(false);
             dropAction.setEnabled(false);
         }
@@ -152,7 +155,8 @@ final class CollectionNode extends AbstractNode {
             new MongoNativeToolsAction(getLookup()),
             null,
             new ExportWizardAction(getLookup(), properties),
-            importAction
+            importAction,
+            resumeImportAction
         };
     }
 
@@ -43,6 +43,7 @@ import org.netbeans.modules.mongodb.ui.util.ValidatingInputLine;
 import org.netbeans.modules.mongodb.ui.windows.CollectionView;
 import org.netbeans.modules.mongodb.ui.wizards.ExportWizardAction;
 import org.netbeans.modules.mongodb.ui.wizards.ImportWizardAction;
+import org.netbeans.modules.mongodb.ui.wizards.ResumeExportAction;
 import org.openide.DialogDisplayer;
 import org.openide.NotifyDescriptor;
 import org.openide.nodes.AbstractNode;
@@ -120,6 +121,7 @@ final class OneDbNode extends AbstractNode {
             new MongoNativeToolsAction(getLookup()),
             null,
             new ExportWizardAction(getLookup()),
+            new ResumeExportAction(getLookup()),
             new ImportWizardAction(getLookup(), new Runnable() {
 
                 @Override
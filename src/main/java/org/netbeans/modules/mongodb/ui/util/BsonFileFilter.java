@@ -0,0 +1,47 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2014 Yann D'Isanto.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.netbeans.modules.mongodb.ui.util;
+
+import java.io.File;
+import javax.swing.filechooser.FileFilter;
+import org.openide.util.NbBundle.Messages;
+
+/**
+ *
+ * @author Yann D'Isanto
+ */
+@Messages({"bsonFileFilter=BSON files (*.bson, *.bson.gz)"})
+public final class BsonFileFilter extends FileFilter {
+
+    @Override
+    public boolean accept(File f) {
+        return f.isDirectory() || f.getName().endsWith(".bson") || f.getName().endsWith(".bson.gz");
+    }
+
+    @Override
+    public String getDescription() {
+        return Bundle.bsonFileFilter();
+    }
+
+}
@@ -31,12 +31,12 @@ import org.openide.util.NbBundle.Messages;
  *
  * @author Yann D'Isanto
  */
-@Messages({"jsonFileFilter=JSON files (*.json)"})
+@Messages({"jsonFileFilter=JSON files (*.json, *.json.gz)"})
 public final class JsonFileFilter extends FileFilter {
 
     @Override
     public boolean accept(File f) {
-        return f.isDirectory() || f.getName().endsWith(".json");
+        return f.isDirectory() || f.getName().endsWith(".json") || f.getName().endsWith(".json.gz");
     }
 
     @Override
@@ -26,6 +26,7 @@ package org.netbeans.modules.mongodb.ui.windows;
 import org.netbeans.modules.mongodb.ui.windows.collectionview.actions.AddDocumentAction;
 import com.mongodb.DBCollection;
 import com.mongodb.DBObject;
+import com.mongodb.MongoException;
 import com.mongodb.util.JSON;
 import java.awt.CardLayout;
 import org.netbeans.modules.mongodb.CollectionInfo;
@@ -34,6 +35,7 @@ import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
 import java.util.EnumMap;
 import java.util.Map;
+import java.util.concurrent.CancellationException;
 import java.util.prefs.BackingStoreException;
 import java.util.prefs.Preferences;
 import javax.swing.Action;
@@ -44,12 +46,14 @@ import javax.swing.JToggleButton;
 import javax.swing.ListSelectionModel;
 import javax.swing.SwingUtilities;
 import javax.swing.event.ChangeEvent;
+import javax.swing.event.ChangeListener;
 import javax.swing.event.ListSelectionEvent;
 import javax.swing.event.ListSelectionListener;
 import javax.swing.event.TableColumnModelEvent;
 import javax.swing.event.TableColumnModelListener;
 import javax.swing.table.TableColumn;
 import javax.swing.table.TableColumnModel;
+import javax.swing.table.TableModel;
 import javax.swing.text.PlainDocument;
 import javax.swing.tree.TreePath;
 import lombok.Getter;
@@ -63,7 +67,9 @@ import org.netbeans.modules.mongodb.options.LabelCategory;
 import org.netbeans.modules.mongodb.ui.components.QueryEditor;
 import org.netbeans.modules.mongodb.ui.util.IntegerDocumentFilter;
 import org.netbeans.modules.mongodb.ui.windows.collectionview.CollectionQueryResult;
+import org.netbeans.modules.mongodb.ui.windows.collectionview.CollectionQueryResult.CountAccuracy;
 import org.netbeans.modules.mongodb.ui.windows.collectionview.CollectionQueryResultView;
+import org.netbeans.modules.mongodb.ui.windows.collectionview.QueryExecutor;
 import org.netbeans.modules.mongodb.ui.windows.collectionview.CollectionQueryResultUpdateListener;
 import org.netbeans.modules.mongodb.ui.windows.collectionview.flattable.JsonFlatTableCellRenderer;
 import org.netbeans.modules.mongodb.ui.windows.collectionview.actions.ChangeResultViewAction;
@@ -77,20 +83,26 @@ import org.netbeans.modules.mongodb.ui.windows.collectionview.actions.EditQueryA
 import org.netbeans.modules.mongodb.ui.windows.collectionview.actions.EditSelectedDocumentAction;
 import org.netbeans.modules.mongodb.ui.windows.collectionview.actions.ExpandAllDocumentsAction;
 import org.netbeans.modules.mongodb.ui.windows.collectionview.actions.ExportQueryResultAction;
+import org.netbeans.modules.mongodb.ui.windows.collectionview.actions.FetchArrayWindowAction;
 import org.netbeans.modules.mongodb.ui.windows.collectionview.actions.NavFirstAction;
 import org.netbeans.modules.mongodb.ui.windows.collectionview.actions.NavLastAction;
 import org.netbeans.modules.mongodb.ui.windows.collectionview.actions.NavLeftAction;
 import org.netbeans.modules.mongodb.ui.windows.collectionview.actions.NavRightAction;
 import org.netbeans.modules.mongodb.ui.windows.collectionview.actions.RefreshDocumentsAction;
 import org.netbeans.modules.mongodb.ui.windows.collectionview.flattable.DocumentsFlatTableModel;
+import org.netbeans.modules.mongodb.ui.windows.collectionview.flattable.DocumentsVirtualTableModel;
 import org.netbeans.modules.mongodb.ui.windows.collectionview.treetable.CollectionViewTreeTableNode;
 import org.netbeans.modules.mongodb.ui.windows.collectionview.treetable.DocumentNode;
 import org.netbeans.modules.mongodb.ui.windows.collectionview.treetable.DocumentTreeTableHighlighter;
+import org.netbeans.modules.mongodb.ui.windows.collectionview.treetable.JsonArrayRangeNode;
 import org.netbeans.modules.mongodb.ui.windows.collectionview.treetable.JsonPropertyNode;
 import org.netbeans.modules.mongodb.ui.windows.collectionview.treetable.JsonTreeTableCellRenderer;
 import org.netbeans.modules.mongodb.ui.windows.collectionview.treetable.DocumentsTreeTableModel;
 import org.netbeans.modules.mongodb.util.JsonProperty;
 import org.netbeans.modules.mongodb.util.SystemCollectionPredicate;
+import org.openide.DialogDisplayer;
+import org.openide.NotifyDescriptor;
+import org.openide.util.Cancellable;
 import org.openide.util.Exceptions;
 import org.openide.util.Lookup;
 import org.openide.util.NbBundle.Messages;
@@ -107,20 +119,40 @@ import org.openide.windows.TopComponent;
     "invalidJson=invalid json",
     "# {0} - total documents count",
     "totalDocuments=Total Documents: {0}      ",
+    "# {0} - estimated total documents count",
+    "totalDocumentsEstimated=Total Documents: ~{0}      ",
+    "# {0} - known documents count",
+    "totalDocumentsLowerBound=Total Documents: at least {0}      ",
     "# {0} - current page",
     "# {1} - total page count",
     "pageCountLabel=Page {0} of {1}",
+    "# {0} - current page",
+    "# {1} - known page count",
+    "pageCountLabelLowerBound=Page {0} of {1}+",
     "# {0} - db name",
     "# {1} - collection name",
     "collectionViewTitle={0}.{1}",
     "# {0} - connection name",
     "# {1} - view title",
-    "collectionViewTooltip={0}: {1}"
+    "collectionViewTooltip={0}: {1}",
+    "# {0} - view title",
+    "# {1} - page",
+    "loadingResults={0}: loading page {1}"
 })
 public final class CollectionView extends TopComponent {
 
     private static final ResultView DEFAULT_RESULT_VIEW = ResultView.TREE_TABLE;
 
+    /**
+     * The default maximum size (in megabytes) of the cached results pages.
+     */
+    private static final int DEFAULT_PAGE_CACHE_SIZE = 16;
+
+    /**
+     * The default maximum execution time (in milliseconds) of the queries.
+     */
+    private static final int DEFAULT_QUERY_MAX_TIME = 60000;
+
     private final boolean isSystemCollection;
 
     @Getter
@@ -133,6 +165,12 @@ public final class CollectionView extends TopComponent {
 
     private ResultView resultView = DEFAULT_RESULT_VIEW;
 
+    private int pageCacheSize = DEFAULT_PAGE_CACHE_SIZE;
+
+    private int queryMaxTime = DEFAULT_QUERY_MAX_TIME;
+
+    private final QueryExecutor queryExecutor;
+
     private final Map<ResultView, CollectionQueryResultUpdateListener> resultViews = new EnumMap<>(ResultView.class);
 
     private Lookup lookup;
@@ -150,13 +188,31 @@ public final class CollectionView extends TopComponent {
         resultViewButtons = new EnumMap<>(ResultView.class);
         resultViewButtons.put(ResultView.FLAT_TABLE, flatTableViewButton);
         resultViewButtons.put(ResultView.TREE_TABLE, treeTableViewButton);
+        resultViewButtons.put(ResultView.VIRTUAL_TABLE, virtualTableViewButton);
 
         final DBCollection dbCollection = lookup.lookup(DBCollection.class);
         collectionQueryResult = new CollectionQueryResult(dbCollection);
+        queryExecutor = new QueryExecutor(new Cancellable() {
+
+            @Override
+            public boolean cancel() {
+                collectionQueryResult.cancelUpdate();
+                return true;
+            }
+        });
         final DocumentsTreeTableModel treeTableModel = new DocumentsTreeTableModel(collectionQueryResult);
         final DocumentsFlatTableModel flatTableModel = new DocumentsFlatTableModel(collectionQueryResult);
         resultViews.put(ResultView.TREE_TABLE, treeTableModel);
+        final DocumentsVirtualTableModel virtualTableModel = new DocumentsVirtualTableModel(collectionQueryResult);
         resultViews.put(ResultView.FLAT_TABLE, flatTableModel);
+        resultViews.put(ResultView.VIRTUAL_TABLE, virtualTableModel);
+        collectionQueryResult.addTotalDocumentsCountListener(new ChangeListener() {
+
+            @Override
+            public void stateChanged(ChangeEvent e) {
+                updatePagination();
+            }
+        });
 
         final ListSelectionListener tableSelectionListener = new ListSelectionListener() {
 
@@ -168,11 +224,7 @@ public final class CollectionView extends TopComponent {
             }
         };
 
-        resultFlatTable.setModel(flatTableModel);
-        resultFlatTable.setDefaultRenderer(DBObject.class, new JsonFlatTableCellRenderer());
-        resultFlatTable.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
-        resultFlatTable.getSelectionModel().addListSelectionListener(tableSelectionListener);
-        resultFlatTable.getColumnModel().addColumnModelListener(new TableColumnModelListener() {
+        final TableColumnModelListener idColumnWidthListener = new TableColumnModelListener() {
 
             @Override
             public void columnAdded(TableColumnModelEvent e) {
@@ -202,9 +254,23 @@ public final class CollectionView extends TopComponent {
             @Override
             public void columnSelectionChanged(ListSelectionEvent e) {
             }
-        });
+        };
+
+        flatTableModel.setSchemaKey(getSchemaKey());
+        resultFlatTable.setModel(flatTableModel);
+        resultFlatTable.setDefaultRenderer(DBObject.class, new JsonFlatTableCellRenderer());
+        resultFlatTable.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        resultFlatTable.getSelectionModel().addListSelectionListener(tableSelectionListener);
+        resultFlatTable.getColumnModel().addColumnModelListener(idColumnWidthListener);
+
+        resultVirtualTable.setModel(virtualTableModel);
+        resultVirtualTable.setDefaultRenderer(DBObject.class, new JsonFlatTableCellRenderer());
+        resultVirtualTable.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        resultVirtualTable.getSelectionModel().addListSelectionListener(tableSelectionListener);
+        resultVirtualTable.getColumnModel().addColumnModelListener(idColumnWidthListener);
 
         resultTreeTable.setTreeTableModel(treeTableModel);
+        treeTableModel.setTreeTable(resultTreeTable);
         resultTreeTable.setTreeCellRenderer(new JsonTreeTableCellRenderer());
         resultTreeTable.addHighlighter(new DocumentTreeTableHighlighter());
         resultTreeTable.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
@@ -246,7 +312,7 @@ public final class CollectionView extends TopComponent {
             }
 
         });
-        resultFlatTable.addMouseListener(new MouseAdapter() {
+        final MouseAdapter flatTableMouseListener = new MouseAdapter() {
 
             @Override
             public void mouseClicked(MouseEvent e) {
@@ -258,17 +324,22 @@ public final class CollectionView extends TopComponent {
             @Override
             public void mouseReleased(MouseEvent e) {
                 if (e.isPopupTrigger()) {
-                    final int row = resultFlatTable.rowAtPoint(e.getPoint());
+                    final JTable table = (JTable) e.getComponent();
+                    final int row = table.rowAtPoint(e.getPoint());
                     if (row > -1) {
-                        final int column = resultFlatTable.columnAtPoint(e.getPoint());
-                        resultFlatTable.setRowSelectionInterval(row, row);
-                        final JPopupMenu menu = createFlatTableContextMenu(row, column);
-                        menu.show(e.getComponent(), e.getX(), e.getY());
+                        final int column = table.columnAtPoint(e.getPoint());
+                        table.setRowSelectionInterval(row, row);
+                        final JPopupMenu menu = createFlatTableContextMenu(table, row, column);
+                        if (menu != null) {
+                            menu.show(e.getComponent(), e.getX(), e.getY());
+                        }
                     }
                 }
             }
 
-        });
+        };
+        resultFlatTable.addMouseListener(flatTableMouseListener);
+        resultVirtualTable.addMouseListener(flatTableMouseListener);
     }
 
     @Override
@@ -280,6 +351,16 @@ public final class CollectionView extends TopComponent {
         this.lookup = lookup;
         final DBCollection dbCollection = lookup.lookup(DBCollection.class);
         collectionQueryResult.setDbCollection(dbCollection);
+        ((DocumentsFlatTableModel) resultFlatTable.getModel()).setSchemaKey(getSchemaKey());
+    }
+
+    /**
+     * @return the key identifying the collection schema across connections.
+     */
+    private String getSchemaKey() {
+        final ConnectionInfo connectionInfo = lookup.lookup(ConnectionInfo.class);
+        final DBCollection dbCollection = lookup.lookup(DBCollection.class);
+        return connectionInfo.getId() + "/" + (dbCollection != null ? dbCollection.getFullName() : "");
     }
     
     public void updateTitle() {
@@ -299,6 +380,9 @@ public final class CollectionView extends TopComponent {
 
     @Override
     protected void componentClosed() {
+        queryExecutor.cancel();
+        collectionQueryResult.cancelCount();
+        ((DocumentsVirtualTableModel) resultVirtualTable.getModel()).close();
         writePreferences();
     }
 
@@ -308,6 +392,8 @@ public final class CollectionView extends TopComponent {
                 return resultFlatTable;
             case TREE_TABLE:
                 return resultTreeTable;
+            case VIRTUAL_TABLE:
+                return resultVirtualTable;
             default:
                 throw new AssertionError();
         }
@@ -326,6 +412,8 @@ public final class CollectionView extends TopComponent {
                 final TreePath selectionPath = resultTreeTable.getPathForRow(row);
                 final DocumentNode documentNode = (DocumentNode) selectionPath.getPathComponent(1);
                 return (DBObject) resultTreeTable.getTreeTableModel().getValueAt(documentNode, 0);
+            case VIRTUAL_TABLE:
+                return ((DocumentsVirtualTableModel) resultVirtualTable.getModel()).getRowValue(row);
             default:
                 throw new AssertionError();
         }
@@ -336,6 +424,7 @@ public final class CollectionView extends TopComponent {
         collectionQueryResult.setView(resultViews.get(resultView));
         collectionQueryResult.refreshViewIfNecessary();
         updateResultPanel();
+        updatePagination();
     }
 
     private void updateResultPanel() {
@@ -352,17 +441,43 @@ public final class CollectionView extends TopComponent {
         });
     }
 
+    /**
+     * Fetches the results again from the first page, discarding the cached
+     * pages.
+     */
     public void refreshResults() {
-        new Thread(new Runnable() {
+        collectionQueryResult.invalidate();
+        showPage(1);
+    }
+
+    /**
+     * Displays the specified results page, from the cache if possible. The
+     * page loading cancels the one in progress, if any.
+     *
+     * @param page the page number, starting at 1
+     */
+    public void showPage(final int page) {
+        final DBCollection dbCollection = collectionQueryResult.getDbCollection();
+        if (dbCollection == null) {
+            return;
+        }
+        queryExecutor.execute(dbCollection.getDB().getMongo(), Bundle.loadingResults(getName(), page), new Runnable() {
 
             @Override
             public void run() {
-                collectionQueryResult.setPage(1);
-                collectionQueryResult.update();
+                try {
+                    collectionQueryResult.setPage(page);
+                    collectionQueryResult.update();
+                } catch (CancellationException ex) {
+                    return;
+                } catch (MongoException ex) {
+                    DialogDisplayer.getDefault().notifyLater(
+                        new NotifyDescriptor.Message(ex.getLocalizedMessage(), NotifyDescriptor.ERROR_MESSAGE));
+                }
                 updatePagination();
                 updateDocumentButtonsState();
             }
-        }).start();
+        });
     }
 
     public void updatePagination() {
@@ -370,18 +485,35 @@ public final class CollectionView extends TopComponent {
 
             @Override
             public void run() {
-                totalDocumentsLabel.setText(
-                    Bundle.totalDocuments(collectionQueryResult.getTotalDocumentsCount()));
+                final int totalDocumentsCount = collectionQueryResult.getTotalDocumentsCount();
+                final CountAccuracy accuracy = collectionQueryResult.getTotalDocumentsCountAccuracy();
                 int page = collectionQueryResult.getPage();
                 int pageCount = collectionQueryResult.getPageCount();
-                pageCountLabel.setText(Bundle.pageCountLabel(page, pageCount));
+                switch (accuracy) {
+                    case EXACT:
+                        totalDocumentsLabel.setText(Bundle.totalDocuments(totalDocumentsCount));
+                        pageCountLabel.setText(Bundle.pageCountLabel(page, pageCount));
+                        break;
+                    case ESTIMATED:
+                        totalDocumentsLabel.setText(Bundle.totalDocumentsEstimated(totalDocumentsCount));
+                        pageCountLabel.setText(Bundle.pageCountLabel(page, pageCount));
+                        break;
+                    case LOWER_BOUND:
+                        totalDocumentsLabel.setText(Bundle.totalDocumentsLowerBound(totalDocumentsCount));
+                        pageCountLabel.setText(Bundle.pageCountLabelLowerBound(page, pageCount));
+                        break;
+                    default:
+                        throw new AssertionError();
+                }
 
-                boolean leftNavEnabled = page > 1;
+                // the virtual table displays the whole result
+                final boolean paginated = resultView != ResultView.VIRTUAL_TABLE;
+                boolean leftNavEnabled = paginated && page > 1;
                 navFirstAction.setEnabled(leftNavEnabled);
                 navLeftAction.setEnabled(leftNavEnabled);
-                boolean rightNavEnabled = page < pageCount;
+                boolean rightNavEnabled = paginated && page < pageCount;
                 navRightAction.setEnabled(rightNavEnabled);
-                navLastAction.setEnabled(rightNavEnabled);
+                navLastAction.setEnabled(rightNavEnabled && accuracy != CountAccuracy.LOWER_BOUND);
             }
         });
     }
@@ -441,6 +573,7 @@ public final class CollectionView extends TopComponent {
         documentsToolBar = new javax.swing.JToolBar();
         treeTableViewButton = new javax.swing.JToggleButton();
         flatTableViewButton = new javax.swing.JToggleButton();
+        virtualTableViewButton = new javax.swing.JToggleButton();
         jSeparator4 = new javax.swing.JToolBar.Separator();
         expandTreeButton = new javax.swing.JButton();
         collapseTreeButton = new javax.swing.JButton();
@@ -466,6 +599,8 @@ public final class CollectionView extends TopComponent {
         resultTreeTable = new org.jdesktop.swingx.JXTreeTable();
         flatTableScrollPane = new javax.swing.JScrollPane();
         resultFlatTable = new javax.swing.JTable();
+        virtualTableScrollPane = new javax.swing.JScrollPane();
+        resultVirtualTable = new javax.swing.JTable();
 
         queryPanel.setBorder(javax.swing.BorderFactory.createTitledBorder(org.openide.util.NbBundle.getMessage(CollectionView.class, "CollectionView.queryPanel.border.title"))); // NOI18N
 
@@ -554,6 +689,14 @@ public final class CollectionView extends TopComponent {
         flatTableViewButton.setHorizontalTextPosition(javax.swing.SwingConstants.CENTER);
         flatTableViewButton.setVerticalTextPosition(javax.swing.SwingConstants.BOTTOM);
         documentsToolBar.add(flatTableViewButton);
+
+        virtualTableViewButton.setAction(getVirtualTableViewAction());
+        resultsViewButtonGroup.add(virtualTableViewButton);
+        virtualTableViewButton.setFocusable(false);
+        virtualTableViewButton.setHideActionText(true);
+        virtualTableViewButton.setHorizontalTextPosition(javax.swing.SwingConstants.CENTER);
+        virtualTableViewButton.setVerticalTextPosition(javax.swing.SwingConstants.BOTTOM);
+        documentsToolBar.add(virtualTableViewButton);
         documentsToolBar.add(jSeparator4);
 
         expandTreeButton.setAction(getExpandTreeAction());
@@ -658,6 +801,10 @@ public final class CollectionView extends TopComponent {
 
         resultPanel.add(flatTableScrollPane, "FLAT_TABLE");
 
+        virtualTableScrollPane.setViewportView(resultVirtualTable);
+
+        resultPanel.add(virtualTableScrollPane, "VIRTUAL_TABLE");
+
         javax.swing.GroupLayout layout = new javax.swing.GroupLayout(this);
         this.setLayout(layout);
         layout.setHorizontalGroup(
@@ -724,12 +871,16 @@ public final class CollectionView extends TopComponent {
     private javax.swing.JPanel resultPanel;
     @Getter
     private org.jdesktop.swingx.JXTreeTable resultTreeTable;
+    @Getter
+    private javax.swing.JTable resultVirtualTable;
     private javax.swing.ButtonGroup resultsViewButtonGroup;
     private javax.swing.JTextField sortField;
     private javax.swing.JLabel sortLabel;
     private javax.swing.JLabel totalDocumentsLabel;
     private javax.swing.JScrollPane treeTableScrollPane;
     private javax.swing.JToggleButton treeTableViewButton;
+    private javax.swing.JScrollPane virtualTableScrollPane;
+    private javax.swing.JToggleButton virtualTableViewButton;
     // End of variables declaration//GEN-END:variables
 
     public Preferences prefs() {
@@ -740,6 +891,10 @@ public final class CollectionView extends TopComponent {
         final Preferences prefs = prefs();
         final String version = prefs.get("version", "1.0");
         final int pageSize = prefs.getInt("result-view-table-page-size", collectionQueryResult.getPageSize());
+        pageCacheSize = prefs.getInt("result-view-page-cache-size", DEFAULT_PAGE_CACHE_SIZE);
+        queryMaxTime = prefs.getInt("query-max-time-ms", DEFAULT_QUERY_MAX_TIME);
+        collectionQueryResult.setMaxTime(queryMaxTime);
+        collectionQueryResult.setPageCacheSize(pageCacheSize * 1024L * 1024L);
         collectionQueryResult.setPageSize(pageSize);
         pageSizeField.setText(String.valueOf(pageSize));
         final String resultViewPref = prefs.get("result-view", ResultView.TREE_TABLE.name());
@@ -753,6 +908,8 @@ public final class CollectionView extends TopComponent {
         final Preferences prefs = prefs();
         prefs.put("version", "1.0");
         prefs.putInt("result-view-table-page-size", collectionQueryResult.getPageSize());
+        prefs.putInt("result-view-page-cache-size", pageCacheSize);
+        prefs.putInt("query-max-time-ms", queryMaxTime);
         prefs.put("result-view", resultView.name());
         try {
             prefs.flush();
@@ -800,6 +957,9 @@ public final class CollectionView extends TopComponent {
     @Getter
     private final Action flatTableViewAction = ChangeResultViewAction.create(this, ResultView.FLAT_TABLE);
 
+    @Getter
+    private final Action virtualTableViewAction = ChangeResultViewAction.create(this, ResultView.VIRTUAL_TABLE);
+
     @Getter
     private final Action collapseTreeAction = new CollapseAllDocumentsAction(this);
 
@@ -808,7 +968,7 @@ public final class CollectionView extends TopComponent {
     
     public enum ResultView {
 
-        FLAT_TABLE, TREE_TABLE
+        FLAT_TABLE, TREE_TABLE, VIRTUAL_TABLE
 
     }
 
@@ -823,7 +983,10 @@ public final class CollectionView extends TopComponent {
                     final JsonProperty property = ((JsonPropertyNode) node).getUserObject();
                     menu.add(new JMenuItem(new CopyKeyToClipboardAction(property)));
                     menu.add(new JMenuItem(new CopyValueToClipboardAction(property.getValue())));
-                } else {
+                    if (FetchArrayWindowAction.isApplicable(treePath)) {
+                        menu.add(new JMenuItem(new FetchArrayWindowAction(this, treePath)));
+                    }
+                } else if ((node instanceof JsonArrayRangeNode) == false) {
                     menu.add(new JMenuItem(new CopyValueToClipboardAction(node.getUserObject())));
                 }
             }
@@ -837,11 +1000,15 @@ public final class CollectionView extends TopComponent {
         return menu;
     }
 
-    private JPopupMenu createFlatTableContextMenu(int row, int column) {
+    private JPopupMenu createFlatTableContextMenu(JTable table, int row, int column) {
+        final DBObject document = getResultTableSelectedDocument();
+        if (document == null) {
+            // not fetched yet
+            return null;
+        }
         final JPopupMenu menu = new JPopupMenu();
-        final DBObject document = collectionQueryResult.getDocuments().get(row);
         menu.add(new JMenuItem(new CopyDocumentToClipboardAction(document)));
-        final DocumentsFlatTableModel model = (DocumentsFlatTableModel) resultFlatTable.getModel();
+        final TableModel model = table.getModel();
         final JsonProperty property = new JsonProperty(
             model.getColumnName(column),
             model.getValueAt(row, column));
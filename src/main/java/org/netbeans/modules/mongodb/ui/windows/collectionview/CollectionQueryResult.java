@@ -23,13 +23,21 @@
  */
 package org.netbeans.modules.mongodb.ui.windows.collectionview;
 
+import com.mongodb.BasicDBObject;
+import com.mongodb.CommandResult;
 import com.mongodb.DBCollection;
-import com.mongodb.DBCursor;
 import com.mongodb.DBObject;
+import com.mongodb.MongoException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.swing.event.ChangeListener;
 import lombok.Getter;
 import lombok.Setter;
+import org.openide.util.ChangeSupport;
+import org.openide.util.RequestProcessor;
 
 /**
  *
@@ -39,15 +47,15 @@ public final class CollectionQueryResult {
 
     public static final int DEFAULT_PAGE_SIZE = 20;
 
+    private static final Logger LOG = Logger.getLogger(CollectionQueryResult.class.getName());
+
     @Getter
-    @Setter
     private DBCollection dbCollection;
 
     @Getter
     private final List<DBObject> documents = new ArrayList<>();
 
     @Getter
-    @Setter
     private int pageSize = DEFAULT_PAGE_SIZE;
 
     @Getter
@@ -55,70 +63,368 @@ public final class CollectionQueryResult {
     private int page = 1;
 
     @Getter
-    private int totalDocumentsCount = 0;
+    private volatile int totalDocumentsCount = 0;
+
+    @Getter
+    private volatile CountAccuracy totalDocumentsCountAccuracy = CountAccuracy.EXACT;
+
+    /**
+     * Whether the total documents count is still valid for the current query.
+     */
+    private volatile boolean countValid;
+
+    /**
+     * The background task computing the exact total documents count.
+     */
+    private RequestProcessor.Task countTask;
+
+    /**
+     * Identifies the current count computation, results of cancelled ones
+     * being ignored.
+     */
+    private int countGeneration;
+
+    private final ChangeSupport countChangeSupport = new ChangeSupport(this);
 
     @Getter
-    @Setter
     private DBObject criteria;
 
     @Getter
-    @Setter
     private DBObject projection;
 
     @Getter
-    @Setter
     private DBObject sort;
 
+    /**
+     * The maximum execution time (in milliseconds) of the queries on server
+     * side, 0 meaning no limit.
+     */
+    @Getter
+    private int maxTime;
+
+    /**
+     * Identifies the current update, a cancelled update leaving the
+     * documents untouched.
+     */
+    private volatile int updateGeneration;
+
     @Setter
     private CollectionQueryResultUpdateListener view;
 
     private boolean viewRefreshNecessary;
 
+    /**
+     * The pages of the current query, lazily created on update.
+     */
+    private volatile PageQuery pageQuery;
+
+    private final PageCache pageCache = new PageCache();
+
+    /**
+     * The background task prefetching the page following the current one.
+     */
+    private RequestProcessor.Task prefetchTask;
+
     public CollectionQueryResult(DBCollection dbCollection) {
         this.dbCollection = dbCollection;
     }
 
+    public void setDbCollection(DBCollection dbCollection) {
+        this.dbCollection = dbCollection;
+        resetPagination();
+    }
+
+    public void setPageSize(int pageSize) {
+        this.pageSize = pageSize;
+        resetPagination();
+    }
+
+    public void setCriteria(DBObject criteria) {
+        this.criteria = criteria;
+        resetPagination();
+    }
+
+    public void setProjection(DBObject projection) {
+        this.projection = projection;
+        resetPagination();
+    }
+
+    public void setSort(DBObject sort) {
+        this.sort = sort;
+        resetPagination();
+    }
+
+    public void setMaxTime(int maxTime) {
+        this.maxTime = maxTime;
+        resetPagination();
+    }
+
+    private void resetPagination() {
+        pageQuery = null;
+        countValid = false;
+    }
+
+    /**
+     * Invalidates the data fetched for the current query (the cached pages
+     * and the total documents count) so that it is fetched again on next
+     * update. To be invoked when the collection content is known to have
+     * changed.
+     */
+    public void invalidate() {
+        pageCache.clear();
+        resetPagination();
+    }
+
+    /**
+     * Sets the maximum estimated size of the result pages kept in cache.
+     *
+     * @param size the size in bytes, 0 disabling the cache
+     */
+    public void setPageCacheSize(long size) {
+        pageCache.setMaxSize(size);
+    }
+
+    /**
+     * Fetches the documents of the current page. The displayed documents are
+     * only replaced once the page is fetched, unless the update gets
+     * cancelled meanwhile.
+     *
+     * @throws CancellationException if the update has been cancelled
+     * @throws MongoException if the query failed
+     */
     public void update() {
-        documents.clear();
-        fireUpdateStarting();
+        final int generation = updateGeneration;
         if (dbCollection == null) {
+            documents.clear();
+            fireUpdateStarting();
             // TODO: error message?
             return;
         }
-        try (DBCursor cursor = dbCollection.find(criteria, projection)) {
-            if (sort != null) {
-                cursor.sort(sort);
+        if (countValid == false) {
+            estimateTotalDocumentsCount();
+        }
+        PageQuery query = pageQuery;
+        if (query == null) {
+            query = new PageQuery(dbCollection, criteria, projection, sort, pageSize, maxTime, pageCache);
+            pageQuery = query;
+        }
+        final List<DBObject> pageDocuments = query.getPage(page, getLastPageSize(page));
+        // a full page is only known to be followed by another one once probed
+        final boolean followed = pageSize > 0 && pageDocuments.size() == pageSize
+            && totalDocumentsCountAccuracy == CountAccuracy.LOWER_BOUND
+            && query.hasDocumentsAfter(page);
+        synchronized (documents) {
+            if (generation != updateGeneration) {
+                throw new CancellationException();
             }
-            totalDocumentsCount = cursor.count();
-            try (DBCursor pageCursor = getPageCursor(cursor)) {
-                for (DBObject document : pageCursor) {
-                    documents.add(document);
-                    fireDocumentAdded(document);
-                }
+            documents.clear();
+            fireUpdateStarting();
+            for (DBObject document : pageDocuments) {
+                documents.add(document);
+                fireDocumentAdded(document);
+            }
+            if (totalDocumentsCountAccuracy == CountAccuracy.LOWER_BOUND) {
+                updateTotalDocumentsCountLowerBound(followed);
             }
+            fireUpdateFinished();
+            viewRefreshNecessary = true;
         }
-        fireUpdateFinished();
-        viewRefreshNecessary = true;
+        prefetchNextPage(query);
     }
 
-    public void refreshViewIfNecessary() {
-        if(viewRefreshNecessary == false) {
+    /**
+     * Cancels the running update, if any: its query cursor gets closed and
+     * the documents are left untouched.
+     */
+    public void cancelUpdate() {
+        updateGeneration++;
+        final PageQuery query = pageQuery;
+        if (query != null) {
+            query.cancel();
+        }
+    }
+
+    /**
+     * @return the request processor shared by the queries run against the
+     * collection connection.
+     */
+    private RequestProcessor getRequestProcessor() {
+        return QueryExecutor.getRequestProcessor(dbCollection.getDB().getMongo());
+    }
+
+    /**
+     * @return the size of the specified page if it is known to be the last
+     * one, -1 otherwise.
+     */
+    private int getLastPageSize(int page) {
+        if (pageSize > 0 && page == getPageCount() && totalDocumentsCountAccuracy == CountAccuracy.EXACT) {
+            return totalDocumentsCount - (page - 1) * pageSize;
+        }
+        return -1;
+    }
+
+    /**
+     * Fetches the page following the current one in background so that it
+     * is served from the cache when navigated to.
+     */
+    private synchronized void prefetchNextPage(final PageQuery query) {
+        if (prefetchTask != null) {
+            prefetchTask.cancel();
+            prefetchTask = null;
+        }
+        final int nextPage = page + 1;
+        if (pageSize <= 0 || nextPage > getPageCount()) {
             return;
         }
-        fireUpdateStarting();
-        for (DBObject dBObject : documents) {
-            fireDocumentAdded(dBObject);
+        final int lastPageSize = getLastPageSize(nextPage);
+        prefetchTask = getRequestProcessor().create(new Runnable() {
+
+            @Override
+            public void run() {
+                if (query != pageQuery) {
+                    // query changed meanwhile
+                    return;
+                }
+                try {
+                    query.getPage(nextPage, lastPageSize);
+                } catch (CancellationException ex) {
+                    // page requested by an update meanwhile
+                } catch (MongoException ex) {
+                    LOG.log(Level.FINE, "page prefetch failed", ex);
+                }
+            }
+        });
+        // after the queries of the views
+        prefetchTask.setPriority(Thread.MIN_PRIORITY);
+        prefetchTask.schedule(0);
+    }
+
+    /**
+     * Sets a fast estimate of the total documents count and schedules the
+     * exact count computation in background. The estimate comes from the
+     * collection stats when there is no criteria, otherwise the count is
+     * only known to be at least the number of documents fetched so far.
+     */
+    private void estimateTotalDocumentsCount() {
+        cancelCount();
+        countValid = true;
+        totalDocumentsCount = 0;
+        totalDocumentsCountAccuracy = CountAccuracy.LOWER_BOUND;
+        if (criteria == null || criteria.keySet().isEmpty()) {
+            try {
+                final CommandResult stats = dbCollection.getStats();
+                final Object count = stats.get("count");
+                if (stats.ok() && count instanceof Number) {
+                    totalDocumentsCount = ((Number) count).intValue();
+                    totalDocumentsCountAccuracy = CountAccuracy.ESTIMATED;
+                }
+            } catch (MongoException ex) {
+                LOG.log(Level.FINE, "collection stats unavailable", ex);
+            }
         }
-        fireUpdateFinished();
-        viewRefreshNecessary = false;
+        scheduleCount();
     }
 
-    private DBCursor getPageCursor(DBCursor queryCursor) {
-        if (pageSize > 0) {
-            final int toSkip = (page - 1) * pageSize;
-            return queryCursor.skip(toSkip).limit(pageSize);
+    private synchronized void scheduleCount() {
+        final DBCollection countedCollection = dbCollection;
+        final DBObject command = new BasicDBObject("count", dbCollection.getName());
+        if (criteria != null) {
+            command.put("query", criteria);
+        }
+        if (maxTime > 0) {
+            command.put("maxTimeMS", maxTime);
+        }
+        final int generation = countGeneration;
+        countTask = getRequestProcessor().create(new Runnable() {
+
+            @Override
+            public void run() {
+                try {
+                    final CommandResult result = countedCollection.getDB().command(
+                        command, 0, countedCollection.getReadPreference());
+                    result.throwOnError();
+                    final long count = ((Number) result.get("n")).longValue();
+                    setExactTotalDocumentsCount(generation, count);
+                } catch (MongoException ex) {
+                    LOG.log(Level.INFO, "documents count failed", ex);
+                }
+            }
+        });
+        countTask.setPriority(Thread.MIN_PRIORITY);
+        countTask.schedule(0);
+    }
+
+    private void setExactTotalDocumentsCount(int generation, long count) {
+        synchronized (this) {
+            if (generation != countGeneration) {
+                return;
+            }
+            countTask = null;
+            totalDocumentsCount = (int) Math.min(count, Integer.MAX_VALUE);
+            totalDocumentsCountAccuracy = CountAccuracy.EXACT;
+        }
+        countChangeSupport.fireChange();
+    }
+
+    /**
+     * Raises the lower bound of the total documents count from the documents
+     * fetched for the current page. A page which is not followed by a
+     * document is the last one, making the count exact.
+     *
+     * @param followed whether a document has been found after the current
+     * page
+     */
+    private void updateTotalDocumentsCountLowerBound(boolean followed) {
+        final int fetched = pageSize > 0
+            ? (page - 1) * pageSize + documents.size()
+            : documents.size();
+        if (followed == false) {
+            cancelCount();
+            totalDocumentsCount = fetched;
+            totalDocumentsCountAccuracy = CountAccuracy.EXACT;
+        } else {
+            // including the document found after the page
+            totalDocumentsCount = Math.max(totalDocumentsCount, fetched + 1);
+        }
+    }
+
+    /**
+     * Cancels the exact total documents count computation, if any.
+     */
+    public synchronized void cancelCount() {
+        countGeneration++;
+        if (countTask != null) {
+            countTask.cancel();
+            countTask = null;
+        }
+    }
+
+    /**
+     * Adds a listener notified when the total documents count changes in
+     * background (i.e. when the exact count is known).
+     *
+     * @param listener the listener to add
+     */
+    public void addTotalDocumentsCountListener(ChangeListener listener) {
+        countChangeSupport.addChangeListener(listener);
+    }
+
+    public void removeTotalDocumentsCountListener(ChangeListener listener) {
+        countChangeSupport.removeChangeListener(listener);
+    }
+
+    public void refreshViewIfNecessary() {
+        synchronized (documents) {
+            if (viewRefreshNecessary == false) {
+                return;
+            }
+            fireUpdateStarting();
+            for (DBObject dBObject : documents) {
+                fireDocumentAdded(dBObject);
+            }
+            fireUpdateFinished();
+            viewRefreshNecessary = false;
         }
-        return queryCursor;
     }
 
     private void fireUpdateStarting() {
@@ -146,4 +452,23 @@ public final class CollectionQueryResult {
         }
         return 1;
     }
+
+    /**
+     * The accuracy of the total documents count.
+     */
+    public enum CountAccuracy {
+
+        /**
+         * The count is exact.
+         */
+        EXACT,
+        /**
+         * The count is estimated from the collection stats.
+         */
+        ESTIMATED,
+        /**
+         * The count is the number of documents known so far.
+         */
+        LOWER_BOUND
+    }
 }
@@ -0,0 +1,151 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2014 Yann D'Isanto.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.netbeans.modules.mongodb.ui.windows.collectionview;
+
+import com.mongodb.DBObject;
+import com.mongodb.DefaultDBEncoder;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.bson.LazyBSONObject;
+
+/**
+ * A cache of query result pages bounded by the estimated size of the cached
+ * documents, evicting the least recently used pages first.
+ *
+ * @author Yann D'Isanto
+ */
+final class PageCache {
+
+    public static final long DEFAULT_SIZE = 16L * 1024 * 1024;
+
+    private final Map<String, CachedPage> pages = new LinkedHashMap<>(16, 0.75f, true);
+
+    private long maxSize = DEFAULT_SIZE;
+
+    private long size;
+
+    /**
+     * Incremented on each clear so that pages fetched before it are not
+     * cached.
+     */
+    private int generation;
+
+    /**
+     * Returns the cached page with the specified key, marking it as the most
+     * recently used one.
+     *
+     * @param key the page key
+     * @return the page documents or null if not cached.
+     */
+    synchronized List<DBObject> get(String key) {
+        final CachedPage page = pages.get(key);
+        return page != null ? page.documents : null;
+    }
+
+    /**
+     * @return the current generation, to be given back when putting a page
+     * fetched afterward.
+     */
+    synchronized int getGeneration() {
+        return generation;
+    }
+
+    /**
+     * Caches a page, evicting the least recently used ones if needed. The page
+     * is ignored if the cache has been cleared since it was fetched.
+     *
+     * @param key the page key
+     * @param documents the page documents
+     * @param fetchGeneration the generation at the time the page was fetched
+     */
+    void put(String key, List<DBObject> documents, int fetchGeneration) {
+        final long pageSize = estimateSize(documents);
+        synchronized (this) {
+            if (fetchGeneration != generation || pageSize > maxSize) {
+                return;
+            }
+            final CachedPage previous = pages.put(key, new CachedPage(documents, pageSize));
+            if (previous != null) {
+                size -= previous.size;
+            }
+            size += pageSize;
+            evict();
+        }
+    }
+
+    synchronized void clear() {
+        pages.clear();
+        size = 0;
+        generation++;
+    }
+
+    /**
+     * Sets the maximum estimated size of the cached documents.
+     *
+     * @param maxSize the size in bytes, 0 disabling the cache
+     */
+    synchronized void setMaxSize(long maxSize) {
+        this.maxSize = Math.max(0, maxSize);
+        evict();
+    }
+
+    private void evict() {
+        final Iterator<CachedPage> it = pages.values().iterator();
+        while (size > maxSize && it.hasNext()) {
+            size -= it.next().size;
+            it.remove();
+        }
+    }
+
+    /**
+     * Estimates the size of the documents from their BSON encoded size, read
+     * from the raw BSON of lazily decoded documents.
+     */
+    private static long estimateSize(List<DBObject> documents) {
+        final DefaultDBEncoder encoder = new DefaultDBEncoder();
+        long size = 0;
+        for (DBObject document : documents) {
+            if (document instanceof LazyBSONObject) {
+                size += ((LazyBSONObject) document).getBSONSize();
+            } else {
+                size += encoder.encode(document).length;
+            }
+        }
+        return size;
+    }
+
+    private static final class CachedPage {
+
+        private final List<DBObject> documents;
+
+        private final long size;
+
+        public CachedPage(List<DBObject> documents, long size) {
+            this.documents = documents;
+            this.size = size;
+        }
+    }
+}
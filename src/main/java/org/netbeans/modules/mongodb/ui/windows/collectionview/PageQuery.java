@@ -0,0 +1,315 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2014 Yann D'Isanto.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.netbeans.modules.mongodb.ui.windows.collectionview;
+
+import com.mongodb.DBCollection;
+import com.mongodb.DBCursor;
+import com.mongodb.DBObject;
+import com.mongodb.LazyDBDecoder;
+import com.mongodb.MongoException;
+import com.mongodb.util.JSON;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import lombok.Getter;
+import org.netbeans.modules.mongodb.util.KeysetPagination;
+
+/**
+ * Fetches the pages of a query result, through a page cache. Pages are
+ * fetched using keyset pagination when applicable, skip and limit otherwise.
+ *
+ * <p>
+ * Documents are decoded lazily: they keep their raw BSON and only decode the
+ * fields which are read, and are therefore read-only.</p>
+ *
+ * <p>
+ * Pages of a same query are fetched one at a time, so that a page requested
+ * while being prefetched is only fetched once.</p>
+ *
+ * @author Yann D'Isanto
+ */
+final class PageQuery {
+
+    private final DBCollection dbCollection;
+
+    private final DBObject criteria;
+
+    private final DBObject projection;
+
+    private final DBObject sort;
+
+    private final int pageSize;
+
+    private final int maxTime;
+
+    private final PageCache cache;
+
+    private final String cacheKey;
+
+    /**
+     * The keyset pagination of the query, lazily created on first fetch.
+     */
+    private KeysetPagination keysetPagination;
+
+    /**
+     * The sort keys of the first and last documents of the fetched pages.
+     */
+    private final Map<Integer, PageBounds> pagesBounds = new HashMap<>();
+
+    /**
+     * The cursor of the page being fetched.
+     */
+    private volatile DBCursor activeCursor;
+
+    private volatile boolean cancelled;
+
+    PageQuery(DBCollection dbCollection, DBObject criteria, DBObject projection, DBObject sort, int pageSize, int maxTime, PageCache cache) {
+        this.dbCollection = dbCollection;
+        this.criteria = criteria;
+        this.projection = projection;
+        this.sort = sort;
+        this.pageSize = pageSize;
+        this.maxTime = maxTime;
+        this.cache = cache;
+        this.cacheKey = new StringBuilder()
+            .append(dbCollection.getFullName()).append('|')
+            .append(JSON.serialize(criteria)).append('|')
+            .append(JSON.serialize(projection)).append('|')
+            .append(JSON.serialize(sort)).append('|')
+            .append(pageSize).append('|')
+            .toString();
+    }
+
+    /**
+     * Returns the documents of the specified page, from the cache if
+     * possible.
+     *
+     * @param page the page number, starting at 1
+     * @param lastPageSize the size of the page if it is known to be the last
+     * one, -1 otherwise
+     * @return the page documents, not to be modified.
+     * @throws CancellationException if the fetching has been cancelled
+     */
+    synchronized List<DBObject> getPage(int page, int lastPageSize) {
+        final String key = cacheKey + page;
+        List<DBObject> documents = cache.get(key);
+        if (documents == null) {
+            final int generation = cache.getGeneration();
+            cancelled = false;
+            try {
+                documents = fetchPage(page, lastPageSize);
+            } catch (MongoException | IllegalStateException ex) {
+                if (cancelled) {
+                    // the cursor has been closed
+                    throw new CancellationException();
+                }
+                throw ex;
+            }
+            if (cancelled) {
+                throw new CancellationException();
+            }
+            cache.put(key, documents, generation);
+        }
+        if (documents.isEmpty() == false && getKeysetPagination().isApplicable()) {
+            pagesBounds.put(page, new PageBounds(
+                keysetPagination.extractKey(documents.get(0)),
+                keysetPagination.extractKey(documents.get(documents.size() - 1))));
+        }
+        return documents;
+    }
+
+    /**
+     * Checks whether documents follow the specified page, which has been
+     * fetched, probing for one document after it unless the following page
+     * is cached.
+     *
+     * @param page the page number, starting at 1
+     * @return true if the page is followed by another one.
+     * @throws CancellationException if the probing has been cancelled
+     */
+    synchronized boolean hasDocumentsAfter(int page) {
+        final List<DBObject> nextPage = cache.get(cacheKey + (page + 1));
+        if (nextPage != null) {
+            return nextPage.isEmpty() == false;
+        }
+        cancelled = false;
+        boolean found;
+        try {
+            final PageBounds bounds = pagesBounds.get(page);
+            found = bounds != null && bounds.getLast() != null
+                && probe(keysetPagination.after(criteria, bounds.getLast()), keysetPagination.getSort(), 0);
+            if (found == false) {
+                // no range known, or one missing some values types
+                final DBObject probeSort = getKeysetPagination().isApplicable() ? keysetPagination.getSort() : sort;
+                found = probe(criteria, probeSort, page * pageSize);
+            }
+        } catch (MongoException | IllegalStateException ex) {
+            if (cancelled) {
+                throw new CancellationException();
+            }
+            throw ex;
+        }
+        if (cancelled) {
+            throw new CancellationException();
+        }
+        return found;
+    }
+
+    /**
+     * Cancels the page being fetched, if any, closing its cursor.
+     */
+    void cancel() {
+        cancelled = true;
+        final DBCursor cursor = activeCursor;
+        if (cursor != null) {
+            cursor.close();
+        }
+    }
+
+    private KeysetPagination getKeysetPagination() {
+        if (keysetPagination == null) {
+            keysetPagination = new KeysetPagination(dbCollection, projection, sort);
+        }
+        return keysetPagination;
+    }
+
+    private List<DBObject> fetchPage(int page, int lastPageSize) {
+        if (pageSize > 0 && getKeysetPagination().isApplicable()) {
+            return fetchPageUsingKeyset(page, lastPageSize);
+        }
+        return fetchPageUsingSkip(page);
+    }
+
+    /**
+     * Fetches a page using a range query starting from the bounds of an
+     * adjacent fetched page, or from the end of the result for the last page.
+     * Falls back to skip if no such bound is known, or if the range query
+     * returns less documents than expected (the range may miss some values
+     * types, see {@link KeysetPagination}).
+     */
+    private List<DBObject> fetchPageUsingKeyset(int page, int lastPageSize) {
+        final PageBounds previousPage = pagesBounds.get(page - 1);
+        final PageBounds nextPage = pagesBounds.get(page + 1);
+        List<DBObject> documents = null;
+        if (page == 1) {
+            return fetchPage(criteria, keysetPagination.getSort(), pageSize, false);
+        } else if (previousPage != null && previousPage.getLast() != null) {
+            documents = fetchPage(keysetPagination.after(criteria, previousPage.getLast()),
+                keysetPagination.getSort(), pageSize, false);
+        } else if (nextPage != null && nextPage.getFirst() != null) {
+            documents = fetchPage(keysetPagination.before(criteria, nextPage.getFirst()),
+                keysetPagination.getReversedSort(), pageSize, true);
+        } else if (lastPageSize > 0) {
+            return fetchPage(criteria, keysetPagination.getReversedSort(), lastPageSize, true);
+        }
+        if (documents != null
+            && (documents.size() == pageSize || documents.size() == lastPageSize)) {
+            return documents;
+        }
+        try (DBCursor cursor = find(criteria)) {
+            cursor.sort(keysetPagination.getSort());
+            return readPage(getPageCursor(cursor, page), false);
+        }
+    }
+
+    private List<DBObject> fetchPage(DBObject pageCriteria, DBObject pageSort, int limit, boolean backward) {
+        try (DBCursor cursor = find(pageCriteria)) {
+            return readPage(cursor.sort(pageSort).limit(limit), backward);
+        }
+    }
+
+    private boolean probe(DBObject probeCriteria, DBObject probeSort, int skip) {
+        try (DBCursor cursor = find(probeCriteria)) {
+            if (probeSort != null) {
+                cursor.sort(probeSort);
+            }
+            return readPage(cursor.skip(skip).limit(1), false).isEmpty() == false;
+        }
+    }
+
+    private List<DBObject> fetchPageUsingSkip(int page) {
+        try (DBCursor cursor = find(criteria)) {
+            if (sort != null) {
+                cursor.sort(sort);
+            }
+            return readPage(getPageCursor(cursor, page), false);
+        }
+    }
+
+    private DBCursor find(DBObject pageCriteria) {
+        final DBCursor cursor = dbCollection.find(pageCriteria, projection);
+        cursor.setDecoderFactory(LazyDBDecoder.FACTORY);
+        if (maxTime > 0) {
+            cursor.addSpecial("$maxTimeMS", maxTime);
+        }
+        return cursor;
+    }
+
+    private List<DBObject> readPage(DBCursor pageCursor, boolean backward) {
+        final List<DBObject> documents = new ArrayList<>();
+        activeCursor = pageCursor;
+        try {
+            if (cancelled) {
+                return documents;
+            }
+            for (DBObject document : pageCursor) {
+                documents.add(document);
+            }
+        } finally {
+            activeCursor = null;
+        }
+        if (backward) {
+            Collections.reverse(documents);
+        }
+        return Collections.unmodifiableList(documents);
+    }
+
+    private DBCursor getPageCursor(DBCursor queryCursor, int page) {
+        if (pageSize > 0) {
+            final int toSkip = (page - 1) * pageSize;
+            return queryCursor.skip(toSkip).limit(pageSize);
+        }
+        return queryCursor;
+    }
+
+    /**
+     * The sort keys of the first and last documents of a page.
+     */
+    private static final class PageBounds {
+
+        @Getter
+        private final DBObject first;
+
+        @Getter
+        private final DBObject last;
+
+        public PageBounds(DBObject first, DBObject last) {
+            this.first = first;
+            this.last = last;
+        }
+    }
+}
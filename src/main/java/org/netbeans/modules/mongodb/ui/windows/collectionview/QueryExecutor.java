@@ -0,0 +1,137 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2014 Yann D'Isanto.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.netbeans.modules.mongodb.ui.windows.collectionview;
+
+import com.mongodb.Mongo;
+import java.util.Map;
+import java.util.WeakHashMap;
+import org.netbeans.api.progress.ProgressHandle;
+import org.netbeans.api.progress.ProgressHandleFactory;
+import org.openide.util.Cancellable;
+import org.openide.util.RequestProcessor;
+import org.openide.util.TaskListener;
+
+/**
+ * Executes the queries of a view in background, one at a time: executing a
+ * query cancels the running one. The queries of all the views share a
+ * bounded request processor per connection.
+ *
+ * @author Yann D'Isanto
+ */
+public final class QueryExecutor {
+
+    /**
+     * The maximum number of queries run concurrently against a connection.
+     */
+    public static final int MAX_CONCURRENT_QUERIES = 4;
+
+    private static final Map<Mongo, RequestProcessor> PROCESSORS = new WeakHashMap<>();
+
+    /**
+     * Aborts the running query, e.g. by closing its cursor.
+     */
+    private final Cancellable queryCanceller;
+
+    private RequestProcessor.Task task;
+
+    private ProgressHandle progressHandle;
+
+    /**
+     * Creates a query executor.
+     *
+     * @param queryCanceller invoked when the running query is cancelled
+     */
+    public QueryExecutor(Cancellable queryCanceller) {
+        this.queryCanceller = queryCanceller;
+    }
+
+    /**
+     * Cancels the running query, if any, and executes the specified one.
+     * The query can be cancelled from the progress UI.
+     *
+     * @param mongo the connection the query is run against
+     * @param label the label displayed in the progress UI
+     * @param query the query
+     */
+    public synchronized void execute(Mongo mongo, String label, Runnable query) {
+        cancel();
+        final RequestProcessor.Task queryTask = getRequestProcessor(mongo).create(query);
+        final ProgressHandle queryProgressHandle = ProgressHandleFactory.createHandle(label, new Cancellable() {
+
+            @Override
+            public boolean cancel() {
+                return cancelIfRunning(queryTask);
+            }
+        });
+        queryTask.addTaskListener(new TaskListener() {
+
+            @Override
+            public void taskFinished(org.openide.util.Task finishedTask) {
+                queryProgressHandle.finish();
+            }
+        });
+        task = queryTask;
+        progressHandle = queryProgressHandle;
+        progressHandle.start();
+        task.schedule(0);
+    }
+
+    /**
+     * Cancels the running query, if any.
+     */
+    public synchronized void cancel() {
+        if (task != null) {
+            if (task.isFinished() == false) {
+                task.cancel();
+                queryCanceller.cancel();
+                progressHandle.finish();
+            }
+            task = null;
+            progressHandle = null;
+        }
+    }
+
+    private synchronized boolean cancelIfRunning(RequestProcessor.Task queryTask) {
+        if (task == queryTask) {
+            cancel();
+        }
+        return true;
+    }
+
+    /**
+     * Returns the request processor shared by all the queries run against
+     * the specified connection.
+     *
+     * @param mongo the connection
+     * @return the connection request processor.
+     */
+    public static synchronized RequestProcessor getRequestProcessor(Mongo mongo) {
+        RequestProcessor processor = PROCESSORS.get(mongo);
+        if (processor == null) {
+            processor = new RequestProcessor("mongodb queries", MAX_CONCURRENT_QUERIES, true);
+            PROCESSORS.put(mongo, processor);
+        }
+        return processor;
+    }
+}
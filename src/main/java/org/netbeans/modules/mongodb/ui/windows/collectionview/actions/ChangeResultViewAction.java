@@ -39,7 +39,9 @@ import org.openide.util.NbBundle.Messages;
     "ACTION_displayResultsAsTreeTable=Display results in tree table",
     "ACTION_displayResultsAsTreeTable_tooltip=Display results in tree table",
     "ACTION_displayResultsAsFlatTable=Display results in flat table",
-    "ACTION_displayResultsAsFlatTable_tooltip=Display results in flat table"
+    "ACTION_displayResultsAsFlatTable_tooltip=Display results in flat table",
+    "ACTION_displayResultsAsVirtualTable=Display all results in scrollable table",
+    "ACTION_displayResultsAsVirtualTable_tooltip=Display all results in scrollable table (no pagination)"
 })
 public final class ChangeResultViewAction extends CollectionViewAction {
 
@@ -67,6 +69,11 @@ public final class ChangeResultViewAction extends CollectionViewAction {
                     Bundle.ACTION_displayResultsAsTreeTable(), 
                     new ImageIcon(Images.TREE_TABLE_VIEW_ICON), 
                     Bundle.ACTION_displayResultsAsTreeTable_tooltip());
+            case VIRTUAL_TABLE:
+                return new ChangeResultViewAction(view, resultView, 
+                    Bundle.ACTION_displayResultsAsVirtualTable(), 
+                    new ImageIcon(Images.VIRTUAL_TABLE_VIEW_ICON), 
+                    Bundle.ACTION_displayResultsAsVirtualTable_tooltip());
             default:
                 throw new AssertionError();
         }
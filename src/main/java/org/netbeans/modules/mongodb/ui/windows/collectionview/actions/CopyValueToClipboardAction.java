@@ -23,10 +23,9 @@
  */
 package org.netbeans.modules.mongodb.ui.windows.collectionview.actions;
 
-import com.mongodb.BasicDBObject;
 import com.mongodb.util.JSON;
 import java.awt.datatransfer.StringSelection;
-import java.util.Map;
+import org.bson.BSONObject;
 import org.netbeans.modules.mongodb.ui.actions.CopyObjectToClipboardAction;
 import org.openide.util.NbBundle.Messages;
 
@@ -47,8 +46,8 @@ public final class CopyValueToClipboardAction extends CopyObjectToClipboardActio
     }
 
     private String convertToString(Object value) {
-        if (value instanceof Map) {
-            return JSON.serialize(new BasicDBObject((Map) value));
+        if (value instanceof BSONObject) {
+            return JSON.serialize(value);
         }
         return value.toString();
     }
@@ -0,0 +1,200 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2014 Yann D'Isanto.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.netbeans.modules.mongodb.ui.windows.collectionview.actions;
+
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBCollection;
+import com.mongodb.DBObject;
+import com.mongodb.MongoException;
+import java.awt.event.ActionEvent;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import javax.swing.SwingUtilities;
+import javax.swing.tree.TreePath;
+import org.bson.BSONObject;
+import org.netbeans.modules.mongodb.ui.util.ValidatingInputLine;
+import org.netbeans.modules.mongodb.ui.windows.CollectionView;
+import org.netbeans.modules.mongodb.ui.windows.collectionview.QueryExecutor;
+import org.netbeans.modules.mongodb.ui.windows.collectionview.treetable.DocumentNode;
+import org.netbeans.modules.mongodb.ui.windows.collectionview.treetable.DocumentsTreeTableModel;
+import org.netbeans.modules.mongodb.ui.windows.collectionview.treetable.JsonArrayRangeNode;
+import org.netbeans.modules.mongodb.ui.windows.collectionview.treetable.JsonPropertyNode;
+import org.netbeans.modules.mongodb.util.JsonProperty;
+import org.openide.DialogDisplayer;
+import org.openide.NotifyDescriptor;
+import org.openide.util.NbBundle.Messages;
+
+/**
+ * Fetches a window of an array of the selected document from the server,
+ * using the $slice projection operator, and displays it in place of the
+ * array.
+ *
+ * @author Yann D'Isanto
+ */
+@Messages({
+    "ACTION_fetchArrayWindow=Fetch array window...",
+    "# {0} - field name",
+    "fetchArrayWindowText=Elements of \"{0}\" to fetch (first..last):",
+    "VALIDATION_invalidArrayWindow=expected first..last, e.g. 0..999",
+    "arrayWindowNotFound=The array could not be fetched: the document or the field does not exist anymore."
+})
+public final class FetchArrayWindowAction extends CollectionViewAction {
+
+    private static final Pattern WINDOW_PATTERN = Pattern.compile("\\s*(\\d{1,10})\\s*\\.\\.\\s*(\\d{1,10})\\s*");
+
+    private final TreePath propertyPath;
+
+    private final String fieldPath;
+
+    public FetchArrayWindowAction(CollectionView view, TreePath propertyPath) {
+        super(view, Bundle.ACTION_fetchArrayWindow());
+        this.propertyPath = propertyPath;
+        this.fieldPath = getFieldPath(propertyPath);
+    }
+
+    /**
+     * Tells whether a window of the array property at the specified path can
+     * be fetched: the property must be reachable from the document through
+     * embedded documents only.
+     *
+     * @param path the path of a tree table node
+     * @return true if a window can be fetched.
+     */
+    public static boolean isApplicable(TreePath path) {
+        final Object node = path.getLastPathComponent();
+        return node instanceof JsonPropertyNode
+            && ((JsonPropertyNode) node).getUserObject().getValue() instanceof List
+            && getFieldPath(path) != null;
+    }
+
+    /**
+     * Returns the dotted path of the field of the property at the specified
+     * path, or null if the property is not reachable through embedded
+     * documents only.
+     */
+    private static String getFieldPath(TreePath path) {
+        if (path.getPathCount() < 3 || (path.getPathComponent(1) instanceof DocumentNode) == false) {
+            return null;
+        }
+        final StringBuilder sb = new StringBuilder();
+        for (int i = 2; i < path.getPathCount(); i++) {
+            final Object node = path.getPathComponent(i);
+            if ((node instanceof JsonPropertyNode) == false) {
+                return null;
+            }
+            if (sb.length() > 0) {
+                sb.append('.');
+            }
+            sb.append(((JsonPropertyNode) node).getUserObject().getName());
+        }
+        return sb.toString();
+    }
+
+    @Override
+    public void actionPerformed(ActionEvent e) {
+        final JsonPropertyNode node = (JsonPropertyNode) propertyPath.getLastPathComponent();
+        final String defaultWindow = new StringBuilder()
+            .append(node.getArrayOffset()).append("..")
+            .append(node.getArrayOffset() + JsonArrayRangeNode.BUCKET_SIZE - 1)
+            .toString();
+        final NotifyDescriptor.InputLine input = new ValidatingInputLine(
+            Bundle.fetchArrayWindowText(node.getUserObject().getName()),
+            Bundle.ACTION_fetchArrayWindow(),
+            new ValidatingInputLine.InputValidator() {
+
+                @Override
+                public void validate(String inputText) throws IllegalArgumentException {
+                    final Matcher matcher = WINDOW_PATTERN.matcher(inputText);
+                    if (matcher.matches() == false
+                        || Long.parseLong(matcher.group(1)) > Long.parseLong(matcher.group(2))
+                        || Long.parseLong(matcher.group(2)) >= Integer.MAX_VALUE) {
+                        throw new IllegalArgumentException(Bundle.VALIDATION_invalidArrayWindow());
+                    }
+                }
+            });
+        input.setInputText(defaultWindow);
+        final Object dlgResult = DialogDisplayer.getDefault().notify(input);
+        if (dlgResult.equals(NotifyDescriptor.OK_OPTION)) {
+            final Matcher matcher = WINDOW_PATTERN.matcher(input.getInputText());
+            matcher.matches();
+            final int first = Integer.parseInt(matcher.group(1));
+            final int count = Integer.parseInt(matcher.group(2)) - first + 1;
+            final DocumentNode documentNode = (DocumentNode) propertyPath.getPathComponent(1);
+            final Object id = documentNode.getUserObject().get("_id");
+            final DBCollection dbCollection = getView().getLookup().lookup(DBCollection.class);
+            QueryExecutor.getRequestProcessor(dbCollection.getDB().getMongo()).post(new Runnable() {
+
+                @Override
+                public void run() {
+                    fetchWindow(dbCollection, id, first, count);
+                }
+            });
+        }
+    }
+
+    private void fetchWindow(DBCollection dbCollection, Object id, final int first, int count) {
+        final List<?> window;
+        try {
+            // a $slice alone projects all the other fields too, the _id
+            // inclusion restricts the result to the array window
+            final DBObject projection = new BasicDBObject("_id", 1)
+                .append(fieldPath, new BasicDBObject("$slice", Arrays.asList(first, count)));
+            window = getArray(dbCollection.findOne(new BasicDBObject("_id", id), projection));
+        } catch (MongoException ex) {
+            DialogDisplayer.getDefault().notifyLater(
+                new NotifyDescriptor.Message(ex.getLocalizedMessage(), NotifyDescriptor.ERROR_MESSAGE));
+            return;
+        }
+        if (window == null) {
+            DialogDisplayer.getDefault().notifyLater(
+                new NotifyDescriptor.Message(Bundle.arrayWindowNotFound(), NotifyDescriptor.ERROR_MESSAGE));
+            return;
+        }
+        SwingUtilities.invokeLater(new Runnable() {
+
+            @Override
+            public void run() {
+                final JsonPropertyNode node = (JsonPropertyNode) propertyPath.getLastPathComponent();
+                final DocumentsTreeTableModel model = (DocumentsTreeTableModel) getView().getResultTreeTable().getTreeTableModel();
+                model.replaceNode(propertyPath, new JsonPropertyNode(
+                    node.getParent(),
+                    new JsonProperty(node.getUserObject().getName(), window),
+                    first));
+            }
+        });
+    }
+
+    private List<?> getArray(DBObject document) {
+        Object value = document;
+        for (String name : fieldPath.split("\\.")) {
+            if ((value instanceof BSONObject) == false) {
+                return null;
+            }
+            value = ((BSONObject) value).get(name);
+        }
+        return value instanceof List ? (List<?>) value : null;
+    }
+}
@@ -48,6 +48,6 @@ public final class NavFirstAction extends CollectionViewAction {
 
     @Override
     public void actionPerformed(ActionEvent e) {
-        getView().refreshResults();
+        getView().showPage(1);
     }
 }
@@ -50,8 +50,6 @@ public final class NavLastAction extends CollectionViewAction {
     @Override
     public void actionPerformed(ActionEvent e) {
         final CollectionQueryResult result = getView().getCollectionQueryResult();
-        result.setPage(result.getPageCount());
-        result.update();
-        getView().updatePagination();
+        getView().showPage(result.getPageCount());
     }
 }
@@ -52,9 +52,7 @@ public final class NavRightAction extends CollectionViewAction {
         final CollectionQueryResult result = getView().getCollectionQueryResult();
         int page = result.getPage();
         if (page < result.getPageCount()) {
-            result.setPage(page + 1);
-            result.update();
-            getView().updatePagination();
+            getView().showPage(page + 1);
         }
     }
 }
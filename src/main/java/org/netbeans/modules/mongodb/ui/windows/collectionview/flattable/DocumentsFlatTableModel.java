@@ -23,26 +23,74 @@
  */
 package org.netbeans.modules.mongodb.ui.windows.collectionview.flattable;
 
+import com.mongodb.DBCollection;
 import com.mongodb.DBObject;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import javax.swing.SwingUtilities;
+import javax.swing.event.ChangeEvent;
+import javax.swing.event.ChangeListener;
 import javax.swing.table.AbstractTableModel;
+import org.bson.LazyBSONObject;
+import org.netbeans.modules.mongodb.schema.CollectionSchema;
+import org.netbeans.modules.mongodb.schema.SchemaInference;
 import org.netbeans.modules.mongodb.ui.windows.collectionview.CollectionQueryResult;
 import org.netbeans.modules.mongodb.ui.windows.collectionview.CollectionQueryResultView;
 import org.netbeans.modules.mongodb.ui.windows.collectionview.CollectionQueryResultUpdateListener;
 
 /**
+ * The documents flat table model. Without projection, the columns are the
+ * top level fields of the collection schema inferred by sampling, so that
+ * they are the same for all the pages. The fields of the displayed
+ * documents missing from the schema are appended to them.
  *
  * @author Yann D'Isanto
  */
 public final class DocumentsFlatTableModel extends AbstractTableModel implements CollectionQueryResultView, CollectionQueryResultUpdateListener {
 
+    private final CollectionQueryResult collectionQueryResult;
+
     private final List<String> columns = new ArrayList<>();
 
-    private final CollectionQueryResult collectionQueryResult;
+    private final Map<String, Integer> columnIndexes = new HashMap<>();
+
+    /**
+     * The values of the displayed rows, by column index, decoded once per
+     * document.
+     */
+    private final Map<DBObject, Object[]> rowsValues = new IdentityHashMap<>();
+
+    /**
+     * The fields of the documents of the update in progress.
+     */
+    private final Set<String> updateFields = new LinkedHashSet<>();
+
+    /**
+     * The projection the columns have been computed for.
+     */
+    private DBObject columnsProjection;
+
+    private String schemaKey;
+
+    private final ChangeListener schemaListener = new ChangeListener() {
+
+        @Override
+        public void stateChanged(ChangeEvent e) {
+            updateColumns(getSchemaColumns(), false);
+        }
+    };
 
     public DocumentsFlatTableModel(CollectionQueryResult collectionQueryResult) {
         this.collectionQueryResult = collectionQueryResult;
+        columns.add("_id");
+        columnIndexes.put("_id", 0);
     }
 
     @Override
@@ -50,33 +98,104 @@ public final class DocumentsFlatTableModel extends AbstractTableModel implements
         return collectionQueryResult;
     }
 
+    /**
+     * Sets the key identifying the collection schema, and infers the schema
+     * if needed. Must be called in the event dispatch thread.
+     *
+     * @param schemaKey the collection key, unique across connections
+     */
+    public void setSchemaKey(String schemaKey) {
+        this.schemaKey = schemaKey;
+        final DBCollection dbCollection = collectionQueryResult.getDbCollection();
+        if (dbCollection != null) {
+            SchemaInference.getDefault().inferSchema(schemaKey, dbCollection, schemaListener);
+        }
+        updateColumns(getSchemaColumns(), true);
+    }
+
     @Override
     public void updateStarting(CollectionQueryResult source) {
-        columns.clear();
-        columns.add("_id");
+        synchronized (updateFields) {
+            updateFields.clear();
+        }
     }
 
     @Override
     public void documentAdded(CollectionQueryResult source, DBObject document) {
-        updateColumns(document);
+        synchronized (updateFields) {
+            updateFields.addAll(document.keySet());
+        }
     }
 
     @Override
     public void updateFinished(CollectionQueryResult source) {
-        fireTableStructureChanged();
+        final List<String> fields;
+        synchronized (updateFields) {
+            fields = new ArrayList<>(updateFields);
+        }
+        SwingUtilities.invokeLater(new Runnable() {
+
+            @Override
+            public void run() {
+                updateColumns(fields, false);
+            }
+        });
+    }
+
+    /**
+     * Returns the top level fields of the collection schema, if available and
+     * if there is no projection.
+     */
+    private List<String> getSchemaColumns() {
+        final CollectionSchema schema = schemaKey != null
+            ? SchemaInference.getDefault().getSchema(schemaKey)
+            : null;
+        if (schema == null || collectionQueryResult.getProjection() != null) {
+            return new ArrayList<>();
+        }
+        return schema.getTopLevelFieldNames();
     }
 
-    private void updateColumns(DBObject document) {
-        for (String field : document.keySet()) {
-            if (columns.contains(field) == false) {
-                columns.add(field);
+    /**
+     * Adds the specified fields to the columns, in the event dispatch thread.
+     * The columns are computed again if the projection has changed.
+     *
+     * @param fields the fields
+     * @param reset whether to compute the columns again
+     */
+    private void updateColumns(Collection<String> fields, boolean reset) {
+        final DBObject projection = collectionQueryResult.getProjection();
+        final List<String> previousColumns = new ArrayList<>(columns);
+        if (reset || Objects.equals(projection, columnsProjection) == false) {
+            columnsProjection = projection;
+            columns.clear();
+            columnIndexes.clear();
+            addColumn("_id");
+            for (String field : getSchemaColumns()) {
+                addColumn(field);
             }
         }
+        for (String field : fields) {
+            addColumn(field);
+        }
+        rowsValues.clear();
+        if (columns.equals(previousColumns)) {
+            fireTableDataChanged();
+        } else {
+            fireTableStructureChanged();
+        }
+    }
+
+    private void addColumn(String field) {
+        if (columnIndexes.containsKey(field) == false) {
+            columnIndexes.put(field, columns.size());
+            columns.add(field);
+        }
     }
 
     @Override
     public int getColumnCount() {
-        return columns != null ? columns.size() : 0;
+        return columns.size();
     }
 
     @Override
@@ -100,8 +219,31 @@ public final class DocumentsFlatTableModel extends AbstractTableModel implements
         if (document == null) {
             return null;
         }
-        final String field = columns.get(columnIndex);
-        return document.get(field);
+        Object[] rowValues = rowsValues.get(document);
+        if (rowValues == null) {
+            rowValues = getRowValues(document);
+            rowsValues.put(document, rowValues);
+        }
+        return rowValues[columnIndex];
+    }
+
+    /**
+     * Reads the values of a document by column index, in a single pass over
+     * the raw BSON of lazily decoded documents.
+     */
+    @SuppressWarnings("unchecked")
+    private Object[] getRowValues(DBObject document) {
+        final Collection<Map.Entry<String, Object>> entries = document instanceof LazyBSONObject
+            ? ((LazyBSONObject) document).entrySet()
+            : ((Map<String, Object>) document.toMap()).entrySet();
+        final Object[] rowValues = new Object[columns.size()];
+        for (Map.Entry<String, Object> entry : entries) {
+            final Integer columnIndex = columnIndexes.get(entry.getKey());
+            if (columnIndex != null) {
+                rowValues[columnIndex] = entry.getValue();
+            }
+        }
+        return rowValues;
     }
 
     @Override
@@ -0,0 +1,511 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2014 Yann D'Isanto.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.netbeans.modules.mongodb.ui.windows.collectionview.flattable;
+
+import com.mongodb.DBCollection;
+import com.mongodb.DBCursor;
+import com.mongodb.DBObject;
+import com.mongodb.LazyDBDecoder;
+import com.mongodb.MongoException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.swing.SwingUtilities;
+import javax.swing.event.ChangeEvent;
+import javax.swing.event.ChangeListener;
+import javax.swing.table.AbstractTableModel;
+import org.netbeans.modules.mongodb.ui.windows.collectionview.CollectionQueryResult;
+import org.netbeans.modules.mongodb.ui.windows.collectionview.CollectionQueryResult.CountAccuracy;
+import org.netbeans.modules.mongodb.ui.windows.collectionview.CollectionQueryResultUpdateListener;
+import org.netbeans.modules.mongodb.ui.windows.collectionview.CollectionQueryResultView;
+import org.netbeans.modules.mongodb.ui.windows.collectionview.QueryExecutor;
+import org.openide.util.RequestProcessor;
+
+/**
+ * A table model displaying the whole query result without pagination. Rows
+ * are fetched from an open cursor by blocks as they are displayed, and the
+ * least recently displayed blocks are released so that the memory usage
+ * stays bounded whatever the result size.
+ *
+ * @author Yann D'Isanto
+ */
+public final class DocumentsVirtualTableModel extends AbstractTableModel implements CollectionQueryResultView, CollectionQueryResultUpdateListener {
+
+    private static final Logger LOG = Logger.getLogger(DocumentsVirtualTableModel.class.getName());
+
+    /**
+     * The number of documents fetched at once.
+     */
+    private static final int BLOCK_SIZE = 100;
+
+    /**
+     * The maximum number of blocks kept in memory.
+     */
+    private static final int MAX_BLOCKS = 20;
+
+    /**
+     * The delay in milliseconds before fetching again a block whose fetching
+     * failed, doubled on each consecutive failure.
+     */
+    private static final long RETRY_DELAY = 1000;
+
+    private static final long MAX_RETRY_DELAY = 60 * 1000;
+
+    private final CollectionQueryResult collectionQueryResult;
+
+    /**
+     * Fetches the pending blocks on the connection request processor. A
+     * task never runs concurrently with itself so that the cursor is only
+     * used by a single thread at a time.
+     */
+    // guarded by this
+    private RequestProcessor.Task loaderTask;
+
+    private final List<String> columns = new ArrayList<>();
+
+    private final Set<String> columnsSet = new HashSet<>();
+
+    private int rowCount;
+
+    // guarded by this
+    private final Map<Integer, List<DBObject>> blocks = new LinkedHashMap<>(16, 0.75f, true);
+
+    // guarded by this
+    private final Deque<Integer> pendingBlocks = new ArrayDeque<>();
+
+    /**
+     * The blocks whose fetching failed, not requested again before their
+     * retry time so that a persistent error doesn't make each repaint run a
+     * failing query.
+     */
+    // guarded by this
+    private final Map<Integer, BlockFailure> failedBlocks = new HashMap<>();
+
+    /**
+     * Identifies the current query, blocks fetched for a previous one being
+     * ignored.
+     */
+    // guarded by this
+    private int generation;
+
+    /**
+     * The number of rows up to the last fetched one.
+     */
+    // guarded by this
+    private int fetchedRowCount;
+
+    /**
+     * The number of rows of the result once the cursor has been exhausted,
+     * -1 as long as it is unknown.
+     */
+    // guarded by this
+    private int endRowCount = -1;
+
+    // confined to the loader task
+    private DBCursor cursor;
+
+    private int cursorGeneration;
+
+    private int cursorPosition;
+
+    public DocumentsVirtualTableModel(CollectionQueryResult collectionQueryResult) {
+        this.collectionQueryResult = collectionQueryResult;
+        collectionQueryResult.addTotalDocumentsCountListener(new ChangeListener() {
+
+            @Override
+            public void stateChanged(ChangeEvent e) {
+                SwingUtilities.invokeLater(new Runnable() {
+
+                    @Override
+                    public void run() {
+                        updateRowCount();
+                    }
+                });
+            }
+        });
+    }
+
+    @Override
+    public CollectionQueryResult getCollectionQueryResult() {
+        return collectionQueryResult;
+    }
+
+    @Override
+    public void updateStarting(CollectionQueryResult source) {
+        reset();
+    }
+
+    @Override
+    public void documentAdded(CollectionQueryResult source, DBObject document) {
+    }
+
+    @Override
+    public void updateFinished(CollectionQueryResult source) {
+        SwingUtilities.invokeLater(new Runnable() {
+
+            @Override
+            public void run() {
+                columns.clear();
+                columnsSet.clear();
+                addColumn("_id");
+                rowCount = computeRowCount();
+                fireTableStructureChanged();
+            }
+        });
+    }
+
+    /**
+     * Releases the fetched documents and closes the cursor.
+     */
+    public void close() {
+        reset();
+    }
+
+    private void reset() {
+        synchronized (this) {
+            generation++;
+            blocks.clear();
+            pendingBlocks.clear();
+            failedBlocks.clear();
+            fetchedRowCount = 0;
+            endRowCount = -1;
+            if (loaderTask != null) {
+                // closes the cursor of the previous query
+                loaderTask.schedule(0);
+            }
+        }
+    }
+
+    private synchronized void scheduleLoading() {
+        if (loaderTask == null) {
+            final DBCollection dbCollection = collectionQueryResult.getDbCollection();
+            if (dbCollection == null) {
+                return;
+            }
+            loaderTask = QueryExecutor.getRequestProcessor(dbCollection.getDB().getMongo()).create(new Runnable() {
+
+                @Override
+                public void run() {
+                    fetchPendingBlocks();
+                }
+            });
+        }
+        loaderTask.schedule(0);
+    }
+
+    @Override
+    public int getColumnCount() {
+        return columns.size();
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return columns.get(column);
+    }
+
+    @Override
+    public Class<?> getColumnClass(int columnIndex) {
+        return DBObject.class;
+    }
+
+    @Override
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    @Override
+    public Object getValueAt(int rowIndex, int columnIndex) {
+        final DBObject document = getRowValue(rowIndex);
+        if (document == null) {
+            return null;
+        }
+        final String field = columns.get(columnIndex);
+        return document.get(field);
+    }
+
+    @Override
+    public boolean isCellEditable(int rowIndex, int columnIndex) {
+        return false;
+    }
+
+    /**
+     * Returns the document displayed at the specified row. If it is not
+     * fetched yet, its fetching is scheduled and the row is updated once
+     * done.
+     *
+     * @param rowIndex the row index
+     * @return the document or null if not fetched yet.
+     */
+    public DBObject getRowValue(int rowIndex) {
+        if (rowIndex == -1) {
+            return null;
+        }
+        final int block = rowIndex / BLOCK_SIZE;
+        synchronized (this) {
+            final List<DBObject> documents = blocks.get(block);
+            if (documents != null) {
+                final int index = rowIndex % BLOCK_SIZE;
+                return index < documents.size() ? documents.get(index) : null;
+            }
+            if (pendingBlocks.contains(block)) {
+                return null;
+            }
+            final BlockFailure failure = failedBlocks.get(block);
+            if (failure != null && System.currentTimeMillis() < failure.retryTime) {
+                return null;
+            }
+            // the most recently displayed rows are fetched first
+            pendingBlocks.addFirst(block);
+            while (pendingBlocks.size() > MAX_BLOCKS) {
+                pendingBlocks.removeLast();
+            }
+        }
+        scheduleLoading();
+        return null;
+    }
+
+    private void fetchPendingBlocks() {
+        while (fetchPendingBlock()) {
+        }
+    }
+
+    /**
+     * Fetches the next pending block.
+     *
+     * @return false if there is no pending block.
+     */
+    private boolean fetchPendingBlock() {
+        final int block;
+        final int fetchGeneration;
+        final boolean queryChanged;
+        synchronized (this) {
+            queryChanged = cursorGeneration != generation;
+        }
+        if (queryChanged) {
+            closeCursor();
+        }
+        synchronized (this) {
+            final Integer cursorBlock = cursorPosition / BLOCK_SIZE;
+            if (cursor != null && cursorPosition % BLOCK_SIZE == 0
+                && pendingBlocks.remove(cursorBlock)) {
+                // continue reading the open cursor rather than skipping
+                block = cursorBlock;
+            } else if (pendingBlocks.isEmpty() == false) {
+                block = pendingBlocks.removeFirst();
+            } else {
+                return false;
+            }
+            fetchGeneration = generation;
+        }
+        final int firstRow = block * BLOCK_SIZE;
+        final List<DBObject> documents = new ArrayList<>(BLOCK_SIZE);
+        try {
+            final DBCursor blockCursor = getCursor(fetchGeneration, firstRow);
+            while (documents.size() < BLOCK_SIZE && blockCursor.hasNext()) {
+                documents.add(blockCursor.next());
+                cursorPosition++;
+            }
+        } catch (MongoException | IllegalStateException ex) {
+            // IllegalStateException: cursor closed meanwhile
+            LOG.log(Level.INFO, "documents block fetching failed", ex);
+            closeCursor();
+            blockFailed(fetchGeneration, block);
+            return true;
+        }
+        synchronized (this) {
+            if (fetchGeneration != generation) {
+                return true;
+            }
+            failedBlocks.remove(block);
+            blocks.put(block, documents);
+            final Iterator<Integer> it = blocks.keySet().iterator();
+            while (blocks.size() > MAX_BLOCKS) {
+                it.next();
+                it.remove();
+            }
+            final int lastRow = firstRow + documents.size();
+            fetchedRowCount = Math.max(fetchedRowCount, lastRow);
+            if (documents.size() < BLOCK_SIZE) {
+                endRowCount = endRowCount < 0 ? lastRow : Math.min(endRowCount, lastRow);
+            }
+        }
+        SwingUtilities.invokeLater(new Runnable() {
+
+            @Override
+            public void run() {
+                blockFetched(fetchGeneration, firstRow, documents);
+            }
+        });
+        return true;
+    }
+
+    /**
+     * Records the failure of a block fetching, and repaints its rows once its
+     * retry delay has elapsed so that it is requested again if still
+     * displayed.
+     */
+    private void blockFailed(final int fetchGeneration, final int block) {
+        final long retryDelay;
+        synchronized (this) {
+            if (fetchGeneration != generation) {
+                return;
+            }
+            BlockFailure failure = failedBlocks.get(block);
+            if (failure == null) {
+                failure = new BlockFailure();
+                failedBlocks.put(block, failure);
+            }
+            retryDelay = Math.min(RETRY_DELAY << Math.min(failure.count, 16), MAX_RETRY_DELAY);
+            failure.count++;
+            failure.retryTime = System.currentTimeMillis() + retryDelay;
+        }
+        RequestProcessor.getDefault().post(new Runnable() {
+
+            @Override
+            public void run() {
+                SwingUtilities.invokeLater(new Runnable() {
+
+                    @Override
+                    public void run() {
+                        synchronized (DocumentsVirtualTableModel.this) {
+                            if (fetchGeneration != generation) {
+                                return;
+                            }
+                        }
+                        final int firstRow = block * BLOCK_SIZE;
+                        final int lastRow = Math.min(firstRow + BLOCK_SIZE, rowCount) - 1;
+                        if (lastRow >= firstRow) {
+                            fireTableRowsUpdated(firstRow, lastRow);
+                        }
+                    }
+                });
+            }
+        }, (int) retryDelay);
+    }
+
+    private DBCursor getCursor(int fetchGeneration, int position) {
+        if (cursor != null && cursorGeneration == fetchGeneration && cursorPosition == position) {
+            return cursor;
+        }
+        closeCursor();
+        final DBCollection dbCollection = collectionQueryResult.getDbCollection();
+        cursor = dbCollection.find(
+            collectionQueryResult.getCriteria(),
+            collectionQueryResult.getProjection());
+        if (collectionQueryResult.getSort() != null) {
+            cursor.sort(collectionQueryResult.getSort());
+        }
+        if (collectionQueryResult.getMaxTime() > 0) {
+            cursor.addSpecial("$maxTimeMS", collectionQueryResult.getMaxTime());
+        }
+        cursor.setDecoderFactory(LazyDBDecoder.FACTORY);
+        cursor.skip(position).batchSize(BLOCK_SIZE);
+        cursorGeneration = fetchGeneration;
+        cursorPosition = position;
+        return cursor;
+    }
+
+    private void closeCursor() {
+        if (cursor != null) {
+            cursor.close();
+            cursor = null;
+        }
+    }
+
+    private void blockFetched(int fetchGeneration, int firstRow, List<DBObject> documents) {
+        synchronized (this) {
+            if (fetchGeneration != generation) {
+                return;
+            }
+        }
+        boolean columnAdded = false;
+        for (DBObject document : documents) {
+            for (String field : document.keySet()) {
+                columnAdded |= addColumn(field);
+            }
+        }
+        if (columnAdded) {
+            rowCount = computeRowCount();
+            fireTableStructureChanged();
+            return;
+        }
+        updateRowCount();
+        final int lastRow = Math.min(firstRow + BLOCK_SIZE, rowCount) - 1;
+        if (lastRow >= firstRow) {
+            fireTableRowsUpdated(firstRow, lastRow);
+        }
+    }
+
+    private boolean addColumn(String field) {
+        if (columnsSet.add(field)) {
+            columns.add(field);
+            return true;
+        }
+        return false;
+    }
+
+    private void updateRowCount() {
+        final int previousRowCount = rowCount;
+        rowCount = computeRowCount();
+        if (rowCount > previousRowCount) {
+            fireTableRowsInserted(previousRowCount, rowCount - 1);
+        } else if (rowCount < previousRowCount) {
+            fireTableRowsDeleted(rowCount, previousRowCount - 1);
+        }
+    }
+
+    /**
+     * Computes the row count from the collection query result count. While
+     * the count is not exact the table grows as rows get fetched.
+     */
+    private synchronized int computeRowCount() {
+        if (endRowCount >= 0) {
+            return endRowCount;
+        }
+        final int count = collectionQueryResult.getTotalDocumentsCount();
+        if (collectionQueryResult.getTotalDocumentsCountAccuracy() == CountAccuracy.EXACT) {
+            return count;
+        }
+        return Math.max(count, fetchedRowCount + BLOCK_SIZE);
+    }
+
+    /**
+     * The consecutive fetching failures of a block.
+     */
+    private static final class BlockFailure {
+
+        private int count;
+
+        private long retryTime;
+    }
+}
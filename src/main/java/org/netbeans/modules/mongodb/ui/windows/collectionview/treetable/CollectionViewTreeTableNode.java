@@ -34,6 +34,8 @@ import javax.swing.tree.TreeNode;
 import org.jdesktop.swingx.treetable.TreeTableNode;
 
 /**
+ * A tree table node whose children are created on first access, typically
+ * when the node is expanded, and kept afterward.
  *
  * @author Yann D'Isanto
  */
@@ -43,7 +45,9 @@ public class CollectionViewTreeTableNode<T> implements TreeTableNode {
     
     private final T userObject;
 
-    private final List<TreeTableNode> children;
+    private final ChildrenFactory<T> childrenFactory;
+
+    private List<TreeTableNode> children;
 
     public CollectionViewTreeTableNode(TreeTableNode parent, T userObject) {
         this(parent, userObject, null);
@@ -52,15 +56,21 @@ public class CollectionViewTreeTableNode<T> implements TreeTableNode {
     public CollectionViewTreeTableNode(TreeTableNode parent, T userObject, ChildrenFactory<T> childrenFactory) {
         this.parent = parent;
         this.userObject = userObject;
-        this.children = childrenFactory != null 
-            ? childrenFactory.createChildren(this, userObject) 
-            : new ArrayList<TreeTableNode>();
+        this.childrenFactory = childrenFactory;
     }
 
+    private List<TreeTableNode> getChildren() {
+        if (children == null) {
+            children = childrenFactory != null 
+                ? childrenFactory.createChildren(this, userObject) 
+                : new ArrayList<TreeTableNode>();
+        }
+        return children;
+    }
     
     @Override
     public Enumeration<? extends TreeTableNode> children() {
-        return Collections.enumeration(children);
+        return Collections.enumeration(getChildren());
     }
 
     @Override
@@ -70,7 +80,19 @@ public class CollectionViewTreeTableNode<T> implements TreeTableNode {
 
     @Override
     public TreeTableNode getChildAt(int childIndex) {
-        return children.get(childIndex);
+        return getChildren().get(childIndex);
+    }
+
+    void setChildAt(int childIndex, TreeTableNode child) {
+        getChildren().set(childIndex, child);
+    }
+
+    void insertChildAt(int childIndex, TreeTableNode child) {
+        getChildren().add(childIndex, child);
+    }
+
+    void removeChildAt(int childIndex) {
+        getChildren().remove(childIndex);
     }
 
     @Override
@@ -105,26 +127,39 @@ public class CollectionViewTreeTableNode<T> implements TreeTableNode {
 
     @Override
     public int getChildCount() {
-        return children.size();
+        return getChildren().size();
     }
 
     @Override
     public int getIndex(TreeNode node) {
-        return children.indexOf(node);
+        return getChildren().indexOf(node);
     }
 
     @Override
     public boolean getAllowsChildren() {
-        return children.isEmpty() == false;
+        return isLeaf() == false;
     }
 
+    /**
+     * Tells whether this node has no children, without creating them if they
+     * have not been yet.
+     */
     @Override
     public boolean isLeaf() {
-        return children.isEmpty();
+        if (children != null) {
+            return children.isEmpty();
+        }
+        return childrenFactory == null || childrenFactory.hasChildren(userObject) == false;
     }
     
     public static interface ChildrenFactory<T> {
         List<TreeTableNode> createChildren(TreeTableNode parent, T userObject);
+
+        /**
+         * Tells whether the specified user object has children, without
+         * creating them.
+         */
+        boolean hasChildren(T userObject);
     }
     
     public static final class SimpleChildrenFactory<T> implements ChildrenFactory<T> {
@@ -143,6 +178,11 @@ public class CollectionViewTreeTableNode<T> implements TreeTableNode {
         public List<TreeTableNode> createChildren(TreeTableNode parent, T userObject) {
             return new ArrayList<>(children);
         }
+
+        @Override
+        public boolean hasChildren(T userObject) {
+            return children.isEmpty() == false;
+        }
     }
     
 }
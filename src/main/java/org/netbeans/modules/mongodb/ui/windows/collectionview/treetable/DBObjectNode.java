@@ -24,11 +24,8 @@
 package org.netbeans.modules.mongodb.ui.windows.collectionview.treetable;
 
 import com.mongodb.DBObject;
-import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
 import org.jdesktop.swingx.treetable.TreeTableNode;
-import org.netbeans.modules.mongodb.util.JsonProperty;
 
 /**
  *
@@ -36,21 +33,20 @@ import org.netbeans.modules.mongodb.util.JsonProperty;
  */
 public class DBObjectNode extends CollectionViewTreeTableNode<DBObject> {
 
-    public DBObjectNode(TreeTableNode parent, DBObject userObject) {
-        super(parent, userObject, new ChildrenFactory<DBObject>() {
+    private static final ChildrenFactory<DBObject> CHILDREN_FACTORY = new ChildrenFactory<DBObject>() {
+
+        @Override
+        public List<TreeTableNode> createChildren(TreeTableNode parent, DBObject userObject) {
+            return JsonPropertyNode.createPropertyNodes(parent, userObject);
+        }
 
-            @Override
-            @SuppressWarnings("unchecked")
-            public List<TreeTableNode> createChildren(TreeTableNode parent, DBObject userObject) {
-                final Map<String, Object> map = userObject.toMap();
-                final List<TreeTableNode> children = new ArrayList<>(map.size());
-                for (Map.Entry<String, Object> entry : map.entrySet()) {
-                    children.add(new JsonPropertyNode(
-                        parent,
-                        new JsonProperty(entry.getKey(), entry.getValue())));
-                }
-                return children;
-            }
-        });
+        @Override
+        public boolean hasChildren(DBObject userObject) {
+            return JsonPropertyNode.hasChildNodes(userObject);
+        }
+    };
+
+    public DBObjectNode(TreeTableNode parent, DBObject userObject) {
+        super(parent, userObject, CHILDREN_FACTORY);
     }
 }
@@ -1,7 +1,7 @@
 /*
  * The MIT License
  *
- * Copyright 2013 Yann D'Isanto.
+ * Copyright 2014 Yann D'Isanto.
  *
  * Permission is hereby granted, free of charge, to any person obtaining a copy
  * of this software and associated documentation files (the "Software"), to deal
@@ -24,9 +24,16 @@
 package org.netbeans.modules.mongodb.ui.windows.collectionview.treetable;
 
 import com.mongodb.DBObject;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
 import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.HashMap;
 import java.util.List;
-import javax.swing.SwingUtilities;
+import java.util.Map;
+import javax.swing.Timer;
+import javax.swing.tree.TreePath;
+import org.jdesktop.swingx.JXTreeTable;
 import org.jdesktop.swingx.treetable.DefaultTreeTableModel;
 import org.jdesktop.swingx.treetable.TreeTableNode;
 import org.netbeans.modules.mongodb.ui.windows.collectionview.CollectionQueryResult;
@@ -34,17 +41,82 @@ import org.netbeans.modules.mongodb.ui.windows.collectionview.CollectionQueryRes
 import org.netbeans.modules.mongodb.ui.windows.collectionview.CollectionQueryResultUpdateListener;
 
 /**
+ * The documents tree table model. Document nodes are added as the documents
+ * are received, the received documents being applied to the tree once per
+ * frame. On update, the nodes of the documents which are unchanged are kept,
+ * along with their expansion state. A kept node whose position changed is
+ * removed and inserted again, its expanded paths being expanded again in the
+ * tree table displaying the model.
  *
  * @author Yann D'Isanto
  */
 public final class DocumentsTreeTableModel extends DefaultTreeTableModel implements CollectionQueryResultView, CollectionQueryResultUpdateListener {
 
+    /**
+     * The delay in milliseconds between the applications of the received
+     * documents to the tree.
+     */
+    private static final int FRAME_DELAY = 16;
+
+    /**
+     * Marks the start of an update in the received events.
+     */
+    private static final Object UPDATE_STARTING = new Object();
+
+    /**
+     * Marks the end of an update in the received events.
+     */
+    private static final Object UPDATE_FINISHED = new Object();
+
     private final CollectionQueryResult collectionQueryResult;
 
+    private final CollectionViewTreeTableNode<Void> rootNode;
+
+    /**
+     * The received update events, documents or update markers, not applied
+     * to the tree yet.
+     */
+    private final List<Object> pendingEvents = new ArrayList<>();
+
+    private final Timer flushTimer;
+
+    /**
+     * The index of the next document node of the update being applied.
+     * Nodes before it belong to the update, nodes after it to the previous
+     * one.
+     */
+    private int updatePosition;
+
+    /**
+     * The tree table displaying the model, null if none.
+     */
+    private JXTreeTable treeTable;
+
     public DocumentsTreeTableModel(CollectionQueryResult collectionQueryResult) {
         this.collectionQueryResult = collectionQueryResult;
+        this.rootNode = new CollectionViewTreeTableNode<>(null, null,
+            new CollectionViewTreeTableNode.SimpleChildrenFactory<Void>());
+        setRoot(rootNode);
+        flushTimer = new Timer(FRAME_DELAY, new ActionListener() {
+
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                flushPendingEvents();
+            }
+        });
+        flushTimer.setRepeats(false);
     }
     
+    /**
+     * Sets the tree table displaying the model, whose expanded paths are
+     * kept when a node is moved.
+     *
+     * @param treeTable the tree table, null if none
+     */
+    public void setTreeTable(JXTreeTable treeTable) {
+        this.treeTable = treeTable;
+    }
+
     @Override
     public CollectionQueryResult getCollectionQueryResult() {
         return collectionQueryResult;
@@ -52,34 +124,151 @@ public final class DocumentsTreeTableModel extends DefaultTreeTableModel impleme
 
     @Override
     public void updateStarting(CollectionQueryResult source) {
+        postEvent(UPDATE_STARTING);
     }
 
     @Override
     public void documentAdded(CollectionQueryResult source, DBObject document) {
+        postEvent(document);
     }
 
     @Override
     public void updateFinished(CollectionQueryResult source) {
-        final TreeTableNode rootNode = new CollectionViewTreeTableNode<>(null, collectionQueryResult.getDocuments(),
-            new CollectionViewTreeTableNode.ChildrenFactory<List<DBObject>>() {
-
-                @Override
-                public List<TreeTableNode> createChildren(TreeTableNode parent, List<DBObject> documents) {
-                    final List<TreeTableNode> children = new ArrayList<>(documents.size());
-                    for (DBObject document : documents) {
-                        children.add(new DocumentNode(parent, document));
+        postEvent(UPDATE_FINISHED);
+    }
+
+    private void postEvent(Object event) {
+        synchronized (pendingEvents) {
+            pendingEvents.add(event);
+            if (pendingEvents.size() == 1) {
+                flushTimer.start();
+            }
+        }
+    }
+
+    /**
+     * Applies the received events to the tree, in the event dispatch thread.
+     */
+    private void flushPendingEvents() {
+        final List<Object> events;
+        synchronized (pendingEvents) {
+            events = new ArrayList<>(pendingEvents);
+            pendingEvents.clear();
+        }
+        final TreePath rootPath = new TreePath(rootNode);
+        final InsertedNodes insertedNodes = new InsertedNodes(rootPath);
+        final List<TreePath> movedExpandedPaths = new ArrayList<>();
+        Map<Object, DocumentNode> previousNodes = null;
+        for (Object event : events) {
+            if (event == UPDATE_STARTING) {
+                updatePosition = 0;
+                previousNodes = null;
+            } else if (event == UPDATE_FINISHED) {
+                insertedNodes.fire();
+                removeNodesAfterUpdatePosition(rootPath);
+            } else {
+                if (previousNodes == null) {
+                    previousNodes = getNodesAfterUpdatePosition();
+                }
+                final DBObject document = (DBObject) event;
+                final DocumentNode previousNode = previousNodes.remove(document.get("_id"));
+                if (previousNode != null && previousNode.getUserObject().equals(document)) {
+                    final int index = rootNode.getIndex(previousNode);
+                    if (index != updatePosition) {
+                        // moved: the node is reinserted at its new position
+                        insertedNodes.fire();
+                        addExpandedPaths(rootPath.pathByAddingChild(previousNode), movedExpandedPaths);
+                        rootNode.removeChildAt(index);
+                        modelSupport.fireChildRemoved(rootPath, index, previousNode);
+                        rootNode.insertChildAt(updatePosition, previousNode);
+                        insertedNodes.add(updatePosition, previousNode);
                     }
-                    return children;
+                } else {
+                    final DocumentNode node = new DocumentNode(rootNode, document);
+                    rootNode.insertChildAt(updatePosition, node);
+                    insertedNodes.add(updatePosition, node);
                 }
+                updatePosition++;
             }
-        );
-        SwingUtilities.invokeLater(new Runnable() {
+        }
+        insertedNodes.fire();
+        for (TreePath path : movedExpandedPaths) {
+            treeTable.expandPath(path);
+        }
+    }
 
-            @Override
-            public void run() {
-                setRoot(rootNode);
+    /**
+     * Adds the expanded paths of the specified node and of its descendants
+     * in the tree table to the specified list.
+     */
+    private void addExpandedPaths(TreePath path, List<TreePath> expandedPaths) {
+        if (treeTable == null) {
+            return;
+        }
+        final Enumeration<?> descendants = treeTable.getExpandedDescendants(path);
+        while (descendants != null && descendants.hasMoreElements()) {
+            expandedPaths.add((TreePath) descendants.nextElement());
+        }
+    }
+
+    /**
+     * Returns the nodes of the previous update not reused yet, by document
+     * id.
+     */
+    private Map<Object, DocumentNode> getNodesAfterUpdatePosition() {
+        final Map<Object, DocumentNode> nodes = new HashMap<>();
+        for (int i = updatePosition; i < rootNode.getChildCount(); i++) {
+            final DocumentNode node = (DocumentNode) rootNode.getChildAt(i);
+            final Object id = node.getUserObject().get("_id");
+            if (id != null) {
+                nodes.put(id, node);
             }
-        });
+        }
+        return nodes;
+    }
+
+    private void removeNodesAfterUpdatePosition(TreePath rootPath) {
+        final int count = rootNode.getChildCount() - updatePosition;
+        if (count <= 0) {
+            return;
+        }
+        final int[] indices = new int[count];
+        final Object[] nodes = new Object[count];
+        for (int i = 0; i < count; i++) {
+            indices[i] = updatePosition + i;
+            nodes[i] = rootNode.getChildAt(updatePosition + i);
+        }
+        for (int i = count - 1; i >= 0; i--) {
+            rootNode.removeChildAt(indices[i]);
+        }
+        modelSupport.fireChildrenRemoved(rootPath, indices, nodes);
+    }
+
+    /**
+     * Replaces the node at the specified path, keeping the expansion state of
+     * its siblings. Does nothing if the document of the node has been
+     * removed since the path was computed. Must be called in the event
+     * dispatch thread.
+     *
+     * @param path the path of the node to replace
+     * @param node the new node, which parent must be the parent of the
+     * replaced one
+     */
+    public void replaceNode(TreePath path, TreeTableNode node) {
+        if (path.getPathComponent(0) != getRoot() 
+            || rootNode.getIndex((TreeTableNode) path.getPathComponent(1)) == -1) {
+            return;
+        }
+        final TreePath parentPath = path.getParentPath();
+        final CollectionViewTreeTableNode<?> parent = (CollectionViewTreeTableNode<?>) parentPath.getLastPathComponent();
+        final TreeTableNode oldNode = (TreeTableNode) path.getLastPathComponent();
+        final int index = parent.getIndex(oldNode);
+        if (index == -1) {
+            return;
+        }
+        parent.setChildAt(index, node);
+        modelSupport.fireChildRemoved(parentPath, index, oldNode);
+        modelSupport.fireChildAdded(parentPath, index, node);
     }
 
     @Override
@@ -96,4 +285,39 @@ public final class DocumentsTreeTableModel extends DefaultTreeTableModel impleme
     public Class<?> getColumnClass(int columnIndex) {
         return DBObject.class;
     }
+
+    /**
+     * Accumulates contiguous inserted nodes to notify them with a single
+     * event.
+     */
+    private final class InsertedNodes {
+
+        private final TreePath parentPath;
+
+        private final List<Integer> indices = new ArrayList<>();
+
+        private final List<Object> nodes = new ArrayList<>();
+
+        public InsertedNodes(TreePath parentPath) {
+            this.parentPath = parentPath;
+        }
+
+        public void add(int index, TreeTableNode node) {
+            indices.add(index);
+            nodes.add(node);
+        }
+
+        public void fire() {
+            if (indices.isEmpty()) {
+                return;
+            }
+            final int[] childIndices = new int[indices.size()];
+            for (int i = 0; i < childIndices.length; i++) {
+                childIndices[i] = indices.get(i);
+            }
+            modelSupport.fireChildrenAdded(parentPath, childIndices, nodes.toArray());
+            indices.clear();
+            nodes.clear();
+        }
+    }
 }
@@ -0,0 +1,80 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2014 Yann D'Isanto.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.netbeans.modules.mongodb.ui.windows.collectionview.treetable;
+
+import java.util.List;
+import lombok.Getter;
+
+/**
+ * A range of the elements of an array.
+ *
+ * @author Yann D'Isanto
+ */
+public final class JsonArrayRange {
+
+    /**
+     * The array elements, possibly a window of the array.
+     */
+    @Getter
+    private final List<?> elements;
+
+    /**
+     * The index in the array of the first of the elements.
+     */
+    @Getter
+    private final int offset;
+
+    /**
+     * The index of the first element of the range, inclusive.
+     */
+    @Getter
+    private final int from;
+
+    /**
+     * The index of the last element of the range, exclusive.
+     */
+    @Getter
+    private final int to;
+
+    public JsonArrayRange(List<?> elements, int offset, int from, int to) {
+        this.elements = elements;
+        this.offset = offset;
+        this.from = from;
+        this.to = to;
+    }
+
+    /**
+     * @return the index in the array of the first element of the range.
+     */
+    public int getFirstIndex() {
+        return offset + from;
+    }
+
+    /**
+     * @return the index in the array of the last element of the range.
+     */
+    public int getLastIndex() {
+        return offset + to - 1;
+    }
+}
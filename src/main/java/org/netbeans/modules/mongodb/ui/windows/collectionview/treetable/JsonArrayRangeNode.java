@@ -0,0 +1,122 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2014 Yann D'Isanto.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.netbeans.modules.mongodb.ui.windows.collectionview.treetable;
+
+import com.mongodb.DBObject;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.RandomAccess;
+import org.jdesktop.swingx.treetable.TreeTableNode;
+
+/**
+ * A node grouping a range of the elements of a large array. Arrays with more
+ * than {@link #BUCKET_SIZE} elements are split into ranges, nested as needed
+ * so that no node has more than {@link #BUCKET_SIZE} children.
+ *
+ * @author Yann D'Isanto
+ */
+public final class JsonArrayRangeNode extends CollectionViewTreeTableNode<JsonArrayRange> {
+
+    /**
+     * The maximum number of children of an array node.
+     */
+    public static final int BUCKET_SIZE = 1000;
+
+    private static final ChildrenFactory<JsonArrayRange> CHILDREN_FACTORY = new ChildrenFactory<JsonArrayRange>() {
+
+        @Override
+        public List<TreeTableNode> createChildren(TreeTableNode parent, JsonArrayRange range) {
+            return createElementNodes(parent, range.getElements(), range.getOffset(), range.getFrom(), range.getTo());
+        }
+
+        @Override
+        public boolean hasChildren(JsonArrayRange range) {
+            return range.getTo() > range.getFrom();
+        }
+    };
+
+    public JsonArrayRangeNode(TreeTableNode parent, JsonArrayRange range) {
+        super(parent, range, CHILDREN_FACTORY);
+    }
+
+    /**
+     * Creates the nodes of a range of array elements: range nodes if there
+     * are more than {@link #BUCKET_SIZE} elements, element nodes otherwise.
+     *
+     * @param parent the parent node
+     * @param elements the array elements
+     * @param offset the index in the array of the first of the elements
+     * @param from the index of the first element, inclusive
+     * @param to the index of the last element, exclusive
+     * @return the nodes.
+     */
+    static List<TreeTableNode> createElementNodes(TreeTableNode parent, List<?> elements, int offset, int from, int to) {
+        final int count = to - from;
+        if (count > BUCKET_SIZE) {
+            long span = BUCKET_SIZE;
+            while ((count + span - 1) / span > BUCKET_SIZE) {
+                span *= BUCKET_SIZE;
+            }
+            final List<TreeTableNode> children = new ArrayList<>((int) ((count + span - 1) / span));
+            for (long start = from; start < to; start += span) {
+                children.add(new JsonArrayRangeNode(parent,
+                    new JsonArrayRange(elements, offset, (int) start, (int) Math.min(start + span, to))));
+            }
+            return children;
+        }
+        final List<TreeTableNode> children = new ArrayList<>(count);
+        for (Object element : getElements(elements, from, to)) {
+            // nested arrays are DBObjects too, but have to be split into ranges
+            if (element instanceof List) {
+                children.add(new JsonValueNode(parent, element));
+            } else if (element instanceof DBObject) {
+                children.add(new DBObjectNode(parent, (DBObject) element));
+            } else {
+                children.add(new JsonValueNode(parent, element));
+            }
+        }
+        return children;
+    }
+
+    /**
+     * Returns the specified range of elements. Lazily decoded arrays decode
+     * their content on each indexed access, and are therefore read
+     * sequentially.
+     */
+    private static List<?> getElements(List<?> elements, int from, int to) {
+        if (elements instanceof RandomAccess) {
+            return elements.subList(from, to);
+        }
+        final List<Object> range = new ArrayList<>(to - from);
+        final Iterator<?> it = elements.iterator();
+        for (int i = 0; i < to && it.hasNext(); i++) {
+            final Object element = it.next();
+            if (i >= from) {
+                range.add(element);
+            }
+        }
+        return range;
+    }
+}
@@ -23,11 +23,14 @@
  */
 package org.netbeans.modules.mongodb.ui.windows.collectionview.treetable;
 
-import com.mongodb.DBObject;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import lombok.Getter;
+import org.bson.BSONObject;
+import org.bson.LazyBSONObject;
 import org.jdesktop.swingx.treetable.TreeTableNode;
 import org.netbeans.modules.mongodb.util.JsonProperty;
 
@@ -37,36 +40,97 @@ import org.netbeans.modules.mongodb.util.JsonProperty;
  */
 public final class JsonPropertyNode extends CollectionViewTreeTableNode<JsonProperty> {
 
-    public JsonPropertyNode(TreeTableNode parent, JsonProperty property) {
-        super(parent, property, new ChildrenFactory<JsonProperty>() {
+    private static final ChildrenFactory<JsonProperty> CHILDREN_FACTORY = new ChildrenFactory<JsonProperty>() {
 
-            @Override
-            @SuppressWarnings("unchecked")
-            public List<TreeTableNode> createChildren(TreeTableNode parent, JsonProperty property) {
-                final Object value = property.getValue();
-                if (value instanceof Map) {
-                    final Map<String, Object> map = (Map<String, Object>) value;
-                    final List<TreeTableNode> children = new ArrayList<>(map.size());
-                    for (Map.Entry<String, Object> entry : map.entrySet()) {
-                        children.add(new JsonPropertyNode(
-                            parent,
-                            new JsonProperty(entry.getKey(), entry.getValue())));
-                    }
-                    return children;
-                } else if (value instanceof List) {
-                    final List<Object> objects = (List<Object>) value;
-                    final List<TreeTableNode> children = new ArrayList<>(objects.size());
-                    for (Object object : objects) {
-                        if(object instanceof DBObject) {
-                            children.add(new DBObjectNode(parent, (DBObject) object));
-                        } else {
-                            children.add(new JsonValueNode(parent, object));
-                        }
-                    }
-                    return children;
-                }
-                return Collections.emptyList();
+        @Override
+        public List<TreeTableNode> createChildren(TreeTableNode parent, JsonProperty property) {
+            final Object value = property.getValue();
+            if (value instanceof List) {
+                final JsonPropertyNode node = (JsonPropertyNode) parent;
+                return JsonArrayRangeNode.createElementNodes(
+                    parent, (List<?>) value, node.getArrayOffset(), 0, node.getElementCount());
+            } else if (value instanceof BSONObject) {
+                return createPropertyNodes(parent, (BSONObject) value);
             }
-        });
+            return Collections.emptyList();
+        }
+
+        @Override
+        public boolean hasChildren(JsonProperty property) {
+            return hasChildNodes(property.getValue());
+        }
+    };
+
+    /**
+     * The index in the array of the first element of an array value, not 0
+     * if only a window of the array has been fetched.
+     */
+    @Getter
+    private final int arrayOffset;
+
+    private int elementCount = -1;
+
+    public JsonPropertyNode(TreeTableNode parent, JsonProperty property) {
+        this(parent, property, 0);
+    }
+
+    public JsonPropertyNode(TreeTableNode parent, JsonProperty property, int arrayOffset) {
+        super(parent, property, CHILDREN_FACTORY);
+        this.arrayOffset = arrayOffset;
+    }
+
+    /**
+     * Returns the number of elements of an array value, computed once as
+     * it requires to read the whole value of lazily decoded arrays.
+     *
+     * @return the number of elements, or -1 if the value is not an array.
+     */
+    public int getElementCount() {
+        final Object value = getUserObject().getValue();
+        if (elementCount == -1 && value instanceof List) {
+            elementCount = ((List<?>) value).size();
+        }
+        return elementCount;
+    }
+
+    /**
+     * Creates the property nodes of a document. Lazily decoded documents are
+     * read in a single pass over their raw BSON rather than a lookup per
+     * field.
+     *
+     * @param parent the document node
+     * @param document the document
+     * @return the property nodes.
+     */
+    @SuppressWarnings("unchecked")
+    static List<TreeTableNode> createPropertyNodes(TreeTableNode parent, BSONObject document) {
+        final Set<Map.Entry<String, Object>> entries = document instanceof LazyBSONObject
+            ? ((LazyBSONObject) document).entrySet()
+            : ((Map<String, Object>) document.toMap()).entrySet();
+        final List<TreeTableNode> children = new ArrayList<>(entries.size());
+        for (Map.Entry<String, Object> entry : entries) {
+            children.add(new JsonPropertyNode(
+                parent,
+                new JsonProperty(entry.getKey(), entry.getValue())));
+        }
+        return children;
+    }
+
+    /**
+     * Tells whether the node of the specified value has children, without
+     * decoding the value content.
+     *
+     * @param value the value
+     * @return true if the value is a non empty document or list.
+     */
+    static boolean hasChildNodes(Object value) {
+        if (value instanceof List) {
+            return ((List<?>) value).isEmpty() == false;
+        } else if (value instanceof LazyBSONObject) {
+            return ((LazyBSONObject) value).isEmpty() == false;
+        } else if (value instanceof BSONObject) {
+            return ((BSONObject) value).keySet().isEmpty() == false;
+        }
+        return false;
     }
 }
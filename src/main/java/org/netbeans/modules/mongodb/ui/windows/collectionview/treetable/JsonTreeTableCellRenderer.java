@@ -44,11 +44,22 @@ import org.bson.types.ObjectId;
 import org.netbeans.modules.mongodb.options.LabelCategory;
 import org.netbeans.modules.mongodb.options.LabelFontConf;
 import org.netbeans.modules.mongodb.util.JsonProperty;
+import org.openide.util.NbBundle.Messages;
 
 /**
  *
  * @author Yann D'Isanto
  */
+@Messages({
+    "# {0} - element count",
+    "arrayElementCount=[{0} elements]",
+    "# {0} - element count",
+    "# {1} - first element index",
+    "arrayWindowElementCount=[{0} elements from index {1}]",
+    "# {0} - first element index",
+    "# {1} - last element index",
+    "arrayRange=[{0}..{1}]"
+})
 public final class JsonTreeTableCellRenderer extends JPanel implements TreeCellRenderer {
 
     private static final Map<Class<?>, LabelCategory> LABEL_CATEGORIES = new HashMap<>();
@@ -140,6 +151,8 @@ public final class JsonTreeTableCellRenderer extends JPanel implements TreeCellR
             computeRendererForJsonPropertyNode((JsonPropertyNode) value, selected);
         } else if (value instanceof JsonValueNode) {
             computeRendererForJsonValuePropertyNode((JsonValueNode) value, selected);
+        } else if (value instanceof JsonArrayRangeNode) {
+            computeRendererForJsonArrayRangeNode((JsonArrayRangeNode) value, selected);
         }
         return this;
     }
@@ -178,12 +191,65 @@ public final class JsonTreeTableCellRenderer extends JPanel implements TreeCellR
                 keyLabel.setBackground(keyFontConf.getBackground());
             }
             keyLabel.setText(property.getName());
-            valueLabel.setText("");
+            valueLabel.setText(buildArrayDescription(node));
+            valueLabel.setFont(keyFontConf.getFont());
+            if (selected) {
+                valueLabel.setForeground(getTextSelectionColor());
+                valueLabel.setBackground(getBackgroundSelectionColor());
+            } else {
+                valueLabel.setForeground(keyFontConf.getForeground());
+                valueLabel.setBackground(keyFontConf.getBackground());
+            }
+        }
+    }
+
+    private void computeRendererForJsonArrayRangeNode(JsonArrayRangeNode node, boolean selected) {
+        final JsonArrayRange range = node.getUserObject();
+        final LabelFontConf keyFontConf = options.getLabelFontConf(LabelCategory.KEY);
+        keyLabel.setFont(keyFontConf.getFont());
+        keyLabel.setText(Bundle.arrayRange(range.getFirstIndex(), range.getLastIndex()));
+        valueLabel.setText("");
+        if (selected) {
+            keyLabel.setForeground(getTextSelectionColor());
+            keyLabel.setBackground(getBackgroundSelectionColor());
+        } else {
+            keyLabel.setForeground(keyFontConf.getForeground());
+            keyLabel.setBackground(keyFontConf.getBackground());
         }
     }
 
+    private String buildArrayDescription(JsonPropertyNode node) {
+        final int elementCount = node.getElementCount();
+        if (elementCount == -1) {
+            return "";
+        }
+        return node.getArrayOffset() == 0
+            ? Bundle.arrayElementCount(elementCount)
+            : Bundle.arrayWindowElementCount(elementCount, node.getArrayOffset());
+    }
+
     private void computeRendererForJsonValuePropertyNode(JsonValueNode node, boolean selected) {
         final Object value = node.getUserObject();
+        if (value instanceof List) {
+            // a nested array, described as array properties are
+            final LabelFontConf keyFontConf = options.getLabelFontConf(LabelCategory.KEY);
+            keyLabel.setFont(keyFontConf.getFont());
+            keyLabel.setText("-");
+            valueLabel.setText(Bundle.arrayElementCount(node.getElementCount()));
+            valueLabel.setFont(keyFontConf.getFont());
+            if (selected) {
+                keyLabel.setForeground(getTextSelectionColor());
+                keyLabel.setBackground(getBackgroundSelectionColor());
+                valueLabel.setForeground(getTextSelectionColor());
+                valueLabel.setBackground(getBackgroundSelectionColor());
+            } else {
+                keyLabel.setForeground(keyFontConf.getForeground());
+                keyLabel.setBackground(keyFontConf.getBackground());
+                valueLabel.setForeground(keyFontConf.getForeground());
+                valueLabel.setBackground(keyFontConf.getBackground());
+            }
+            return;
+        }
         final LabelCategory valueLabelCategory = LABEL_CATEGORIES.get(value.getClass());
         final LabelFontConf keyFontConf = options.getLabelFontConf((value instanceof ObjectId) ? LabelCategory.ID : LabelCategory.KEY);
         final LabelFontConf valueFontConf = options.getLabelFontConf(valueLabelCategory);
@@ -23,12 +23,10 @@
  */
 package org.netbeans.modules.mongodb.ui.windows.collectionview.treetable;
 
-import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
-import java.util.Map;
+import org.bson.BSONObject;
 import org.jdesktop.swingx.treetable.TreeTableNode;
-import org.netbeans.modules.mongodb.util.JsonProperty;
 
 /**
  *
@@ -36,31 +34,42 @@ import org.netbeans.modules.mongodb.util.JsonProperty;
  */
 public final class JsonValueNode extends CollectionViewTreeTableNode<Object> {
 
-    public JsonValueNode(TreeTableNode parent, Object value) {
-        super(parent, value, new ChildrenFactory<Object>() {
+    private static final ChildrenFactory<Object> CHILDREN_FACTORY = new ChildrenFactory<Object>() {
 
-            @Override
-            @SuppressWarnings("unchecked")
-            public List<TreeTableNode> createChildren(TreeTableNode parent, Object value) {
-                if (value instanceof Map) {
-                    final Map<String, Object> map = (Map<String, Object>) value;
-                    final List<TreeTableNode> children = new ArrayList<>(map.size());
-                    for (Map.Entry<String, Object> entry : map.entrySet()) {
-                        children.add(new JsonPropertyNode(
-                            parent,
-                            new JsonProperty(entry.getKey(), entry.getValue())));
-                    }
-                    return children;
-                } else if (value instanceof List) {
-                    final List<Object> objects = (List<Object>) value;
-                    final List<TreeTableNode> children = new ArrayList<>(objects.size());
-                    for (Object object : objects) {
-                        children.add(new JsonValueNode(parent, object));
-                    }
-                    return children;
-                }
-                return Collections.emptyList();
+        @Override
+        public List<TreeTableNode> createChildren(TreeTableNode parent, Object value) {
+            if (value instanceof List) {
+                final JsonValueNode node = (JsonValueNode) parent;
+                return JsonArrayRangeNode.createElementNodes(parent, (List<?>) value, 0, 0, node.getElementCount());
+            } else if (value instanceof BSONObject) {
+                return JsonPropertyNode.createPropertyNodes(parent, (BSONObject) value);
             }
-        });
+            return Collections.emptyList();
+        }
+
+        @Override
+        public boolean hasChildren(Object value) {
+            return JsonPropertyNode.hasChildNodes(value);
+        }
+    };
+
+    private int elementCount = -1;
+
+    public JsonValueNode(TreeTableNode parent, Object value) {
+        super(parent, value, CHILDREN_FACTORY);
+    }
+
+    /**
+     * Returns the number of elements of an array value, computed once as
+     * it requires to read the whole value of lazily decoded arrays.
+     *
+     * @return the number of elements, or -1 if the value is not an array.
+     */
+    public int getElementCount() {
+        final Object value = getUserObject();
+        if (elementCount == -1 && value instanceof List) {
+            elementCount = ((List<?>) value).size();
+        }
+        return elementCount;
     }
 }
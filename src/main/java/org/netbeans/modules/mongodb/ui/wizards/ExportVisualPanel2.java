@@ -29,8 +29,13 @@ import javax.swing.JCheckBox;
 import javax.swing.JComboBox;
 import javax.swing.JFileChooser;
 import javax.swing.JPanel;
+import javax.swing.JSpinner;
 import javax.swing.JTextField;
 import javax.swing.event.ChangeListener;
+import org.netbeans.modules.mongodb.util.Compression;
+import org.netbeans.modules.mongodb.util.FileFormat;
+import org.netbeans.modules.mongodb.ui.util.BsonFileFilter;
+import org.netbeans.modules.mongodb.ui.util.DelimitedFileFilter;
 import org.netbeans.modules.mongodb.ui.util.JsonFileFilter;
 import org.openide.WizardDescriptor;
 import org.openide.filesystems.FileChooserBuilder;
@@ -59,6 +64,11 @@ public final class ExportVisualPanel2 extends JPanel {
             .setFilesOnly(true)
             .setApproveText("Export")
             .createFileChooser();
+        fileChooser.addChoosableFileFilter(new BsonFileFilter());
+        fileChooser.addChoosableFileFilter(new DelimitedFileFilter());
+        for (FileFormat format : FileFormat.values()) {
+            formatComboBox.addItem(format);
+        }
         for (Charset charset : Charset.availableCharsets().values()) {
             encodingComboBox.addItem(charset);
         }
@@ -77,6 +87,10 @@ public final class ExportVisualPanel2 extends JPanel {
         return fileChooser;
     }
 
+    JComboBox getFormatComboBox() {
+        return formatComboBox;
+    }
+
     JComboBox getEncodingComboBox() {
         return encodingComboBox;
     }
@@ -85,6 +99,22 @@ public final class ExportVisualPanel2 extends JPanel {
         return jsonArrayCheckBox;
     }
 
+    JCheckBox getCompressCheckBox() {
+        return compressCheckBox;
+    }
+
+    JCheckBox getResumableCheckBox() {
+        return resumableCheckBox;
+    }
+
+    JSpinner getParallelismSpinner() {
+        return parallelismSpinner;
+    }
+
+    JCheckBox getPartFilesCheckBox() {
+        return partFilesCheckBox;
+    }
+
     void setWizard(WizardDescriptor wizard) {
         this.wizard = wizard;
     }
@@ -109,9 +139,16 @@ public final class ExportVisualPanel2 extends JPanel {
         fileLabel = new javax.swing.JLabel();
         fileField = new javax.swing.JTextField();
         browseFileButton = new javax.swing.JButton();
+        formatLabel = new javax.swing.JLabel();
+        formatComboBox = new javax.swing.JComboBox<FileFormat>();
         encodingLabel = new javax.swing.JLabel();
         encodingComboBox = new javax.swing.JComboBox<Charset>();
         jsonArrayCheckBox = new javax.swing.JCheckBox();
+        compressCheckBox = new javax.swing.JCheckBox();
+        resumableCheckBox = new javax.swing.JCheckBox();
+        parallelismLabel = new javax.swing.JLabel();
+        parallelismSpinner = new javax.swing.JSpinner();
+        partFilesCheckBox = new javax.swing.JCheckBox();
 
         org.openide.awt.Mnemonics.setLocalizedText(fileLabel, org.openide.util.NbBundle.getMessage(ExportVisualPanel2.class, "ExportVisualPanel2.fileLabel.text")); // NOI18N
 
@@ -125,6 +162,14 @@ public final class ExportVisualPanel2 extends JPanel {
             }
         });
 
+        org.openide.awt.Mnemonics.setLocalizedText(formatLabel, org.openide.util.NbBundle.getMessage(ExportVisualPanel2.class, "ExportVisualPanel2.formatLabel.text")); // NOI18N
+
+        formatComboBox.addActionListener(new java.awt.event.ActionListener() {
+            public void actionPerformed(java.awt.event.ActionEvent evt) {
+                formatComboBoxActionPerformed(evt);
+            }
+        });
+
         org.openide.awt.Mnemonics.setLocalizedText(encodingLabel, org.openide.util.NbBundle.getMessage(ExportVisualPanel2.class, "ExportVisualPanel2.encodingLabel.text")); // NOI18N
 
         org.openide.awt.Mnemonics.setLocalizedText(jsonArrayCheckBox, org.openide.util.NbBundle.getMessage(ExportVisualPanel2.class, "ExportVisualPanel2.jsonArrayCheckBox.text")); // NOI18N
@@ -134,6 +179,32 @@ public final class ExportVisualPanel2 extends JPanel {
             }
         });
 
+        org.openide.awt.Mnemonics.setLocalizedText(compressCheckBox, org.openide.util.NbBundle.getMessage(ExportVisualPanel2.class, "ExportVisualPanel2.compressCheckBox.text")); // NOI18N
+        compressCheckBox.addActionListener(new java.awt.event.ActionListener() {
+            public void actionPerformed(java.awt.event.ActionEvent evt) {
+                compressCheckBoxActionPerformed(evt);
+            }
+        });
+
+        org.openide.awt.Mnemonics.setLocalizedText(resumableCheckBox, org.openide.util.NbBundle.getMessage(ExportVisualPanel2.class, "ExportVisualPanel2.resumableCheckBox.text")); // NOI18N
+        resumableCheckBox.addActionListener(new java.awt.event.ActionListener() {
+            public void actionPerformed(java.awt.event.ActionEvent evt) {
+                resumableCheckBoxActionPerformed(evt);
+            }
+        });
+
+        org.openide.awt.Mnemonics.setLocalizedText(parallelismLabel, org.openide.util.NbBundle.getMessage(ExportVisualPanel2.class, "ExportVisualPanel2.parallelismLabel.text")); // NOI18N
+
+        parallelismSpinner.setModel(new javax.swing.SpinnerNumberModel(1, 1, 16, 1));
+        parallelismSpinner.addChangeListener(new javax.swing.event.ChangeListener() {
+            public void stateChanged(javax.swing.event.ChangeEvent evt) {
+                parallelismSpinnerStateChanged(evt);
+            }
+        });
+
+        org.openide.awt.Mnemonics.setLocalizedText(partFilesCheckBox, org.openide.util.NbBundle.getMessage(ExportVisualPanel2.class, "ExportVisualPanel2.partFilesCheckBox.text")); // NOI18N
+        partFilesCheckBox.setEnabled(false);
+
         javax.swing.GroupLayout layout = new javax.swing.GroupLayout(this);
         this.setLayout(layout);
         layout.setHorizontalGroup(
@@ -144,8 +215,19 @@ public final class ExportVisualPanel2 extends JPanel {
                     .addGroup(layout.createSequentialGroup()
                         .addComponent(jsonArrayCheckBox)
                         .addGap(0, 226, Short.MAX_VALUE))
+                    .addComponent(compressCheckBox)
+                    .addComponent(resumableCheckBox)
+                    .addComponent(partFilesCheckBox)
+                    .addGroup(layout.createSequentialGroup()
+                        .addComponent(parallelismLabel)
+                        .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED)
+                        .addComponent(parallelismSpinner, javax.swing.GroupLayout.PREFERRED_SIZE, 60, javax.swing.GroupLayout.PREFERRED_SIZE))
                     .addGroup(javax.swing.GroupLayout.Alignment.TRAILING, layout.createSequentialGroup()
                         .addGroup(layout.createParallelGroup(javax.swing.GroupLayout.Alignment.TRAILING)
+                            .addGroup(layout.createSequentialGroup()
+                                .addComponent(formatLabel)
+                                .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED)
+                                .addComponent(formatComboBox, 0, javax.swing.GroupLayout.DEFAULT_SIZE, Short.MAX_VALUE))
                             .addGroup(layout.createSequentialGroup()
                                 .addComponent(encodingLabel)
                                 .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED)
@@ -167,11 +249,25 @@ public final class ExportVisualPanel2 extends JPanel {
                     .addComponent(fileField, javax.swing.GroupLayout.PREFERRED_SIZE, javax.swing.GroupLayout.DEFAULT_SIZE, javax.swing.GroupLayout.PREFERRED_SIZE)
                     .addComponent(browseFileButton))
                 .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED)
+                .addGroup(layout.createParallelGroup(javax.swing.GroupLayout.Alignment.BASELINE)
+                    .addComponent(formatLabel)
+                    .addComponent(formatComboBox, javax.swing.GroupLayout.PREFERRED_SIZE, javax.swing.GroupLayout.DEFAULT_SIZE, javax.swing.GroupLayout.PREFERRED_SIZE))
+                .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED)
                 .addGroup(layout.createParallelGroup(javax.swing.GroupLayout.Alignment.BASELINE)
                     .addComponent(encodingLabel)
                     .addComponent(encodingComboBox, javax.swing.GroupLayout.PREFERRED_SIZE, javax.swing.GroupLayout.DEFAULT_SIZE, javax.swing.GroupLayout.PREFERRED_SIZE))
                 .addGap(18, 18, 18)
                 .addComponent(jsonArrayCheckBox)
+                .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED)
+                .addComponent(compressCheckBox)
+                .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED)
+                .addComponent(resumableCheckBox)
+                .addGap(18, 18, 18)
+                .addGroup(layout.createParallelGroup(javax.swing.GroupLayout.Alignment.BASELINE)
+                    .addComponent(parallelismLabel)
+                    .addComponent(parallelismSpinner, javax.swing.GroupLayout.PREFERRED_SIZE, javax.swing.GroupLayout.DEFAULT_SIZE, javax.swing.GroupLayout.PREFERRED_SIZE))
+                .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED)
+                .addComponent(partFilesCheckBox)
                 .addContainerGap(javax.swing.GroupLayout.DEFAULT_SIZE, Short.MAX_VALUE))
         );
     }// </editor-fold>//GEN-END:initComponents
@@ -190,12 +286,93 @@ public final class ExportVisualPanel2 extends JPanel {
         changeSupport.fireChange();
     }//GEN-LAST:event_jsonArrayCheckBoxActionPerformed
 
+    private void compressCheckBoxActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_compressCheckBoxActionPerformed
+        final File file = fileChooser.getSelectedFile();
+        if (file != null) {
+            final String extension = Compression.GZIP.getExtension();
+            String name = file.getName();
+            if (compressCheckBox.isSelected() && name.endsWith(extension) == false) {
+                name += extension;
+            } else if (compressCheckBox.isSelected() == false && name.endsWith(extension)) {
+                name = name.substring(0, name.length() - extension.length());
+            }
+            final File renamed = new File(file.getParentFile(), name);
+            fileChooser.setSelectedFile(renamed);
+            fileField.setText(renamed.getAbsolutePath());
+        }
+        changeSupport.fireChange();
+    }//GEN-LAST:event_compressCheckBoxActionPerformed
+
+    private void resumableCheckBoxActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_resumableCheckBoxActionPerformed
+        updateParallelismComponents();
+        changeSupport.fireChange();
+    }//GEN-LAST:event_resumableCheckBoxActionPerformed
+
+    private void parallelismSpinnerStateChanged(javax.swing.event.ChangeEvent evt) {//GEN-FIRST:event_parallelismSpinnerStateChanged
+        updateParallelismComponents();
+        changeSupport.fireChange();
+    }//GEN-LAST:event_parallelismSpinnerStateChanged
+
+    private void formatComboBoxActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_formatComboBoxActionPerformed
+        final File file = fileChooser.getSelectedFile();
+        final FileFormat format = (FileFormat) formatComboBox.getSelectedItem();
+        if (file != null && format != null) {
+            final String compression = compressCheckBox.isSelected() ? Compression.GZIP.getExtension() : "";
+            String name = file.getName();
+            if (name.endsWith(compression)) {
+                name = name.substring(0, name.length() - compression.length());
+            }
+            for (FileFormat other : FileFormat.values()) {
+                if (name.endsWith(other.getExtension())) {
+                    name = name.substring(0, name.length() - other.getExtension().length());
+                    break;
+                }
+            }
+            final File renamed = new File(file.getParentFile(), name + format.getExtension() + compression);
+            fileChooser.setSelectedFile(renamed);
+            fileField.setText(renamed.getAbsolutePath());
+        }
+        updateFormatComponents();
+        changeSupport.fireChange();
+    }//GEN-LAST:event_formatComboBoxActionPerformed
+
+    /**
+     * Enables the JSON options only for a JSON export, and the encoding for
+     * the text formats. A BSON, CSV or TSV export is read on a single
+     * cursor, neither resumable nor parallel.
+     */
+    void updateFormatComponents() {
+        final boolean json = formatComboBox.getSelectedItem() == FileFormat.JSON;
+        encodingComboBox.setEnabled(formatComboBox.getSelectedItem() != FileFormat.BSON);
+        jsonArrayCheckBox.setEnabled(json);
+        resumableCheckBox.setEnabled(json);
+        updateParallelismComponents();
+    }
+
+    /**
+     * Enables the parallelism options only for a non resumable JSON export,
+     * and the part files option only for a parallel export.
+     */
+    void updateParallelismComponents() {
+        final boolean parallelizable = resumableCheckBox.isSelected() == false
+            && formatComboBox.getSelectedItem() == FileFormat.JSON;
+        parallelismSpinner.setEnabled(parallelizable);
+        partFilesCheckBox.setEnabled(parallelizable && (Integer) parallelismSpinner.getValue() > 1);
+    }
+
     // Variables declaration - do not modify//GEN-BEGIN:variables
     private javax.swing.JButton browseFileButton;
+    private javax.swing.JCheckBox compressCheckBox;
     private javax.swing.JComboBox<Charset> encodingComboBox;
     private javax.swing.JLabel encodingLabel;
     private javax.swing.JTextField fileField;
     private javax.swing.JLabel fileLabel;
+    private javax.swing.JComboBox<FileFormat> formatComboBox;
+    private javax.swing.JLabel formatLabel;
     private javax.swing.JCheckBox jsonArrayCheckBox;
+    private javax.swing.JLabel parallelismLabel;
+    private javax.swing.JSpinner parallelismSpinner;
+    private javax.swing.JCheckBox partFilesCheckBox;
+    private javax.swing.JCheckBox resumableCheckBox;
     // End of variables declaration//GEN-END:variables
 }
@@ -36,10 +36,12 @@ import java.util.List;
 import java.util.Map;
 import javax.swing.AbstractAction;
 import javax.swing.JComponent;
+import org.netbeans.modules.mongodb.util.Compression;
 import org.netbeans.modules.mongodb.util.ExportProperties;
 import org.netbeans.modules.mongodb.util.ExportPropertiesBuilder;
 import org.netbeans.modules.mongodb.util.ExportTask;
 import org.netbeans.modules.mongodb.util.Exporter;
+import org.netbeans.modules.mongodb.util.FileFormat;
 import org.openide.DialogDisplayer;
 import org.openide.WizardDescriptor;
 import org.openide.util.Lookup;
@@ -58,10 +60,20 @@ public final class ExportWizardAction extends AbstractAction {
 
     public static final String PROP_FILE = "file";
 
+    public static final String PROP_FORMAT = "format";
+
     public static final String PROP_ENCODING = "encoding";
 
     public static final String PROP_JSON_ARRAY = "jsonArray";
 
+    public static final String PROP_COMPRESSION = "compression";
+
+    public static final String PROP_RESUMABLE = "resumable";
+
+    public static final String PROP_PARALLELISM = "parallelism";
+
+    public static final String PROP_PART_FILES = "partFiles";
+
     private final Lookup lookup;
 
     private final Map<String, Object> defaultProperties;
@@ -111,7 +123,12 @@ public final class ExportWizardAction extends AbstractAction {
                 .sort((DBObject) wiz.getProperty(PROP_SORT))
                 .jsonArray((Boolean) wiz.getProperty(PROP_JSON_ARRAY))
                 .file((File) wiz.getProperty(PROP_FILE))
+                .format((FileFormat) wiz.getProperty(PROP_FORMAT))
                 .encoding((Charset) wiz.getProperty(PROP_ENCODING))
+                .compression((Compression) wiz.getProperty(PROP_COMPRESSION))
+                .resumable((Boolean) wiz.getProperty(PROP_RESUMABLE))
+                .parallelism((Integer) wiz.getProperty(PROP_PARALLELISM))
+                .partFiles((Boolean) wiz.getProperty(PROP_PART_FILES))
                 .build();
             new ExportTask(
                 new Exporter(lookup.lookup(DB.class), properties))
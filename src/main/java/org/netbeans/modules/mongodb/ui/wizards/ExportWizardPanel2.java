@@ -28,6 +28,8 @@ import java.nio.charset.Charset;
 import javax.swing.JFileChooser;
 import javax.swing.event.ChangeEvent;
 import javax.swing.event.ChangeListener;
+import org.netbeans.modules.mongodb.util.Compression;
+import org.netbeans.modules.mongodb.util.FileFormat;
 import org.openide.DialogDisplayer;
 import org.openide.NotifyDescriptor;
 import org.openide.WizardDescriptor;
@@ -90,11 +92,12 @@ public class ExportWizardPanel2 implements WizardDescriptor.ValidatingPanel<Wiza
         final ExportVisualPanel2 panel = getComponent();
         panel.setWizard(wiz);
         final JFileChooser fileChooser = panel.getFileChooser();
+        final FileFormat format = (FileFormat) wiz.getProperty(ExportWizardAction.PROP_FORMAT);
         File file = (File) wiz.getProperty(ExportWizardAction.PROP_FILE);
         if (file == null) {
             final String collection = (String) wiz.getProperty(ExportWizardAction.PROP_COLLECTION);
             if (collection != null) {
-                file = new File(fileChooser.getCurrentDirectory(), collection + ".json");
+                file = new File(fileChooser.getCurrentDirectory(), collection + FileFormat.JSON.getExtension());
             }
         }
         fileChooser.setSelectedFile(file);
@@ -103,6 +106,16 @@ public class ExportWizardPanel2 implements WizardDescriptor.ValidatingPanel<Wiza
         panel.getEncodingComboBox().setSelectedItem(charset != null ? charset : DEFAULT_CHARSET);
         final Boolean jsonArray = (Boolean) wiz.getProperty(ExportWizardAction.PROP_JSON_ARRAY);
         panel.getJsonArrayCheckBox().setSelected(jsonArray != null ? jsonArray : false);
+        final Compression compression = (Compression) wiz.getProperty(ExportWizardAction.PROP_COMPRESSION);
+        panel.getCompressCheckBox().setSelected(compression == Compression.GZIP);
+        final Integer parallelism = (Integer) wiz.getProperty(ExportWizardAction.PROP_PARALLELISM);
+        panel.getParallelismSpinner().setValue(parallelism != null ? parallelism : 1);
+        final Boolean partFiles = (Boolean) wiz.getProperty(ExportWizardAction.PROP_PART_FILES);
+        panel.getPartFilesCheckBox().setSelected(partFiles != null ? partFiles : false);
+        final Boolean resumable = (Boolean) wiz.getProperty(ExportWizardAction.PROP_RESUMABLE);
+        panel.getResumableCheckBox().setSelected(resumable != null ? resumable : false);
+        panel.getFormatComboBox().setSelectedItem(format != null ? format : FileFormat.JSON);
+        panel.updateFormatComponents();
     }
 
     @Override
@@ -110,10 +123,20 @@ public class ExportWizardPanel2 implements WizardDescriptor.ValidatingPanel<Wiza
         final ExportVisualPanel2 panel = getComponent();
         wiz.putProperty(ExportWizardAction.PROP_FILE, 
             panel.getFileChooser().getSelectedFile());
+        wiz.putProperty(ExportWizardAction.PROP_FORMAT, 
+            panel.getFormatComboBox().getSelectedItem());
         wiz.putProperty(ExportWizardAction.PROP_ENCODING, 
             panel.getEncodingComboBox().getSelectedItem());
         wiz.putProperty(ExportWizardAction.PROP_JSON_ARRAY, 
             panel.getJsonArrayCheckBox().isSelected());
+        wiz.putProperty(ExportWizardAction.PROP_COMPRESSION, 
+            panel.getCompressCheckBox().isSelected() ? Compression.GZIP : Compression.NONE);
+        wiz.putProperty(ExportWizardAction.PROP_RESUMABLE, 
+            panel.getResumableCheckBox().isSelected());
+        wiz.putProperty(ExportWizardAction.PROP_PARALLELISM, 
+            panel.getParallelismSpinner().getValue());
+        wiz.putProperty(ExportWizardAction.PROP_PART_FILES, 
+            panel.getPartFilesCheckBox().isSelected());
     }
 
     @Override
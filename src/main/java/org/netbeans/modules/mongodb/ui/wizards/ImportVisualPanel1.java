@@ -30,12 +30,16 @@ import javax.swing.JCheckBox;
 import javax.swing.JComboBox;
 import javax.swing.JFileChooser;
 import javax.swing.JPanel;
+import javax.swing.JSpinner;
 import javax.swing.JTextField;
 import javax.swing.event.ChangeListener;
 import javax.swing.event.DocumentEvent;
 import javax.swing.event.DocumentListener;
 import javax.swing.text.JTextComponent;
+import org.netbeans.modules.mongodb.ui.util.BsonFileFilter;
+import org.netbeans.modules.mongodb.ui.util.DelimitedFileFilter;
 import org.netbeans.modules.mongodb.ui.util.JsonFileFilter;
+import org.netbeans.modules.mongodb.util.FileFormat;
 import org.openide.filesystems.FileChooserBuilder;
 import org.openide.util.ChangeSupport;
 import org.openide.util.NbBundle.Messages;
@@ -44,6 +48,11 @@ import org.openide.util.NbBundle.Messages;
     "ImportOptionsStep=Import options"})
 public final class ImportVisualPanel1 extends JPanel {
 
+    /**
+     * The names of the write concerns proposed for the import.
+     */
+    static final String[] WRITE_CONCERNS = {"ACKNOWLEDGED", "UNACKNOWLEDGED", "JOURNALED", "MAJORITY"};
+
     private final ChangeSupport changeSupport = new ChangeSupport(this);
 
     private final JFileChooser fileChooser;
@@ -56,7 +65,6 @@ public final class ImportVisualPanel1 extends JPanel {
     public ImportVisualPanel1(DB db) {
         initComponents();
         collectionEditor = (JTextComponent) collectionComboBox.getEditor().getEditorComponent();
-        dropCheckBox.setVisible(false);
         final File home = new File(System.getProperty("user.home"));
         fileChooser = new FileChooserBuilder("import-export-filechooser")
             .setTitle("Import documents")
@@ -65,12 +73,20 @@ public final class ImportVisualPanel1 extends JPanel {
             .setFileFilter(new JsonFileFilter())
             .setFilesOnly(true)
             .createFileChooser();
+        fileChooser.addChoosableFileFilter(new BsonFileFilter());
+        fileChooser.addChoosableFileFilter(new DelimitedFileFilter());
+        for (FileFormat format : FileFormat.values()) {
+            formatComboBox.addItem(format);
+        }
         for (String collection : db.getCollectionNames()) {
             collectionComboBox.addItem(collection);
         }
         for (Charset charset : Charset.availableCharsets().values()) {
             encodingComboBox.addItem(charset);
         }
+        for (String writeConcern : WRITE_CONCERNS) {
+            writeConcernComboBox.addItem(writeConcern);
+        }
         final DocumentListener documentListener = new DocumentListener() {
 
             @Override
@@ -91,6 +107,8 @@ public final class ImportVisualPanel1 extends JPanel {
         };
         fileField.getDocument().addDocumentListener(documentListener);
         collectionEditor.getDocument().addDocumentListener(documentListener);
+        upsertKeyField.getDocument().addDocumentListener(documentListener);
+        columnsField.getDocument().addDocumentListener(documentListener);
     }
 
     @Override
@@ -106,6 +124,18 @@ public final class ImportVisualPanel1 extends JPanel {
         return fileField;
     }
 
+    JComboBox getFormatComboBox() {
+        return formatComboBox;
+    }
+
+    JTextField getColumnsField() {
+        return columnsField;
+    }
+
+    JCheckBox getHeaderLineCheckBox() {
+        return headerLineCheckBox;
+    }
+
     JComboBox getEncodingComboBox() {
         return encodingComboBox;
     }
@@ -118,6 +148,38 @@ public final class ImportVisualPanel1 extends JPanel {
         return dropCheckBox;
     }
 
+    JCheckBox getBulkLoadCheckBox() {
+        return bulkLoadCheckBox;
+    }
+
+    JCheckBox getUpsertCheckBox() {
+        return upsertCheckBox;
+    }
+
+    JTextField getUpsertKeyField() {
+        return upsertKeyField;
+    }
+
+    JCheckBox getDeadLetterCheckBox() {
+        return deadLetterCheckBox;
+    }
+
+    JSpinner getBatchSizeSpinner() {
+        return batchSizeSpinner;
+    }
+
+    JComboBox getWriteConcernComboBox() {
+        return writeConcernComboBox;
+    }
+
+    JSpinner getParseThreadsSpinner() {
+        return parseThreadsSpinner;
+    }
+
+    JSpinner getInsertThreadsSpinner() {
+        return insertThreadsSpinner;
+    }
+
     public final void addChangeListener(ChangeListener l) {
         changeSupport.addChangeListener(l);
     }
@@ -137,11 +199,28 @@ public final class ImportVisualPanel1 extends JPanel {
         fileLabel = new javax.swing.JLabel();
         fileField = new javax.swing.JTextField();
         browseFileButton = new javax.swing.JButton();
+        formatLabel = new javax.swing.JLabel();
+        formatComboBox = new javax.swing.JComboBox<FileFormat>();
         encodingLabel = new javax.swing.JLabel();
         encodingComboBox = new javax.swing.JComboBox<Charset>();
+        columnsLabel = new javax.swing.JLabel();
+        columnsField = new javax.swing.JTextField();
+        headerLineCheckBox = new javax.swing.JCheckBox();
         collectionComboBox = new javax.swing.JComboBox<String>();
         collectionLabel = new javax.swing.JLabel();
         dropCheckBox = new javax.swing.JCheckBox();
+        bulkLoadCheckBox = new javax.swing.JCheckBox();
+        upsertCheckBox = new javax.swing.JCheckBox();
+        upsertKeyField = new javax.swing.JTextField();
+        deadLetterCheckBox = new javax.swing.JCheckBox();
+        batchSizeLabel = new javax.swing.JLabel();
+        batchSizeSpinner = new javax.swing.JSpinner();
+        writeConcernLabel = new javax.swing.JLabel();
+        writeConcernComboBox = new javax.swing.JComboBox<String>();
+        parseThreadsLabel = new javax.swing.JLabel();
+        parseThreadsSpinner = new javax.swing.JSpinner();
+        insertThreadsLabel = new javax.swing.JLabel();
+        insertThreadsSpinner = new javax.swing.JSpinner();
 
         org.openide.awt.Mnemonics.setLocalizedText(fileLabel, org.openide.util.NbBundle.getMessage(ImportVisualPanel1.class, "ImportVisualPanel1.fileLabel.text")); // NOI18N
 
@@ -155,14 +234,59 @@ public final class ImportVisualPanel1 extends JPanel {
             }
         });
 
+        org.openide.awt.Mnemonics.setLocalizedText(formatLabel, org.openide.util.NbBundle.getMessage(ImportVisualPanel1.class, "ImportVisualPanel1.formatLabel.text")); // NOI18N
+
+        formatComboBox.addActionListener(new java.awt.event.ActionListener() {
+            public void actionPerformed(java.awt.event.ActionEvent evt) {
+                formatComboBoxActionPerformed(evt);
+            }
+        });
+
         org.openide.awt.Mnemonics.setLocalizedText(encodingLabel, org.openide.util.NbBundle.getMessage(ImportVisualPanel1.class, "ImportVisualPanel1.encodingLabel.text")); // NOI18N
 
+        org.openide.awt.Mnemonics.setLocalizedText(columnsLabel, org.openide.util.NbBundle.getMessage(ImportVisualPanel1.class, "ImportVisualPanel1.columnsLabel.text")); // NOI18N
+
+        columnsField.setToolTipText(org.openide.util.NbBundle.getMessage(ImportVisualPanel1.class, "ImportVisualPanel1.columnsField.toolTipText")); // NOI18N
+
+        headerLineCheckBox.setSelected(true);
+        org.openide.awt.Mnemonics.setLocalizedText(headerLineCheckBox, org.openide.util.NbBundle.getMessage(ImportVisualPanel1.class, "ImportVisualPanel1.headerLineCheckBox.text")); // NOI18N
+
         collectionComboBox.setEditable(true);
 
         org.openide.awt.Mnemonics.setLocalizedText(collectionLabel, org.openide.util.NbBundle.getMessage(ImportVisualPanel1.class, "ImportVisualPanel1.collectionLabel.text")); // NOI18N
 
         org.openide.awt.Mnemonics.setLocalizedText(dropCheckBox, org.openide.util.NbBundle.getMessage(ImportVisualPanel1.class, "ImportVisualPanel1.dropCheckBox.text")); // NOI18N
 
+        org.openide.awt.Mnemonics.setLocalizedText(bulkLoadCheckBox, org.openide.util.NbBundle.getMessage(ImportVisualPanel1.class, "ImportVisualPanel1.bulkLoadCheckBox.text")); // NOI18N
+        bulkLoadCheckBox.setToolTipText(org.openide.util.NbBundle.getMessage(ImportVisualPanel1.class, "ImportVisualPanel1.bulkLoadCheckBox.toolTipText")); // NOI18N
+
+        org.openide.awt.Mnemonics.setLocalizedText(upsertCheckBox, org.openide.util.NbBundle.getMessage(ImportVisualPanel1.class, "ImportVisualPanel1.upsertCheckBox.text")); // NOI18N
+        upsertCheckBox.setToolTipText(org.openide.util.NbBundle.getMessage(ImportVisualPanel1.class, "ImportVisualPanel1.upsertCheckBox.toolTipText")); // NOI18N
+        upsertCheckBox.addActionListener(new java.awt.event.ActionListener() {
+            public void actionPerformed(java.awt.event.ActionEvent evt) {
+                upsertCheckBoxActionPerformed(evt);
+            }
+        });
+
+        upsertKeyField.setText("_id");
+
+        org.openide.awt.Mnemonics.setLocalizedText(deadLetterCheckBox, org.openide.util.NbBundle.getMessage(ImportVisualPanel1.class, "ImportVisualPanel1.deadLetterCheckBox.text")); // NOI18N
+        deadLetterCheckBox.setToolTipText(org.openide.util.NbBundle.getMessage(ImportVisualPanel1.class, "ImportVisualPanel1.deadLetterCheckBox.toolTipText")); // NOI18N
+
+        org.openide.awt.Mnemonics.setLocalizedText(batchSizeLabel, org.openide.util.NbBundle.getMessage(ImportVisualPanel1.class, "ImportVisualPanel1.batchSizeLabel.text")); // NOI18N
+
+        batchSizeSpinner.setModel(new javax.swing.SpinnerNumberModel(1000, 1, 100000, 100));
+
+        org.openide.awt.Mnemonics.setLocalizedText(writeConcernLabel, org.openide.util.NbBundle.getMessage(ImportVisualPanel1.class, "ImportVisualPanel1.writeConcernLabel.text")); // NOI18N
+
+        org.openide.awt.Mnemonics.setLocalizedText(parseThreadsLabel, org.openide.util.NbBundle.getMessage(ImportVisualPanel1.class, "ImportVisualPanel1.parseThreadsLabel.text")); // NOI18N
+
+        parseThreadsSpinner.setModel(new javax.swing.SpinnerNumberModel(2, 1, 16, 1));
+
+        org.openide.awt.Mnemonics.setLocalizedText(insertThreadsLabel, org.openide.util.NbBundle.getMessage(ImportVisualPanel1.class, "ImportVisualPanel1.insertThreadsLabel.text")); // NOI18N
+
+        insertThreadsSpinner.setModel(new javax.swing.SpinnerNumberModel(2, 1, 16, 1));
+
         javax.swing.GroupLayout layout = new javax.swing.GroupLayout(this);
         this.setLayout(layout);
         layout.setHorizontalGroup(
@@ -170,19 +294,56 @@ public final class ImportVisualPanel1 extends JPanel {
             .addGroup(layout.createSequentialGroup()
                 .addContainerGap()
                 .addGroup(layout.createParallelGroup(javax.swing.GroupLayout.Alignment.LEADING)
+                    .addGroup(layout.createSequentialGroup()
+                        .addComponent(headerLineCheckBox)
+                        .addGap(0, 0, Short.MAX_VALUE))
                     .addGroup(layout.createSequentialGroup()
                         .addComponent(dropCheckBox)
                         .addGap(0, 0, Short.MAX_VALUE))
+                    .addGroup(layout.createSequentialGroup()
+                        .addComponent(bulkLoadCheckBox)
+                        .addGap(0, 0, Short.MAX_VALUE))
+                    .addGroup(layout.createSequentialGroup()
+                        .addComponent(upsertCheckBox)
+                        .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED)
+                        .addComponent(upsertKeyField, javax.swing.GroupLayout.PREFERRED_SIZE, 150, javax.swing.GroupLayout.PREFERRED_SIZE))
+                    .addGroup(layout.createSequentialGroup()
+                        .addComponent(deadLetterCheckBox)
+                        .addGap(0, 0, Short.MAX_VALUE))
+                    .addGroup(layout.createSequentialGroup()
+                        .addComponent(batchSizeLabel)
+                        .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED)
+                        .addComponent(batchSizeSpinner, javax.swing.GroupLayout.PREFERRED_SIZE, 80, javax.swing.GroupLayout.PREFERRED_SIZE))
+                    .addGroup(layout.createSequentialGroup()
+                        .addComponent(writeConcernLabel)
+                        .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED)
+                        .addComponent(writeConcernComboBox, javax.swing.GroupLayout.PREFERRED_SIZE, javax.swing.GroupLayout.DEFAULT_SIZE, javax.swing.GroupLayout.PREFERRED_SIZE))
+                    .addGroup(layout.createSequentialGroup()
+                        .addComponent(parseThreadsLabel)
+                        .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED)
+                        .addComponent(parseThreadsSpinner, javax.swing.GroupLayout.PREFERRED_SIZE, 80, javax.swing.GroupLayout.PREFERRED_SIZE))
+                    .addGroup(layout.createSequentialGroup()
+                        .addComponent(insertThreadsLabel)
+                        .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED)
+                        .addComponent(insertThreadsSpinner, javax.swing.GroupLayout.PREFERRED_SIZE, 80, javax.swing.GroupLayout.PREFERRED_SIZE))
                     .addGroup(javax.swing.GroupLayout.Alignment.TRAILING, layout.createSequentialGroup()
                         .addGroup(layout.createParallelGroup(javax.swing.GroupLayout.Alignment.TRAILING)
                             .addGroup(layout.createSequentialGroup()
                                 .addComponent(collectionLabel)
                                 .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED)
                                 .addComponent(collectionComboBox, javax.swing.GroupLayout.PREFERRED_SIZE, 284, javax.swing.GroupLayout.PREFERRED_SIZE))
+                            .addGroup(javax.swing.GroupLayout.Alignment.LEADING, layout.createSequentialGroup()
+                                .addComponent(formatLabel)
+                                .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED)
+                                .addComponent(formatComboBox, 0, javax.swing.GroupLayout.DEFAULT_SIZE, Short.MAX_VALUE))
                             .addGroup(javax.swing.GroupLayout.Alignment.LEADING, layout.createSequentialGroup()
                                 .addComponent(encodingLabel)
                                 .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED)
                                 .addComponent(encodingComboBox, 0, javax.swing.GroupLayout.DEFAULT_SIZE, Short.MAX_VALUE))
+                            .addGroup(javax.swing.GroupLayout.Alignment.LEADING, layout.createSequentialGroup()
+                                .addComponent(columnsLabel)
+                                .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED)
+                                .addComponent(columnsField))
                             .addGroup(layout.createSequentialGroup()
                                 .addComponent(fileLabel)
                                 .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED)
@@ -200,15 +361,49 @@ public final class ImportVisualPanel1 extends JPanel {
                     .addComponent(fileField, javax.swing.GroupLayout.PREFERRED_SIZE, javax.swing.GroupLayout.DEFAULT_SIZE, javax.swing.GroupLayout.PREFERRED_SIZE)
                     .addComponent(browseFileButton))
                 .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED)
+                .addGroup(layout.createParallelGroup(javax.swing.GroupLayout.Alignment.BASELINE)
+                    .addComponent(formatLabel)
+                    .addComponent(formatComboBox, javax.swing.GroupLayout.PREFERRED_SIZE, javax.swing.GroupLayout.DEFAULT_SIZE, javax.swing.GroupLayout.PREFERRED_SIZE))
+                .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED)
                 .addGroup(layout.createParallelGroup(javax.swing.GroupLayout.Alignment.BASELINE)
                     .addComponent(encodingLabel)
                     .addComponent(encodingComboBox, javax.swing.GroupLayout.PREFERRED_SIZE, javax.swing.GroupLayout.DEFAULT_SIZE, javax.swing.GroupLayout.PREFERRED_SIZE))
+                .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED)
+                .addGroup(layout.createParallelGroup(javax.swing.GroupLayout.Alignment.BASELINE)
+                    .addComponent(columnsLabel)
+                    .addComponent(columnsField, javax.swing.GroupLayout.PREFERRED_SIZE, javax.swing.GroupLayout.DEFAULT_SIZE, javax.swing.GroupLayout.PREFERRED_SIZE))
+                .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED)
+                .addComponent(headerLineCheckBox)
                 .addGap(18, 18, 18)
                 .addGroup(layout.createParallelGroup(javax.swing.GroupLayout.Alignment.BASELINE)
                     .addComponent(collectionLabel)
                     .addComponent(collectionComboBox, javax.swing.GroupLayout.PREFERRED_SIZE, javax.swing.GroupLayout.DEFAULT_SIZE, javax.swing.GroupLayout.PREFERRED_SIZE))
                 .addGap(18, 18, 18)
+                .addGroup(layout.createParallelGroup(javax.swing.GroupLayout.Alignment.BASELINE)
+                    .addComponent(batchSizeLabel)
+                    .addComponent(batchSizeSpinner, javax.swing.GroupLayout.PREFERRED_SIZE, javax.swing.GroupLayout.DEFAULT_SIZE, javax.swing.GroupLayout.PREFERRED_SIZE))
+                .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED)
+                .addGroup(layout.createParallelGroup(javax.swing.GroupLayout.Alignment.BASELINE)
+                    .addComponent(writeConcernLabel)
+                    .addComponent(writeConcernComboBox, javax.swing.GroupLayout.PREFERRED_SIZE, javax.swing.GroupLayout.DEFAULT_SIZE, javax.swing.GroupLayout.PREFERRED_SIZE))
+                .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED)
+                .addGroup(layout.createParallelGroup(javax.swing.GroupLayout.Alignment.BASELINE)
+                    .addComponent(parseThreadsLabel)
+                    .addComponent(parseThreadsSpinner, javax.swing.GroupLayout.PREFERRED_SIZE, javax.swing.GroupLayout.DEFAULT_SIZE, javax.swing.GroupLayout.PREFERRED_SIZE))
+                .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED)
+                .addGroup(layout.createParallelGroup(javax.swing.GroupLayout.Alignment.BASELINE)
+                    .addComponent(insertThreadsLabel)
+                    .addComponent(insertThreadsSpinner, javax.swing.GroupLayout.PREFERRED_SIZE, javax.swing.GroupLayout.DEFAULT_SIZE, javax.swing.GroupLayout.PREFERRED_SIZE))
+                .addGap(18, 18, 18)
                 .addComponent(dropCheckBox)
+                .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED)
+                .addComponent(bulkLoadCheckBox)
+                .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED)
+                .addGroup(layout.createParallelGroup(javax.swing.GroupLayout.Alignment.BASELINE)
+                    .addComponent(upsertCheckBox)
+                    .addComponent(upsertKeyField, javax.swing.GroupLayout.PREFERRED_SIZE, javax.swing.GroupLayout.DEFAULT_SIZE, javax.swing.GroupLayout.PREFERRED_SIZE))
+                .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED)
+                .addComponent(deadLetterCheckBox)
                 .addContainerGap(javax.swing.GroupLayout.DEFAULT_SIZE, Short.MAX_VALUE))
         );
     }// </editor-fold>//GEN-END:initComponents
@@ -218,22 +413,76 @@ public final class ImportVisualPanel1 extends JPanel {
             final File file = fileChooser.getSelectedFile();
             if (file != null) {
                 fileField.setText(file.getAbsolutePath());
+                formatComboBox.setSelectedItem(FileFormat.of(file));
                 if (collectionEditor.getText().trim().isEmpty()) {
-                    final String collectionName = file.getName().replaceAll("\\.json$", "");
-                    collectionEditor.setText(collectionName);
+                    collectionEditor.setText(getCollectionName(file));
                 }
             }
         }
     }//GEN-LAST:event_browseFileButtonActionPerformed
 
+    private void formatComboBoxActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_formatComboBoxActionPerformed
+        updateFormatComponents();
+        changeSupport.fireChange();
+    }//GEN-LAST:event_formatComboBoxActionPerformed
+
+    /**
+     * Returns the collection name derived from the name of the imported
+     * file, without its format and compression extensions.
+     */
+    static String getCollectionName(File file) {
+        return file.getName().replaceAll("\\.(json|bson|csv|tsv)(\\.gz)?$", "");
+    }
+
+    /**
+     * Enables the encoding only for the text formats, and the columns
+     * options only for a CSV or TSV import.
+     */
+    void updateFormatComponents() {
+        final FileFormat format = (FileFormat) formatComboBox.getSelectedItem();
+        final boolean delimited = format != null && format.isDelimited();
+        encodingComboBox.setEnabled(format != FileFormat.BSON);
+        columnsField.setEnabled(delimited);
+        headerLineCheckBox.setEnabled(delimited);
+    }
+
+    private void upsertCheckBoxActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_upsertCheckBoxActionPerformed
+        updateUpsertComponents();
+        changeSupport.fireChange();
+    }//GEN-LAST:event_upsertCheckBoxActionPerformed
+
+    /**
+     * Enables the upsert key field only for an upsert import.
+     */
+    void updateUpsertComponents() {
+        upsertKeyField.setEnabled(upsertCheckBox.isSelected());
+    }
+
     // Variables declaration - do not modify//GEN-BEGIN:variables
+    private javax.swing.JLabel batchSizeLabel;
+    private javax.swing.JSpinner batchSizeSpinner;
     private javax.swing.JButton browseFileButton;
+    private javax.swing.JCheckBox bulkLoadCheckBox;
     private javax.swing.JComboBox<String> collectionComboBox;
     private javax.swing.JLabel collectionLabel;
+    private javax.swing.JTextField columnsField;
+    private javax.swing.JLabel columnsLabel;
+    private javax.swing.JCheckBox deadLetterCheckBox;
     private javax.swing.JCheckBox dropCheckBox;
     private javax.swing.JComboBox<Charset> encodingComboBox;
     private javax.swing.JLabel encodingLabel;
     private javax.swing.JTextField fileField;
     private javax.swing.JLabel fileLabel;
+    private javax.swing.JComboBox<FileFormat> formatComboBox;
+    private javax.swing.JLabel formatLabel;
+    private javax.swing.JCheckBox headerLineCheckBox;
+    private javax.swing.JLabel insertThreadsLabel;
+    private javax.swing.JSpinner insertThreadsSpinner;
+    private javax.swing.JLabel parseThreadsLabel;
+    private javax.swing.JSpinner parseThreadsSpinner;
+    private javax.swing.JCheckBox upsertCheckBox;
+    private javax.swing.JTextField upsertKeyField;
+    private javax.swing.JComboBox<String> writeConcernComboBox;
+    private javax.swing.JLabel writeConcernLabel;
     // End of variables declaration//GEN-END:variables
 }
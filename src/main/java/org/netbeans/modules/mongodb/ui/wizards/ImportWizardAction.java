@@ -24,6 +24,7 @@
 package org.netbeans.modules.mongodb.ui.wizards;
 
 import com.mongodb.DB;
+import com.mongodb.WriteConcern;
 import java.awt.Component;
 import java.awt.event.ActionEvent;
 import java.io.File;
@@ -35,6 +36,8 @@ import java.util.List;
 import java.util.Map;
 import javax.swing.AbstractAction;
 import javax.swing.JComponent;
+import org.netbeans.modules.mongodb.util.ColumnMapping;
+import org.netbeans.modules.mongodb.util.FileFormat;
 import org.netbeans.modules.mongodb.util.ImportProperties;
 import org.netbeans.modules.mongodb.util.ImportPropertiesBuilder;
 import org.netbeans.modules.mongodb.util.ImportTask;
@@ -51,10 +54,30 @@ public final class ImportWizardAction extends AbstractAction {
 
     public static final String PROP_FILE = "file";
 
+    public static final String PROP_FORMAT = "format";
+
     public static final String PROP_ENCODING = "encoding";
 
+    public static final String PROP_COLUMNS = "columns";
+
+    public static final String PROP_HEADER_LINE = "headerLine";
+
     public static final String PROP_DROP = "drop";
 
+    public static final String PROP_BULK_LOAD = "bulkLoad";
+
+    public static final String PROP_UPSERT_KEY = "upsertKey";
+
+    public static final String PROP_DEAD_LETTER = "deadLetter";
+
+    public static final String PROP_BATCH_SIZE = "batchSize";
+
+    public static final String PROP_WRITE_CONCERN = "writeConcern";
+
+    public static final String PROP_PARSE_THREADS = "parseThreads";
+
+    public static final String PROP_INSERT_THREADS = "insertThreads";
+
     private final Lookup lookup;
 
     private final Runnable onDone;
@@ -103,11 +126,23 @@ public final class ImportWizardAction extends AbstractAction {
         wiz.setTitleFormat(new MessageFormat("{0}"));
         wiz.setTitle(Bundle.ACTION_Import());
         if (DialogDisplayer.getDefault().notify(wiz) == WizardDescriptor.FINISH_OPTION) {
+            final File file = (File) wiz.getProperty(PROP_FILE);
+            final String columns = (String) wiz.getProperty(PROP_COLUMNS);
             final ImportProperties properties = new ImportPropertiesBuilder()
                 .collection((String) wiz.getProperty(PROP_COLLECTION))
                 .drop((Boolean) wiz.getProperty(PROP_DROP))
-                .file((File) wiz.getProperty(PROP_FILE))
+                .bulkLoad((Boolean) wiz.getProperty(PROP_BULK_LOAD))
+                .upsertKey((String) wiz.getProperty(PROP_UPSERT_KEY))
+                .file(file)
+                .deadLetterFile((Boolean) wiz.getProperty(PROP_DEAD_LETTER) ? getDeadLetterFile(file) : null)
+                .format((FileFormat) wiz.getProperty(PROP_FORMAT))
                 .encoding((Charset) wiz.getProperty(PROP_ENCODING))
+                .columns(columns != null ? ColumnMapping.split(columns) : null)
+                .headerLine((Boolean) wiz.getProperty(PROP_HEADER_LINE))
+                .batchSize((Integer) wiz.getProperty(PROP_BATCH_SIZE))
+                .writeConcern(WriteConcern.valueOf((String) wiz.getProperty(PROP_WRITE_CONCERN)))
+                .parseThreads((Integer) wiz.getProperty(PROP_PARSE_THREADS))
+                .insertThreads((Integer) wiz.getProperty(PROP_INSERT_THREADS))
                 .build();
             new ImportTask(
                 new Importer(lookup.lookup(DB.class), properties, onDone))
@@ -115,4 +150,13 @@ public final class ImportWizardAction extends AbstractAction {
         }
     }
 
+    /**
+     * Returns the file the documents rejected by the import of the specified
+     * file are written to, beside it.
+     */
+    private static File getDeadLetterFile(File file) {
+        final String name = file.getName().replaceAll("(\\.(json|bson))?(\\.gz)?$", "");
+        return new File(file.getParentFile(), name + ".rejected.json");
+    }
+
 }
@@ -29,6 +29,9 @@ import java.nio.charset.Charset;
 import javax.swing.JFileChooser;
 import javax.swing.event.ChangeEvent;
 import javax.swing.event.ChangeListener;
+import org.netbeans.modules.mongodb.util.ColumnMapping;
+import org.netbeans.modules.mongodb.util.FileFormat;
+import org.netbeans.modules.mongodb.util.ImportProperties;
 import org.openide.WizardDescriptor;
 import org.openide.WizardValidationException;
 import org.openide.util.ChangeSupport;
@@ -36,11 +39,19 @@ import org.openide.util.HelpCtx;
 import org.openide.util.NbBundle.Messages;
 
 @Messages({
-    "validation_no_collection_specified=no collection specified"})
+    "validation_no_collection_specified=no collection specified",
+    "validation_no_upsert_key_specified=no upsert key specified",
+    "validation_no_columns_specified=no columns specified nor header line",
+    "# {0} - error message",
+    "validation_invalid_columns=invalid columns: {0}"})
 public class ImportWizardPanel1 implements WizardDescriptor.ValidatingPanel<WizardDescriptor>, ChangeListener {
 
     private static final Charset DEFAULT_CHARSET = Charset.forName("UTF-8");
 
+    private static final String DEFAULT_WRITE_CONCERN = "ACKNOWLEDGED";
+
+    private static final String DEFAULT_UPSERT_KEY = "_id";
+
     private final ChangeSupport changeSupport = new ChangeSupport(this);
 
     private ImportVisualPanel1 component;
@@ -75,13 +86,45 @@ public class ImportWizardPanel1 implements WizardDescriptor.ValidatingPanel<Wiza
         if(panel.getCollectionEditor().getText().trim().isEmpty()) {
             throw new WizardValidationException(null, Bundle.validation_no_collection_specified(), null);
         }
+        if(isUpsertKeyMissing(panel)) {
+            throw new WizardValidationException(null, Bundle.validation_no_upsert_key_specified(), null);
+        }
+        if(isColumnsMissing(panel)) {
+            throw new WizardValidationException(null, Bundle.validation_no_columns_specified(), null);
+        }
+        final String columns = panel.getColumnsField().getText();
+        if(isDelimited(panel) && columns.trim().isEmpty() == false) {
+            try {
+                ColumnMapping.of(ColumnMapping.split(columns));
+            } catch (IllegalArgumentException ex) {
+                throw new WizardValidationException(null, Bundle.validation_invalid_columns(ex.getMessage()), null);
+            }
+        }
     }
 
     @Override
     public boolean isValid() {
         final ImportVisualPanel1 panel = getComponent();
         return panel.getFileChooser().getSelectedFile() != null 
-            && panel.getCollectionEditor().getText().trim().isEmpty() == false;
+            && panel.getCollectionEditor().getText().trim().isEmpty() == false
+            && isUpsertKeyMissing(panel) == false
+            && isColumnsMissing(panel) == false;
+    }
+
+    private static boolean isDelimited(ImportVisualPanel1 panel) {
+        final FileFormat format = (FileFormat) panel.getFormatComboBox().getSelectedItem();
+        return format != null && format.isDelimited();
+    }
+
+    private static boolean isColumnsMissing(ImportVisualPanel1 panel) {
+        return isDelimited(panel)
+            && panel.getHeaderLineCheckBox().isSelected() == false
+            && panel.getColumnsField().getText().trim().isEmpty();
+    }
+
+    private static boolean isUpsertKeyMissing(ImportVisualPanel1 panel) {
+        return panel.getUpsertCheckBox().isSelected()
+            && panel.getUpsertKeyField().getText().trim().isEmpty();
     }
 
     @Override
@@ -91,6 +134,17 @@ public class ImportWizardPanel1 implements WizardDescriptor.ValidatingPanel<Wiza
         final File file = (File) wiz.getProperty(ImportWizardAction.PROP_FILE);
         fileChooser.setSelectedFile(file);
         panel.getFileField().setText(file != null ? file.getAbsolutePath() : "");
+        final FileFormat format = (FileFormat) wiz.getProperty(ImportWizardAction.PROP_FORMAT);
+        if (format != null) {
+            panel.getFormatComboBox().setSelectedItem(format);
+        } else {
+            panel.getFormatComboBox().setSelectedItem(file != null ? FileFormat.of(file) : FileFormat.JSON);
+        }
+        final String columns = (String) wiz.getProperty(ImportWizardAction.PROP_COLUMNS);
+        panel.getColumnsField().setText(columns != null ? columns : "");
+        final Boolean headerLine = (Boolean) wiz.getProperty(ImportWizardAction.PROP_HEADER_LINE);
+        panel.getHeaderLineCheckBox().setSelected(headerLine != null ? headerLine : true);
+        panel.updateFormatComponents();
         final Charset charset = (Charset) wiz.getProperty(ImportWizardAction.PROP_ENCODING);
         panel.getEncodingComboBox().setSelectedItem(charset != null ? charset : DEFAULT_CHARSET);
         
@@ -99,13 +153,29 @@ public class ImportWizardPanel1 implements WizardDescriptor.ValidatingPanel<Wiza
             collection = "";
         }
         if(collection.isEmpty() && file != null) {
-            collection = file.getName().replaceAll("\\.json$", "");
+            collection = ImportVisualPanel1.getCollectionName(file);
         }
         if(collection != null) {
             panel.getCollectionEditor().setText(collection);
         }
         final Boolean drop = (Boolean) wiz.getProperty(ImportWizardAction.PROP_DROP);
         panel.getDropCheckBox().setSelected(drop != null ? drop : false);
+        final Boolean bulkLoad = (Boolean) wiz.getProperty(ImportWizardAction.PROP_BULK_LOAD);
+        panel.getBulkLoadCheckBox().setSelected(bulkLoad != null ? bulkLoad : false);
+        final String upsertKey = (String) wiz.getProperty(ImportWizardAction.PROP_UPSERT_KEY);
+        panel.getUpsertCheckBox().setSelected(upsertKey != null);
+        panel.getUpsertKeyField().setText(upsertKey != null ? upsertKey : DEFAULT_UPSERT_KEY);
+        panel.updateUpsertComponents();
+        final Boolean deadLetter = (Boolean) wiz.getProperty(ImportWizardAction.PROP_DEAD_LETTER);
+        panel.getDeadLetterCheckBox().setSelected(deadLetter != null ? deadLetter : false);
+        final Integer batchSize = (Integer) wiz.getProperty(ImportWizardAction.PROP_BATCH_SIZE);
+        panel.getBatchSizeSpinner().setValue(batchSize != null ? batchSize : ImportProperties.DEFAULT_BATCH_SIZE);
+        final String writeConcern = (String) wiz.getProperty(ImportWizardAction.PROP_WRITE_CONCERN);
+        panel.getWriteConcernComboBox().setSelectedItem(writeConcern != null ? writeConcern : DEFAULT_WRITE_CONCERN);
+        final Integer parseThreads = (Integer) wiz.getProperty(ImportWizardAction.PROP_PARSE_THREADS);
+        panel.getParseThreadsSpinner().setValue(parseThreads != null ? parseThreads : ImportProperties.DEFAULT_PARSE_THREADS);
+        final Integer insertThreads = (Integer) wiz.getProperty(ImportWizardAction.PROP_INSERT_THREADS);
+        panel.getInsertThreadsSpinner().setValue(insertThreads != null ? insertThreads : ImportProperties.DEFAULT_INSERT_THREADS);
     }
 
     @Override
@@ -113,12 +183,34 @@ public class ImportWizardPanel1 implements WizardDescriptor.ValidatingPanel<Wiza
         final ImportVisualPanel1 panel = getComponent();
         wiz.putProperty(ImportWizardAction.PROP_FILE, 
             panel.getFileChooser().getSelectedFile());
+        wiz.putProperty(ImportWizardAction.PROP_FORMAT, 
+            panel.getFormatComboBox().getSelectedItem());
+        wiz.putProperty(ImportWizardAction.PROP_COLUMNS, panel.getColumnsField().getText().trim().isEmpty()
+            ? null
+            : panel.getColumnsField().getText().trim());
+        wiz.putProperty(ImportWizardAction.PROP_HEADER_LINE, 
+            panel.getHeaderLineCheckBox().isSelected());
         wiz.putProperty(ImportWizardAction.PROP_ENCODING, 
             panel.getEncodingComboBox().getSelectedItem());
         wiz.putProperty(ImportWizardAction.PROP_COLLECTION, 
             panel.getCollectionEditor().getText().trim());
         wiz.putProperty(ImportWizardAction.PROP_DROP, 
             panel.getDropCheckBox().isSelected());
+        wiz.putProperty(ImportWizardAction.PROP_BULK_LOAD, 
+            panel.getBulkLoadCheckBox().isSelected());
+        wiz.putProperty(ImportWizardAction.PROP_UPSERT_KEY, panel.getUpsertCheckBox().isSelected()
+            ? panel.getUpsertKeyField().getText().trim()
+            : null);
+        wiz.putProperty(ImportWizardAction.PROP_DEAD_LETTER, 
+            panel.getDeadLetterCheckBox().isSelected());
+        wiz.putProperty(ImportWizardAction.PROP_BATCH_SIZE, 
+            panel.getBatchSizeSpinner().getValue());
+        wiz.putProperty(ImportWizardAction.PROP_WRITE_CONCERN, 
+            panel.getWriteConcernComboBox().getSelectedItem());
+        wiz.putProperty(ImportWizardAction.PROP_PARSE_THREADS, 
+            panel.getParseThreadsSpinner().getValue());
+        wiz.putProperty(ImportWizardAction.PROP_INSERT_THREADS, 
+            panel.getInsertThreadsSpinner().getValue());
     }
 
     @Override
@@ -0,0 +1,101 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2014 Yann D'Isanto.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.netbeans.modules.mongodb.ui.wizards;
+
+import com.mongodb.DB;
+import java.awt.event.ActionEvent;
+import java.io.File;
+import java.io.IOException;
+import javax.swing.AbstractAction;
+import javax.swing.filechooser.FileNameExtensionFilter;
+import org.netbeans.modules.mongodb.util.ExportCheckpoint;
+import org.netbeans.modules.mongodb.util.ExportTask;
+import org.netbeans.modules.mongodb.util.Exporter;
+import org.openide.DialogDisplayer;
+import org.openide.NotifyDescriptor;
+import org.openide.filesystems.FileChooserBuilder;
+import org.openide.util.Lookup;
+import org.openide.util.NbBundle.Messages;
+
+/**
+ * Resumes an interrupted export from the checkpoint file saved next to the
+ * export file.
+ *
+ * @author Yann D'Isanto
+ */
+@Messages({
+    "ACTION_ResumeExport=Resume Export...",
+    "resumeExportChooserTitle=Resume export",
+    "checkpointFileFilter=Export checkpoints (*.checkpoint)",
+    "# {0} - error message",
+    "invalidCheckpoint=Cannot resume the export: {0}",
+    "# {0} - collection name",
+    "checkpointCollectionMissing=Cannot resume the export: ''{0}'' collection does not exist",
+    "# {0} - collection name",
+    "# {1} - export file name",
+    "# {2} - exported documents count",
+    "resumeExportConfirmText=Resume the export of ''{0}'' collection to ''{1}'' ({2} documents already exported)?"})
+public final class ResumeExportAction extends AbstractAction {
+
+    private final Lookup lookup;
+
+    public ResumeExportAction(Lookup lookup) {
+        super(Bundle.ACTION_ResumeExport());
+        this.lookup = lookup;
+    }
+
+    @Override
+    public void actionPerformed(ActionEvent e) {
+        final File file = new FileChooserBuilder("import-export-filechooser")
+            .setTitle(Bundle.resumeExportChooserTitle())
+            .setDefaultWorkingDirectory(new File(System.getProperty("user.home")))
+            .setFileFilter(new FileNameExtensionFilter(Bundle.checkpointFileFilter(), "checkpoint"))
+            .setFilesOnly(true)
+            .showOpenDialog();
+        if (file == null) {
+            return;
+        }
+        final ExportCheckpoint checkpoint;
+        try {
+            checkpoint = ExportCheckpoint.read(file);
+        } catch (IOException ex) {
+            DialogDisplayer.getDefault().notify(new NotifyDescriptor.Message(
+                Bundle.invalidCheckpoint(ex.getLocalizedMessage()), NotifyDescriptor.ERROR_MESSAGE));
+            return;
+        }
+        final DB db = lookup.lookup(DB.class);
+        final String collection = checkpoint.getProperties().getCollection();
+        if (db.collectionExists(collection) == false) {
+            DialogDisplayer.getDefault().notify(new NotifyDescriptor.Message(
+                Bundle.checkpointCollectionMissing(collection), NotifyDescriptor.ERROR_MESSAGE));
+            return;
+        }
+        final NotifyDescriptor confirmation = new NotifyDescriptor.Confirmation(
+            Bundle.resumeExportConfirmText(collection, checkpoint.getProperties().getFile().getName(), checkpoint.getDocumentsCount()),
+            NotifyDescriptor.YES_NO_OPTION);
+        if (DialogDisplayer.getDefault().notify(confirmation) == NotifyDescriptor.YES_OPTION) {
+            new ExportTask(new Exporter(db, checkpoint)).run();
+        }
+    }
+}
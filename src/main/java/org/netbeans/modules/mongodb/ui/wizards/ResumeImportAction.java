@@ -0,0 +1,117 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2014 Yann D'Isanto.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.netbeans.modules.mongodb.ui.wizards;
+
+import com.mongodb.DB;
+import com.mongodb.DBCollection;
+import java.awt.event.ActionEvent;
+import java.io.File;
+import java.io.IOException;
+import javax.swing.AbstractAction;
+import javax.swing.filechooser.FileNameExtensionFilter;
+import org.netbeans.modules.mongodb.util.ImportCheckpoint;
+import org.netbeans.modules.mongodb.util.ImportTask;
+import org.netbeans.modules.mongodb.util.Importer;
+import org.openide.DialogDisplayer;
+import org.openide.NotifyDescriptor;
+import org.openide.filesystems.FileChooserBuilder;
+import org.openide.util.Lookup;
+import org.openide.util.NbBundle.Messages;
+
+/**
+ * Resumes an interrupted import into the collection from the checkpoint file
+ * saved next to the imported file. A checkpoint which is not resumable only
+ * rebuilds the indexes the import left dropped.
+ *
+ * @author Yann D'Isanto
+ */
+@Messages({
+    "ACTION_ResumeImport=Resume Import...",
+    "resumeImportChooserTitle=Resume import",
+    "importCheckpointFileFilter=Import checkpoints (*.import-checkpoint)",
+    "# {0} - error message",
+    "invalidImportCheckpoint=Cannot resume the import: {0}",
+    "# {0} - checkpoint database name",
+    "# {1} - checkpoint collection name",
+    "importCheckpointOtherCollection=Cannot resume the import: the checkpoint is for ''{1}'' collection of ''{0}'' database",
+    "# {0} - imported file name",
+    "importCheckpointFileMissing=Cannot resume the import: ''{0}'' file does not exist",
+    "# {0} - collection name",
+    "# {1} - imported file name",
+    "# {2} - imported documents count",
+    "resumeImportConfirmText=Resume the import of ''{1}'' into ''{0}'' collection ({2} documents already imported)?",
+    "# {0} - collection name",
+    "# {1} - imported file name",
+    "# {2} - indexes count",
+    "rebuildImportIndexesConfirmText=The import of ''{1}'' into ''{0}'' collection cannot be resumed. Rebuild the {2} indexes it dropped?"})
+public final class ResumeImportAction extends AbstractAction {
+
+    private final Lookup lookup;
+
+    public ResumeImportAction(Lookup lookup) {
+        super(Bundle.ACTION_ResumeImport());
+        this.lookup = lookup;
+    }
+
+    @Override
+    public void actionPerformed(ActionEvent e) {
+        final File file = new FileChooserBuilder("import-export-filechooser")
+            .setTitle(Bundle.resumeImportChooserTitle())
+            .setDefaultWorkingDirectory(new File(System.getProperty("user.home")))
+            .setFileFilter(new FileNameExtensionFilter(Bundle.importCheckpointFileFilter(), "import-checkpoint"))
+            .setFilesOnly(true)
+            .showOpenDialog();
+        if (file == null) {
+            return;
+        }
+        final ImportCheckpoint checkpoint;
+        try {
+            checkpoint = ImportCheckpoint.read(file);
+        } catch (IOException ex) {
+            DialogDisplayer.getDefault().notify(new NotifyDescriptor.Message(
+                Bundle.invalidImportCheckpoint(ex.getLocalizedMessage()), NotifyDescriptor.ERROR_MESSAGE));
+            return;
+        }
+        final String collection = checkpoint.getProperties().getCollection();
+        if (collection.equals(lookup.lookup(DBCollection.class).getName()) == false
+            || checkpoint.getDatabase().equals(lookup.lookup(DB.class).getName()) == false) {
+            DialogDisplayer.getDefault().notify(new NotifyDescriptor.Message(
+                Bundle.importCheckpointOtherCollection(checkpoint.getDatabase(), collection), NotifyDescriptor.ERROR_MESSAGE));
+            return;
+        }
+        final File importFile = checkpoint.getProperties().getFile();
+        if (checkpoint.isResumable() && importFile.isFile() == false) {
+            DialogDisplayer.getDefault().notify(new NotifyDescriptor.Message(
+                Bundle.importCheckpointFileMissing(importFile.getName()), NotifyDescriptor.ERROR_MESSAGE));
+            return;
+        }
+        final NotifyDescriptor confirmation = new NotifyDescriptor.Confirmation(checkpoint.isResumable()
+            ? Bundle.resumeImportConfirmText(collection, importFile.getName(), checkpoint.getDocumentsCount())
+            : Bundle.rebuildImportIndexesConfirmText(collection, importFile.getName(), checkpoint.getIndexes().size()),
+            NotifyDescriptor.YES_NO_OPTION);
+        if (DialogDisplayer.getDefault().notify(confirmation) == NotifyDescriptor.YES_OPTION) {
+            new ImportTask(new Importer(lookup.lookup(DB.class), checkpoint)).run();
+        }
+    }
+}
@@ -63,6 +63,9 @@ public abstract class AbstractTask<T extends Runnable> implements Runnable {
         });
         //start the progresshandle the progress UI will show 500s after
         progressHandle.start();
+        if (runnable instanceof TaskProgress.Reporting) {
+            ((TaskProgress.Reporting) runnable).getProgress().attach(getLabel(), progressHandle);
+        }
         //this actually start the task
         task.schedule(0);
     }
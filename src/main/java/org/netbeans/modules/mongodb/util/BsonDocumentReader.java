@@ -0,0 +1,112 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2014 Yann D'Isanto.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.netbeans.modules.mongodb.util;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Reads the BSON documents of a stream, as written by mongodump: each
+ * document is prefixed by its little-endian 32 bits size and ends with a 0
+ * byte. The documents are returned as their raw bytes, without decoding.
+ *
+ * @author Yann D'Isanto
+ */
+final class BsonDocumentReader {
+
+    /**
+     * The maximum size of a document, beyond which the file is considered
+     * malformed.
+     */
+    static final int MAX_DOCUMENT_SIZE = 48 * 1024 * 1024;
+
+    /**
+     * The size of the smallest document, the empty one.
+     */
+    private static final int MIN_DOCUMENT_SIZE = 5;
+
+    private final InputStream input;
+
+    private final byte[] sizeBytes = new byte[4];
+
+    /**
+     * The number of documents read.
+     */
+    private long count;
+
+    BsonDocumentReader(InputStream input) {
+        this.input = input;
+    }
+
+    /**
+     * Reads the next document.
+     *
+     * @return the document bytes or null if the end of the stream is
+     * reached.
+     * @throws IOException if an I/O error occurs or if the document is
+     * malformed
+     */
+    byte[] readDocument() throws IOException {
+        final int first = input.read();
+        if (first < 0) {
+            return null;
+        }
+        sizeBytes[0] = (byte) first;
+        readFully(sizeBytes, 1, 3);
+        final int size = (sizeBytes[0] & 0xff)
+            | (sizeBytes[1] & 0xff) << 8
+            | (sizeBytes[2] & 0xff) << 16
+            | (sizeBytes[3] & 0xff) << 24;
+        if (size < MIN_DOCUMENT_SIZE || size > MAX_DOCUMENT_SIZE) {
+            throw new IOException("malformed BSON: invalid size " + size + " of document " + (count + 1));
+        }
+        final byte[] document = new byte[size];
+        System.arraycopy(sizeBytes, 0, document, 0, 4);
+        readFully(document, 4, size - 4);
+        if (document[size - 1] != 0) {
+            throw new IOException("malformed BSON: document " + (count + 1) + " is not terminated");
+        }
+        count++;
+        return document;
+    }
+
+    /**
+     * @return the number of the last document read, starting at 1.
+     */
+    long getDocumentNumber() {
+        return count;
+    }
+
+    private void readFully(byte[] buffer, int offset, int length) throws IOException {
+        int read = 0;
+        while (read < length) {
+            final int n = input.read(buffer, offset + read, length - read);
+            if (n < 0) {
+                throw new EOFException("malformed BSON: document " + (count + 1) + " is truncated");
+            }
+            read += n;
+        }
+    }
+}
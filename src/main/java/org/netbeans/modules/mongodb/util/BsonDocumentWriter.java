@@ -0,0 +1,137 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2014 Yann D'Isanto.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.netbeans.modules.mongodb.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import org.bson.BSONObject;
+import org.bson.BasicBSONEncoder;
+import org.bson.LazyBSONObject;
+
+/**
+ * Writes documents as BSON to a channel through a large buffer. The
+ * documents read lazily are written as the bytes received from the server,
+ * without decoding nor encoding them. The buffer is written to the channel
+ * when full, or when {@link JsonDocumentWriter#FLUSH_INTERVAL} has elapsed
+ * since the last write.
+ *
+ * @author Yann D'Isanto
+ */
+final class BsonDocumentWriter implements Closeable {
+
+    /**
+     * The byte buffer size.
+     */
+    static final int BUFFER_SIZE = 1024 * 1024;
+
+    private final WritableByteChannel channel;
+
+    private final ByteBuffer bytes = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+    private final BasicBSONEncoder encoder = new BasicBSONEncoder();
+
+    private final OutputStream output = new OutputStream() {
+
+        @Override
+        public void write(int b) throws IOException {
+            if (bytes.hasRemaining() == false) {
+                writeBuffer();
+            }
+            bytes.put((byte) b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (len > bytes.remaining()) {
+                writeBuffer();
+            }
+            if (len > bytes.remaining()) {
+                writeFully(ByteBuffer.wrap(b, off, len));
+            } else {
+                bytes.put(b, off, len);
+            }
+        }
+    };
+
+    private long lastFlushTime = System.currentTimeMillis();
+
+    /**
+     * The number of bytes written to the channel.
+     */
+    private long writtenBytes;
+
+    BsonDocumentWriter(WritableByteChannel channel) {
+        this.channel = channel;
+    }
+
+    /**
+     * Writes a document.
+     *
+     * @param document the document
+     * @throws IOException if an I/O error occurs
+     */
+    void writeDocument(BSONObject document) throws IOException {
+        if (document instanceof LazyBSONObject) {
+            ((LazyBSONObject) document).pipe(output);
+        } else {
+            output.write(encoder.encode(document));
+        }
+        if (System.currentTimeMillis() - lastFlushTime >= JsonDocumentWriter.FLUSH_INTERVAL) {
+            writeBuffer();
+        }
+    }
+
+    /**
+     * @return the number of bytes written so far, buffered ones included.
+     */
+    long getByteCount() {
+        return writtenBytes + bytes.position();
+    }
+
+    private void writeBuffer() throws IOException {
+        bytes.flip();
+        writeFully(bytes);
+        bytes.clear();
+        lastFlushTime = System.currentTimeMillis();
+    }
+
+    private void writeFully(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            writtenBytes += channel.write(buffer);
+        }
+    }
+
+    /**
+     * Writes the remaining bytes, without closing the channel.
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    @Override
+    public void close() throws IOException {
+        writeBuffer();
+    }
+}
@@ -0,0 +1,189 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2014 Yann D'Isanto.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.netbeans.modules.mongodb.util;
+
+import com.mongodb.BasicDBList;
+import com.mongodb.BasicDBObject;
+import com.mongodb.CommandResult;
+import com.mongodb.DBCollection;
+import com.mongodb.DBObject;
+import com.mongodb.util.JSON;
+import com.mongodb.util.JSONParseException;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * The metadata of a collection dumped as BSON, saved next to the BSON file
+ * as mongodump does: "coll.bson" metadata are in "coll.metadata.json", and
+ * "coll.bson.gz" ones in "coll.metadata.json.gz". The metadata are the
+ * collection creation options and its indexes.
+ *
+ * @author Yann D'Isanto
+ */
+final class BsonMetadata {
+
+    static final String EXTENSION = ".metadata.json";
+
+    private final DBObject options;
+
+    private final List<DBObject> indexes;
+
+    BsonMetadata(DBObject options, List<DBObject> indexes) {
+        this.options = options;
+        this.indexes = indexes;
+    }
+
+    /**
+     * @return the collection creation options.
+     */
+    DBObject getOptions() {
+        return options;
+    }
+
+    /**
+     * @return the collection indexes, as returned by
+     * {@link DBCollection#getIndexInfo()}.
+     */
+    List<DBObject> getIndexes() {
+        return indexes;
+    }
+
+    /**
+     * Returns the metadata file of the specified BSON file.
+     *
+     * @param bsonFile the BSON file
+     * @return the metadata file.
+     */
+    static File getFile(File bsonFile) {
+        String name = bsonFile.getName();
+        final String compressionExtension = name.endsWith(Compression.GZIP.getExtension())
+            ? Compression.GZIP.getExtension()
+            : "";
+        name = name.substring(0, name.length() - compressionExtension.length());
+        if (name.endsWith(FileFormat.BSON.getExtension())) {
+            name = name.substring(0, name.length() - FileFormat.BSON.getExtension().length());
+        }
+        return new File(bsonFile.getParentFile(), name + EXTENSION + compressionExtension);
+    }
+
+    /**
+     * Reads the metadata of a collection.
+     *
+     * @param collection the collection
+     * @return the collection metadata.
+     */
+    static BsonMetadata of(DBCollection collection) {
+        return new BsonMetadata(getOptions(collection), collection.getIndexInfo());
+    }
+
+    private static DBObject getOptions(DBCollection collection) {
+        final CommandResult result = collection.getDB().command(new BasicDBObject("listCollections", 1)
+            .append("filter", new BasicDBObject("name", collection.getName())));
+        DBObject info = null;
+        if (result.ok()) {
+            final List<?> collections = (List<?>) ((DBObject) result.get("cursor")).get("firstBatch");
+            info = collections.isEmpty() ? null : (DBObject) collections.get(0);
+        } else {
+            // before MongoDB 3.0
+            info = collection.getDB().getCollection("system.namespaces")
+                .findOne(new BasicDBObject("name", collection.getFullName()));
+        }
+        final DBObject options = info != null ? (DBObject) info.get("options") : null;
+        if (options == null) {
+            return new BasicDBObject();
+        }
+        options.removeField("create");
+        return options;
+    }
+
+    /**
+     * Writes these metadata to the metadata file of the specified BSON file,
+     * compressed if the BSON file is.
+     *
+     * @param bsonFile the BSON file
+     * @throws IOException if an I/O error occurs
+     */
+    void write(File bsonFile) throws IOException {
+        final File file = getFile(bsonFile);
+        final BasicDBList indexesList = new BasicDBList();
+        indexesList.addAll(indexes);
+        final String json = JSON.serialize(new BasicDBObject("options", options).append("indexes", indexesList));
+        try (OutputStream output = openOutput(file)) {
+            output.write(json.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    /**
+     * Reads the metadata file of the specified BSON file.
+     *
+     * @param bsonFile the BSON file
+     * @return the metadata, or null if there is no metadata file.
+     * @throws IOException if the file cannot be read or is not valid
+     */
+    static BsonMetadata read(File bsonFile) throws IOException {
+        final File file = getFile(bsonFile);
+        if (file.isFile() == false) {
+            return null;
+        }
+        try (InputStream input = openInput(file)) {
+            final ByteArrayOutputStream json = new ByteArrayOutputStream();
+            final byte[] buffer = new byte[8192];
+            int n;
+            while ((n = input.read(buffer)) > 0) {
+                json.write(buffer, 0, n);
+            }
+            final DBObject metadata = (DBObject) JSON.parse(new String(json.toByteArray(), StandardCharsets.UTF_8));
+            final DBObject options = (DBObject) metadata.get("options");
+            final List<DBObject> indexes = new ArrayList<>();
+            final List<?> indexesList = (List<?>) metadata.get("indexes");
+            if (indexesList != null) {
+                for (Object index : indexesList) {
+                    indexes.add((DBObject) index);
+                }
+            }
+            return new BsonMetadata(options != null ? options : new BasicDBObject(), indexes);
+        } catch (JSONParseException | ClassCastException ex) {
+            throw new IOException("invalid metadata file: " + file, ex);
+        }
+    }
+
+    private static OutputStream openOutput(File file) throws IOException {
+        final OutputStream output = Files.newOutputStream(file.toPath());
+        return file.getName().endsWith(Compression.GZIP.getExtension()) ? new GZIPOutputStream(output) : output;
+    }
+
+    private static InputStream openInput(File file) throws IOException {
+        final InputStream input = Files.newInputStream(file.toPath());
+        return file.getName().endsWith(Compression.GZIP.getExtension()) ? new GZIPInputStream(input) : input;
+    }
+}
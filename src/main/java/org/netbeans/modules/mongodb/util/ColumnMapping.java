@@ -0,0 +1,321 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2014 Yann D'Isanto.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.netbeans.modules.mongodb.util;
+
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBObject;
+import com.mongodb.util.JSON;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import javax.xml.bind.DatatypeConverter;
+import org.bson.types.ObjectId;
+
+/**
+ * Maps the cells of delimited text rows to the fields of documents. Each
+ * column is specified as a dotted field path, optionally followed by a colon
+ * and a {@link ColumnType} name, such as <code>address.zip:string</code>.
+ * A column with an empty name is skipped.
+ *
+ * <p>
+ * The columns can be specified by the header row of the file, or given
+ * explicitly to rename or type the columns of the file.</p>
+ *
+ * @author Yann D'Isanto
+ */
+public final class ColumnMapping {
+
+    /**
+     * The type of the values of a column. An empty cell is not imported,
+     * unless the column holds strings.
+     */
+    public enum ColumnType {
+
+        /**
+         * Booleans and numbers are recognized, other values being strings.
+         * Integers with leading zeros are kept as strings.
+         */
+        AUTO,
+        STRING,
+        INT,
+        LONG,
+        DOUBLE,
+        /**
+         * true or false, ignoring case.
+         */
+        BOOLEAN,
+        /**
+         * ISO 8601 date and time, as written by the exporter.
+         */
+        DATE,
+        /**
+         * Hexadecimal ObjectId.
+         */
+        OBJECTID,
+        /**
+         * JSON value, such as an exported array.
+         */
+        JSON;
+
+        /**
+         * @return the name of the type in a column specification.
+         */
+        public String getSpecName() {
+            return name().toLowerCase(Locale.ENGLISH);
+        }
+    }
+
+    /**
+     * The maximum number of digits of an inferred integer, for it to fit in
+     * a long.
+     */
+    private static final int MAX_INTEGER_DIGITS = 18;
+
+    private final List<String> names;
+
+    /**
+     * The field names of each column path, null for a skipped column.
+     */
+    private final String[][] paths;
+
+    private final ColumnType[] types;
+
+    private ColumnMapping(List<String> names, String[][] paths, ColumnType[] types) {
+        this.names = names;
+        this.paths = paths;
+        this.types = types;
+    }
+
+    /**
+     * Creates the mapping of the specified columns.
+     *
+     * @param columns the columns specifications
+     * @return the column mapping.
+     * @throws IllegalArgumentException if a column type is unknown, a field
+     * path is invalid, or a field path is a prefix of another one
+     */
+    public static ColumnMapping of(List<String> columns) {
+        final List<String> names = new ArrayList<>();
+        final String[][] paths = new String[columns.size()][];
+        final ColumnType[] types = new ColumnType[columns.size()];
+        for (int i = 0; i < columns.size(); i++) {
+            String name = columns.get(i).trim();
+            types[i] = ColumnType.AUTO;
+            final int colon = name.lastIndexOf(':');
+            if (colon >= 0) {
+                types[i] = getType(name.substring(colon + 1).trim());
+                name = name.substring(0, colon).trim();
+            }
+            names.add(name);
+            if (name.isEmpty()) {
+                continue;
+            }
+            paths[i] = name.split("\\.", -1);
+            for (String field : paths[i]) {
+                if (field.isEmpty()) {
+                    throw new IllegalArgumentException("invalid column field path: " + name);
+                }
+            }
+            for (int j = 0; j < i; j++) {
+                final String other = names.get(j);
+                if (other.isEmpty() == false && (other.equals(name)
+                    || other.startsWith(name + '.') || name.startsWith(other + '.'))) {
+                    throw new IllegalArgumentException("conflicting columns: " + other + ", " + name);
+                }
+            }
+        }
+        return new ColumnMapping(Collections.unmodifiableList(names), paths, types);
+    }
+
+    /**
+     * Splits comma separated columns specifications.
+     *
+     * @param text the columns specifications
+     * @return the columns specifications, empty if the text is blank.
+     */
+    public static List<String> split(String text) {
+        final List<String> columns = new ArrayList<>();
+        if (text.trim().isEmpty() == false) {
+            for (String column : text.split(",", -1)) {
+                columns.add(column.trim());
+            }
+        }
+        return columns;
+    }
+
+    private static ColumnType getType(String specName) {
+        for (ColumnType type : ColumnType.values()) {
+            if (type.getSpecName().equals(specName.toLowerCase(Locale.ENGLISH))) {
+                return type;
+            }
+        }
+        throw new IllegalArgumentException("unknown column type: " + specName);
+    }
+
+    /**
+     * @return the field paths of the columns, empty for a skipped column.
+     */
+    public List<String> getNames() {
+        return names;
+    }
+
+    /**
+     * Converts the cells of a row into a document.
+     *
+     * @param cells the row cells
+     * @return the document.
+     * @throws IllegalArgumentException if a cell cannot be converted to the
+     * type of its column, or if the row has more non empty cells than
+     * columns
+     */
+    DBObject toDocument(String[] cells) {
+        final BasicDBObject document = new BasicDBObject();
+        for (int i = 0; i < cells.length; i++) {
+            if (i >= paths.length) {
+                if (cells[i].isEmpty() == false) {
+                    throw new IllegalArgumentException("row has " + cells.length + " cells for " + paths.length + " columns");
+                }
+                continue;
+            }
+            if (paths[i] == null) {
+                continue;
+            }
+            final Object value;
+            try {
+                value = convert(cells[i], types[i]);
+            } catch (IllegalArgumentException ex) {
+                throw new IllegalArgumentException("column " + names.get(i) + ": " + ex.getMessage(), ex);
+            }
+            if (value != null) {
+                put(document, paths[i], value);
+            }
+        }
+        return document;
+    }
+
+    private static void put(BasicDBObject document, String[] path, Object value) {
+        BasicDBObject parent = document;
+        for (int i = 0; i < path.length - 1; i++) {
+            BasicDBObject child = (BasicDBObject) parent.get(path[i]);
+            if (child == null) {
+                child = new BasicDBObject();
+                parent.put(path[i], child);
+            }
+            parent = child;
+        }
+        parent.put(path[path.length - 1], value);
+    }
+
+    /**
+     * Converts a cell to the specified type.
+     *
+     * @return the value, null if the cell is not imported.
+     */
+    static Object convert(String cell, ColumnType type) {
+        if (type == ColumnType.STRING) {
+            return cell;
+        }
+        final String text = cell.trim();
+        if (text.isEmpty()) {
+            return null;
+        }
+        switch (type) {
+            case INT:
+                return Integer.valueOf(text);
+            case LONG:
+                return Long.valueOf(text);
+            case DOUBLE:
+                return Double.valueOf(text);
+            case BOOLEAN:
+                if ("true".equalsIgnoreCase(text) || "false".equalsIgnoreCase(text)) {
+                    return Boolean.valueOf(text);
+                }
+                throw new IllegalArgumentException("not a boolean: " + text);
+            case DATE:
+                return DatatypeConverter.parseDateTime(text).getTime();
+            case OBJECTID:
+                return new ObjectId(text);
+            case JSON:
+                try {
+                    return JSON.parse(text);
+                } catch (RuntimeException ex) {
+                    throw new IllegalArgumentException(ex.getMessage(), ex);
+                }
+            default:
+                return infer(cell);
+        }
+    }
+
+    /**
+     * Returns the boolean or the number a cell holds, or the cell itself.
+     * Numbers are recognized without parsing attempts, integers being
+     * converted to int if they fit.
+     */
+    private static Object infer(String cell) {
+        final String text = cell.trim();
+        if ("true".equals(text) || "false".equals(text)) {
+            return Boolean.valueOf(text);
+        }
+        final int length = text.length();
+        int i = text.charAt(0) == '-' ? 1 : 0;
+        final int start = i;
+        while (i < length && Character.isDigit(text.charAt(i))) {
+            i++;
+        }
+        int digits = i - start;
+        if (digits > 1 && text.charAt(start) == '0') {
+            // leading zeros, such as a zip code
+            return cell;
+        }
+        if (i == length) {
+            if (digits == 0 || digits > MAX_INTEGER_DIGITS) {
+                return cell;
+            }
+            final long value = Long.parseLong(text);
+            return value == (int) value ? (Object) (int) value : (Object) value;
+        }
+        if (text.charAt(i) == '.') {
+            final int fraction = ++i;
+            while (i < length && Character.isDigit(text.charAt(i))) {
+                i++;
+            }
+            digits += i - fraction;
+        }
+        if (digits > 0 && i < length && (text.charAt(i) == 'e' || text.charAt(i) == 'E')) {
+            i++;
+            if (i < length && (text.charAt(i) == '-' || text.charAt(i) == '+')) {
+                i++;
+            }
+            final int exponent = i;
+            while (i < length && Character.isDigit(text.charAt(i))) {
+                i++;
+            }
+            if (i == exponent) {
+                return cell;
+            }
+        }
+        return digits > 0 && i == length ? (Object) Double.valueOf(text) : cell;
+    }
+}
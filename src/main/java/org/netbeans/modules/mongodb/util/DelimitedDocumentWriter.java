@@ -0,0 +1,232 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2014 Yann D'Isanto.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.netbeans.modules.mongodb.util;
+
+import com.mongodb.DBObject;
+import com.mongodb.util.JSONSerializers;
+import com.mongodb.util.ObjectSerializer;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.text.DateFormat;
+import java.text.SimpleDateFormat;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+import org.bson.BSONObject;
+
+/**
+ * Writes documents as rows of delimited text, one cell per column. A column
+ * is a dotted field path, the fields of embedded documents being flattened.
+ * Arrays, and documents found where a value is expected, are written as
+ * JSON. Cells holding the delimiter, a quote or a line break are quoted.
+ *
+ * <p>
+ * The rows are built into a reused buffer, the values being appended
+ * without intermediate strings where possible, and written through a
+ * {@link JsonDocumentWriter}.</p>
+ *
+ * @author Yann D'Isanto
+ */
+final class DelimitedDocumentWriter implements Closeable {
+
+    private static final String LINE_SEPARATOR = System.getProperty("line.separator");
+
+    private static final char QUOTE = '"';
+
+    private final ObjectSerializer serializer = JSONSerializers.getLegacy();
+
+    private final JsonDocumentWriter output;
+
+    private final char delimiter;
+
+    private final List<String> columns;
+
+    /**
+     * The field names of each column path.
+     */
+    private final String[][] paths;
+
+    private final StringBuilder row = new StringBuilder(4096);
+
+    private final StringBuilder cell = new StringBuilder(256);
+
+    private final DateFormat dateFormat = newDateFormat();
+
+    DelimitedDocumentWriter(WritableByteChannel channel, Charset charset, char delimiter, List<String> columns) {
+        this.output = new JsonDocumentWriter(channel, charset);
+        this.delimiter = delimiter;
+        this.columns = columns;
+        this.paths = new String[columns.size()][];
+        for (int i = 0; i < paths.length; i++) {
+            paths[i] = columns.get(i).split("\\.");
+        }
+    }
+
+    /**
+     * Returns the date format of the date cells: ISO 8601 in UTC, with
+     * milliseconds.
+     */
+    static DateFormat newDateFormat() {
+        final DateFormat format = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'");
+        format.setTimeZone(TimeZone.getTimeZone("UTC"));
+        return format;
+    }
+
+    /**
+     * Adds the columns of a document to the specified ones: the paths of its
+     * fields, those of embedded documents being flattened.
+     *
+     * @param columns the columns, in the order they have been found
+     * @param prefix the path of the document, empty for a top level one
+     * @param document the document
+     */
+    static void addColumns(Collection<String> columns, String prefix, BSONObject document) {
+        for (String name : document.keySet()) {
+            final Object value = document.get(name);
+            final String path = prefix.isEmpty() ? name : prefix + '.' + name;
+            if (value instanceof BSONObject && value instanceof List == false
+                && ((BSONObject) value).keySet().isEmpty() == false) {
+                addColumns(columns, path, (BSONObject) value);
+            } else {
+                columns.add(path);
+            }
+        }
+    }
+
+    /**
+     * Writes the header row, made of the column names.
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    void writeHeader() throws IOException {
+        row.setLength(0);
+        for (int i = 0; i < columns.size(); i++) {
+            if (i > 0) {
+                row.append(delimiter);
+            }
+            appendText(columns.get(i));
+        }
+        row.append(LINE_SEPARATOR);
+        output.write(row);
+    }
+
+    /**
+     * Writes the row of a document.
+     *
+     * @param document the document
+     * @throws IOException if an I/O error occurs
+     */
+    void writeDocument(DBObject document) throws IOException {
+        row.setLength(0);
+        for (int i = 0; i < paths.length; i++) {
+            if (i > 0) {
+                row.append(delimiter);
+            }
+            appendValue(getValue(document, paths[i]));
+        }
+        row.append(LINE_SEPARATOR);
+        output.write(row);
+    }
+
+    private static Object getValue(BSONObject document, String[] path) {
+        Object value = document;
+        for (String name : path) {
+            if (value instanceof BSONObject == false || value instanceof List) {
+                return null;
+            }
+            value = ((BSONObject) value).get(name);
+        }
+        return value;
+    }
+
+    private void appendValue(Object value) {
+        if (value == null) {
+            return;
+        }
+        if (value instanceof String) {
+            appendText((String) value);
+        } else if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte) {
+            row.append(((Number) value).longValue());
+        } else if (value instanceof Double || value instanceof Float) {
+            row.append(((Number) value).doubleValue());
+        } else if (value instanceof Boolean) {
+            row.append(((Boolean) value).booleanValue());
+        } else if (value instanceof Date) {
+            row.append(dateFormat.format((Date) value));
+        } else if (value instanceof BSONObject || value instanceof Collection || value instanceof Map) {
+            cell.setLength(0);
+            serializer.serialize(value, cell);
+            appendText(cell);
+        } else {
+            appendText(value.toString());
+        }
+    }
+
+    /**
+     * Appends a text cell, quoted if it holds the delimiter, a quote or a
+     * line break, its quotes being doubled.
+     */
+    private void appendText(CharSequence text) {
+        final int length = text.length();
+        boolean quoted = false;
+        for (int i = 0; i < length && quoted == false; i++) {
+            final char c = text.charAt(i);
+            quoted = c == delimiter || c == QUOTE || c == '\n' || c == '\r';
+        }
+        if (quoted == false) {
+            row.append(text);
+            return;
+        }
+        row.append(QUOTE);
+        for (int i = 0; i < length; i++) {
+            final char c = text.charAt(i);
+            if (c == QUOTE) {
+                row.append(QUOTE);
+            }
+            row.append(c);
+        }
+        row.append(QUOTE);
+    }
+
+    /**
+     * @return the number of bytes written so far, buffered ones included.
+     */
+    long getByteCount() {
+        return output.getByteCount();
+    }
+
+    /**
+     * Writes the remaining bytes, without closing the channel.
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    @Override
+    public void close() throws IOException {
+        output.close();
+    }
+}
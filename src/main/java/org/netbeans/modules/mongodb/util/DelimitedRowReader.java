@@ -0,0 +1,206 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2014 Yann D'Isanto.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.netbeans.modules.mongodb.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Splits a delimited text into rows of cells, reading it incrementally.
+ * Cells can be quoted, to hold the delimiter, line breaks or doubled
+ * quotes. Blank lines are skipped.
+ *
+ * @author Yann D'Isanto
+ */
+final class DelimitedRowReader implements Closeable {
+
+    /**
+     * The maximum length of a cell.
+     */
+    static final int MAX_CELL_CHARS = 16 * 1024 * 1024;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final char BYTE_ORDER_MARK = '\uFEFF';
+
+    private static final char QUOTE = '"';
+
+    private final Reader reader;
+
+    private final char delimiter;
+
+    private final char[] buffer = new char[BUFFER_SIZE];
+
+    private int position;
+
+    private int limit;
+
+    /**
+     * The number of characters before the buffer.
+     */
+    private long offset;
+
+    private final List<String> cells = new ArrayList<>();
+
+    private final StringBuilder cell = new StringBuilder(256);
+
+    /**
+     * The text of the row being read, as found in the file.
+     */
+    private final StringBuilder rowText = new StringBuilder(1024);
+
+    /**
+     * The current line number.
+     */
+    private long line = 1;
+
+    /**
+     * The line number of the last row read.
+     */
+    private long rowLine;
+
+    DelimitedRowReader(Reader reader, char delimiter) {
+        this.reader = reader;
+        this.delimiter = delimiter;
+    }
+
+    /**
+     * Reads the cells of the next row.
+     *
+     * @return the row cells or null if there are no more rows.
+     * @throws IOException if an I/O error occurs or if a quoted cell is not
+     * terminated
+     */
+    String[] readRow() throws IOException {
+        cells.clear();
+        cell.setLength(0);
+        rowText.setLength(0);
+        rowLine = line;
+        boolean inQuotes = false;
+        boolean empty = true;
+        while (fill()) {
+            final char c = buffer[position++];
+            if (c != '\n' && (c != BYTE_ORDER_MARK || offset + position > 1)) {
+                rowText.append(c);
+            }
+            if (inQuotes) {
+                if (c == QUOTE) {
+                    if (fill() && buffer[position] == QUOTE) {
+                        cell.append(QUOTE);
+                        rowText.append(QUOTE);
+                        position++;
+                    } else {
+                        inQuotes = false;
+                    }
+                } else {
+                    if (c == '\n') {
+                        line++;
+                        rowText.append(c);
+                    }
+                    append(c);
+                }
+            } else if (c == delimiter) {
+                cells.add(cell.toString());
+                cell.setLength(0);
+                empty = false;
+            } else if (c == '\n') {
+                line++;
+                if (empty == false || cell.length() > 0) {
+                    return endRow();
+                }
+                rowText.setLength(0);
+                rowLine = line;
+            } else if (c == QUOTE && cell.length() == 0) {
+                inQuotes = true;
+                empty = false;
+            } else if (c != '\r' && (c != BYTE_ORDER_MARK || offset + position > 1)) {
+                append(c);
+            }
+        }
+        if (inQuotes) {
+            throw malformed("unterminated quoted cell");
+        }
+        return empty && cell.length() == 0 ? null : endRow();
+    }
+
+    private void append(char c) throws IOException {
+        if (cell.length() >= MAX_CELL_CHARS) {
+            throw malformed("cell larger than " + MAX_CELL_CHARS + " characters");
+        }
+        cell.append(c);
+    }
+
+    private String[] endRow() {
+        if (rowText.length() > 0 && rowText.charAt(rowText.length() - 1) == '\r') {
+            rowText.setLength(rowText.length() - 1);
+        }
+        cells.add(cell.toString());
+        return cells.toArray(new String[cells.size()]);
+    }
+
+    /**
+     * @return the line number where the last row read starts.
+     */
+    long getRowLine() {
+        return rowLine;
+    }
+
+    /**
+     * @return the text of the last row read as found in the file, quotes
+     * included, without its line separator.
+     */
+    String getRowText() {
+        return rowText.toString();
+    }
+
+    /**
+     * Fills the buffer if all its characters have been consumed.
+     *
+     * @return false if the end of the text is reached.
+     */
+    private boolean fill() throws IOException {
+        while (position >= limit) {
+            offset += limit;
+            position = 0;
+            limit = reader.read(buffer, 0, buffer.length);
+            if (limit < 0) {
+                limit = 0;
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private IOException malformed(String message) {
+        return new IOException("malformed delimited text at line " + line + ", character " + (offset + position) + ": " + message);
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
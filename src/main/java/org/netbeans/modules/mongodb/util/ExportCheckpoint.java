@@ -0,0 +1,176 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2014 Yann D'Isanto.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.netbeans.modules.mongodb.util;
+
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBObject;
+import com.mongodb.util.JSON;
+import com.mongodb.util.JSONParseException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * The progress of a resumable export, saved next to the export file: the
+ * sort key of the last exported document, and the export file size once
+ * that document written. Resuming the export truncates the file to that
+ * size and exports the documents following the key.
+ *
+ * @author Yann D'Isanto
+ */
+public final class ExportCheckpoint {
+
+    /**
+     * The extension appended to the export file name to name the checkpoint
+     * file.
+     */
+    public static final String EXTENSION = ".checkpoint";
+
+    private final ExportProperties properties;
+
+    private final DBObject key;
+
+    private final long offset;
+
+    private final long documentsCount;
+
+    ExportCheckpoint(ExportProperties properties, DBObject key, long offset, long documentsCount) {
+        this.properties = properties;
+        this.key = key;
+        this.offset = offset;
+        this.documentsCount = documentsCount;
+    }
+
+    public ExportProperties getProperties() {
+        return properties;
+    }
+
+    /**
+     * @return the sort key of the last exported document, null if none was
+     * exported.
+     */
+    public DBObject getKey() {
+        return key;
+    }
+
+    /**
+     * @return the export file size, in bytes.
+     */
+    public long getOffset() {
+        return offset;
+    }
+
+    public long getDocumentsCount() {
+        return documentsCount;
+    }
+
+    /**
+     * Returns the checkpoint file of the specified export file.
+     *
+     * @param exportFile the export file
+     * @return the checkpoint file.
+     */
+    public static File getFile(File exportFile) {
+        return new File(exportFile.getPath() + EXTENSION);
+    }
+
+    /**
+     * Writes this checkpoint, replacing the previous one atomically.
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    void write() throws IOException {
+        final Path path = getFile(properties.getFile()).toPath();
+        final Path temporaryPath = path.resolveSibling(path.getFileName() + ".tmp");
+        Files.write(temporaryPath, JSON.serialize(toDBObject()).getBytes(StandardCharsets.UTF_8));
+        Files.move(temporaryPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Deletes the checkpoint file of the specified export file, if any.
+     *
+     * @param exportFile the export file
+     * @throws IOException if an I/O error occurs
+     */
+    static void delete(File exportFile) throws IOException {
+        Files.deleteIfExists(getFile(exportFile).toPath());
+    }
+
+    /**
+     * Reads a checkpoint file.
+     *
+     * @param file the checkpoint file
+     * @return the checkpoint.
+     * @throws IOException if the file cannot be read or is not a valid
+     * checkpoint
+     */
+    public static ExportCheckpoint read(File file) throws IOException {
+        try {
+            final String json = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+            return fromDBObject((DBObject) JSON.parse(json));
+        } catch (JSONParseException | ClassCastException | IllegalArgumentException ex) {
+            throw new IOException("invalid checkpoint file: " + file, ex);
+        }
+    }
+
+    private DBObject toDBObject() {
+        return new BasicDBObject("collection", properties.getCollection())
+            .append("criteria", properties.getCriteria())
+            .append("projection", properties.getProjection())
+            .append("sort", properties.getSort())
+            .append("jsonArray", properties.isJsonArray())
+            .append("file", properties.getFile().getAbsolutePath())
+            .append("encoding", properties.getEncoding().name())
+            .append("compression", properties.getCompression().name())
+            .append("key", key)
+            .append("offset", offset)
+            .append("documentsCount", documentsCount);
+    }
+
+    private static ExportCheckpoint fromDBObject(DBObject object) {
+        try {
+            final ExportProperties properties = new ExportPropertiesBuilder()
+                .collection((String) object.get("collection"))
+                .criteria((DBObject) object.get("criteria"))
+                .projection((DBObject) object.get("projection"))
+                .sort((DBObject) object.get("sort"))
+                .jsonArray((Boolean) object.get("jsonArray"))
+                .file(new File((String) object.get("file")))
+                .encoding(Charset.forName((String) object.get("encoding")))
+                .compression(Compression.valueOf((String) object.get("compression")))
+                .resumable(true)
+                .build();
+            return new ExportCheckpoint(properties,
+                (DBObject) object.get("key"),
+                ((Number) object.get("offset")).longValue(),
+                ((Number) object.get("documentsCount")).longValue());
+        } catch (NullPointerException ex) {
+            throw new IllegalArgumentException(ex);
+        }
+    }
+}
@@ -0,0 +1,198 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2014 Yann D'Isanto.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.netbeans.modules.mongodb.util;
+
+import com.mongodb.BasicDBList;
+import com.mongodb.BasicDBObject;
+import com.mongodb.CommandResult;
+import com.mongodb.DBCollection;
+import com.mongodb.DBCursor;
+import com.mongodb.DBObject;
+import com.mongodb.MongoException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Splits the documents of an export into contiguous _id ranges of similar
+ * sizes, so that they can be read concurrently. The split points are given by
+ * the splitVector command when exporting a whole collection, and sampled
+ * from the _id index otherwise (or when the command is not allowed).
+ *
+ * <p>
+ * The ranges only match the _id values of the split points type. The
+ * documents are therefore not partitioned if the ranges do not match all of
+ * them.</p>
+ *
+ * @author Yann D'Isanto
+ */
+final class ExportPartitioner {
+
+    private static final Logger LOG = Logger.getLogger(ExportPartitioner.class.getName());
+
+    /**
+     * The minimum number of documents of a partition.
+     */
+    static final int MIN_PARTITION_SIZE = 1000;
+
+    private static final DBObject ID_KEY_PATTERN = new BasicDBObject("_id", 1);
+
+    private final DBCollection collection;
+
+    private final DBObject criteria;
+
+    ExportPartitioner(DBCollection collection, DBObject criteria) {
+        this.collection = collection;
+        this.criteria = criteria;
+    }
+
+    /**
+     * Splits the documents into at most the specified number of _id ranges.
+     *
+     * @param partitionCount the maximum number of ranges
+     * @return the criteria of the ranges, in _id order, or a single element
+     * list holding the export criteria if the documents are not partitioned.
+     */
+    List<DBObject> partition(int partitionCount) {
+        if (partitionCount > 1) {
+            try {
+                final List<Object> splitPoints = hasCriteria()
+                    ? sampleSplitPoints(partitionCount)
+                    : getSplitPoints(partitionCount);
+                if (splitPoints.isEmpty() == false) {
+                    final List<DBObject> partitions = createPartitions(splitPoints);
+                    if (matchesAllDocuments(partitions)) {
+                        return partitions;
+                    }
+                    LOG.fine("_id ranges do not match all the documents");
+                }
+            } catch (MongoException ex) {
+                LOG.log(Level.INFO, "export partitioning failed", ex);
+            }
+        }
+        return Collections.singletonList(criteria);
+    }
+
+    private boolean hasCriteria() {
+        return criteria != null && criteria.keySet().isEmpty() == false;
+    }
+
+    /**
+     * Selects split points among the ones computed by the splitVector
+     * command, falling back to sampling if the command fails.
+     */
+    private List<Object> getSplitPoints(int partitionCount) {
+        final CommandResult stats = collection.getStats();
+        final Object size = stats.get("size");
+        final Object count = stats.get("count");
+        if (stats.ok() == false || size instanceof Number == false || count instanceof Number == false) {
+            return sampleSplitPoints(partitionCount);
+        }
+        final int n = getPartitionCount(partitionCount, ((Number) count).longValue());
+        if (n < 2) {
+            return Collections.emptyList();
+        }
+        final DBObject command = new BasicDBObject("splitVector", collection.getFullName())
+            .append("keyPattern", ID_KEY_PATTERN)
+            .append("maxChunkSizeBytes", Math.max(1L, ((Number) size).longValue() / n));
+        final CommandResult result = collection.getDB().command(command);
+        final Object splitKeys = result.get("splitKeys");
+        if (result.ok() == false || splitKeys instanceof List == false) {
+            LOG.log(Level.FINE, "splitVector failed: {0}", result.getErrorMessage());
+            return sampleSplitPoints(partitionCount);
+        }
+        final List<?> keys = (List<?>) splitKeys;
+        final List<Object> splitPoints = new ArrayList<>();
+        int previousIndex = -1;
+        for (int i = 1; i < n; i++) {
+            // the keys split the collection into keys.size() + 1 chunks
+            final int index = (int) ((long) i * (keys.size() + 1) / n) - 1;
+            if (index > previousIndex && index < keys.size()) {
+                splitPoints.add(((DBObject) keys.get(index)).get("_id"));
+                previousIndex = index;
+            }
+        }
+        return splitPoints;
+    }
+
+    /**
+     * Reads the _id of the documents at evenly spaced positions of the
+     * result sorted by _id.
+     */
+    private List<Object> sampleSplitPoints(int partitionCount) {
+        final long count = collection.count(criteria);
+        final int n = getPartitionCount(partitionCount, count);
+        final List<Object> splitPoints = new ArrayList<>();
+        for (int i = 1; i < n; i++) {
+            final int skip = (int) Math.min(i * count / n, Integer.MAX_VALUE);
+            try (DBCursor cursor = collection.find(criteria, ID_KEY_PATTERN)) {
+                cursor.sort(ID_KEY_PATTERN).skip(skip).limit(-1);
+                if (cursor.hasNext()) {
+                    final Object id = cursor.next().get("_id");
+                    if (splitPoints.isEmpty() || splitPoints.get(splitPoints.size() - 1).equals(id) == false) {
+                        splitPoints.add(id);
+                    }
+                }
+            }
+        }
+        return splitPoints;
+    }
+
+    private static int getPartitionCount(int partitionCount, long documentsCount) {
+        return (int) Math.min(partitionCount, documentsCount / MIN_PARTITION_SIZE);
+    }
+
+    private List<DBObject> createPartitions(List<Object> splitPoints) {
+        final List<DBObject> partitions = new ArrayList<>();
+        for (int i = 0; i <= splitPoints.size(); i++) {
+            final DBObject range = new BasicDBObject();
+            if (i > 0) {
+                range.put("$gte", splitPoints.get(i - 1));
+            }
+            if (i < splitPoints.size()) {
+                range.put("$lt", splitPoints.get(i));
+            }
+            final DBObject rangeCriteria = new BasicDBObject("_id", range);
+            if (hasCriteria()) {
+                final BasicDBList and = new BasicDBList();
+                and.add(criteria);
+                and.add(rangeCriteria);
+                partitions.add(new BasicDBObject("$and", and));
+            } else {
+                partitions.add(rangeCriteria);
+            }
+        }
+        return partitions;
+    }
+
+    private boolean matchesAllDocuments(List<DBObject> partitions) {
+        long partitionsCount = 0;
+        for (DBObject partition : partitions) {
+            partitionsCount += collection.count(partition);
+        }
+        return partitionsCount == collection.count(criteria);
+    }
+}
@@ -48,7 +48,21 @@ public final class ExportProperties {
     
     private final Charset encoding;
 
+    private final int parallelism;
+
+    private final boolean partFiles;
+
+    private final Compression compression;
+
+    private final boolean resumable;
+
+    private final FileFormat format;
+
     public ExportProperties(String collection, DBObject criteria, DBObject projection, DBObject sort, boolean jsonArray, File file, Charset encoding) {
+        this(collection, criteria, projection, sort, jsonArray, file, encoding, 1, false, Compression.NONE, false, FileFormat.JSON);
+    }
+
+    public ExportProperties(String collection, DBObject criteria, DBObject projection, DBObject sort, boolean jsonArray, File file, Charset encoding, int parallelism, boolean partFiles, Compression compression, boolean resumable, FileFormat format) {
         this.collection = Objects.requireNonNull(collection);
         this.criteria = criteria;
         this.projection = projection;
@@ -56,6 +70,11 @@ public final class ExportProperties {
         this.jsonArray = jsonArray;
         this.file = Objects.requireNonNull(file);
         this.encoding = Objects.requireNonNull(encoding);
+        this.parallelism = Math.max(1, parallelism);
+        this.partFiles = partFiles;
+        this.compression = Objects.requireNonNull(compression);
+        this.resumable = resumable;
+        this.format = Objects.requireNonNull(format);
     }
 
     public String getCollection() {
@@ -85,5 +104,44 @@ public final class ExportProperties {
     public Charset getEncoding() {
         return encoding;
     }
+
+    /**
+     * @return the number of _id ranges exported concurrently, each on its
+     * own cursor.
+     */
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * @return true if each _id range is exported to its own file, false if
+     * they are all exported to the same file, in _id order.
+     */
+    public boolean isPartFiles() {
+        return partFiles;
+    }
+
+    public Compression getCompression() {
+        return compression;
+    }
+
+    /**
+     * @return true if the export progress is checkpointed, allowing to
+     * resume an interrupted export.
+     */
+    public boolean isResumable() {
+        return resumable;
+    }
+
+    /**
+     * Returns the export file format. A BSON export writes the documents as
+     * received from the server, on a single cursor, and the collection
+     * metadata next to the export file; the JSON options do not apply.
+     *
+     * @return the export file format.
+     */
+    public FileFormat getFormat() {
+        return format;
+    }
     
 }
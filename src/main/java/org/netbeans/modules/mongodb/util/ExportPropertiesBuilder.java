@@ -48,6 +48,16 @@ public final class ExportPropertiesBuilder {
     
     private Charset encoding;
 
+    private int parallelism = 1;
+
+    private boolean partFiles;
+
+    private Compression compression = Compression.NONE;
+
+    private boolean resumable;
+
+    private FileFormat format = FileFormat.JSON;
+
     public ExportPropertiesBuilder() {
         this(null);
     }
@@ -91,7 +101,32 @@ public final class ExportPropertiesBuilder {
         return this;
     }
     
+    public ExportPropertiesBuilder parallelism(int parallelism) {
+        this.parallelism = parallelism;
+        return this;
+    }
+
+    public ExportPropertiesBuilder partFiles(boolean partFiles) {
+        this.partFiles = partFiles;
+        return this;
+    }
+    
+    public ExportPropertiesBuilder compression(Compression compression) {
+        this.compression = compression;
+        return this;
+    }
+    
+    public ExportPropertiesBuilder resumable(boolean resumable) {
+        this.resumable = resumable;
+        return this;
+    }
+    
+    public ExportPropertiesBuilder format(FileFormat format) {
+        this.format = format;
+        return this;
+    }
+
     public ExportProperties build() {
-        return new ExportProperties(collection, criteria, projection, sort, jsonArray, file, encoding);
+        return new ExportProperties(collection, criteria, projection, sort, jsonArray, file, encoding, parallelism, partFiles, compression, resumable, format);
     }
 }
@@ -27,96 +27,783 @@ import com.mongodb.DB;
 import com.mongodb.DBCollection;
 import com.mongodb.DBCursor;
 import com.mongodb.DBObject;
-import com.mongodb.util.JSON;
+import com.mongodb.LazyDBDecoder;
+import com.mongodb.MongoException;
 import java.io.File;
 import java.io.IOException;
-import java.io.PrintWriter;
-import java.io.Writer;
+import java.io.InterruptedIOException;
+import java.nio.CharBuffer;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.netbeans.modules.mongodb.util.TaskProgress.WorkUnit;
 import org.openide.util.Exceptions;
+import org.openide.util.RequestProcessor;
 
 /**
+ * Exports the documents of a collection to a JSON, BSON, CSV or TSV file.
+ *
+ * <p>
+ * With a parallelism greater than 1, the documents are split into _id
+ * ranges, each one read on its own cursor and thread. The ranges are either
+ * exported to their own file, or to temporary files concatenated in _id
+ * order. A sort other than by ascending _id prevents the partitioning.</p>
+ *
+ * <p>
+ * The exported files can be compressed, by blocks compressed in
+ * parallel.</p>
+ *
+ * <p>
+ * The progress is measured against the count of the documents to
+ * export.</p>
+ *
+ * <p>
+ * A BSON export is read on a single cursor, the documents being written as
+ * the bytes received from the server, and is followed by a
+ * {@link BsonMetadata} file holding the collection options and indexes, as
+ * a mongodump one.</p>
+ *
+ * <p>
+ * A CSV or TSV export is read on a single cursor too, one row per document.
+ * Its columns are the flattened field paths of the first
+ * {@link #SCHEMA_SAMPLE_SIZE} documents: the fields only found further are
+ * not exported.</p>
+ *
+ * <p>
+ * A resumable export is read on a single cursor, in the order of an index
+ * (the _id one if not sorted), and periodically saves an
+ * {@link ExportCheckpoint}. It can then be resumed after an interruption,
+ * and its query is automatically reopened after the last exported document
+ * if its cursor is lost.</p>
  *
  * @author Yann D'Isanto
  */
-public final class Exporter implements Runnable {
+public final class Exporter implements Runnable, TaskProgress.Reporting {
+
+    private static final Logger LOG = Logger.getLogger(Exporter.class.getName());
+
+    private static final String LINE_SEPARATOR = System.getProperty("line.separator");
+
+    /**
+     * The minimum time in milliseconds between two checkpoints of a
+     * resumable export.
+     */
+    static final long CHECKPOINT_INTERVAL = 10000;
+
+    /**
+     * The maximum number of consecutive attempts to reopen the query of a
+     * resumable export whose cursor is lost.
+     */
+    static final int MAX_REOPEN_ATTEMPTS = 3;
+
+    private static final long REOPEN_DELAY = 1000;
+
+    /**
+     * The number of documents whose fields make the columns of a delimited
+     * export.
+     */
+    static final int SCHEMA_SAMPLE_SIZE = 1000;
 
     private final DB db;
 
     private final ExportProperties properties;
 
+    private final TaskProgress progress = new TaskProgress();
+
+    /**
+     * The checkpoint the export is resumed from, null if not resumed.
+     */
+    private final ExportCheckpoint resumedCheckpoint;
+
+    private boolean cancelled;
+
     public Exporter(DB db, ExportProperties properties) {
         this.db = db;
         this.properties = properties;
+        this.resumedCheckpoint = null;
+    }
+
+    /**
+     * Creates an exporter resuming an interrupted export.
+     *
+     * @param db the exported database
+     * @param checkpoint the last checkpoint of the interrupted export
+     */
+    public Exporter(DB db, ExportCheckpoint checkpoint) {
+        this.db = db;
+        this.properties = checkpoint.getProperties();
+        this.resumedCheckpoint = checkpoint;
     }
 
     @Override
     public void run() {
         try {
-            exportTo(properties.getFile().toPath());
-        } catch (IOException ex) {
+            final DBCollection collection = db.getCollection(properties.getCollection());
+            if (properties.getFormat() == FileFormat.BSON) {
+                exportBson(collection);
+                progress.finish(cancelled);
+                return;
+            }
+            if (properties.getFormat().isDelimited()) {
+                exportDelimited(collection);
+                progress.finish(cancelled);
+                return;
+            }
+            if (properties.isResumable()) {
+                final KeysetPagination keyset = new KeysetPagination(collection, properties.getProjection(), properties.getSort());
+                if (keyset.isApplicable() && writesByteOrderMark(properties.getEncoding()) == false
+                    && isMatchingAllDocuments(collection, keyset)) {
+                    exportResumable(collection, keyset, resumedCheckpoint != null
+                        ? resumedCheckpoint
+                        : new ExportCheckpoint(properties, null, 0, 0));
+                    progress.finish(cancelled);
+                    return;
+                }
+                if (resumedCheckpoint != null) {
+                    throw new IOException("export sort no longer allows to resume: " + properties.getSort());
+                }
+                LOG.log(Level.INFO, "export of {0} is not resumable", collection.getFullName());
+            }
+            progress.start(WorkUnit.DOCUMENTS, countDocuments(collection, properties.getCriteria()));
+            final List<DBObject> partitions = isPartitionable()
+                ? new ExportPartitioner(collection, properties.getCriteria()).partition(properties.getParallelism())
+                : Collections.singletonList(properties.getCriteria());
+            if (partitions.size() > 1 && properties.isPartFiles()) {
+                exportToPartFiles(collection, partitions);
+            } else {
+                exportTo(properties.getFile().toPath(), collection, partitions);
+            }
+        } catch (IOException | MongoException ex) {
+            progress.error();
             Exceptions.printStackTrace(ex);
         }
+        progress.finish(cancelled);
+    }
+
+    /**
+     * Checks that the range following the first document in the sort order
+     * matches all the other documents. Ranges can't match some sort key
+     * values (arrays, regular expressions or code, see
+     * {@link KeysetPagination}), which would be silently skipped when
+     * resuming the export or reopening a lost cursor.
+     */
+    private boolean isMatchingAllDocuments(DBCollection collection, KeysetPagination keyset) {
+        final DBObject criteria = properties.getCriteria();
+        final DBObject first;
+        try (DBCursor cursor = collection.find(criteria, properties.getProjection())) {
+            cursor.sort(keyset.getSort()).limit(1);
+            if (cursor.hasNext() == false) {
+                return true;
+            }
+            first = cursor.next();
+        }
+        final DBObject firstKey = keyset.extractKey(first);
+        return firstKey != null
+            && collection.count(keyset.after(criteria, firstKey)) + 1 == collection.count(criteria);
+    }
+
+    private long countDocuments(DBCollection collection, DBObject criteria) {
+        try {
+            return collection.count(criteria);
+        } catch (MongoException ex) {
+            LOG.log(Level.INFO, "documents count failed", ex);
+            return -1;
+        }
+    }
+
+    private boolean isPartitionable() {
+        if (properties.getParallelism() < 2 || isIdAscendingSort(properties.getSort()) == false) {
+            return false;
+        }
+        // byte order marks would be repeated by the concatenation
+        return properties.isPartFiles() || writesByteOrderMark(properties.getEncoding()) == false;
+    }
+
+    private static boolean isIdAscendingSort(DBObject sort) {
+        if (sort == null || sort.keySet().isEmpty()) {
+            return true;
+        }
+        final Object order = sort.get("_id");
+        return sort.keySet().size() == 1 && order instanceof Number && ((Number) order).intValue() > 0;
+    }
+
+    private static boolean writesByteOrderMark(Charset charset) {
+        try {
+            final int length = charset.newEncoder().encode(CharBuffer.wrap("[")).remaining();
+            return charset.newEncoder().encode(CharBuffer.wrap("[[")).remaining() != 2 * length;
+        } catch (CharacterCodingException ex) {
+            return true;
+        }
+    }
+
+    private void exportTo(Path exportPath, DBCollection collection, List<DBObject> partitions) throws IOException {
+        final Path backupPath = backup(exportPath);
+        try (FileChannel file = FileChannel.open(exportPath, 
+            StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+            WritableByteChannel channel = openOutput(file)) {
+            if (partitions.size() > 1) {
+                exportPartitions(channel, exportPath, collection, partitions);
+            } else {
+                export(channel, collection, partitions.get(0));
+            }
+        } catch (ClosedByInterruptException | InterruptedIOException ex) {
+            // cancelled while writing, handled below
+            Thread.currentThread().interrupt();
+        } catch (IOException ex) {
+            if (Thread.currentThread().isInterrupted() == false) {
+                progress.error();
+                Exceptions.printStackTrace(ex);
+            }
+        }
+        if (Thread.interrupted()) {
+            cancelled = true;
+            restore(exportPath, backupPath);
+        }
+    }
+
+    /**
+     * Exports the documents as a BSON dump, read lazily on a single cursor
+     * and written as received, followed by the collection metadata file.
+     */
+    private void exportBson(DBCollection collection) throws IOException {
+        progress.start(WorkUnit.DOCUMENTS, countDocuments(collection, properties.getCriteria()));
+        final Path exportPath = properties.getFile().toPath();
+        final Path backupPath = backup(exportPath);
+        boolean completed = false;
+        try (FileChannel file = FileChannel.open(exportPath,
+            StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+            WritableByteChannel channel = openOutput(file);
+            BsonDocumentWriter output = new BsonDocumentWriter(channel);
+            DBCursor cursor = collection.find(properties.getCriteria(), properties.getProjection())) {
+            cursor.setDecoderFactory(LazyDBDecoder.FACTORY);
+            if (properties.getSort() != null) {
+                cursor.sort(properties.getSort());
+            }
+            long byteCount = 0;
+            completed = true;
+            for (DBObject document : cursor) {
+                if (Thread.currentThread().isInterrupted()) {
+                    completed = false;
+                    break;
+                }
+                output.writeDocument(document);
+                final long writtenBytes = output.getByteCount();
+                progress.processed(1, writtenBytes - byteCount);
+                byteCount = writtenBytes;
+            }
+        } catch (ClosedByInterruptException | InterruptedIOException ex) {
+            // cancelled while writing, handled below
+            completed = false;
+            Thread.currentThread().interrupt();
+        } catch (IOException | MongoException ex) {
+            completed = false;
+            if (Thread.currentThread().isInterrupted() == false) {
+                progress.error();
+                Exceptions.printStackTrace(ex);
+            }
+        }
+        if (Thread.interrupted()) {
+            cancelled = true;
+            restore(exportPath, backupPath);
+            return;
+        }
+        if (completed) {
+            BsonMetadata.of(collection).write(properties.getFile());
+        }
+    }
+
+    /**
+     * Exports the documents as delimited text rows on a single cursor, after
+     * a header row holding the columns sampled from the first documents.
+     */
+    private void exportDelimited(DBCollection collection) throws IOException {
+        final List<String> columns = sampleColumns(collection);
+        progress.start(WorkUnit.DOCUMENTS, countDocuments(collection, properties.getCriteria()));
+        final Path exportPath = properties.getFile().toPath();
+        final Path backupPath = backup(exportPath);
+        try (FileChannel file = FileChannel.open(exportPath,
+            StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+            WritableByteChannel channel = openOutput(file);
+            DelimitedDocumentWriter output = new DelimitedDocumentWriter(channel, properties.getEncoding(),
+                properties.getFormat().getDelimiter(), columns);
+            DBCursor cursor = collection.find(properties.getCriteria(), properties.getProjection())) {
+            if (properties.getSort() != null) {
+                cursor.sort(properties.getSort());
+            }
+            output.writeHeader();
+            long byteCount = output.getByteCount();
+            for (DBObject document : cursor) {
+                if (Thread.currentThread().isInterrupted()) {
+                    break;
+                }
+                output.writeDocument(document);
+                final long writtenBytes = output.getByteCount();
+                progress.processed(1, writtenBytes - byteCount);
+                byteCount = writtenBytes;
+            }
+        } catch (ClosedByInterruptException | InterruptedIOException ex) {
+            // cancelled while writing, handled below
+            Thread.currentThread().interrupt();
+        } catch (IOException | MongoException ex) {
+            if (Thread.currentThread().isInterrupted() == false) {
+                progress.error();
+                Exceptions.printStackTrace(ex);
+            }
+        }
+        if (Thread.interrupted()) {
+            cancelled = true;
+            restore(exportPath, backupPath);
+        }
+    }
+
+    /**
+     * Returns the columns of the first {@link #SCHEMA_SAMPLE_SIZE} exported
+     * documents, in the order they are found.
+     */
+    private List<String> sampleColumns(DBCollection collection) {
+        final Set<String> columns = new LinkedHashSet<>();
+        try (DBCursor cursor = collection.find(properties.getCriteria(), properties.getProjection())) {
+            if (properties.getSort() != null) {
+                cursor.sort(properties.getSort());
+            }
+            cursor.limit(SCHEMA_SAMPLE_SIZE);
+            for (DBObject document : cursor) {
+                DelimitedDocumentWriter.addColumns(columns, "", document);
+            }
+        }
+        return new ArrayList<>(columns);
     }
 
-    private void exportTo(Path exportPath) throws IOException {
+    /**
+     * Moves the existing export file, if any, to a backup file.
+     *
+     * @return the backup file path, null if there was no file to back up.
+     */
+    private static Path backup(Path exportPath) throws IOException {
         final File exportFile = exportPath.toFile();
+        if (exportFile.exists() == false) {
+            return null;
+        }
+        final Path backupPath = new File(exportFile.getName() + ".export-backup").toPath();
+        Files.move(exportPath, backupPath, StandardCopyOption.REPLACE_EXISTING);
+        return backupPath;
+    }
+
+    /**
+     * Replaces the export file with its backup, if any.
+     */
+    private static void restore(Path exportPath, Path backupPath) throws IOException {
+        if (backupPath != null) {
+            Files.move(backupPath, exportPath, StandardCopyOption.REPLACE_EXISTING);
+        } else {
+            Files.deleteIfExists(exportPath);
+        }
+    }
+
+    /**
+     * Exports the documents following the checkpoint key, appending them to
+     * the export file truncated to the checkpoint offset. The export file
+     * and its last checkpoint are kept if the export is not completed, unless
+     * no checkpoint has been saved yet.
+     */
+    private void exportResumable(DBCollection collection, KeysetPagination keyset, ExportCheckpoint checkpoint) throws IOException {
+        final Path exportPath = properties.getFile().toPath();
+        final DBObject criteria = checkpoint.getKey() != null
+            ? keyset.after(properties.getCriteria(), checkpoint.getKey())
+            : properties.getCriteria();
+        progress.start(WorkUnit.DOCUMENTS, countDocuments(collection, criteria));
         Path backupPath = null;
-        if (exportFile.exists()) {
-            backupPath = new File(exportFile.getName() + ".export-backup").toPath();
-            Files.move(exportPath, backupPath, StandardCopyOption.REPLACE_EXISTING);
+        if (checkpoint.getOffset() == 0) {
+            ExportCheckpoint.delete(properties.getFile());
+            backupPath = backup(exportPath);
+        } else if (Files.size(exportPath) < checkpoint.getOffset()) {
+            throw new IOException("export file is smaller than its checkpoint: " + exportPath);
         }
-        try (Writer writer = new PrintWriter(exportFile, properties.getEncoding().name())) {
-            export(writer);
-        } catch (IOException ex) {
-            Exceptions.printStackTrace(ex);
+        boolean completed = false;
+        try (FileChannel file = FileChannel.open(exportPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            file.truncate(checkpoint.getOffset());
+            file.position(checkpoint.getOffset());
+            try (WritableByteChannel channel = openOutput(file);
+                JsonDocumentWriter output = new JsonDocumentWriter(channel, properties.getEncoding())) {
+                if (checkpoint.getOffset() == 0 && properties.isJsonArray()) {
+                    output.write("[");
+                }
+                completed = writeDocuments(output, channel, file, collection, keyset, checkpoint);
+                if (completed && properties.isJsonArray()) {
+                    output.write("]");
+                    output.write(LINE_SEPARATOR);
+                }
+            }
+        } catch (ClosedByInterruptException | InterruptedIOException ex) {
+            // cancelled while writing, handled below
+            Thread.currentThread().interrupt();
+        } catch (IOException | MongoException ex) {
+            if (Thread.currentThread().isInterrupted() == false) {
+                progress.error();
+                Exceptions.printStackTrace(ex);
+            }
         }
         if (Thread.interrupted()) {
-            if (backupPath != null) {
-                Files.move(backupPath, exportPath, StandardCopyOption.REPLACE_EXISTING);
-            } else {
-                Files.delete(exportPath);
+            cancelled = true;
+        }
+        if (completed) {
+            ExportCheckpoint.delete(properties.getFile());
+        } else if (ExportCheckpoint.getFile(properties.getFile()).exists() == false) {
+            restore(exportPath, backupPath);
+        }
+    }
+
+    /**
+     * Writes the documents following the checkpoint key in the sort order,
+     * saving a checkpoint every {@link #CHECKPOINT_INTERVAL} and when
+     * stopped. If the cursor is lost, the query is reopened after the last
+     * written document.
+     *
+     * @return true if all the documents have been written, false if the
+     * export has been cancelled.
+     */
+    private boolean writeDocuments(JsonDocumentWriter output, WritableByteChannel channel, FileChannel file,
+        DBCollection collection, KeysetPagination keyset, ExportCheckpoint checkpoint) throws IOException {
+        DBObject lastKey = checkpoint.getKey();
+        long count = checkpoint.getDocumentsCount();
+        // a document missing a sort key can't be resumed from
+        boolean resumable = true;
+        long byteCount = output.getByteCount();
+        long checkpointTime = System.currentTimeMillis();
+        int failures = 0;
+        while (true) {
+            final DBObject criteria = lastKey != null
+                ? keyset.after(properties.getCriteria(), lastKey)
+                : properties.getCriteria();
+            try (DBCursor cursor = collection.find(criteria, properties.getProjection())) {
+                cursor.sort(keyset.getSort());
+                for (DBObject document : cursor) {
+                    if (Thread.interrupted()) {
+                        cancelled = true;
+                        if (resumable) {
+                            saveCheckpoint(output, channel, file, lastKey, count);
+                        }
+                        return false;
+                    }
+                    if (count > 0 && properties.isJsonArray()) {
+                        output.write(",");
+                    }
+                    output.writeDocument(document);
+                    if (properties.isJsonArray() == false) {
+                        output.write(LINE_SEPARATOR);
+                    }
+                    count++;
+                    final long writtenBytes = output.getByteCount();
+                    progress.processed(1, writtenBytes - byteCount);
+                    byteCount = writtenBytes;
+                    lastKey = keyset.extractKey(document);
+                    resumable = lastKey != null;
+                    failures = 0;
+                    final long now = System.currentTimeMillis();
+                    if (resumable && now - checkpointTime >= CHECKPOINT_INTERVAL) {
+                        saveCheckpoint(output, channel, file, lastKey, count);
+                        checkpointTime = now;
+                    }
+                }
+                return true;
+            } catch (MongoException ex) {
+                final boolean cursorLost = ex instanceof MongoException.CursorNotFound
+                    || ex instanceof MongoException.Network;
+                if (cursorLost && resumable && ++failures <= MAX_REOPEN_ATTEMPTS) {
+                    LOG.log(Level.INFO, "export cursor lost, reopening the query", ex);
+                    pause(REOPEN_DELAY * failures);
+                    continue;
+                }
+                if (resumable) {
+                    saveCheckpoint(output, channel, file, lastKey, count);
+                }
+                throw ex;
             }
         }
     }
 
-    private void export(Writer writer) {
-        final PrintWriter output = new PrintWriter(writer);
-        final DBCollection collection = db.getCollection(properties.getCollection());
-        final DBCursor cursor = collection.find(properties.getCriteria(), properties.getProjection());
-        if (properties.getSort() != null) {
-            cursor.sort(properties.getSort());
+    /**
+     * Saves a checkpoint after writing the buffered documents, so that the
+     * file ends with the last written document.
+     */
+    private void saveCheckpoint(JsonDocumentWriter output, WritableByteChannel channel, FileChannel file,
+        DBObject key, long count) throws IOException {
+        output.flush();
+        if (channel instanceof GzipBlockChannel) {
+            ((GzipBlockChannel) channel).flush();
         }
-        if (properties.isJsonArray()) {
-            output.print("[");
+        file.force(false);
+        new ExportCheckpoint(properties, key, file.position(), count).write();
+    }
+
+    private static void pause(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Returns the channel the exported file content is written to, which
+     * compresses it if needed.
+     */
+    private WritableByteChannel openOutput(FileChannel file) {
+        return properties.getCompression() == Compression.GZIP ? new GzipBlockChannel(file) : file;
+    }
+
+    private void export(WritableByteChannel channel, DBCollection collection, DBObject criteria) throws IOException {
+        try (JsonDocumentWriter output = new JsonDocumentWriter(channel, properties.getEncoding())) {
+            if (properties.isJsonArray()) {
+                output.write("[");
+            }
+            writeDocuments(output, collection, criteria);
+            if (properties.isJsonArray()) {
+                output.write("]");
+                output.write(LINE_SEPARATOR);
+            }
+        }
+    }
+
+    /**
+     * Writes the documents matching the specified criteria, separated by a
+     * comma in JSON array mode and followed by a line separator otherwise.
+     *
+     * @return the number of written documents.
+     */
+    private long writeDocuments(JsonDocumentWriter output, DBCollection collection, DBObject criteria) throws IOException {
+        long count = 0;
+        long byteCount = output.getByteCount();
+        try (DBCursor cursor = collection.find(criteria, properties.getProjection())) {
+            if (properties.getSort() != null) {
+                cursor.sort(properties.getSort());
+            }
+            for (DBObject document : cursor) {
+                if (Thread.currentThread().isInterrupted()) {
+                    break;
+                }
+                if (count > 0 && properties.isJsonArray()) {
+                    output.write(",");
+                }
+                output.writeDocument(document);
+                if (properties.isJsonArray() == false) {
+                    output.write(LINE_SEPARATOR);
+                }
+                count++;
+                final long writtenBytes = output.getByteCount();
+                progress.processed(1, writtenBytes - byteCount);
+                byteCount = writtenBytes;
+            }
         }
-        boolean first = true;
-        for (DBObject document : cursor) {
-            if (Thread.interrupted()) {
+        return count;
+    }
+
+    /**
+     * Exports the partitions to temporary files, then concatenates them in
+     * order.
+     */
+    private void exportPartitions(WritableByteChannel channel, Path exportPath, DBCollection collection, List<DBObject> partitions) throws IOException {
+        final Path directory = exportPath.toAbsolutePath().getParent();
+        final String prefix = exportPath.getFileName().toString();
+        final List<PartitionExport> exports = new ArrayList<>();
+        try {
+            for (int i = 0; i < partitions.size(); i++) {
+                final Path partPath = Files.createTempFile(directory, prefix, ".part" + (i + 1));
+                exports.add(new PartitionExport(collection, partitions.get(i), partPath, false));
+            }
+            runConcurrently(exports);
+            if (Thread.currentThread().isInterrupted()) {
                 return;
             }
-            if (first) {
-                first = false;
-            } else if (properties.isJsonArray()) {
-                output.print(",");
+            try (JsonDocumentWriter output = new JsonDocumentWriter(channel, properties.getEncoding())) {
+                if (properties.isJsonArray()) {
+                    output.write("[");
+                }
+                boolean first = true;
+                for (PartitionExport export : exports) {
+                    if (export.documentsCount == 0) {
+                        continue;
+                    }
+                    if (first) {
+                        first = false;
+                    } else if (properties.isJsonArray()) {
+                        output.write(",");
+                    }
+                    output.flush();
+                    transfer(export.path, channel);
+                }
+                if (properties.isJsonArray()) {
+                    output.write("]");
+                    output.write(LINE_SEPARATOR);
+                }
+            }
+        } finally {
+            for (PartitionExport export : exports) {
+                Files.deleteIfExists(export.path);
             }
-            final String json = JSON.serialize(document);
-            output.print(json);
-            if (properties.isJsonArray() == false) {
-                output.println();
+        }
+    }
+
+    private static void transfer(Path path, WritableByteChannel target) throws IOException {
+        try (FileChannel source = FileChannel.open(path, StandardOpenOption.READ)) {
+            final long size = source.size();
+            long position = 0;
+            while (position < size) {
+                position += source.transferTo(position, size - position, target);
             }
-            output.flush();
         }
-        if (properties.isJsonArray()) {
-            output.println("]");
+    }
+
+    /**
+     * Exports each partition to its own file, named after the export file.
+     * The files written are deleted if the export is cancelled.
+     */
+    private void exportToPartFiles(DBCollection collection, List<DBObject> partitions) throws IOException {
+        final Path exportPath = properties.getFile().toPath();
+        final List<PartitionExport> exports = new ArrayList<>();
+        for (int i = 0; i < partitions.size(); i++) {
+            exports.add(new PartitionExport(collection, partitions.get(i),
+                getPartPath(exportPath, i + 1, properties.getCompression()), true));
+        }
+        runConcurrently(exports);
+        if (Thread.interrupted()) {
+            cancelled = true;
+            for (PartitionExport export : exports) {
+                Files.deleteIfExists(export.path);
+            }
+        }
+    }
+
+    /**
+     * Returns the path of the specified part of an export: "export.json"
+     * part 2 is "export.part2.json", and "export.part2.json.gz" if
+     * compressed.
+     *
+     * @param exportPath the export file path
+     * @param part the part number, starting at 1
+     * @param compression the export compression
+     * @return the part file path.
+     */
+    static Path getPartPath(Path exportPath, int part, Compression compression) {
+        String fileName = exportPath.getFileName().toString();
+        String compressionExtension = "";
+        if (compression != Compression.NONE && fileName.endsWith(compression.getExtension())) {
+            compressionExtension = compression.getExtension();
+            fileName = fileName.substring(0, fileName.length() - compressionExtension.length());
+        }
+        final int extensionIndex = fileName.lastIndexOf('.');
+        final String partName = extensionIndex > 0
+            ? fileName.substring(0, extensionIndex) + ".part" + part + fileName.substring(extensionIndex)
+            : fileName + ".part" + part;
+        return exportPath.resolveSibling(partName + compressionExtension);
+    }
+
+    /**
+     * Runs the partition exports on a request processor bounded by the export
+     * parallelism, and waits for them. They are cancelled if the current
+     * thread is interrupted, the interrupted status being kept.
+     *
+     * @throws IOException if a partition export failed
+     */
+    private void runConcurrently(List<PartitionExport> exports) throws IOException {
+        final RequestProcessor processor = new RequestProcessor("export partitions", properties.getParallelism(), true);
+        final List<RequestProcessor.Task> tasks = new ArrayList<>();
+        for (PartitionExport export : exports) {
+            tasks.add(processor.post(export));
+        }
+        try {
+            for (RequestProcessor.Task task : tasks) {
+                while (task.waitFinished(1000) == false) {
+                    // waiting for the partition
+                }
+            }
+        } catch (InterruptedException ex) {
+            for (RequestProcessor.Task task : tasks) {
+                task.cancel();
+            }
+            for (RequestProcessor.Task task : tasks) {
+                task.waitFinished();
+            }
+            Thread.currentThread().interrupt();
+            return;
+        } finally {
+            processor.stop();
+        }
+        for (PartitionExport export : exports) {
+            if (export.error != null) {
+                throw new IOException("partition export failed", export.error);
+            }
         }
-        output.flush();
     }
 
     public ExportProperties getProperties() {
         return properties;
     }
 
+    @Override
+    public TaskProgress getProgress() {
+        return progress;
+    }
+
+    /**
+     * The export of a partition to a file.
+     */
+    private final class PartitionExport implements Runnable {
+
+        private final DBCollection collection;
+
+        private final DBObject criteria;
+
+        private final Path path;
+
+        /**
+         * Whether the file is a complete export, i.e. with the JSON array
+         * brackets and compressed, or a temporary part of the export file.
+         */
+        private final boolean standalone;
+
+        private volatile long documentsCount;
+
+        private volatile Exception error;
+
+        public PartitionExport(DBCollection collection, DBObject criteria, Path path, boolean standalone) {
+            this.collection = collection;
+            this.criteria = criteria;
+            this.path = path;
+            this.standalone = standalone;
+        }
+
+        @Override
+        public void run() {
+            try (FileChannel file = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                if (standalone) {
+                    try (WritableByteChannel channel = openOutput(file)) {
+                        export(channel, collection, criteria);
+                    }
+                } else {
+                    try (JsonDocumentWriter output = new JsonDocumentWriter(file, properties.getEncoding())) {
+                        documentsCount = writeDocuments(output, collection, criteria);
+                    }
+                }
+            } catch (IOException | MongoException ex) {
+                if (Thread.currentThread().isInterrupted() == false) {
+                    error = ex;
+                }
+            }
+        }
+    }
 }
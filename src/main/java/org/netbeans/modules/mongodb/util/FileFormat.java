@@ -0,0 +1,109 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2014 Yann D'Isanto.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.netbeans.modules.mongodb.util;
+
+import java.io.File;
+
+/**
+ * The format of an import or export file.
+ *
+ * @author Yann D'Isanto
+ */
+public enum FileFormat {
+
+    /**
+     * JSON documents, one per line or in an array.
+     */
+    JSON(".json"),
+    /**
+     * BSON documents, one after the other, as dumped by mongodump.
+     */
+    BSON(".bson"),
+    /**
+     * Comma separated values, one document per row with a header row.
+     */
+    CSV(".csv", ','),
+    /**
+     * Tab separated values, one document per row with a header row.
+     */
+    TSV(".tsv", '\t');
+
+    private final String extension;
+
+    /**
+     * The cells delimiter, 0 for a documents format.
+     */
+    private final char delimiter;
+
+    private FileFormat(String extension) {
+        this(extension, (char) 0);
+    }
+
+    private FileFormat(String extension, char delimiter) {
+        this.extension = extension;
+        this.delimiter = delimiter;
+    }
+
+    /**
+     * @return the extension of the files names.
+     */
+    public String getExtension() {
+        return extension;
+    }
+
+    /**
+     * @return true if the file holds delimited text rows rather than
+     * documents.
+     */
+    public boolean isDelimited() {
+        return delimiter != 0;
+    }
+
+    /**
+     * @return the cells delimiter of a delimited format.
+     */
+    public char getDelimiter() {
+        return delimiter;
+    }
+
+    /**
+     * Returns the format of the specified file according to its extension,
+     * a compression extension being ignored.
+     *
+     * @param file the file
+     * @return the file format, JSON if not recognized.
+     */
+    public static FileFormat of(File file) {
+        String name = file.getName();
+        if (name.endsWith(Compression.GZIP.getExtension())) {
+            name = name.substring(0, name.length() - Compression.GZIP.getExtension().length());
+        }
+        for (FileFormat format : values()) {
+            if (name.endsWith(format.extension)) {
+                return format;
+            }
+        }
+        return JSON;
+    }
+}
@@ -0,0 +1,194 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2014 Yann D'Isanto.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.netbeans.modules.mongodb.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.zip.GZIPOutputStream;
+import org.openide.util.RequestProcessor;
+
+/**
+ * A channel compressing the written bytes in gzip format, in parallel. The
+ * bytes are split into blocks compressed independently as gzip members, and
+ * written in order: concatenated members are a valid gzip stream. The number
+ * of blocks being compressed is bounded, so that writes wait for the
+ * compression when it cannot keep up.
+ *
+ * @author Yann D'Isanto
+ */
+final class GzipBlockChannel implements WritableByteChannel {
+
+    /**
+     * The size of the blocks compressed independently.
+     */
+    static final int BLOCK_SIZE = 1024 * 1024;
+
+    private static final int COMPRESSION_THREADS = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * The compression threads, shared by all the exports.
+     */
+    private static final RequestProcessor COMPRESSORS = new RequestProcessor("export compression", COMPRESSION_THREADS);
+
+    private final WritableByteChannel channel;
+
+    /**
+     * The blocks being compressed, in order.
+     */
+    private final Deque<Future<byte[]>> pendingBlocks = new ArrayDeque<>();
+
+    private byte[] block = new byte[BLOCK_SIZE];
+
+    private int blockLength;
+
+    private long blockCount;
+
+    private boolean open = true;
+
+    GzipBlockChannel(WritableByteChannel channel) {
+        this.channel = channel;
+    }
+
+    @Override
+    public int write(ByteBuffer src) throws IOException {
+        if (open == false) {
+            throw new ClosedChannelException();
+        }
+        final int written = src.remaining();
+        while (src.hasRemaining()) {
+            final int length = Math.min(src.remaining(), BLOCK_SIZE - blockLength);
+            src.get(block, blockLength, length);
+            blockLength += length;
+            if (blockLength == BLOCK_SIZE) {
+                submitBlock();
+            }
+        }
+        return written;
+    }
+
+    private void submitBlock() throws IOException {
+        final byte[] data = block;
+        final int length = blockLength;
+        block = new byte[BLOCK_SIZE];
+        blockLength = 0;
+        blockCount++;
+        pendingBlocks.add(COMPRESSORS.submit(new Callable<byte[]>() {
+
+            @Override
+            public byte[] call() throws IOException {
+                return compress(data, length);
+            }
+        }));
+        while (pendingBlocks.size() > 2 * COMPRESSION_THREADS) {
+            writeBlock(pendingBlocks.poll());
+        }
+    }
+
+    private static byte[] compress(byte[] data, int length) throws IOException {
+        final ByteArrayOutputStream compressed = new ByteArrayOutputStream(length / 4 + 64);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(compressed, 64 * 1024)) {
+            gzip.write(data, 0, length);
+        }
+        return compressed.toByteArray();
+    }
+
+    private void writeBlock(Future<byte[]> pendingBlock) throws IOException {
+        final ByteBuffer compressed;
+        try {
+            compressed = ByteBuffer.wrap(pendingBlock.get());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        } catch (ExecutionException ex) {
+            throw new IOException(ex.getCause());
+        }
+        while (compressed.hasRemaining()) {
+            channel.write(compressed);
+        }
+    }
+
+    /**
+     * Compresses and writes the buffered bytes, so that the target channel
+     * content is a complete gzip stream.
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    void flush() throws IOException {
+        if (blockLength > 0) {
+            submitBlock();
+        }
+        while (pendingBlocks.isEmpty() == false) {
+            writeBlock(pendingBlocks.poll());
+        }
+    }
+
+    @Override
+    public boolean isOpen() {
+        return open;
+    }
+
+    /**
+     * Compresses and writes the remaining bytes, without closing the target
+     * channel. The blocks still being compressed are cancelled if it fails.
+     * If the current thread is interrupted, the remaining bytes are discarded
+     * instead of being written as a partial gzip member.
+     *
+     * @throws InterruptedIOException if the current thread is interrupted
+     * @throws IOException if an I/O error occurs
+     */
+    @Override
+    public void close() throws IOException {
+        if (open == false) {
+            return;
+        }
+        open = false;
+        try {
+            if (Thread.currentThread().isInterrupted()) {
+                blockLength = 0;
+                throw new InterruptedIOException();
+            }
+            if (blockLength > 0 || blockCount == 0) {
+                // an empty gzip file still holds a member
+                submitBlock();
+            }
+            while (pendingBlocks.isEmpty() == false) {
+                writeBlock(pendingBlocks.poll());
+            }
+        } finally {
+            for (Future<byte[]> pendingBlock : pendingBlocks) {
+                pendingBlock.cancel(false);
+            }
+            pendingBlocks.clear();
+        }
+    }
+}
@@ -0,0 +1,314 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2014 Yann D'Isanto.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.netbeans.modules.mongodb.util;
+
+import com.mongodb.BasicDBList;
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBObject;
+import com.mongodb.WriteConcern;
+import com.mongodb.util.JSON;
+import com.mongodb.util.JSONParseException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The progress of an import, saved next to the imported file: the byte
+ * offset in the file following the documents whose insertion has been
+ * acknowledged, all the documents before it included. Resuming the import
+ * reads the file from that offset. A checkpointed import is therefore
+ * written with an acknowledged write concern, even if an unacknowledged one
+ * is requested.
+ *
+ * <p>
+ * Documents after the offset may have been inserted when the import
+ * stopped. They are inserted again on resume, or rejected as duplicate keys
+ * if the collection has a unique index on one of their fields.</p>
+ *
+ * <p>
+ * The checkpoint also holds the secondary indexes dropped by a bulk load
+ * and not rebuilt yet, so that they can be rebuilt if the import is
+ * interrupted before rebuilding them, or if rebuilding them failed. The
+ * imports which are not checkpointed save a checkpoint that is not
+ * resumable for that purpose: resuming it only rebuilds the indexes.</p>
+ *
+ * @author Yann D'Isanto
+ */
+public final class ImportCheckpoint {
+
+    /**
+     * The extension appended to the imported file name to name the
+     * checkpoint file.
+     */
+    public static final String EXTENSION = ".import-checkpoint";
+
+    private final String database;
+
+    private final ImportProperties properties;
+
+    private final long offset;
+
+    private final long line;
+
+    private final boolean inArray;
+
+    private final long documentsCount;
+
+    private final boolean resumable;
+
+    private final List<DBObject> indexes;
+
+    ImportCheckpoint(String database, ImportProperties properties, long offset, long line, boolean inArray, long documentsCount) {
+        this(database, properties, offset, line, inArray, documentsCount, true, Collections.<DBObject>emptyList());
+    }
+
+    private ImportCheckpoint(String database, ImportProperties properties, long offset, long line, boolean inArray,
+        long documentsCount, boolean resumable, List<DBObject> indexes) {
+        this.database = database;
+        this.properties = properties;
+        this.offset = offset;
+        this.line = line;
+        this.inArray = inArray;
+        this.documentsCount = documentsCount;
+        this.resumable = resumable;
+        this.indexes = indexes;
+    }
+
+    /**
+     * Creates the checkpoint of an import which is not checkpointed, only
+     * holding the indexes to rebuild.
+     *
+     * @param database the name of the database of the imported collection
+     * @param properties the import properties
+     * @param indexes the secondary indexes to rebuild
+     * @return the checkpoint.
+     */
+    static ImportCheckpoint ofIndexes(String database, ImportProperties properties, List<DBObject> indexes) {
+        return new ImportCheckpoint(database, properties, 0, 1, false, 0, false, indexes);
+    }
+
+    /**
+     * @param offset the new offset
+     * @param line the line number at the new offset
+     * @param inArray whether the new offset is inside a top level array
+     * @param documentsCount the number of documents before the new offset
+     * @return a checkpoint at the specified offset, with the indexes of this
+     * one.
+     */
+    ImportCheckpoint next(long offset, long line, boolean inArray, long documentsCount) {
+        return new ImportCheckpoint(database, properties, offset, line, inArray, documentsCount, resumable, indexes);
+    }
+
+    /**
+     * @param indexes the secondary indexes to rebuild
+     * @return a copy of this checkpoint with the specified indexes.
+     */
+    ImportCheckpoint withIndexes(List<DBObject> indexes) {
+        return new ImportCheckpoint(database, properties, offset, line, inArray, documentsCount, resumable, indexes);
+    }
+
+    /**
+     * @return the name of the database of the imported collection.
+     */
+    public String getDatabase() {
+        return database;
+    }
+
+    public ImportProperties getProperties() {
+        return properties;
+    }
+
+    /**
+     * @return the offset in the imported file, in bytes.
+     */
+    public long getOffset() {
+        return offset;
+    }
+
+    /**
+     * @return the line number at the offset.
+     */
+    public long getLine() {
+        return line;
+    }
+
+    /**
+     * @return whether the offset is inside a top level array.
+     */
+    public boolean isInArray() {
+        return inArray;
+    }
+
+    /**
+     * @return the number of documents before the offset.
+     */
+    public long getDocumentsCount() {
+        return documentsCount;
+    }
+
+    /**
+     * @return whether the import can be resumed from the offset, false if
+     * the checkpoint only holds the indexes to rebuild.
+     */
+    public boolean isResumable() {
+        return resumable;
+    }
+
+    /**
+     * @return the secondary indexes dropped by a bulk load and not rebuilt
+     * yet, as returned by {@link com.mongodb.DBCollection#getIndexInfo()}.
+     */
+    public List<DBObject> getIndexes() {
+        return indexes;
+    }
+
+    /**
+     * Returns the checkpoint file of the specified imported file.
+     *
+     * @param importFile the imported file
+     * @return the checkpoint file.
+     */
+    public static File getFile(File importFile) {
+        return new File(importFile.getPath() + EXTENSION);
+    }
+
+    /**
+     * Writes this checkpoint, replacing the previous one atomically.
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    void write() throws IOException {
+        final Path path = getFile(properties.getFile()).toPath();
+        final Path temporaryPath = path.resolveSibling(path.getFileName() + ".tmp");
+        Files.write(temporaryPath, JSON.serialize(toDBObject()).getBytes(StandardCharsets.UTF_8));
+        Files.move(temporaryPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Deletes the checkpoint file of the specified imported file, if any.
+     *
+     * @param importFile the imported file
+     * @throws IOException if an I/O error occurs
+     */
+    static void delete(File importFile) throws IOException {
+        Files.deleteIfExists(getFile(importFile).toPath());
+    }
+
+    /**
+     * Reads a checkpoint file.
+     *
+     * @param file the checkpoint file
+     * @return the checkpoint.
+     * @throws IOException if the file cannot be read or is not a valid
+     * checkpoint
+     */
+    public static ImportCheckpoint read(File file) throws IOException {
+        try {
+            final String json = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+            return fromDBObject((DBObject) JSON.parse(json));
+        } catch (JSONParseException | ClassCastException | IllegalArgumentException ex) {
+            throw new IOException("invalid checkpoint file: " + file, ex);
+        }
+    }
+
+    private DBObject toDBObject() {
+        final WriteConcern writeConcern = properties.getWriteConcern();
+        final File deadLetterFile = properties.getDeadLetterFile();
+        return new BasicDBObject("database", database)
+            .append("collection", properties.getCollection())
+            .append("file", properties.getFile().getAbsolutePath())
+            .append("encoding", properties.getEncoding().name())
+            .append("batchSize", properties.getBatchSize())
+            .append("batchBytes", properties.getBatchBytes())
+            .append("writeConcern", new BasicDBObject("w", writeConcern.getWObject())
+                .append("wtimeout", writeConcern.getWtimeout())
+                .append("fsync", writeConcern.getFsync())
+                .append("j", writeConcern.getJ()))
+            .append("parseThreads", properties.getParseThreads())
+            .append("insertThreads", properties.getInsertThreads())
+            .append("bulkLoad", properties.isBulkLoad())
+            .append("upsertKey", properties.getUpsertKey())
+            .append("deadLetterFile", deadLetterFile != null ? deadLetterFile.getAbsolutePath() : null)
+            .append("offset", offset)
+            .append("line", line)
+            .append("inArray", inArray)
+            .append("documentsCount", documentsCount)
+            .append("resumable", resumable)
+            .append("indexes", new ArrayList<>(indexes));
+    }
+
+    private static ImportCheckpoint fromDBObject(DBObject object) {
+        try {
+            final String database = (String) object.get("database");
+            if (database == null) {
+                throw new IllegalArgumentException("no database");
+            }
+            final String deadLetterFile = (String) object.get("deadLetterFile");
+            // the collection is not dropped again on resume
+            final ImportProperties properties = new ImportPropertiesBuilder()
+                .collection((String) object.get("collection"))
+                .file(new File((String) object.get("file")))
+                .encoding(Charset.forName((String) object.get("encoding")))
+                .batchSize(((Number) object.get("batchSize")).intValue())
+                .batchBytes(((Number) object.get("batchBytes")).intValue())
+                .writeConcern(toWriteConcern((DBObject) object.get("writeConcern")))
+                .parseThreads(((Number) object.get("parseThreads")).intValue())
+                .insertThreads(((Number) object.get("insertThreads")).intValue())
+                .bulkLoad((Boolean) object.get("bulkLoad"))
+                .upsertKey((String) object.get("upsertKey"))
+                .deadLetterFile(deadLetterFile != null ? new File(deadLetterFile) : null)
+                .build();
+            final List<DBObject> indexes = new ArrayList<>();
+            for (Object index : (BasicDBList) object.get("indexes")) {
+                indexes.add((DBObject) index);
+            }
+            return new ImportCheckpoint(database, properties,
+                ((Number) object.get("offset")).longValue(),
+                ((Number) object.get("line")).longValue(),
+                (Boolean) object.get("inArray"),
+                ((Number) object.get("documentsCount")).longValue(),
+                (Boolean) object.get("resumable"),
+                indexes);
+        } catch (NullPointerException ex) {
+            throw new IllegalArgumentException(ex);
+        }
+    }
+
+    private static WriteConcern toWriteConcern(DBObject object) {
+        final Object w = object.get("w");
+        final int wtimeout = ((Number) object.get("wtimeout")).intValue();
+        final boolean fsync = (Boolean) object.get("fsync");
+        final boolean j = (Boolean) object.get("j");
+        return w instanceof String
+            ? new WriteConcern((String) w, wtimeout, fsync, j)
+            : new WriteConcern(((Number) w).intValue(), wtimeout, fsync, j);
+    }
+}
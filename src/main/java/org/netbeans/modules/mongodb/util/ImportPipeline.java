@@ -0,0 +1,1230 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2014 Yann D'Isanto.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.netbeans.modules.mongodb.util;
+
+import com.mongodb.BasicDBList;
+import com.mongodb.BasicDBObject;
+import com.mongodb.CommandResult;
+import com.mongodb.DBCollection;
+import com.mongodb.DBObject;
+import com.mongodb.LazyDBCallback;
+import com.mongodb.LazyDBEncoder;
+import com.mongodb.LazyDBObject;
+import com.mongodb.MongoException;
+import com.mongodb.WriteConcern;
+import com.mongodb.WriteConcernException;
+import com.mongodb.util.JSON;
+import java.io.CharArrayReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.bson.types.ObjectId;
+import org.netbeans.modules.mongodb.util.Importer.CountingInputStream;
+import org.netbeans.modules.mongodb.util.RejectedDocuments.Reason;
+import org.openide.util.RequestProcessor;
+
+/**
+ * Imports JSON documents through three stages running concurrently: the
+ * calling thread reads the document texts by chunks, a pool of workers
+ * parses the chunks into batches of documents, and another pool inserts the
+ * batches. The stages are connected by bounded queues, so a slow stage
+ * blocks the previous one.
+ *
+ * <p>
+ * The chunks of a memory-mapped file are byte ranges the parse workers
+ * decode and split into documents themselves.</p>
+ *
+ * <p>
+ * The documents of a BSON file are not decoded: they are inserted as the
+ * bytes read from the file. Their number in the file stands for their line
+ * number.</p>
+ *
+ * <p>
+ * The rows of a CSV or TSV file are converted into documents by the parse
+ * workers, according to a {@link ColumnMapping}. A row that cannot be
+ * converted is rejected as a parse error.</p>
+ *
+ * <p>
+ * Documents are not inserted in the order of the file when there are several
+ * parse or insert workers.</p>
+ *
+ * <p>
+ * Documents upserted by a key are written by batches of update statements
+ * sent in a single update command, which requires MongoDB 2.6. So are the
+ * documents inserted with a dead letter file, with insert commands.</p>
+ *
+ * <p>
+ * The documents that cannot be parsed or are rejected by the server are
+ * recorded as {@link RejectedDocuments} and the import goes on.</p>
+ *
+ * <p>
+ * Inserted documents missing an _id get one generated before being written,
+ * so that a batch retried after a network error is not inserted twice: the
+ * duplicate key errors on _id of a retried batch stand for documents written
+ * by a previous attempt.</p>
+ *
+ * <p>
+ * The import of a mapped file is checkpointed: the chunks whose documents
+ * have all been written are tracked, and the end of the last one of the
+ * leading written chunks is saved as an {@link ImportCheckpoint} every
+ * {@link #CHECKPOINT_INTERVAL}. Its documents are written with an
+ * acknowledged write concern, so that the checkpoint only follows documents
+ * the server has acknowledged.</p>
+ *
+ * @author Yann D'Isanto
+ */
+final class ImportPipeline {
+
+    private static final Logger LOG = Logger.getLogger(ImportPipeline.class.getName());
+
+    /**
+     * The number of characters, or bytes for a mapped file, from which a
+     * chunk of documents is handed to the parse workers.
+     */
+    static final int CHUNK_SIZE = 256 * 1024;
+
+    /**
+     * The number of queued items per worker of the next stage.
+     */
+    static final int QUEUED_PER_WORKER = 2;
+
+    /**
+     * The maximum number of statements of a write command.
+     */
+    static final int MAX_WRITE_BATCH_SIZE = 1000;
+
+    /**
+     * The maximum size of the documents of a write command, as estimated
+     * from their JSON text, leaving room in the command for the queries.
+     */
+    static final int MAX_COMMAND_BATCH_BYTES = 8 * 1024 * 1024;
+
+    /**
+     * The time in milliseconds a stage waits on a queue before checking
+     * whether the pipeline has been stopped.
+     */
+    private static final long POLL_TIMEOUT = 100;
+
+    /**
+     * The number of attempts to write a batch failing with network errors.
+     */
+    static final int MAX_WRITE_ATTEMPTS = 5;
+
+    /**
+     * The delay in milliseconds before the first retry of a batch, doubled
+     * on each retry.
+     */
+    static final long RETRY_DELAY = 500;
+
+    /**
+     * The minimum time in milliseconds between two checkpoints.
+     */
+    static final long CHECKPOINT_INTERVAL = 10000;
+
+    private static final int INITIAL_LINES = 256;
+
+    private static final byte BSON_OBJECT_ID = 0x07;
+
+    /**
+     * The size of an ObjectId _id BSON element: type, name, terminating 0
+     * and ObjectId bytes.
+     */
+    private static final int ID_ELEMENT_SIZE = 1 + 3 + 1 + 12;
+
+    private static final Chunk END_OF_CHUNKS = new Chunk(Collections.<String>emptyList(), new long[0], 0);
+
+    private static final Batch END_OF_BATCHES = new Batch(Collections.<DBObject>emptyList(), new long[0],
+        Collections.<Chunk>emptyList(), 0);
+
+    private final DBCollection collection;
+
+    private final ImportProperties properties;
+
+    private final TaskProgress progress;
+
+    private final RejectedDocuments rejected;
+
+    /**
+     * The write concern of the writes, acknowledged if the import is
+     * checkpointed.
+     */
+    private WriteConcern writeConcern;
+
+    /**
+     * Whether the documents are written with write commands rather than
+     * inserted.
+     */
+    private final boolean useWriteCommands;
+
+    private final BlockingQueue<Chunk> chunks;
+
+    private final BlockingQueue<Batch> batches;
+
+    private final int batchSize;
+
+    private final int batchBytes;
+
+    /**
+     * The mapping of the rows of a delimited file, null for documents.
+     */
+    private ColumnMapping columnMapping;
+
+    private final AtomicLong insertedCount = new AtomicLong();
+
+    private final AtomicLong updatedCount = new AtomicLong();
+
+    private final AtomicLong unchangedCount = new AtomicLong();
+
+    private volatile boolean stopped;
+
+    private volatile Exception failure;
+
+    /**
+     * The last checkpoint, null if the import is not checkpointed.
+     */
+    private ImportCheckpoint checkpoint;
+
+    /**
+     * The sequence number of the first chunk not entirely written.
+     */
+    private long nextWrittenChunk;
+
+    /**
+     * The written chunks following a chunk not entirely written, by
+     * sequence number.
+     */
+    private final Map<Long, Chunk> writtenChunks = new HashMap<>();
+
+    private long checkpointTime;
+
+    ImportPipeline(DBCollection collection, ImportProperties properties, TaskProgress progress, RejectedDocuments rejected) {
+        this.collection = collection;
+        this.properties = properties;
+        this.progress = progress;
+        this.rejected = rejected;
+        this.writeConcern = getInsertWriteConcern(properties).continueOnErrorForInsert(true);
+        this.useWriteCommands = properties.getUpsertKey() != null || rejected.isRecorded();
+        this.chunks = new ArrayBlockingQueue<>(properties.getParseThreads() * QUEUED_PER_WORKER);
+        this.batches = new ArrayBlockingQueue<>(properties.getInsertThreads() * QUEUED_PER_WORKER);
+        if (useWriteCommands) {
+            this.batchSize = Math.min(properties.getBatchSize(), MAX_WRITE_BATCH_SIZE);
+            this.batchBytes = Math.min(properties.getBatchBytes(), MAX_COMMAND_BATCH_BYTES);
+        } else {
+            this.batchSize = properties.getBatchSize();
+            this.batchBytes = properties.getBatchBytes();
+        }
+    }
+
+    /**
+     * @return the number of upserted documents that have been inserted.
+     */
+    long getInsertedCount() {
+        return insertedCount.get();
+    }
+
+    /**
+     * @return the number of upserted documents that have replaced a
+     * different document.
+     */
+    long getUpdatedCount() {
+        return updatedCount.get();
+    }
+
+    /**
+     * @return the number of upserted documents that were identical to the
+     * document they replaced.
+     */
+    long getUnchangedCount() {
+        return unchangedCount.get();
+    }
+
+    /**
+     * Runs the pipeline, reading the documents in the current thread. If the
+     * current thread is interrupted, every stage is stopped and the
+     * interrupted status is kept.
+     *
+     * @param reader the documents reader
+     * @param fileInput the file input, counting the bytes read for the
+     * progress
+     * @return true if all the documents have been imported, false if
+     * cancelled.
+     * @throws IOException if reading the documents failed, or if a stage
+     * failed
+     */
+    boolean run(final JsonDocumentReader reader, final CountingInputStream fileInput) throws IOException {
+        return run(new ReadStage() {
+
+            @Override
+            public void read() throws IOException, InterruptedException {
+                readDocuments(reader, fileInput);
+            }
+        });
+    }
+
+    /**
+     * Runs the pipeline, cutting the mapped file into chunks in the current
+     * thread and saving checkpoints. If the current thread is interrupted,
+     * every stage is stopped and the interrupted status is kept.
+     *
+     * @param reader the mapped file reader
+     * @param start the checkpoint the reader starts from
+     * @return true if all the documents have been imported, false if
+     * cancelled.
+     * @throws IOException if reading the file failed, or if a stage failed
+     */
+    boolean run(final MappedChunkReader reader, ImportCheckpoint start) throws IOException {
+        synchronized (this) {
+            checkpoint = start;
+            checkpointTime = System.currentTimeMillis();
+        }
+        if (writeConcern.callGetLastError() == false) {
+            // unacknowledged writes would be reported as written when sent
+            writeConcern = WriteConcern.ACKNOWLEDGED.continueOnErrorForInsert(true);
+        }
+        return run(new ReadStage() {
+
+            @Override
+            public void read() throws IOException, InterruptedException {
+                readChunks(reader);
+            }
+        });
+    }
+
+    private boolean run(ReadStage readStage) throws IOException {
+        final int parseThreads = properties.getParseThreads();
+        final int insertThreads = properties.getInsertThreads();
+        final RequestProcessor processor = new RequestProcessor("import pipeline", parseThreads + insertThreads, true);
+        final List<RequestProcessor.Task> parseTasks = new ArrayList<>();
+        final List<RequestProcessor.Task> insertTasks = new ArrayList<>();
+        for (int i = 0; i < parseThreads; i++) {
+            parseTasks.add(processor.post(new ParseWorker()));
+        }
+        for (int i = 0; i < insertThreads; i++) {
+            insertTasks.add(processor.post(new InsertWorker()));
+        }
+        boolean completed = false;
+        try {
+            readStage.read();
+            endStage(chunks, END_OF_CHUNKS, parseTasks);
+            endStage(batches, END_OF_BATCHES, insertTasks);
+            completed = true;
+        } catch (InterruptedException ex) {
+            // cancelled
+        } finally {
+            if (completed == false) {
+                stop(parseTasks);
+                stop(insertTasks);
+            }
+            processor.stop();
+        }
+        if (completed == false) {
+            // stop() waits for the workers uninterruptibly, clearing the status
+            Thread.currentThread().interrupt();
+            return false;
+        }
+        if (failure != null) {
+            throw new IOException("import failed", failure);
+        }
+        return true;
+    }
+
+    /**
+     * Returns the write concern of the inserts: the one of the properties,
+     * relaxed to acknowledged for a bulk load if stronger.
+     */
+    private static WriteConcern getInsertWriteConcern(ImportProperties properties) {
+        final WriteConcern writeConcern = properties.getWriteConcern();
+        if (properties.isBulkLoad() == false) {
+            return writeConcern;
+        }
+        final boolean relaxed = writeConcern.getWObject() instanceof Integer
+            && writeConcern.getW() <= 1
+            && writeConcern.getJ() == false
+            && writeConcern.getFsync() == false;
+        return relaxed ? writeConcern : WriteConcern.ACKNOWLEDGED;
+    }
+
+    /**
+     * Runs the pipeline, reading BSON documents in the current thread. If
+     * the current thread is interrupted, every stage is stopped and the
+     * interrupted status is kept.
+     *
+     * @param reader the BSON documents reader
+     * @param fileInput the file input, counting the bytes read for the
+     * progress
+     * @return true if all the documents have been imported, false if
+     * cancelled.
+     * @throws IOException if reading the documents failed, or if a stage
+     * failed
+     */
+    boolean run(final BsonDocumentReader reader, final CountingInputStream fileInput) throws IOException {
+        return run(new ReadStage() {
+
+            @Override
+            public void read() throws IOException, InterruptedException {
+                readBsonDocuments(reader, fileInput);
+            }
+        });
+    }
+
+    /**
+     * Runs the pipeline, reading delimited text rows in the current thread.
+     * If the current thread is interrupted, every stage is stopped and the
+     * interrupted status is kept.
+     *
+     * @param reader the rows reader, past the header row if any
+     * @param columnMapping the mapping of the rows to documents
+     * @param fileInput the file input, counting the bytes read for the
+     * progress
+     * @return true if all the documents have been imported, false if
+     * cancelled.
+     * @throws IOException if reading the rows failed, or if a stage failed
+     */
+    boolean run(final DelimitedRowReader reader, ColumnMapping columnMapping, final CountingInputStream fileInput) throws IOException {
+        this.columnMapping = columnMapping;
+        return run(new ReadStage() {
+
+            @Override
+            public void read() throws IOException, InterruptedException {
+                readRows(reader, fileInput);
+            }
+        });
+    }
+
+    private void readRows(DelimitedRowReader reader, CountingInputStream fileInput) throws IOException, InterruptedException {
+        List<String[]> rows = new ArrayList<>();
+        List<String> texts = new ArrayList<>();
+        long[] lines = new long[INITIAL_LINES];
+        long chars = 0;
+        long readBytes = 0;
+        String[] row;
+        while ((row = reader.readRow()) != null) {
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+            final String text = reader.getRowText();
+            lines = addLine(lines, rows.size(), reader.getRowLine());
+            rows.add(row);
+            texts.add(text);
+            chars += text.length();
+            if (chars >= CHUNK_SIZE) {
+                final long count = fileInput.getCount();
+                if (put(chunks, Chunk.ofRows(rows, texts, lines, count - readBytes)) == false) {
+                    return;
+                }
+                readBytes = count;
+                rows = new ArrayList<>();
+                texts = new ArrayList<>();
+                lines = new long[INITIAL_LINES];
+                chars = 0;
+            }
+        }
+        if (rows.isEmpty() == false) {
+            put(chunks, Chunk.ofRows(rows, texts, lines, fileInput.getCount() - readBytes));
+        }
+    }
+
+    /**
+     * @return the number of characters of the cells of a row.
+     */
+    private static int getLength(String[] row) {
+        int length = 0;
+        for (String cell : row) {
+            length += cell.length();
+        }
+        return length;
+    }
+
+    private void readBsonDocuments(BsonDocumentReader reader, CountingInputStream fileInput) throws IOException, InterruptedException {
+        List<byte[]> documents = new ArrayList<>();
+        long[] numbers = new long[INITIAL_LINES];
+        long size = 0;
+        long readBytes = 0;
+        byte[] document;
+        while ((document = reader.readDocument()) != null) {
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+            numbers = addLine(numbers, documents.size(), reader.getDocumentNumber());
+            documents.add(document);
+            size += document.length;
+            if (size >= CHUNK_SIZE) {
+                final long count = fileInput.getCount();
+                if (put(chunks, Chunk.ofBson(documents, numbers, count - readBytes)) == false) {
+                    return;
+                }
+                readBytes = count;
+                documents = new ArrayList<>();
+                numbers = new long[INITIAL_LINES];
+                size = 0;
+            }
+        }
+        if (documents.isEmpty() == false) {
+            put(chunks, Chunk.ofBson(documents, numbers, fileInput.getCount() - readBytes));
+        }
+    }
+
+    private void readDocuments(JsonDocumentReader reader, CountingInputStream fileInput) throws IOException, InterruptedException {
+        List<String> texts = new ArrayList<>();
+        long[] lines = new long[INITIAL_LINES];
+        long chars = 0;
+        long readBytes = 0;
+        String text;
+        while ((text = reader.readDocument()) != null) {
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+            lines = addLine(lines, texts.size(), reader.getDocumentLine());
+            texts.add(text);
+            chars += text.length();
+            if (chars >= CHUNK_SIZE) {
+                final long count = fileInput.getCount();
+                if (put(chunks, new Chunk(texts, lines, count - readBytes)) == false) {
+                    return;
+                }
+                readBytes = count;
+                texts = new ArrayList<>();
+                lines = new long[INITIAL_LINES];
+                chars = 0;
+            }
+        }
+        if (texts.isEmpty() == false) {
+            put(chunks, new Chunk(texts, lines, fileInput.getCount() - readBytes));
+        }
+    }
+
+    private void readChunks(MappedChunkReader reader) throws IOException, InterruptedException {
+        long sequence = 0;
+        ByteBuffer data;
+        while ((data = reader.readChunk(CHUNK_SIZE)) != null) {
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+            if (put(chunks, new Chunk(data, reader, sequence++)) == false) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * @return the last checkpoint, null if the import is not checkpointed.
+     */
+    synchronized ImportCheckpoint getCheckpoint() {
+        return checkpoint;
+    }
+
+    /**
+     * Reports a document of a chunk, or its parsing, as written.
+     */
+    private void written(Chunk chunk) {
+        if (chunk.pending != null && chunk.pending.decrementAndGet() == 0) {
+            written(chunk.sequence, chunk);
+        }
+    }
+
+    /**
+     * Advances the checkpoint past the chunks written without a gap, saving
+     * it if {@link #CHECKPOINT_INTERVAL} has elapsed since the last save.
+     */
+    private synchronized void written(long sequence, Chunk chunk) {
+        writtenChunks.put(sequence, chunk);
+        Chunk next;
+        while ((next = writtenChunks.remove(nextWrittenChunk)) != null) {
+            nextWrittenChunk++;
+            checkpoint = checkpoint.next(next.end, next.endLine, next.endInArray,
+                checkpoint.getDocumentsCount() + next.documentsCount);
+        }
+        final long now = System.currentTimeMillis();
+        if (now - checkpointTime >= CHECKPOINT_INTERVAL) {
+            checkpointTime = now;
+            try {
+                checkpoint.write();
+            } catch (IOException ex) {
+                LOG.log(Level.WARNING, "import checkpoint writing failed", ex);
+            }
+        }
+    }
+
+    /**
+     * Sends an end marker to each worker of a stage and waits for them.
+     */
+    private <T> void endStage(BlockingQueue<T> queue, T endMarker, List<RequestProcessor.Task> tasks) throws InterruptedException {
+        for (RequestProcessor.Task task : tasks) {
+            if (put(queue, endMarker) == false) {
+                break;
+            }
+        }
+        for (RequestProcessor.Task task : tasks) {
+            while (task.waitFinished(1000) == false) {
+                // waiting for the worker
+            }
+        }
+    }
+
+    /**
+     * Stops the workers and waits for them, without being interruptible.
+     */
+    private void stop(List<RequestProcessor.Task> tasks) {
+        stopped = true;
+        for (RequestProcessor.Task task : tasks) {
+            task.cancel();
+        }
+        for (RequestProcessor.Task task : tasks) {
+            task.waitFinished();
+        }
+    }
+
+    private void fail(Exception ex) {
+        if (failure == null) {
+            failure = ex;
+        }
+        stopped = true;
+    }
+
+    /**
+     * Puts an item in the specified queue, waiting for space.
+     *
+     * @return false if the pipeline has been stopped.
+     */
+    private <T> boolean put(BlockingQueue<T> queue, T item) throws InterruptedException {
+        while (stopped == false) {
+            if (queue.offer(item, POLL_TIMEOUT, TimeUnit.MILLISECONDS)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Takes an item from the specified queue, waiting for one.
+     *
+     * @return the item or null if the pipeline has been stopped.
+     */
+    private <T> T take(BlockingQueue<T> queue) throws InterruptedException {
+        while (stopped == false) {
+            final T item = queue.poll(POLL_TIMEOUT, TimeUnit.MILLISECONDS);
+            if (item != null) {
+                return item;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * The stage reading the file.
+     */
+    private interface ReadStage {
+
+        void read() throws IOException, InterruptedException;
+    }
+
+    /**
+     * Document texts read from the file with their line numbers, or the
+     * bytes of a mapped file holding them.
+     */
+    private static final class Chunk {
+
+        /**
+         * The document texts, or the delimited text rows as found in the
+         * file.
+         */
+        private List<String> texts;
+
+        /**
+         * The BSON documents, null if the chunk holds JSON.
+         */
+        private List<byte[]> bsonDocuments;
+
+        /**
+         * The delimited text rows, null if the chunk holds documents.
+         */
+        private List<String[]> rows;
+
+        private long[] lines;
+
+        private final ByteBuffer data;
+
+        /**
+         * Whether the data starts inside a top level array.
+         */
+        private final boolean inArray;
+
+        /**
+         * The line number of the data start.
+         */
+        private final long firstLine;
+
+        /**
+         * The number of file bytes of the documents.
+         */
+        private final long bytes;
+
+        private final long sequence;
+
+        /**
+         * The file position, line number and array state at the data end.
+         */
+        private final long end;
+
+        private final long endLine;
+
+        private final boolean endInArray;
+
+        /**
+         * The number of documents not written yet, plus one until the chunk
+         * is parsed. Null if the chunk is not tracked.
+         */
+        private final AtomicInteger pending;
+
+        /**
+         * The number of documents of the chunk, set once parsed.
+         */
+        private int documentsCount;
+
+        public Chunk(List<String> texts, long[] lines, long bytes) {
+            this.texts = texts;
+            this.lines = lines;
+            this.data = null;
+            this.inArray = false;
+            this.firstLine = 0;
+            this.bytes = bytes;
+            this.sequence = 0;
+            this.end = 0;
+            this.endLine = 0;
+            this.endInArray = false;
+            this.pending = null;
+        }
+
+        static Chunk ofBson(List<byte[]> documents, long[] numbers, long bytes) {
+            final Chunk chunk = new Chunk(null, numbers, bytes);
+            chunk.bsonDocuments = documents;
+            return chunk;
+        }
+
+        /**
+         * Creates a chunk of delimited text rows, with the rows texts as
+         * found in the file.
+         */
+        static Chunk ofRows(List<String[]> rows, List<String> texts, long[] lines, long bytes) {
+            final Chunk chunk = new Chunk(texts, lines, bytes);
+            chunk.rows = rows;
+            return chunk;
+        }
+
+        /**
+         * Creates the chunk last read by a mapped file reader.
+         */
+        public Chunk(ByteBuffer data, MappedChunkReader reader, long sequence) {
+            this.data = data;
+            this.inArray = reader.isChunkInArray();
+            this.firstLine = reader.getChunkLine();
+            this.bytes = data.remaining();
+            this.sequence = sequence;
+            this.end = reader.getPosition();
+            this.endLine = reader.getLine();
+            this.endInArray = reader.isInArray();
+            this.pending = new AtomicInteger(1);
+        }
+
+        /**
+         * Returns the document texts, decoding and splitting the data if
+         * any.
+         */
+        List<String> getTexts(Charset charset) throws IOException {
+            if (texts == null) {
+                final CharBuffer chars = charset.decode(data);
+                final JsonDocumentReader reader = new JsonDocumentReader(new CharArrayReader(
+                    chars.array(), chars.arrayOffset() + chars.position(), chars.remaining()), inArray, firstLine);
+                texts = new ArrayList<>();
+                lines = new long[INITIAL_LINES];
+                String text;
+                while ((text = reader.readDocument()) != null) {
+                    lines = addLine(lines, texts.size(), reader.getDocumentLine());
+                    texts.add(text);
+                }
+            }
+            return texts;
+        }
+
+        long getLine(int index) {
+            return lines[index];
+        }
+    }
+
+    /**
+     * Sets a line number in the specified array, growing it if needed.
+     *
+     * @return the array.
+     */
+    private static long[] addLine(long[] lines, int index, long line) {
+        final long[] array = index < lines.length
+            ? lines
+            : Arrays.copyOf(lines, lines.length * 2);
+        array[index] = line;
+        return array;
+    }
+
+    /**
+     * Documents to write at once, with their line numbers.
+     */
+    private static final class Batch {
+
+        private final List<DBObject> documents;
+
+        private final long[] lines;
+
+        /**
+         * The chunks of the documents.
+         */
+        private final List<Chunk> chunks;
+
+        /**
+         * The number of file bytes reported as processed once the batch is
+         * written.
+         */
+        private final long bytes;
+
+        public Batch(List<DBObject> documents, long[] lines, List<Chunk> chunks, long bytes) {
+            this.documents = documents;
+            this.lines = lines;
+            this.chunks = chunks;
+            this.bytes = bytes;
+        }
+
+        /**
+         * Returns a part of this batch, reporting no file bytes.
+         */
+        Batch subBatch(int from, int to) {
+            return new Batch(documents.subList(from, to), Arrays.copyOfRange(lines, from, to), chunks.subList(from, to), 0);
+        }
+    }
+
+    /**
+     * Parses chunks into batches bounded by the batch size and the estimated
+     * batch bytes. A batch can span several chunks. The documents that cannot
+     * be parsed, or lack the upsert key, are rejected.
+     */
+    private final class ParseWorker implements Runnable {
+
+        private final LazyDBCallback callback = new LazyDBCallback(collection);
+
+        private List<DBObject> documents = new ArrayList<>();
+
+        private long[] lines = new long[INITIAL_LINES];
+
+        private List<Chunk> documentsChunks = new ArrayList<>();
+
+        private long documentsBytes;
+
+        private long fileBytes;
+
+        @Override
+        public void run() {
+            try {
+                Chunk chunk;
+                while ((chunk = take(chunks)) != null && chunk != END_OF_CHUNKS) {
+                    if (chunk.bsonDocuments != null) {
+                        for (int i = 0; i < chunk.bsonDocuments.size(); i++) {
+                            final byte[] bytes = chunk.bsonDocuments.get(i);
+                            final DBObject document = checkKey(toDocument(bytes), chunk.getLine(i));
+                            if (document != null && add(document, chunk, i, bytes.length) == false) {
+                                return;
+                            }
+                        }
+                        chunk.documentsCount = chunk.bsonDocuments.size();
+                    } else if (chunk.rows != null) {
+                        for (int i = 0; i < chunk.rows.size(); i++) {
+                            final String[] row = chunk.rows.get(i);
+                            final DBObject document = convert(row, chunk.texts.get(i), chunk.getLine(i));
+                            // the cells length is an estimate of the document BSON size
+                            if (document != null && add(document, chunk, i, getLength(row)) == false) {
+                                return;
+                            }
+                        }
+                        chunk.documentsCount = chunk.rows.size();
+                    } else {
+                        final List<String> texts = chunk.getTexts(properties.getEncoding());
+                        for (int i = 0; i < texts.size(); i++) {
+                            final String text = texts.get(i);
+                            final DBObject document = parse(text, chunk.getLine(i));
+                            // the JSON text length is an estimate of the document BSON size
+                            if (document != null && add(document, chunk, i, text.length()) == false) {
+                                return;
+                            }
+                        }
+                        chunk.documentsCount = texts.size();
+                    }
+                    fileBytes += chunk.bytes;
+                    written(chunk);
+                }
+                if (chunk == END_OF_CHUNKS) {
+                    flush();
+                }
+            } catch (InterruptedException ex) {
+                // stopped
+            } catch (IOException | RuntimeException ex) {
+                fail(ex);
+            }
+        }
+
+        /**
+         * Parses a document, generating its _id if missing and not upserted
+         * by another key.
+         *
+         * @return the document or null if rejected.
+         */
+        private DBObject parse(String text, long line) {
+            final DBObject document;
+            try {
+                document = (DBObject) JSON.parse(text);
+            } catch (RuntimeException ex) {
+                reject(line, Reason.PARSE_ERROR, ex.getMessage(), text);
+                return null;
+            }
+            return checkKey(document, line);
+        }
+
+        /**
+         * Converts a row into a document, generating its _id if missing and
+         * not upserted by another key. A rejected row is recorded with its
+         * text as found in the file, so that it can be imported again.
+         *
+         * @return the document or null if rejected.
+         */
+        private DBObject convert(String[] row, String text, long line) {
+            final DBObject document;
+            try {
+                document = columnMapping.toDocument(row);
+            } catch (IllegalArgumentException ex) {
+                reject(line, Reason.PARSE_ERROR, ex.getMessage(), text);
+                return null;
+            }
+            return checkKey(document, line);
+        }
+
+        /**
+         * Checks that a document has the upsert key, and generates its _id
+         * if missing. The _id of a document upserted by another key is left
+         * missing, as it would not match the one of the updated document.
+         *
+         * @return the document or null if rejected.
+         */
+        private DBObject checkKey(DBObject document, long line) {
+            final String key = properties.getUpsertKey();
+            if (key != null && "_id".equals(key) == false) {
+                if (getValue(document, key) == null) {
+                    reject(line, Reason.MISSING_KEY, key, document);
+                    return null;
+                }
+            } else if (document.containsField("_id") == false) {
+                document.put("_id", new ObjectId());
+            }
+            return document;
+        }
+
+        /**
+         * Wraps the bytes of a BSON document, prepending a generated _id if
+         * missing as the driver cannot add it to a lazy document.
+         */
+        private DBObject toDocument(byte[] bytes) {
+            final LazyDBObject document = new LazyDBObject(bytes, callback);
+            if (document.containsField("_id")) {
+                return document;
+            }
+            final ByteBuffer withId = ByteBuffer.allocate(bytes.length + ID_ELEMENT_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            withId.putInt(withId.capacity())
+                .put(BSON_OBJECT_ID)
+                .put("_id".getBytes(StandardCharsets.US_ASCII))
+                .put((byte) 0)
+                .put(new ObjectId().toByteArray())
+                .put(bytes, 4, bytes.length - 4);
+            return new LazyDBObject(withId.array(), callback);
+        }
+
+        /**
+         * Adds a document to the batch, flushing it if full.
+         *
+         * @return false if the pipeline has been stopped.
+         */
+        private boolean add(DBObject document, Chunk chunk, int index, int size) throws InterruptedException {
+            if (chunk.pending != null) {
+                chunk.pending.incrementAndGet();
+            }
+            lines = addLine(lines, documents.size(), chunk.getLine(index));
+            documents.add(document);
+            documentsChunks.add(chunk);
+            documentsBytes += size;
+            if (documents.size() >= batchSize || documentsBytes >= batchBytes) {
+                return flush();
+            }
+            return true;
+        }
+
+        private boolean flush() throws InterruptedException {
+            if (documents.isEmpty()) {
+                progress.processed(0, fileBytes);
+                fileBytes = 0;
+                return true;
+            }
+            final boolean queued = put(batches, new Batch(documents, lines, documentsChunks, fileBytes));
+            documents = new ArrayList<>();
+            lines = new long[INITIAL_LINES];
+            documentsChunks = new ArrayList<>();
+            documentsBytes = 0;
+            fileBytes = 0;
+            return queued;
+        }
+    }
+
+    private void reject(long line, Reason reason, String error, Object document) {
+        progress.error();
+        rejected.reject(line, reason, error, document);
+    }
+
+    /**
+     * Writes batches, retrying them with an exponential backoff on network
+     * errors. Documents upserted by a key, or inserted with a dead letter
+     * file, are written with unordered write commands identifying the
+     * rejected documents. The other ones are inserted with the continue on
+     * error semantics, a failing batch being counted as an error.
+     */
+    private final class InsertWorker implements Runnable {
+
+        @Override
+        public void run() {
+            try {
+                Batch batch;
+                while ((batch = take(batches)) != null && batch != END_OF_BATCHES) {
+                    writeWithRetries(batch);
+                    progress.processed(batch.documents.size(), batch.bytes);
+                    for (Chunk chunk : batch.chunks) {
+                        written(chunk);
+                    }
+                }
+            } catch (InterruptedException ex) {
+                // stopped
+            } catch (RuntimeException ex) {
+                fail(ex);
+            }
+        }
+
+        private void writeWithRetries(Batch batch) throws InterruptedException {
+            for (int attempt = 1;; attempt++) {
+                try {
+                    if (useWriteCommands) {
+                        writeCommand(batch, attempt > 1);
+                    } else {
+                        insert(batch, attempt > 1);
+                    }
+                    return;
+                } catch (MongoException.Network ex) {
+                    if (attempt >= MAX_WRITE_ATTEMPTS) {
+                        throw ex;
+                    }
+                    LOG.log(Level.INFO, "batch write failed, attempt " + attempt, ex);
+                    Thread.sleep(RETRY_DELAY << (attempt - 1));
+                }
+            }
+        }
+
+        /**
+         * Inserts a batch. The last error of a retried batch being a
+         * duplicate key on _id, the batch has been written by a previous
+         * attempt.
+         */
+        private void insert(Batch batch, boolean retried) {
+            try {
+                if (properties.getFormat() == FileFormat.BSON) {
+                    collection.insert(batch.documents, writeConcern, new LazyDBEncoder());
+                } else {
+                    collection.insert(batch.documents, writeConcern);
+                }
+            } catch (WriteConcernException ex) {
+                if (retried && isDuplicateId(ex.getCode(), ex.getMessage())) {
+                    return;
+                }
+                reject(batch.lines[0], Reason.FAILED_BATCH, ex.getMessage(), null);
+                LOG.log(Level.INFO, "batch insert failed", ex);
+            }
+        }
+
+        /**
+         * Writes a batch with a single unordered write command. A command
+         * too large is split in halves, down to the document making it fail.
+         * Any other command failure fails the import.
+         */
+        private void writeCommand(Batch batch, boolean retried) {
+            final DBObject writeConcernDocument = writeConcern.getCommand();
+            writeConcernDocument.removeField("getlasterror");
+            final String key = properties.getUpsertKey();
+            final BasicDBObject command;
+            if (key != null) {
+                final BasicDBList updates = new BasicDBList();
+                for (DBObject document : batch.documents) {
+                    updates.add(new BasicDBObject("q", new BasicDBObject(key, getValue(document, key)))
+                        .append("u", document)
+                        .append("upsert", true));
+                }
+                command = new BasicDBObject("update", collection.getName()).append("updates", updates);
+            } else {
+                command = new BasicDBObject("insert", collection.getName()).append("documents", batch.documents);
+            }
+            command.append("ordered", false).append("writeConcern", writeConcernDocument);
+            final CommandResult result;
+            try {
+                result = collection.getDB().command(command);
+            } catch (MongoException.Network ex) {
+                throw ex;
+            } catch (MongoException ex) {
+                // the driver refuses to send a command over the maximum size
+                if (isTooLarge(ex.getCode(), ex.getMessage()) == false) {
+                    throw ex;
+                }
+                splitCommand(batch, retried, ex.getMessage());
+                return;
+            }
+            if (result.ok() == false) {
+                if (isTooLarge(result.getInt("code", 0), result.getErrorMessage()) == false) {
+                    result.throwOnError();
+                }
+                splitCommand(batch, retried, result.getErrorMessage());
+                return;
+            }
+            if (key != null) {
+                countUpserts(result);
+            }
+            final List<?> writeErrors = (List<?>) result.get("writeErrors");
+            if (writeErrors != null) {
+                for (Object item : writeErrors) {
+                    final DBObject writeError = (DBObject) item;
+                    final int index = ((Number) writeError.get("index")).intValue();
+                    final int code = ((Number) writeError.get("code")).intValue();
+                    final String message = (String) writeError.get("errmsg");
+                    if (retried && isDuplicateId(code, message)) {
+                        // written by a previous attempt
+                        continue;
+                    }
+                    reject(batch.lines[index], getReason(code), message, batch.documents.get(index));
+                }
+            }
+            final DBObject writeConcernError = (DBObject) result.get("writeConcernError");
+            if (writeConcernError != null) {
+                // the documents are written but not as durably as requested
+                reject(batch.lines[0], Reason.FAILED_BATCH, (String) writeConcernError.get("errmsg"), null);
+                LOG.log(Level.INFO, "batch write concern failed: {0}", writeConcernError);
+            }
+        }
+
+        private void splitCommand(Batch batch, boolean retried, String error) {
+            final int size = batch.documents.size();
+            if (size > 1) {
+                writeCommand(batch.subBatch(0, size / 2), retried);
+                writeCommand(batch.subBatch(size / 2, size), retried);
+            } else {
+                reject(batch.lines[0], Reason.TOO_LARGE, error, batch.documents.get(0));
+            }
+        }
+
+        private void countUpserts(CommandResult result) {
+            final List<?> upserted = (List<?>) result.get("upserted");
+            final int inserted = upserted != null ? upserted.size() : 0;
+            final int updated = result.getInt("nModified", 0);
+            insertedCount.addAndGet(inserted);
+            updatedCount.addAndGet(updated);
+            unchangedCount.addAndGet(Math.max(0, result.getInt("n", 0) - inserted - updated));
+        }
+    }
+
+    private static Reason getReason(int errorCode) {
+        switch (errorCode) {
+            case 11000:
+            case 11001:
+            case 12582:
+                return Reason.DUPLICATE_KEY;
+            case 10334:
+                return Reason.TOO_LARGE;
+            default:
+                return Reason.WRITE_ERROR;
+        }
+    }
+
+    /**
+     * @return true if the error is a document or a command exceeding the
+     * maximum size.
+     */
+    private static boolean isTooLarge(int errorCode, String message) {
+        if (errorCode == 10334) {
+            return true;
+        }
+        if (message == null) {
+            return false;
+        }
+        final String lowerCase = message.toLowerCase(Locale.ENGLISH);
+        // "message too large" from the server, "over max bson size" from the driver
+        return lowerCase.contains("too large") || lowerCase.contains("over max bson size");
+    }
+
+    /**
+     * @return true if the error is a duplicate key on the _id index.
+     */
+    private static boolean isDuplicateId(int errorCode, String message) {
+        return (errorCode == 11000 || errorCode == 11001)
+            && message != null && message.contains("_id_");
+    }
+
+    /**
+     * Returns the value of a field of a document.
+     *
+     * @param document the document
+     * @param path the dotted field path
+     * @return the field value or null if missing.
+     */
+    private static Object getValue(DBObject document, String path) {
+        Object value = document;
+        for (String name : path.split("\\.")) {
+            if (value instanceof DBObject == false) {
+                return null;
+            }
+            value = ((DBObject) value).get(name);
+        }
+        return value;
+    }
+}
@@ -24,8 +24,12 @@
 
 package org.netbeans.modules.mongodb.util;
 
+import com.mongodb.WriteConcern;
 import java.io.File;
 import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Objects;
 
 /**
@@ -33,6 +37,22 @@ import java.util.Objects;
  * @author Yann D'Isanto
  */
 public final class ImportProperties {
+
+    public static final int DEFAULT_BATCH_SIZE = 1000;
+
+    /**
+     * The default maximum size of a batch, the maximum size of a document.
+     */
+    public static final int DEFAULT_BATCH_BYTES = 16 * 1024 * 1024;
+
+    /**
+     * The maximum size of a batch, the maximum size of a message.
+     */
+    public static final int MAX_BATCH_BYTES = 48 * 1024 * 1024;
+
+    public static final int DEFAULT_PARSE_THREADS = 2;
+
+    public static final int DEFAULT_INSERT_THREADS = 2;
     
     private final String collection;
     
@@ -42,11 +62,49 @@ public final class ImportProperties {
     
     private final Charset encoding;
 
+    private final int batchSize;
+
+    private final int batchBytes;
+
+    private final WriteConcern writeConcern;
+
+    private final int parseThreads;
+
+    private final int insertThreads;
+
+    private final boolean bulkLoad;
+
+    private final String upsertKey;
+
+    private final File deadLetterFile;
+
+    private final FileFormat format;
+
+    private final List<String> columns;
+
+    private final boolean headerLine;
+
     public ImportProperties(String collection, boolean drop, File file, Charset encoding) {
+        this(collection, drop, file, encoding, DEFAULT_BATCH_SIZE, DEFAULT_BATCH_BYTES, WriteConcern.ACKNOWLEDGED,
+            DEFAULT_PARSE_THREADS, DEFAULT_INSERT_THREADS, false, null, null, FileFormat.JSON, null, true);
+    }
+
+    public ImportProperties(String collection, boolean drop, File file, Charset encoding, int batchSize, int batchBytes, WriteConcern writeConcern, int parseThreads, int insertThreads, boolean bulkLoad, String upsertKey, File deadLetterFile, FileFormat format, List<String> columns, boolean headerLine) {
         this.collection = Objects.requireNonNull(collection);
         this.drop = drop;
         this.file = Objects.requireNonNull(file);
         this.encoding = Objects.requireNonNull(encoding);
+        this.batchSize = Math.max(1, batchSize);
+        this.batchBytes = Math.max(1, Math.min(batchBytes, MAX_BATCH_BYTES));
+        this.writeConcern = Objects.requireNonNull(writeConcern);
+        this.parseThreads = Math.max(1, parseThreads);
+        this.insertThreads = Math.max(1, insertThreads);
+        this.bulkLoad = bulkLoad;
+        this.upsertKey = upsertKey;
+        this.deadLetterFile = deadLetterFile;
+        this.format = Objects.requireNonNull(format);
+        this.columns = columns != null ? Collections.unmodifiableList(new ArrayList<>(columns)) : null;
+        this.headerLine = headerLine;
     }
 
     public String getCollection() {
@@ -65,4 +123,100 @@ public final class ImportProperties {
         return encoding;
     }
 
+    /**
+     * @return the maximum number of documents inserted at once.
+     */
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * @return the maximum size in bytes of the documents inserted at once,
+     * as estimated from their JSON text.
+     */
+    public int getBatchBytes() {
+        return batchBytes;
+    }
+
+    public WriteConcern getWriteConcern() {
+        return writeConcern;
+    }
+
+    /**
+     * @return the number of threads parsing the documents.
+     */
+    public int getParseThreads() {
+        return parseThreads;
+    }
+
+    /**
+     * @return the number of threads inserting the documents.
+     */
+    public int getInsertThreads() {
+        return insertThreads;
+    }
+
+    /**
+     * Returns whether the secondary indexes are dropped during the import
+     * and rebuilt at its end, the documents being inserted with at most an
+     * acknowledged write concern.
+     *
+     * @return true if the import is a bulk load.
+     */
+    public boolean isBulkLoad() {
+        return bulkLoad;
+    }
+
+    /**
+     * Returns the field the documents are upserted by: a document replaces
+     * the one having the same value for this field, or is inserted if there
+     * is none.
+     *
+     * @return the upsert key field, or null if the documents are inserted.
+     */
+    public String getUpsertKey() {
+        return upsertKey;
+    }
+
+    /**
+     * Returns the file the rejected documents are written to, with their
+     * line number and the rejection reason, as JSON lines.
+     *
+     * @return the dead letter file, or null if the rejected documents are
+     * only counted.
+     */
+    public File getDeadLetterFile() {
+        return deadLetterFile;
+    }
+
+    /**
+     * Returns the imported file format. The encoding does not apply to a
+     * BSON file, whose collection metadata are read next to it if any.
+     *
+     * @return the imported file format.
+     */
+    public FileFormat getFormat() {
+        return format;
+    }
+
+    /**
+     * Returns the columns of a CSV or TSV file, as specified to
+     * {@link ColumnMapping}.
+     *
+     * @return the columns, or null if they are given by the header line.
+     */
+    public List<String> getColumns() {
+        return columns;
+    }
+
+    /**
+     * Returns whether the first line of a CSV or TSV file is a header. It
+     * gives the columns unless they are specified, and is skipped otherwise.
+     *
+     * @return true if the first line is a header.
+     */
+    public boolean isHeaderLine() {
+        return headerLine;
+    }
+
 }
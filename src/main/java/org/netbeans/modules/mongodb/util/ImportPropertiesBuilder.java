@@ -23,8 +23,10 @@
  */
 package org.netbeans.modules.mongodb.util;
 
+import com.mongodb.WriteConcern;
 import java.io.File;
 import java.nio.charset.Charset;
+import java.util.List;
 
 /**
  *
@@ -40,6 +42,28 @@ public final class ImportPropertiesBuilder {
 
     private Charset encoding;
 
+    private int batchSize = ImportProperties.DEFAULT_BATCH_SIZE;
+
+    private int batchBytes = ImportProperties.DEFAULT_BATCH_BYTES;
+
+    private WriteConcern writeConcern = WriteConcern.ACKNOWLEDGED;
+
+    private int parseThreads = ImportProperties.DEFAULT_PARSE_THREADS;
+
+    private int insertThreads = ImportProperties.DEFAULT_INSERT_THREADS;
+
+    private boolean bulkLoad;
+
+    private String upsertKey;
+
+    private File deadLetterFile;
+
+    private FileFormat format = FileFormat.JSON;
+
+    private List<String> columns;
+
+    private boolean headerLine = true;
+
     public ImportPropertiesBuilder() {
         this(null);
     }
@@ -68,7 +92,62 @@ public final class ImportPropertiesBuilder {
         return this;
     }
 
+    public ImportPropertiesBuilder batchSize(int batchSize) {
+        this.batchSize = batchSize;
+        return this;
+    }
+
+    public ImportPropertiesBuilder batchBytes(int batchBytes) {
+        this.batchBytes = batchBytes;
+        return this;
+    }
+
+    public ImportPropertiesBuilder writeConcern(WriteConcern writeConcern) {
+        this.writeConcern = writeConcern;
+        return this;
+    }
+
+    public ImportPropertiesBuilder parseThreads(int parseThreads) {
+        this.parseThreads = parseThreads;
+        return this;
+    }
+
+    public ImportPropertiesBuilder insertThreads(int insertThreads) {
+        this.insertThreads = insertThreads;
+        return this;
+    }
+
+    public ImportPropertiesBuilder bulkLoad(boolean bulkLoad) {
+        this.bulkLoad = bulkLoad;
+        return this;
+    }
+
+    public ImportPropertiesBuilder upsertKey(String upsertKey) {
+        this.upsertKey = upsertKey;
+        return this;
+    }
+
+    public ImportPropertiesBuilder deadLetterFile(File deadLetterFile) {
+        this.deadLetterFile = deadLetterFile;
+        return this;
+    }
+
+    public ImportPropertiesBuilder format(FileFormat format) {
+        this.format = format;
+        return this;
+    }
+
+    public ImportPropertiesBuilder columns(List<String> columns) {
+        this.columns = columns;
+        return this;
+    }
+
+    public ImportPropertiesBuilder headerLine(boolean headerLine) {
+        this.headerLine = headerLine;
+        return this;
+    }
+
     public ImportProperties build() {
-        return new ImportProperties(collection, drop, file, encoding);
+        return new ImportProperties(collection, drop, file, encoding, batchSize, batchBytes, writeConcern, parseThreads, insertThreads, bulkLoad, upsertKey, deadLetterFile, format, columns, headerLine);
     }
 }
@@ -23,25 +23,98 @@
  */
 package org.netbeans.modules.mongodb.util;
 
+import com.mongodb.BasicDBObject;
 import com.mongodb.DB;
 import com.mongodb.DBCollection;
 import com.mongodb.DBObject;
-import com.mongodb.util.JSON;
-import java.io.BufferedReader;
-import java.io.FileInputStream;
+import com.mongodb.MongoException;
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
-import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
+import org.netbeans.modules.mongodb.util.TaskProgress.WorkUnit;
 import org.openide.util.Exceptions;
+import org.openide.util.NbBundle.Messages;
 
 /**
+ * Imports the documents of a JSON, BSON, CSV or TSV file into a collection.
+ * A JSON file can hold documents, one per line or pretty-printed, or arrays
+ * of documents. Gzip compressed files are detected and decompressed on the
+ * fly. The progress is measured by the bytes read from the file.
+ *
+ * <p>
+ * The file is read, parsed and inserted by the stages of an
+ * {@link ImportPipeline}. Uncompressed JSON files in an ASCII compatible
+ * encoding are memory-mapped, the parse stage decoding the chunks of the
+ * file. Documents are inserted by batches bounded by a documents count and
+ * an estimated size, with the continue on error semantics: a failing
+ * document does not prevent the following ones of its batch from being
+ * inserted, and a failing batch is counted as an error without stopping the
+ * import.</p>
+ *
+ * <p>
+ * The collection is dropped first if requested. A bulk load drops the
+ * secondary indexes, except the unique ones, after having recorded them in
+ * the checkpoint, and rebuilds them at the end of the import, even if it
+ * failed or has been cancelled. The indexes failing to be rebuilt are kept
+ * in the checkpoint, so that resuming the import rebuilds them.</p>
+ *
+ * <p>
+ * A BSON file, as dumped by mongodump, is read as raw documents inserted
+ * without being decoded. The collection is created with the options of the
+ * metadata file next to it, if any, and the indexes of the metadata are
+ * built at the end of the import.</p>
+ *
+ * <p>
+ * The rows of a CSV or TSV file are mapped to documents by a
+ * {@link ColumnMapping}, of the specified columns or of the header
+ * line.</p>
+ *
+ * <p>
+ * The import of a memory-mapped file saves {@link ImportCheckpoint}s. It can
+ * then be resumed after an interruption, from the last document before which
+ * all the documents have been written. The checkpoint is deleted once the
+ * import is completed.</p>
+ *
+ * <p>
+ * Documents upserted by a key replace the documents having the same key.
+ * The numbers of inserted, updated and unchanged documents are written to
+ * the output window at the end of the import.</p>
  *
  * @author Yann D'Isanto
  */
-public final class Importer implements Runnable {
+@Messages({
+    "# {0} - index name",
+    "# {1} - index number",
+    "# {2} - indexes count",
+    "rebuildingIndex=Rebuilding index {0} ({1}/{2})",
+    "# {0} - inserted documents count",
+    "# {1} - updated documents count",
+    "# {2} - unchanged documents count",
+    "upsertCounts=Upserted documents: {0} inserted, {1} updated, {2} unchanged"
+})
+public final class Importer implements Runnable, TaskProgress.Reporting {
+
+    private static final int INPUT_BUFFER_SIZE = 64 * 1024;
+
+    private static final String STRUCTURE_CHARS = "{}[]\"'\\";
 
     private final DB db;
 
@@ -49,6 +122,26 @@ public final class Importer implements Runnable {
     
     private final Runnable onDone;
 
+    private final TaskProgress progress = new TaskProgress();
+
+    /**
+     * The checkpoint the import is resumed from, null if not resumed.
+     */
+    private final ImportCheckpoint resumedCheckpoint;
+
+    private boolean cancelled;
+
+    /**
+     * The secondary indexes to rebuild.
+     */
+    private List<DBObject> indexes = Collections.emptyList();
+
+    /**
+     * The checkpoint holding the indexes to rebuild of an import which is
+     * not checkpointed, null if none.
+     */
+    private ImportCheckpoint indexesCheckpoint;
+
     public Importer(DB db, ImportProperties properties) {
         this(db, properties, null);
     }
@@ -57,46 +150,381 @@ public final class Importer implements Runnable {
         this.db = db;
         this.properties = properties;
         this.onDone = onDone;
+        this.resumedCheckpoint = null;
+    }
+
+    /**
+     * Creates an importer resuming an interrupted import.
+     *
+     * @param db the database of the imported collection
+     * @param checkpoint the last checkpoint of the interrupted import
+     */
+    public Importer(DB db, ImportCheckpoint checkpoint) {
+        this.db = db;
+        this.properties = checkpoint.getProperties();
+        this.onDone = null;
+        this.resumedCheckpoint = checkpoint;
     }
 
     
     @Override
     public void run() {
-        try (InputStream input = new FileInputStream(properties.getFile())) {
-            importFrom(new InputStreamReader(input, properties.getEncoding().name()));
+        final File file = properties.getFile();
+        final ImportCheckpoint start = resumedCheckpoint != null
+            ? resumedCheckpoint
+            : new ImportCheckpoint(db.getName(), properties, 0, 1, false, 0);
+        progress.start(WorkUnit.BYTES, start.isResumable() ? file.length() - start.getOffset() : 0);
+        final DBCollection collection = db.getCollection(properties.getCollection());
+        final RejectedDocuments rejected = new RejectedDocuments(properties.getDeadLetterFile(), resumedCheckpoint != null);
+        final ImportPipeline pipeline = new ImportPipeline(collection, properties, progress, rejected);
+        boolean completed = false;
+        if (start.isResumable() == false) {
+            // only the indexes of the interrupted import are left to rebuild
+            indexes = start.getIndexes();
+            indexesCheckpoint = start;
+            completed = true;
+        } else {
+            try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+                if (properties.getFormat() == FileFormat.JSON && isMappable(channel)) {
+                    if (channel.size() < start.getOffset()) {
+                        throw new IOException("import file is smaller than its checkpoint: " + file);
+                    }
+                    prepare(collection);
+                    completed = pipeline.run(new MappedChunkReader(channel, start.getOffset(), start.getLine(), start.isInArray()),
+                        saveIndexes(start));
+                    cancelled = completed == false;
+                } else if (resumedCheckpoint != null) {
+                    throw new IOException("import file can no longer be read memory-mapped: " + file);
+                } else {
+                    try (CountingInputStream fileInput = new CountingInputStream(Channels.newInputStream(channel));
+                        InputStream input = openInput(fileInput)) {
+                        if (properties.getFormat() == FileFormat.BSON) {
+                            final BsonMetadata metadata = BsonMetadata.read(file);
+                            prepare(collection);
+                            if (metadata != null) {
+                                applyMetadata(collection, metadata);
+                            }
+                            indexesCheckpoint = saveIndexes(ImportCheckpoint.ofIndexes(db.getName(), properties, indexes));
+                            completed = pipeline.run(new BsonDocumentReader(input), fileInput);
+                        } else if (properties.getFormat().isDelimited()) {
+                            final DelimitedRowReader reader = new DelimitedRowReader(
+                                new InputStreamReader(input, properties.getEncoding().name()), properties.getFormat().getDelimiter());
+                            final ColumnMapping columnMapping = readColumnMapping(reader);
+                            prepare(collection);
+                            indexesCheckpoint = saveIndexes(ImportCheckpoint.ofIndexes(db.getName(), properties, indexes));
+                            completed = pipeline.run(reader, columnMapping, fileInput);
+                        } else {
+                            prepare(collection);
+                            indexesCheckpoint = saveIndexes(ImportCheckpoint.ofIndexes(db.getName(), properties, indexes));
+                            final JsonDocumentReader reader = new JsonDocumentReader(new InputStreamReader(input, properties.getEncoding().name()));
+                            completed = pipeline.run(reader, fileInput);
+                        }
+                        cancelled = completed == false;
+                    }
+                }
+            } catch (ClosedByInterruptException ex) {
+                cancelled = true;
+            } catch (IOException | MongoException ex) {
+                progress.error();
+                Exceptions.printStackTrace(ex);
+            }
+        }
+        final List<DBObject> failedIndexes = createIndexes(collection, indexes);
+        saveCheckpoint(pipeline.getCheckpoint() != null ? pipeline.getCheckpoint() : indexesCheckpoint,
+            completed, failedIndexes);
+        if (properties.getUpsertKey() != null) {
+            progress.step(Bundle.upsertCounts(pipeline.getInsertedCount(),
+                pipeline.getUpdatedCount(), pipeline.getUnchangedCount()));
+        }
+        try {
+            rejected.close();
         } catch (IOException ex) {
+            progress.error();
             Exceptions.printStackTrace(ex);
         }
+        final String rejectedSummary = rejected.getSummary();
+        if (rejectedSummary != null) {
+            progress.step(rejectedSummary);
+        }
+        progress.finish(cancelled);
         if(onDone != null) {
             onDone.run();
         }
     }
 
-    private void importFrom(Reader reader) throws IOException {
-        final DBCollection collection = db.getCollection(properties.getCollection());
-        final BufferedReader br = new BufferedReader(reader);
-        String line;
-        while ((line = br.readLine()) != null) {
-            if(Thread.interrupted()) {
-                return;
+    /**
+     * Saves the specified checkpoint with the indexes to rebuild, if any,
+     * before the documents get imported.
+     *
+     * @return the checkpoint with the indexes to rebuild.
+     */
+    private ImportCheckpoint saveIndexes(ImportCheckpoint checkpoint) throws IOException {
+        final ImportCheckpoint withIndexes = checkpoint.withIndexes(indexes);
+        if (indexes.isEmpty() == false) {
+            withIndexes.write();
+        }
+        return withIndexes;
+    }
+
+    /**
+     * Saves the last checkpoint of an interrupted import if any document has
+     * been written, or if indexes failed to be rebuilt. Deletes the
+     * checkpoint file otherwise.
+     *
+     * @param checkpoint the last checkpoint, null if none
+     * @param completed whether all the documents have been imported
+     * @param failedIndexes the indexes that failed to be rebuilt
+     */
+    private void saveCheckpoint(ImportCheckpoint checkpoint, boolean completed, List<DBObject> failedIndexes) {
+        if (checkpoint == null || (checkpoint.isResumable() == false && checkpoint.getIndexes().isEmpty()
+            && failedIndexes.isEmpty())) {
+            return;
+        }
+        final boolean resumable = checkpoint.isResumable() && completed == false && checkpoint.getOffset() > 0;
+        try {
+            if (resumable || failedIndexes.isEmpty() == false) {
+                checkpoint.withIndexes(failedIndexes).write();
+            } else {
+                ImportCheckpoint.delete(properties.getFile());
+            }
+        } catch (IOException ex) {
+            progress.error();
+            Exceptions.printStackTrace(ex);
+        }
+    }
+
+    /**
+     * Drops the collection or its secondary indexes, as requested. The
+     * unique indexes and the indexes starting with the upsert key are kept,
+     * the former preventing duplicates and the latter being needed by the
+     * upserts. A resumed bulk load also rebuilds the indexes of its
+     * checkpoint.
+     */
+    private void prepare(DBCollection collection) {
+        final List<DBObject> keptIndexes = new ArrayList<>();
+        final List<DBObject> droppedIndexes = new ArrayList<>();
+        if (properties.isBulkLoad()) {
+            for (DBObject index : getSecondaryIndexes(collection)) {
+                if (isUpsertKeyIndex(index) || Boolean.TRUE.equals(index.get("unique"))) {
+                    keptIndexes.add(index);
+                } else {
+                    droppedIndexes.add(index);
+                }
+            }
+            indexes = merge(resumedCheckpoint != null ? resumedCheckpoint.getIndexes() : Collections.<DBObject>emptyList(),
+                droppedIndexes);
+        }
+        if (properties.isDrop()) {
+            collection.drop();
+            createIndexes(collection, keptIndexes);
+        } else if (properties.isBulkLoad()) {
+            for (DBObject index : droppedIndexes) {
+                collection.dropIndex((String) index.get("name"));
+            }
+        }
+    }
+
+    /**
+     * @return the specified indexes followed by the other ones whose names
+     * are not among them.
+     */
+    private static List<DBObject> merge(List<DBObject> indexes, List<DBObject> otherIndexes) {
+        final List<DBObject> allIndexes = new ArrayList<>(indexes);
+        final Set<Object> names = new HashSet<>();
+        for (DBObject index : indexes) {
+            names.add(index.get("name"));
+        }
+        for (DBObject index : otherIndexes) {
+            if (names.contains(index.get("name")) == false) {
+                allIndexes.add(index);
+            }
+        }
+        return allIndexes;
+    }
+
+    /**
+     * Returns the mapping of the specified columns, or of the header line if
+     * none are specified. The header line is read in any case.
+     */
+    private ColumnMapping readColumnMapping(DelimitedRowReader reader) throws IOException {
+        final String[] header = properties.isHeaderLine() ? reader.readRow() : null;
+        final List<String> columns = properties.getColumns() != null
+            ? properties.getColumns()
+            : header != null ? Arrays.asList(header) : null;
+        if (columns == null || columns.isEmpty()) {
+            throw new IOException("no columns specified nor header line in " + properties.getFile());
+        }
+        try {
+            return ColumnMapping.of(columns);
+        } catch (IllegalArgumentException ex) {
+            throw new IOException("invalid columns: " + ex.getMessage(), ex);
+        }
+    }
+
+    /**
+     * Creates the collection with the options of the metadata if it does not
+     * exist, and adds the indexes of the metadata to the indexes built at the
+     * end of the import.
+     */
+    private void applyMetadata(DBCollection collection, BsonMetadata metadata) {
+        if (db.collectionExists(collection.getName()) == false && metadata.getOptions().keySet().isEmpty() == false) {
+            db.createCollection(collection.getName(), metadata.getOptions());
+        }
+        final List<DBObject> metadataIndexes = new ArrayList<>();
+        for (DBObject index : metadata.getIndexes()) {
+            if ("_id_".equals(index.get("name")) == false) {
+                metadataIndexes.add(index);
+            }
+        }
+        indexes = merge(indexes, metadataIndexes);
+    }
+
+    private boolean isUpsertKeyIndex(DBObject index) {
+        final DBObject key = (DBObject) index.get("key");
+        return properties.getUpsertKey() != null
+            && key.keySet().isEmpty() == false
+            && properties.getUpsertKey().equals(key.keySet().iterator().next());
+    }
+
+    /**
+     * Returns whether the file can be read memory-mapped: it is not
+     * compressed and its encoding is ASCII compatible.
+     */
+    private boolean isMappable(FileChannel channel) throws IOException {
+        if (isAsciiCompatible(properties.getEncoding()) == false) {
+            return false;
+        }
+        final ByteBuffer magic = ByteBuffer.allocate(2).order(ByteOrder.LITTLE_ENDIAN);
+        while (magic.hasRemaining() && channel.read(magic, magic.position()) > 0) {
+            // reading the magic number
+        }
+        return magic.hasRemaining() || (magic.getShort(0) & 0xffff) != GZIPInputStream.GZIP_MAGIC;
+    }
+
+    /**
+     * Returns whether the JSON structure characters are encoded as single
+     * ASCII bytes never part of a multi-byte sequence.
+     */
+    private static boolean isAsciiCompatible(Charset charset) {
+        if (charset.canEncode() == false) {
+            return false;
+        }
+        if (StandardCharsets.UTF_8.equals(charset) == false && charset.newEncoder().maxBytesPerChar() > 1) {
+            return false;
+        }
+        return Arrays.equals(STRUCTURE_CHARS.getBytes(charset), STRUCTURE_CHARS.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * Buffers the file input, decompressing it if it starts with the gzip
+     * magic number.
+     */
+    private static InputStream openInput(InputStream fileInput) throws IOException {
+        final InputStream input = new BufferedInputStream(fileInput, INPUT_BUFFER_SIZE);
+        try {
+            input.mark(2);
+            final int magic = input.read() | (input.read() << 8);
+            input.reset();
+            if (magic == GZIPInputStream.GZIP_MAGIC) {
+                return new GZIPInputStream(input, INPUT_BUFFER_SIZE);
+            }
+            return input;
+        } catch (IOException ex) {
+            input.close();
+            throw ex;
+        }
+    }
+
+    private static List<DBObject> getSecondaryIndexes(DBCollection collection) {
+        final List<DBObject> indexes = new ArrayList<>();
+        for (DBObject index : collection.getIndexInfo()) {
+            if ("_id_".equals(index.get("name")) == false) {
+                indexes.add(index);
             }
-            collection.insert(parseLine(line));
         }
+        return indexes;
     }
 
-    @SuppressWarnings("unchecked")
-    private List<DBObject> parseLine(String line) {
-        final Object obj = JSON.parse(line);
-        if (obj instanceof List) {
-            return (List<DBObject>) obj;
+    /**
+     * Creates the specified indexes, as returned by
+     * {@link DBCollection#getIndexInfo()}. A failing index is counted as an
+     * error.
+     *
+     * @return the indexes that failed to be created.
+     */
+    private List<DBObject> createIndexes(DBCollection collection, List<DBObject> indexes) {
+        final List<DBObject> failedIndexes = new ArrayList<>();
+        for (int i = 0; i < indexes.size(); i++) {
+            final DBObject index = indexes.get(i);
+            progress.step(Bundle.rebuildingIndex(index.get("name"), i + 1, indexes.size()));
+            final DBObject options = new BasicDBObject(index.toMap());
+            options.removeField("key");
+            options.removeField("ns");
+            options.removeField("v");
+            try {
+                collection.createIndex((DBObject) index.get("key"), options);
+            } catch (MongoException ex) {
+                failedIndexes.add(index);
+                progress.error();
+                Exceptions.printStackTrace(ex);
+            }
         }
-        final List<DBObject> list = new ArrayList<>(1);
-        list.add((DBObject) obj);
-        return list;
+        return failedIndexes;
     }
 
     public ImportProperties getProperties() {
         return properties;
     }
 
+    @Override
+    public TaskProgress getProgress() {
+        return progress;
+    }
+
+    /**
+     * An input stream counting the bytes read from the underlying one.
+     */
+    static final class CountingInputStream extends FilterInputStream {
+
+        private long count;
+
+        public CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        long getCount() {
+            return count;
+        }
+
+        @Override
+        public int read() throws IOException {
+            final int b = super.read();
+            if (b >= 0) {
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            final int n = super.read(b, off, len);
+            if (n > 0) {
+                count += n;
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            final long skipped = super.skip(n);
+            count += skipped;
+            return skipped;
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+    }
+
 }
@@ -0,0 +1,200 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2014 Yann D'Isanto.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.netbeans.modules.mongodb.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Splits a JSON text into the texts of its top level documents, reading it
+ * incrementally: only the document being read is kept in memory. The text
+ * can be made of concatenated documents, one per line or pretty-printed, or
+ * of arrays of documents, as written by the exporter.
+ *
+ * <p>
+ * The documents are not parsed, only their braces and brackets are matched,
+ * strings excepted.</p>
+ *
+ * @author Yann D'Isanto
+ */
+final class JsonDocumentReader implements Closeable {
+
+    /**
+     * The maximum length of a document text.
+     */
+    static final int MAX_DOCUMENT_CHARS = 32 * 1024 * 1024;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final char BYTE_ORDER_MARK = '\uFEFF';
+
+    private final Reader reader;
+
+    private final char[] buffer = new char[BUFFER_SIZE];
+
+    private int position;
+
+    private int limit;
+
+    /**
+     * The number of characters before the buffer.
+     */
+    private long offset;
+
+    private boolean inArray;
+
+    /**
+     * The current line number.
+     */
+    private long line;
+
+    /**
+     * The line number of the last document read.
+     */
+    private long documentLine;
+
+    JsonDocumentReader(Reader reader) {
+        this(reader, false, 1);
+    }
+
+    /**
+     * Creates a reader of a text part.
+     *
+     * @param reader the text reader
+     * @param inArray whether the text starts inside a top level array
+     * @param firstLine the line number of the text start
+     */
+    JsonDocumentReader(Reader reader, boolean inArray, long firstLine) {
+        this.reader = reader;
+        this.inArray = inArray;
+        this.line = firstLine;
+    }
+
+    /**
+     * Reads the text of the next top level document.
+     *
+     * @return the document text or null if there are no more documents.
+     * @throws IOException if an I/O error occurs or if the text is not a
+     * sequence of documents or arrays of documents
+     */
+    String readDocument() throws IOException {
+        while (fill()) {
+            final char c = buffer[position];
+            if (c == '{') {
+                documentLine = line;
+                return readObject();
+            }
+            if (c == '\n') {
+                line++;
+            } else if (c == '[' && inArray == false) {
+                inArray = true;
+            } else if (c == ']' && inArray) {
+                inArray = false;
+            } else if (c == ',' && inArray) {
+                // documents separator
+            } else if (Character.isWhitespace(c) == false && c != BYTE_ORDER_MARK) {
+                throw malformed("unexpected character '" + c + "'");
+            }
+            position++;
+        }
+        return null;
+    }
+
+    /**
+     * Reads the object starting at the current position.
+     */
+    private String readObject() throws IOException {
+        final StringBuilder document = new StringBuilder();
+        int depth = 0;
+        char quote = 0;
+        boolean escaped = false;
+        while (fill()) {
+            final int start = position;
+            while (position < limit) {
+                final char c = buffer[position++];
+                if (c == '\n') {
+                    line++;
+                } else if (quote != 0) {
+                    if (escaped) {
+                        escaped = false;
+                    } else if (c == '\\') {
+                        escaped = true;
+                    } else if (c == quote) {
+                        quote = 0;
+                    }
+                } else if (c == '"' || c == '\'') {
+                    quote = c;
+                } else if (c == '{' || c == '[') {
+                    depth++;
+                } else if (c == '}' || c == ']') {
+                    depth--;
+                    if (depth == 0) {
+                        document.append(buffer, start, position - start);
+                        return document.toString();
+                    }
+                }
+            }
+            document.append(buffer, start, position - start);
+            if (document.length() > MAX_DOCUMENT_CHARS) {
+                throw malformed("document larger than " + MAX_DOCUMENT_CHARS + " characters");
+            }
+        }
+        throw malformed("unterminated document");
+    }
+
+    /**
+     * @return the line number where the last document read starts.
+     */
+    long getDocumentLine() {
+        return documentLine;
+    }
+
+    /**
+     * Fills the buffer if all its characters have been consumed.
+     *
+     * @return false if the end of the text is reached.
+     */
+    private boolean fill() throws IOException {
+        while (position >= limit) {
+            offset += limit;
+            position = 0;
+            limit = reader.read(buffer, 0, buffer.length);
+            if (limit < 0) {
+                limit = 0;
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private IOException malformed(String message) {
+        return new IOException("malformed JSON at line " + line + ", character " + (offset + position) + ": " + message);
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
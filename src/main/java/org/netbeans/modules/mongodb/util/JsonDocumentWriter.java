@@ -0,0 +1,168 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2014 Yann D'Isanto.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.netbeans.modules.mongodb.util;
+
+import com.mongodb.util.JSONSerializers;
+import com.mongodb.util.ObjectSerializer;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+
+/**
+ * Writes documents as JSON to a channel through a large buffer. Documents
+ * are serialized into a reused char buffer and encoded into the byte buffer,
+ * without intermediate strings. The buffer is written to the channel when
+ * full, or when {@link #FLUSH_INTERVAL} has elapsed since the last write.
+ *
+ * @author Yann D'Isanto
+ */
+final class JsonDocumentWriter implements Closeable {
+
+    /**
+     * The byte buffer size.
+     */
+    static final int BUFFER_SIZE = 1024 * 1024;
+
+    /**
+     * The maximum time in milliseconds the buffered documents are kept
+     * before being written.
+     */
+    static final long FLUSH_INTERVAL = 1000;
+
+    private final ObjectSerializer serializer = JSONSerializers.getLegacy();
+
+    private final WritableByteChannel channel;
+
+    private final CharsetEncoder encoder;
+
+    private final StringBuilder json = new StringBuilder(4096);
+
+    private char[] chars = new char[4096];
+
+    private final ByteBuffer bytes = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+    private long lastFlushTime = System.currentTimeMillis();
+
+    /**
+     * The number of bytes written to the channel.
+     */
+    private long writtenBytes;
+
+    JsonDocumentWriter(WritableByteChannel channel, Charset charset) {
+        this.channel = channel;
+        this.encoder = charset.newEncoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    }
+
+    /**
+     * Writes a document, or any object supported by the JSON serializer.
+     *
+     * @param document the document
+     * @throws IOException if an I/O error occurs
+     */
+    void writeDocument(Object document) throws IOException {
+        json.setLength(0);
+        serializer.serialize(document, json);
+        write(json);
+    }
+
+    /**
+     * Writes the specified text.
+     *
+     * @param text the text
+     * @throws IOException if an I/O error occurs
+     */
+    void write(CharSequence text) throws IOException {
+        final int length = text.length();
+        if (chars.length < length) {
+            chars = new char[Math.max(length, chars.length * 2)];
+        }
+        if (text instanceof StringBuilder) {
+            ((StringBuilder) text).getChars(0, length, chars, 0);
+        } else {
+            text.toString().getChars(0, length, chars, 0);
+        }
+        final CharBuffer input = CharBuffer.wrap(chars, 0, length);
+        while (true) {
+            final CoderResult result = encoder.encode(input, bytes, false);
+            if (result.isOverflow()) {
+                writeBuffer();
+            } else {
+                break;
+            }
+        }
+        if (System.currentTimeMillis() - lastFlushTime >= FLUSH_INTERVAL) {
+            writeBuffer();
+        }
+    }
+
+    /**
+     * @return the number of bytes written so far, buffered ones included.
+     */
+    long getByteCount() {
+        return writtenBytes + bytes.position();
+    }
+
+    /**
+     * Writes the buffered bytes to the channel.
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    void flush() throws IOException {
+        writeBuffer();
+    }
+
+    private void writeBuffer() throws IOException {
+        bytes.flip();
+        while (bytes.hasRemaining()) {
+            writtenBytes += channel.write(bytes);
+        }
+        bytes.clear();
+        lastFlushTime = System.currentTimeMillis();
+    }
+
+    /**
+     * Writes the remaining bytes, without closing the channel.
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    @Override
+    public void close() throws IOException {
+        final CharBuffer empty = CharBuffer.allocate(0);
+        while (encoder.encode(empty, bytes, true).isOverflow()) {
+            writeBuffer();
+        }
+        while (encoder.flush(bytes).isOverflow()) {
+            writeBuffer();
+        }
+        writeBuffer();
+    }
+}
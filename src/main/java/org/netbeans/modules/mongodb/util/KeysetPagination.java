@@ -0,0 +1,504 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2014 Yann D'Isanto.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.netbeans.modules.mongodb.util;
+
+import com.mongodb.BasicDBList;
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBCollection;
+import com.mongodb.DBObject;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import org.bson.BSONObject;
+import org.bson.types.BSONTimestamp;
+import org.bson.types.Binary;
+import org.bson.types.MaxKey;
+import org.bson.types.MinKey;
+import org.bson.types.ObjectId;
+import org.bson.types.Symbol;
+
+/**
+ * Builds range queries allowing to page through a query result using the
+ * sort key values of the pages boundaries instead of skipping documents, or
+ * to resume reading a query result after a given document.
+ *
+ * <p>
+ * Keyset pagination is only applicable when the sort is backed by an index
+ * (so that the server can seek directly to the range start) and identifies
+ * documents uniquely (using {@code _id} as tie-breaker if necessary).
+ * Otherwise pages have to be fetched using skip and limit.</p>
+ *
+ * <p>
+ * Comparison operators only match values of the same BSON type as the
+ * boundary value, so the ranges also match the types sorting after (or
+ * before) it. Regular expressions and code values can't be matched by a
+ * range: a range query returning less documents than expected has to be
+ * checked using skip and limit.</p>
+ *
+ * @author Yann D'Isanto
+ */
+public final class KeysetPagination {
+
+    private static final String ID = "_id";
+
+    private final List<String> keys = new ArrayList<>();
+
+    private final List<Integer> directions = new ArrayList<>();
+
+    private final boolean applicable;
+
+    /**
+     * Creates a keyset pagination for the specified query.
+     *
+     * @param collection the queried collection
+     * @param projection the query projection, may be null
+     * @param sort the query sort, may be null (sort on {@code _id})
+     */
+    public KeysetPagination(DBCollection collection, DBObject projection, DBObject sort) {
+        applicable = resolveSortKeys(collection, sort) && isProjectionKeepingKeys(projection);
+    }
+
+    /**
+     * @return true if pages can be fetched using range queries.
+     */
+    public boolean isApplicable() {
+        return applicable;
+    }
+
+    /**
+     * @return the sort to apply to the query, including the tie-breaker.
+     */
+    public DBObject getSort() {
+        return buildSort(1);
+    }
+
+    /**
+     * @return the sort to apply to fetch documents backward.
+     */
+    public DBObject getReversedSort() {
+        return buildSort(-1);
+    }
+
+    /**
+     * Extracts the sort key values of the specified document.
+     *
+     * @param document a document of the result
+     * @return the sort key values or null if the document misses one of them
+     * or if one of them can't be used as range boundary (arrays are sorted by
+     * their elements for instance).
+     */
+    public DBObject extractKey(DBObject document) {
+        final DBObject key = new BasicDBObject();
+        for (String field : keys) {
+            final Object value = getFieldValue(document, field);
+            if (TypeBracket.of(value) == null) {
+                return null;
+            }
+            key.put(field, value);
+        }
+        return key;
+    }
+
+    /**
+     * Builds the criteria matching documents following the specified key in
+     * the sort order.
+     *
+     * @param criteria the user criteria, may be null
+     * @param key a key extracted using {@link #extractKey(DBObject)}
+     * @return the range criteria
+     */
+    public DBObject after(DBObject criteria, DBObject key) {
+        return and(criteria, buildRange(key, true));
+    }
+
+    /**
+     * Builds the criteria matching documents preceding the specified key in
+     * the sort order.
+     *
+     * @param criteria the user criteria, may be null
+     * @param key a key extracted using {@link #extractKey(DBObject)}
+     * @return the range criteria
+     */
+    public DBObject before(DBObject criteria, DBObject key) {
+        return and(criteria, buildRange(key, false));
+    }
+
+    private DBObject buildSort(int orientation) {
+        final DBObject sort = new BasicDBObject();
+        for (int i = 0; i < keys.size(); i++) {
+            sort.put(keys.get(i), directions.get(i) * orientation);
+        }
+        return sort;
+    }
+
+    /**
+     * Builds the lexicographic range condition on the sort keys: for keys
+     * (k1, k2) it is k1 > v1 OR (k1 == v1 AND k2 > v2), operators being
+     * inverted on descending keys.
+     */
+    private DBObject buildRange(DBObject key, boolean forward) {
+        final BasicDBList or = new BasicDBList();
+        for (int i = 0; i < keys.size(); i++) {
+            final DBObject condition = new BasicDBObject();
+            for (int j = 0; j < i; j++) {
+                condition.put(keys.get(j), key.get(keys.get(j)));
+            }
+            final String field = keys.get(i);
+            final boolean ascending = directions.get(i) > 0;
+            final BasicDBList fieldRange = buildFieldRange(field, key.get(field), ascending == forward);
+            if (fieldRange.size() == 1) {
+                condition.putAll((DBObject) fieldRange.get(0));
+            } else {
+                condition.put("$or", fieldRange);
+            }
+            or.add(condition);
+        }
+        return or.size() == 1
+            ? (DBObject) or.get(0)
+            : new BasicDBObject("$or", or);
+    }
+
+    /**
+     * Builds the conditions matching the values of a field following (or
+     * preceding) the specified value in the BSON sort order: the values of
+     * the same type and the values of the types sorting after (or before).
+     */
+    private static BasicDBList buildFieldRange(String field, Object value, boolean greater) {
+        final BasicDBList conditions = new BasicDBList();
+        final TypeBracket bracket = TypeBracket.of(value);
+        conditions.add(new BasicDBObject(field, new BasicDBObject(greater ? "$gt" : "$lt", value)));
+        if (bracket == TypeBracket.NUMBER && greater == false) {
+            // NaN sorts before any number but is not matched by $lt
+            conditions.add(new BasicDBObject(field, Double.NaN));
+        }
+        final TypeBracket[] brackets = TypeBracket.values();
+        for (int i = bracket.ordinal() + (greater ? 1 : -1); i >= 0 && i < brackets.length; i += greater ? 1 : -1) {
+            brackets[i].addConditions(field, conditions);
+        }
+        return conditions;
+    }
+
+    private static DBObject and(DBObject criteria, DBObject range) {
+        if (criteria == null || criteria.keySet().isEmpty()) {
+            return range;
+        }
+        final BasicDBList and = new BasicDBList();
+        and.add(criteria);
+        and.add(range);
+        return new BasicDBObject("$and", and);
+    }
+
+    /**
+     * Resolves the sort keys and checks that an index backs them.
+     *
+     * @return true if the sort is index-backed and unique.
+     */
+    private boolean resolveSortKeys(DBCollection collection, DBObject sort) {
+        if (sort == null || sort.keySet().isEmpty()) {
+            keys.add(ID);
+            directions.add(1);
+            return true;
+        }
+        for (String field : sort.keySet()) {
+            final Integer direction = toDirection(sort.get(field));
+            if (direction == null || field.startsWith("$")) {
+                // $natural, text score, ...
+                return false;
+            }
+            keys.add(field);
+            directions.add(direction);
+            if (ID.equals(field)) {
+                // _id is unique, following keys can't change the order
+                break;
+            }
+        }
+        if (keys.size() == 1 && ID.equals(keys.get(0))) {
+            return true;
+        }
+        for (DBObject index : collection.getIndexInfo()) {
+            final DBObject indexKey = (DBObject) index.get("key");
+            final int orientation = getIndexOrientation(indexKey);
+            if (orientation == 0) {
+                continue;
+            }
+            final boolean unique = Boolean.TRUE.equals(index.get("unique"))
+                && indexKey.keySet().size() == keys.size();
+            if (unique || keys.contains(ID)) {
+                return true;
+            }
+            final List<String> indexFields = new ArrayList<>(indexKey.keySet());
+            if (indexFields.size() > keys.size() && ID.equals(indexFields.get(keys.size()))) {
+                final Integer idDirection = toDirection(indexKey.get(ID));
+                keys.add(ID);
+                directions.add(idDirection * orientation);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return 1 if the index key starts with the sort keys, -1 if it starts
+     * with the reversed sort keys, 0 otherwise.
+     */
+    private int getIndexOrientation(DBObject indexKey) {
+        final List<String> indexFields = new ArrayList<>(indexKey.keySet());
+        if (indexFields.size() < keys.size()) {
+            return 0;
+        }
+        int orientation = 0;
+        for (int i = 0; i < keys.size(); i++) {
+            if (keys.get(i).equals(indexFields.get(i)) == false) {
+                return 0;
+            }
+            final Integer indexDirection = toDirection(indexKey.get(indexFields.get(i)));
+            if (indexDirection == null) {
+                return 0;
+            }
+            final int fieldOrientation = indexDirection * directions.get(i);
+            if (orientation != 0 && orientation != fieldOrientation) {
+                return 0;
+            }
+            orientation = fieldOrientation;
+        }
+        return orientation;
+    }
+
+    /**
+     * Checks that the projection doesn't remove any of the sort keys from the
+     * fetched documents.
+     */
+    private boolean isProjectionKeepingKeys(DBObject projection) {
+        if (projection == null || projection.keySet().isEmpty()) {
+            return true;
+        }
+        boolean inclusion = false;
+        for (String field : projection.keySet()) {
+            if (ID.equals(field) == false && isTruthy(projection.get(field))) {
+                inclusion = true;
+                break;
+            }
+        }
+        for (String key : keys) {
+            final Object projected = getProjectedValue(projection, key);
+            if (ID.equals(key)) {
+                if (projected != null && isTruthy(projected) == false) {
+                    return false;
+                }
+            } else if (inclusion) {
+                if (projected == null || isTruthy(projected) == false) {
+                    return false;
+                }
+            } else if (projected != null) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the projection value of the specified field or of one of its
+     * parents.
+     */
+    private static Object getProjectedValue(DBObject projection, String field) {
+        String path = field;
+        while (true) {
+            final Object value = projection.get(path);
+            if (value != null) {
+                return value;
+            }
+            final int dot = path.lastIndexOf('.');
+            if (dot < 0) {
+                return null;
+            }
+            path = path.substring(0, dot);
+        }
+    }
+
+    private static boolean isTruthy(Object value) {
+        if (value instanceof Boolean) {
+            return (Boolean) value;
+        }
+        if (value instanceof Number) {
+            return ((Number) value).doubleValue() != 0;
+        }
+        return false;
+    }
+
+    private static Integer toDirection(Object value) {
+        if (value instanceof Number) {
+            final double direction = ((Number) value).doubleValue();
+            if (direction > 0) {
+                return 1;
+            }
+            if (direction < 0) {
+                return -1;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Resolves the value of a possibly dotted field path.
+     */
+    @SuppressWarnings("unchecked")
+    static Object getFieldValue(Object document, String field) {
+        Object value = document;
+        for (String name : field.split("\\.")) {
+            if (value instanceof BSONObject) {
+                value = ((BSONObject) value).get(name);
+            } else if (value instanceof Map) {
+                value = ((Map<String, Object>) value).get(name);
+            } else {
+                return null;
+            }
+        }
+        return value;
+    }
+
+    /**
+     * The BSON types in sort order, types compared together sharing a same
+     * bracket. Regular expressions and code values, which sort between
+     * timestamps and max key, are left out.
+     */
+    private enum TypeBracket {
+
+        MIN_KEY {
+            @Override
+            void addConditions(String field, List<Object> conditions) {
+                conditions.add(new BasicDBObject(field, new MinKey()));
+            }
+        },
+        NULL {
+            @Override
+            void addConditions(String field, List<Object> conditions) {
+                // also matches missing fields, which sort as null
+                conditions.add(new BasicDBObject(field, null));
+            }
+        },
+        NUMBER {
+            @Override
+            void addConditions(String field, List<Object> conditions) {
+                conditions.add(new BasicDBObject(field, Double.NaN));
+                conditions.add(greaterOrEqual(field, Double.NEGATIVE_INFINITY));
+            }
+        },
+        STRING {
+            @Override
+            void addConditions(String field, List<Object> conditions) {
+                conditions.add(greaterOrEqual(field, ""));
+            }
+        },
+        OBJECT {
+            @Override
+            void addConditions(String field, List<Object> conditions) {
+                conditions.add(greaterOrEqual(field, new BasicDBObject()));
+            }
+        },
+        BINARY {
+            @Override
+            void addConditions(String field, List<Object> conditions) {
+                conditions.add(greaterOrEqual(field, new byte[0]));
+            }
+        },
+        OBJECT_ID {
+            @Override
+            void addConditions(String field, List<Object> conditions) {
+                conditions.add(greaterOrEqual(field, new ObjectId(new byte[12])));
+            }
+        },
+        BOOLEAN {
+            @Override
+            void addConditions(String field, List<Object> conditions) {
+                conditions.add(greaterOrEqual(field, false));
+            }
+        },
+        DATE {
+            @Override
+            void addConditions(String field, List<Object> conditions) {
+                conditions.add(greaterOrEqual(field, new Date(Long.MIN_VALUE)));
+            }
+        },
+        TIMESTAMP {
+            @Override
+            void addConditions(String field, List<Object> conditions) {
+                conditions.add(greaterOrEqual(field, new BSONTimestamp(0, 0)));
+            }
+        },
+        MAX_KEY {
+            @Override
+            void addConditions(String field, List<Object> conditions) {
+                conditions.add(new BasicDBObject(field, new MaxKey()));
+            }
+        };
+
+        /**
+         * Adds the conditions matching all the values of the bracket.
+         */
+        abstract void addConditions(String field, List<Object> conditions);
+
+        private static DBObject greaterOrEqual(String field, Object value) {
+            return new BasicDBObject(field, new BasicDBObject("$gte", value));
+        }
+
+        /**
+         * @return the bracket of the specified value or null if the value
+         * can't be used as range boundary.
+         */
+        static TypeBracket of(Object value) {
+            if (value instanceof Number) {
+                final double number = ((Number) value).doubleValue();
+                return Double.isNaN(number) ? null : NUMBER;
+            }
+            if (value instanceof String || value instanceof Symbol) {
+                return STRING;
+            }
+            if (value instanceof List) {
+                return null;
+            }
+            if (value instanceof BSONObject || value instanceof Map) {
+                return OBJECT;
+            }
+            if (value instanceof byte[] || value instanceof Binary || value instanceof UUID) {
+                return BINARY;
+            }
+            if (value instanceof ObjectId) {
+                return OBJECT_ID;
+            }
+            if (value instanceof Boolean) {
+                return BOOLEAN;
+            }
+            if (value instanceof Date) {
+                return DATE;
+            }
+            if (value instanceof BSONTimestamp) {
+                return TIMESTAMP;
+            }
+            // null, min/max keys, regular expressions, code
+            return null;
+        }
+    }
+}
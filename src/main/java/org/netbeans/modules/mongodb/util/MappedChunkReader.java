@@ -0,0 +1,206 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2014 Yann D'Isanto.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.netbeans.modules.mongodb.util;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Cuts a JSON file into chunks of whole top level documents, mapping the
+ * file in memory by windows of {@link #WINDOW_SIZE} bytes. The chunks are
+ * slices of the mapped windows: the bytes are neither copied nor decoded,
+ * only their braces, brackets and quotes are matched.
+ *
+ * <p>
+ * The file encoding must encode these characters as single ASCII bytes never
+ * part of a multi-byte sequence, as UTF-8 and the ASCII based single-byte
+ * encodings do.</p>
+ *
+ * @author Yann D'Isanto
+ */
+final class MappedChunkReader {
+
+    /**
+     * The size of the mapped windows, the maximum size of a document.
+     */
+    static final int WINDOW_SIZE = 256 * 1024 * 1024;
+
+    private final FileChannel channel;
+
+    private final long size;
+
+    private MappedByteBuffer window;
+
+    private long windowStart;
+
+    private long windowEnd;
+
+    /**
+     * The file position of the next chunk.
+     */
+    private long chunkStart;
+
+    private int depth;
+
+    private byte quote;
+
+    private boolean escaped;
+
+    private boolean inArray;
+
+    private boolean chunkInArray;
+
+    /**
+     * The line number at the scanning position.
+     */
+    private long line = 1;
+
+    private long chunkLine;
+
+    MappedChunkReader(FileChannel channel) throws IOException {
+        this(channel, 0, 1, false);
+    }
+
+    /**
+     * Creates a reader starting at a document boundary of the file.
+     *
+     * @param channel the file channel
+     * @param start the file position to start from
+     * @param line the line number at this position
+     * @param inArray whether this position is inside a top level array
+     * @throws IOException if an I/O error occurs
+     */
+    MappedChunkReader(FileChannel channel, long start, long line, boolean inArray) throws IOException {
+        this.channel = channel;
+        this.size = channel.size();
+        this.chunkStart = start;
+        this.line = line;
+        this.inArray = inArray;
+    }
+
+    /**
+     * Returns the next chunk: whole documents, and the arrays brackets and
+     * separators around them, of at least the specified size unless the end
+     * of the file is reached.
+     *
+     * @param minSize the minimum size in bytes of the chunk
+     * @return the chunk bytes or null if the end of the file is reached.
+     * @throws IOException if an I/O error occurs or if a document is larger
+     * than {@link #WINDOW_SIZE}
+     */
+    ByteBuffer readChunk(int minSize) throws IOException {
+        if (chunkStart >= size) {
+            return null;
+        }
+        chunkInArray = inArray;
+        chunkLine = line;
+        long position = chunkStart;
+        while (position < size) {
+            if (position >= windowEnd) {
+                map(chunkStart);
+            }
+            final byte b = window.get((int) (position - windowStart));
+            position++;
+            if (b == '\n') {
+                line++;
+            } else if (depth == 0) {
+                if (b == '{') {
+                    depth = 1;
+                } else if (b == '[') {
+                    inArray = true;
+                } else if (b == ']') {
+                    inArray = false;
+                }
+            } else if (quote != 0) {
+                if (escaped) {
+                    escaped = false;
+                } else if (b == '\\') {
+                    escaped = true;
+                } else if (b == quote) {
+                    quote = 0;
+                }
+            } else if (b == '"' || b == '\'') {
+                quote = b;
+            } else if (b == '{' || b == '[') {
+                depth++;
+            } else if (b == '}' || b == ']') {
+                depth--;
+                if (depth == 0 && position - chunkStart >= minSize) {
+                    break;
+                }
+            }
+        }
+        final ByteBuffer chunk = window.duplicate();
+        chunk.limit((int) (position - windowStart));
+        chunk.position((int) (chunkStart - windowStart));
+        chunkStart = position;
+        return chunk.slice();
+    }
+
+    /**
+     * @return whether the last chunk read starts inside a top level array.
+     */
+    boolean isChunkInArray() {
+        return chunkInArray;
+    }
+
+    /**
+     * @return the line number where the last chunk read starts.
+     */
+    long getChunkLine() {
+        return chunkLine;
+    }
+
+    /**
+     * @return the file position where the last chunk read ends.
+     */
+    long getPosition() {
+        return chunkStart;
+    }
+
+    /**
+     * @return the line number where the last chunk read ends.
+     */
+    long getLine() {
+        return line;
+    }
+
+    /**
+     * @return whether the last chunk read ends inside a top level array.
+     */
+    boolean isInArray() {
+        return inArray;
+    }
+
+    private void map(long start) throws IOException {
+        if (windowEnd - start >= WINDOW_SIZE) {
+            throw new IOException("document larger than " + WINDOW_SIZE + " bytes at byte " + start);
+        }
+        windowStart = start;
+        windowEnd = Math.min(size, start + WINDOW_SIZE);
+        window = channel.map(FileChannel.MapMode.READ_ONLY, windowStart, windowEnd - windowStart);
+    }
+}
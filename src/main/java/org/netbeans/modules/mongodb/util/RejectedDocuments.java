@@ -0,0 +1,237 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2014 Yann D'Isanto.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.netbeans.modules.mongodb.util;
+
+import com.mongodb.BasicDBObject;
+import com.mongodb.util.JSON;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.openide.util.NbBundle.Messages;
+
+/**
+ * The documents rejected by an import, counted by reason. If a dead letter
+ * file is specified, they are written to it, one JSON object per line with
+ * the line number of the document in the imported file, the rejection reason
+ * and error, and the document itself or its text if it could not be parsed.
+ * The file is created on the first rejection only.
+ *
+ * <p>
+ * The documents can be rejected from several threads.</p>
+ *
+ * @author Yann D'Isanto
+ */
+@Messages({
+    "# {0} - rejections by reason",
+    "rejectedSummary=Rejected documents: {0}",
+    "# {0} - dead letter file",
+    "rejectedFile=Rejected documents written to {0}",
+    "rejectedParseError=parse errors",
+    "rejectedMissingKey=missing upsert keys",
+    "rejectedTooLarge=too large",
+    "rejectedDuplicateKey=duplicate keys",
+    "rejectedWriteError=write errors",
+    "rejectedFailedBatch=failed batches"
+})
+final class RejectedDocuments implements Closeable {
+
+    private static final Logger LOG = Logger.getLogger(RejectedDocuments.class.getName());
+
+    /**
+     * The reason of a rejection.
+     */
+    enum Reason {
+
+        /**
+         * The document text is not valid JSON.
+         */
+        PARSE_ERROR,
+        /**
+         * The document has no value for the upsert key.
+         */
+        MISSING_KEY,
+        /**
+         * The document exceeds the maximum document size.
+         */
+        TOO_LARGE,
+        /**
+         * The document has the same unique key as another one.
+         */
+        DUPLICATE_KEY,
+        /**
+         * The server rejected the document for another reason.
+         */
+        WRITE_ERROR,
+        /**
+         * A batch failed without identifying its rejected documents; it is
+         * counted once.
+         */
+        FAILED_BATCH;
+
+        private String getDisplayName() {
+            switch (this) {
+                case PARSE_ERROR:
+                    return Bundle.rejectedParseError();
+                case MISSING_KEY:
+                    return Bundle.rejectedMissingKey();
+                case TOO_LARGE:
+                    return Bundle.rejectedTooLarge();
+                case DUPLICATE_KEY:
+                    return Bundle.rejectedDuplicateKey();
+                case WRITE_ERROR:
+                    return Bundle.rejectedWriteError();
+                default:
+                    return Bundle.rejectedFailedBatch();
+            }
+        }
+    }
+
+    private final File file;
+
+    private final boolean append;
+
+    private final Map<Reason, Long> counts = new EnumMap<>(Reason.class);
+
+    private BufferedWriter writer;
+
+    private boolean writeFailed;
+
+    /**
+     * Creates the rejected documents of an import.
+     *
+     * @param file the dead letter file, null if the documents are only
+     * counted
+     */
+    RejectedDocuments(File file) {
+        this(file, false);
+    }
+
+    /**
+     * Creates the rejected documents of an import.
+     *
+     * @param file the dead letter file, null if the documents are only
+     * counted
+     * @param append whether the documents are appended to the file, for a
+     * resumed import
+     */
+    RejectedDocuments(File file, boolean append) {
+        this.file = file;
+        this.append = append;
+    }
+
+    /**
+     * @return whether the rejected documents are written to a dead letter
+     * file.
+     */
+    boolean isRecorded() {
+        return file != null;
+    }
+
+    /**
+     * Rejects a document.
+     *
+     * @param line the line number of the document in the imported file
+     * @param reason the rejection reason
+     * @param error the error message
+     * @param document the document, or its text if it could not be parsed
+     */
+    synchronized void reject(long line, Reason reason, String error, Object document) {
+        final Long count = counts.get(reason);
+        counts.put(reason, count != null ? count + 1 : 1);
+        if (file == null || writeFailed) {
+            return;
+        }
+        try {
+            if (writer == null) {
+                writer = append
+                    ? Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND)
+                    : Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8);
+            }
+            final BasicDBObject deadLetter = new BasicDBObject("line", line)
+                .append("reason", reason.name())
+                .append("error", error)
+                .append(document instanceof String ? "text" : "document", document);
+            writer.write(JSON.serialize(deadLetter));
+            writer.write(System.lineSeparator());
+        } catch (IOException ex) {
+            // the import keeps going, the rejections are still counted
+            writeFailed = true;
+            LOG.log(Level.WARNING, "dead letter file writing failed: " + file, ex);
+        }
+    }
+
+    synchronized long getCount() {
+        long total = 0;
+        for (Long count : counts.values()) {
+            total += count;
+        }
+        return total;
+    }
+
+    /**
+     * @return the summary of the rejections by reason, or null if there are
+     * none.
+     */
+    synchronized String getSummary() {
+        if (counts.isEmpty()) {
+            return null;
+        }
+        final List<String> reasons = new ArrayList<>();
+        for (Map.Entry<Reason, Long> entry : counts.entrySet()) {
+            reasons.add(entry.getKey().getDisplayName() + ": " + entry.getValue());
+        }
+        final String summary = Bundle.rejectedSummary(join(reasons));
+        return writer != null
+            ? summary + System.lineSeparator() + Bundle.rejectedFile(file.getAbsolutePath())
+            : summary;
+    }
+
+    private static String join(List<String> strings) {
+        final StringBuilder sb = new StringBuilder();
+        for (String string : strings) {
+            if (sb.length() > 0) {
+                sb.append(", ");
+            }
+            sb.append(string);
+        }
+        return sb.toString();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (writer != null) {
+            writer.close();
+        }
+    }
+}
@@ -0,0 +1,246 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2014 Yann D'Isanto.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.netbeans.modules.mongodb.util;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.netbeans.api.progress.ProgressHandle;
+import org.openide.util.NbBundle.Messages;
+import org.openide.windows.IOProvider;
+import org.openide.windows.InputOutput;
+
+/**
+ * The progress of an import or export task. It is displayed by the task
+ * progress handle, with the throughput and the estimated remaining time
+ * once the total work is known. The final statistics are written to the
+ * output window.
+ *
+ * <p>
+ * The processed documents can be reported from several threads.</p>
+ *
+ * @author Yann D'Isanto
+ */
+@Messages({
+    "tasksOutput=MongoDB tasks",
+    "# {0} - documents count",
+    "# {1} - documents per second",
+    "# {2} - megabytes per second",
+    "# {3} - estimated remaining time",
+    "taskProgress={0} documents, {1} docs/s, {2} MB/s, ETA {3}",
+    "# {0} - documents count",
+    "# {1} - documents per second",
+    "# {2} - megabytes per second",
+    "taskIndeterminateProgress={0} documents, {1} docs/s, {2} MB/s",
+    "# {0} - task label",
+    "# {1} - documents count",
+    "# {2} - megabytes",
+    "# {3} - errors count",
+    "# {4} - elapsed time",
+    "# {5} - documents per second",
+    "# {6} - megabytes per second",
+    "taskCompleted={0} completed: {1} documents, {2} MB, {3} errors in {4} ({5} docs/s, {6} MB/s)",
+    "# {0} - task label",
+    "# {1} - documents count",
+    "# {2} - megabytes",
+    "# {3} - errors count",
+    "# {4} - elapsed time",
+    "# {5} - documents per second",
+    "# {6} - megabytes per second",
+    "taskCancelled={0} cancelled: {1} documents, {2} MB, {3} errors in {4} ({5} docs/s, {6} MB/s)"
+})
+final class TaskProgress {
+
+    /**
+     * The measure of the work of a task.
+     */
+    enum WorkUnit {
+
+        DOCUMENTS,
+        BYTES
+    }
+
+    /**
+     * The number of work units of the progress handle.
+     */
+    static final int WORKUNITS = 1000;
+
+    /**
+     * The minimum time in milliseconds between two progress handle updates.
+     */
+    static final long UPDATE_INTERVAL = 500;
+
+    private static final double MEGABYTE = 1024 * 1024;
+
+    private final AtomicLong documents = new AtomicLong();
+
+    private final AtomicLong bytes = new AtomicLong();
+
+    private final AtomicLong errors = new AtomicLong();
+
+    private final AtomicLong lastUpdateTime = new AtomicLong();
+
+    private volatile String label;
+
+    private volatile ProgressHandle handle;
+
+    private volatile long startTime = System.nanoTime();
+
+    private volatile WorkUnit workUnit = WorkUnit.DOCUMENTS;
+
+    private volatile long totalWork = -1;
+
+    /**
+     * Attaches the started progress handle of the task.
+     *
+     * @param label the task label
+     * @param handle the progress handle
+     */
+    void attach(String label, ProgressHandle handle) {
+        this.label = label;
+        this.handle = handle;
+    }
+
+    /**
+     * Starts measuring the progress.
+     *
+     * @param workUnit the measure of the work
+     * @param totalWork the total work, negative if unknown
+     */
+    void start(WorkUnit workUnit, long totalWork) {
+        this.workUnit = workUnit;
+        this.totalWork = totalWork;
+        startTime = System.nanoTime();
+        lastUpdateTime.set(System.currentTimeMillis());
+        final ProgressHandle progressHandle = handle;
+        if (progressHandle != null && totalWork > 0) {
+            progressHandle.switchToDeterminate(WORKUNITS);
+        }
+    }
+
+    /**
+     * Reports processed documents, updating the progress handle if
+     * {@link #UPDATE_INTERVAL} has elapsed since the last update.
+     *
+     * @param documentsCount the number of processed documents
+     * @param bytesCount the number of bytes read or written for them
+     */
+    void processed(long documentsCount, long bytesCount) {
+        final long totalDocuments = documents.addAndGet(documentsCount);
+        final long totalBytes = bytes.addAndGet(bytesCount);
+        final long now = System.currentTimeMillis();
+        final long lastUpdate = lastUpdateTime.get();
+        if (now - lastUpdate >= UPDATE_INTERVAL && lastUpdateTime.compareAndSet(lastUpdate, now)) {
+            update(totalDocuments, totalBytes);
+        }
+    }
+
+    void error() {
+        errors.incrementAndGet();
+    }
+
+    /**
+     * Reports a step of the task not measured in documents. It is displayed
+     * by the progress handle and written to the output window.
+     *
+     * @param message the step message
+     */
+    void step(String message) {
+        final ProgressHandle progressHandle = handle;
+        if (progressHandle != null) {
+            progressHandle.progress(message);
+        }
+        final InputOutput io = IOProvider.getDefault().getIO(Bundle.tasksOutput(), false);
+        io.getOut().println(message);
+    }
+
+    long getDocumentsCount() {
+        return documents.get();
+    }
+
+    long getErrorsCount() {
+        return errors.get();
+    }
+
+    private void update(long totalDocuments, long totalBytes) {
+        final ProgressHandle progressHandle = handle;
+        if (progressHandle == null) {
+            return;
+        }
+        final double seconds = getElapsedSeconds();
+        final String documentsRate = formatRate(totalDocuments / seconds);
+        final String bytesRate = formatRate(totalBytes / MEGABYTE / seconds);
+        final long work = workUnit == WorkUnit.BYTES ? totalBytes : totalDocuments;
+        if (totalWork > 0 && work > 0) {
+            final long remainingMillis = (long) (seconds * 1000 * Math.max(0, totalWork - work) / work);
+            final int workDone = (int) Math.min(WORKUNITS, work * WORKUNITS / totalWork);
+            progressHandle.progress(Bundle.taskProgress(totalDocuments, documentsRate, bytesRate,
+                formatDuration(remainingMillis)), workDone);
+        } else {
+            progressHandle.progress(Bundle.taskIndeterminateProgress(totalDocuments, documentsRate, bytesRate));
+        }
+    }
+
+    /**
+     * Writes the final statistics to the output window.
+     *
+     * @param cancelled whether the task has been cancelled
+     */
+    void finish(boolean cancelled) {
+        final double seconds = getElapsedSeconds();
+        final long totalDocuments = documents.get();
+        final double megabytes = bytes.get() / MEGABYTE;
+        final String megabytesCount = formatRate(megabytes);
+        final String elapsed = formatDuration((long) (seconds * 1000));
+        final String documentsRate = formatRate(totalDocuments / seconds);
+        final String bytesRate = formatRate(megabytes / seconds);
+        final String message = cancelled
+            ? Bundle.taskCancelled(label, totalDocuments, megabytesCount, errors.get(), elapsed, documentsRate, bytesRate)
+            : Bundle.taskCompleted(label, totalDocuments, megabytesCount, errors.get(), elapsed, documentsRate, bytesRate);
+        final InputOutput io = IOProvider.getDefault().getIO(Bundle.tasksOutput(), false);
+        io.getOut().println(message);
+    }
+
+    private double getElapsedSeconds() {
+        return Math.max(0.001, (System.nanoTime() - startTime) / 1e9);
+    }
+
+    private static String formatRate(double rate) {
+        return String.format("%.1f", rate);
+    }
+
+    private static String formatDuration(long millis) {
+        final long hours = TimeUnit.MILLISECONDS.toHours(millis);
+        final long minutes = TimeUnit.MILLISECONDS.toMinutes(millis) % 60;
+        final long seconds = TimeUnit.MILLISECONDS.toSeconds(millis) % 60;
+        return String.format("%d:%02d:%02d", hours, minutes, seconds);
+    }
+
+    /**
+     * A task reporting its progress.
+     */
+    interface Reporting {
+
+        TaskProgress getProgress();
+    }
+}
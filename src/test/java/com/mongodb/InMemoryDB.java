@@ -0,0 +1,79 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2014 Yann D'Isanto.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.mongodb;
+
+import java.net.UnknownHostException;
+
+/**
+ * A database holding {@link InMemoryDBCollection}s, never connecting to a
+ * server.
+ *
+ * @author Yann D'Isanto
+ */
+public final class InMemoryDB extends DB {
+
+    public InMemoryDB(String name) {
+        super(createMongo(), name);
+    }
+
+    private static Mongo createMongo() {
+        try {
+            return new Mongo("localhost") {
+
+                @Override
+                public boolean isMongosConnection() {
+                    return false;
+                }
+            };
+        } catch (UnknownHostException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    @Override
+    public void requestStart() {
+    }
+
+    @Override
+    public void requestDone() {
+    }
+
+    @Override
+    public void requestEnsureConnection() {
+    }
+
+    @Override
+    protected DBCollection doGetCollection(String name) {
+        return new InMemoryDBCollection(this, name);
+    }
+
+    @Override
+    CommandResult doAuthenticate(MongoCredential credentials) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void cleanCursors(boolean force) {
+    }
+}
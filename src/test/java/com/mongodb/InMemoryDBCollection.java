@@ -0,0 +1,436 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2014 Yann D'Isanto.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.mongodb;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.regex.Pattern;
+import org.bson.BSONObject;
+import org.bson.types.BSONTimestamp;
+import org.bson.types.Binary;
+import org.bson.types.Code;
+import org.bson.types.MaxKey;
+import org.bson.types.MinKey;
+import org.bson.types.ObjectId;
+import org.bson.types.Symbol;
+
+/**
+ * A collection evaluating queries in memory, following the server sort order
+ * and comparison semantics for the subset of the query language used by the
+ * module: field equality, {@code $gt}, {@code $gte}, {@code $lt},
+ * {@code $lte}, {@code $or} and {@code $and}. Projections are ignored and
+ * arrays are compared as a whole.
+ *
+ * <p>
+ * It lives in the driver package because cursors fetch documents through a
+ * package-private method.</p>
+ *
+ * @author Yann D'Isanto
+ */
+public final class InMemoryDBCollection extends DBCollection {
+
+    private final List<DBObject> documents = new ArrayList<>();
+
+    private final List<DBObject> indexes = new ArrayList<>();
+
+    private final List<DBObject> queries = new ArrayList<>();
+
+    public InMemoryDBCollection(DB db, String name) {
+        super(db, name);
+    }
+
+    public InMemoryDBCollection(String name) {
+        this(new InMemoryDB("test"), name);
+    }
+
+    /**
+     * Adds documents in natural order.
+     */
+    public InMemoryDBCollection add(DBObject... documents) {
+        this.documents.addAll(Arrays.asList(documents));
+        return this;
+    }
+
+    /**
+     * Declares an index, returned by {@link #getIndexInfo()}.
+     */
+    public InMemoryDBCollection addIndex(DBObject key, boolean unique) {
+        final DBObject index = new BasicDBObject("key", key);
+        if (unique) {
+            index.put("unique", true);
+        }
+        indexes.add(index);
+        return this;
+    }
+
+    /**
+     * @return the criteria of the queries run so far.
+     */
+    public List<DBObject> getQueries() {
+        return queries;
+    }
+
+    @Override
+    public List<DBObject> getIndexInfo() {
+        return indexes;
+    }
+
+    /**
+     * Returns the documents matching the specified criteria in the specified
+     * sort order, natural order breaking ties.
+     */
+    public List<DBObject> select(DBObject criteria, final DBObject sort) {
+        final List<DBObject> selected = new ArrayList<>();
+        for (DBObject document : documents) {
+            if (criteria == null || matches(document, criteria)) {
+                selected.add(document);
+            }
+        }
+        if (sort != null) {
+            Collections.sort(selected, new Comparator<DBObject>() {
+
+                @Override
+                public int compare(DBObject o1, DBObject o2) {
+                    for (String field : sort.keySet()) {
+                        final int comparison = compareValues(getField(o1, field), getField(o2, field));
+                        if (comparison != 0) {
+                            return ((Number) sort.get(field)).intValue() > 0 ? comparison : -comparison;
+                        }
+                    }
+                    return 0;
+                }
+            });
+        }
+        return selected;
+    }
+
+    @Override
+    Iterator<DBObject> __find(DBObject ref, DBObject fields, int numToSkip, int batchSize, int limit, int options, ReadPreference readPref, DBDecoder decoder) {
+        DBObject criteria = ref;
+        DBObject sort = null;
+        if (ref.containsField("$query")) {
+            criteria = (DBObject) ref.get("$query");
+            sort = (DBObject) ref.get("$orderby");
+        }
+        queries.add(criteria);
+        final List<DBObject> selected = select(criteria, sort);
+        int end = selected.size();
+        final int max = limit != 0 ? Math.abs(limit) : (batchSize < 0 ? -batchSize : 0);
+        if (max > 0) {
+            end = Math.min(end, numToSkip + max);
+        }
+        final int start = Math.min(numToSkip, end);
+        return new ArrayList<>(selected.subList(start, end)).iterator();
+    }
+
+    @Override
+    Iterator<DBObject> __find(DBObject ref, DBObject fields, int numToSkip, int batchSize, int limit, int options, ReadPreference readPref, DBDecoder decoder, DBEncoder encoder) {
+        return __find(ref, fields, numToSkip, batchSize, limit, options, readPref, decoder);
+    }
+
+    @Override
+    public WriteResult insert(List<DBObject> list, WriteConcern concern, DBEncoder encoder) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public WriteResult update(DBObject q, DBObject o, boolean upsert, boolean multi, WriteConcern concern, DBEncoder encoder) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    protected void doapply(DBObject o) {
+    }
+
+    @Override
+    public WriteResult remove(DBObject o, WriteConcern concern, DBEncoder encoder) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void createIndex(DBObject keys, DBObject options, DBEncoder encoder) {
+        throw new UnsupportedOperationException();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static boolean matches(DBObject document, DBObject criteria) {
+        for (String field : criteria.keySet()) {
+            final Object condition = criteria.get(field);
+            if ("$or".equals(field)) {
+                boolean matched = false;
+                for (Object alternative : (List<Object>) condition) {
+                    matched |= matches(document, (DBObject) alternative);
+                }
+                if (matched == false) {
+                    return false;
+                }
+            } else if ("$and".equals(field)) {
+                for (Object part : (List<Object>) condition) {
+                    if (matches(document, (DBObject) part) == false) {
+                        return false;
+                    }
+                }
+            } else if (matchesValue(getField(document, field), condition) == false) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean matchesValue(Object value, Object condition) {
+        if (isOperators(condition) == false) {
+            return isEqual(value, condition);
+        }
+        final DBObject operators = (DBObject) condition;
+        for (String operator : operators.keySet()) {
+            final Object operand = operators.get(operator);
+            if (value == null || isNaN(value) || isNaN(operand)
+                || bracket(value) != bracket(operand)) {
+                return false;
+            }
+            final int comparison = compareValues(value, operand);
+            switch (operator) {
+                case "$gt":
+                    if (comparison <= 0) {
+                        return false;
+                    }
+                    break;
+                case "$gte":
+                    if (comparison < 0) {
+                        return false;
+                    }
+                    break;
+                case "$lt":
+                    if (comparison >= 0) {
+                        return false;
+                    }
+                    break;
+                case "$lte":
+                    if (comparison > 0) {
+                        return false;
+                    }
+                    break;
+                default:
+                    throw new UnsupportedOperationException(operator);
+            }
+        }
+        return true;
+    }
+
+    private static boolean isOperators(Object condition) {
+        if (condition instanceof DBObject && (condition instanceof List) == false) {
+            final Iterator<String> fields = ((DBObject) condition).keySet().iterator();
+            return fields.hasNext() && fields.next().startsWith("$");
+        }
+        return false;
+    }
+
+    private static boolean isEqual(Object value, Object expected) {
+        if (expected == null) {
+            return value == null;
+        }
+        if (isNaN(expected)) {
+            return isNaN(value);
+        }
+        return value != null && isNaN(value) == false
+            && bracket(value) == bracket(expected)
+            && compareValues(value, expected) == 0;
+    }
+
+    private static boolean isNaN(Object value) {
+        return value instanceof Number && Double.isNaN(((Number) value).doubleValue());
+    }
+
+    private static Object getField(Object document, String field) {
+        Object value = document;
+        for (String name : field.split("\\.")) {
+            if (value instanceof BSONObject && (value instanceof List) == false) {
+                value = ((BSONObject) value).get(name);
+            } else {
+                return null;
+            }
+        }
+        return value;
+    }
+
+    /**
+     * @return the rank of the value type in the BSON sort order.
+     */
+    private static int bracket(Object value) {
+        if (value instanceof MinKey) {
+            return 0;
+        }
+        if (value == null) {
+            return 1;
+        }
+        if (value instanceof Number) {
+            return 2;
+        }
+        if (value instanceof String || value instanceof Symbol) {
+            return 3;
+        }
+        if (value instanceof List) {
+            return 5;
+        }
+        if (value instanceof BSONObject || value instanceof Map) {
+            return 4;
+        }
+        if (value instanceof byte[] || value instanceof Binary || value instanceof UUID) {
+            return 6;
+        }
+        if (value instanceof ObjectId) {
+            return 7;
+        }
+        if (value instanceof Boolean) {
+            return 8;
+        }
+        if (value instanceof Date) {
+            return 9;
+        }
+        if (value instanceof BSONTimestamp) {
+            return 10;
+        }
+        if (value instanceof Pattern) {
+            return 11;
+        }
+        if (value instanceof Code) {
+            return 12;
+        }
+        if (value instanceof MaxKey) {
+            return 13;
+        }
+        throw new IllegalArgumentException("unsupported value: " + value);
+    }
+
+    private static int compareValues(Object v1, Object v2) {
+        final int bracket = bracket(v1);
+        if (bracket != bracket(v2)) {
+            return Integer.compare(bracket, bracket(v2));
+        }
+        switch (bracket) {
+            case 2:
+                final double d1 = ((Number) v1).doubleValue();
+                final double d2 = ((Number) v2).doubleValue();
+                if (Double.isNaN(d1) || Double.isNaN(d2)) {
+                    // NaN sorts before any number
+                    return Boolean.compare(Double.isNaN(d2), Double.isNaN(d1));
+                }
+                return d1 < d2 ? -1 : (d1 > d2 ? 1 : 0);
+            case 3:
+                return v1.toString().compareTo(v2.toString());
+            case 4:
+                return compareDocuments((BSONObject) v1, (BSONObject) v2);
+            case 5:
+                return compareDocuments(toDocument((List<?>) v1), toDocument((List<?>) v2));
+            case 6:
+                final byte[] b1 = toBytes(v1);
+                final byte[] b2 = toBytes(v2);
+                if (b1.length != b2.length) {
+                    return Integer.compare(b1.length, b2.length);
+                }
+                for (int i = 0; i < b1.length; i++) {
+                    if (b1[i] != b2[i]) {
+                        return Integer.compare(b1[i] & 0xff, b2[i] & 0xff);
+                    }
+                }
+                return 0;
+            case 7:
+                return ((ObjectId) v1).compareTo((ObjectId) v2);
+            case 8:
+                return Boolean.compare((Boolean) v1, (Boolean) v2);
+            case 9:
+                return ((Date) v1).compareTo((Date) v2);
+            case 10:
+                final BSONTimestamp t1 = (BSONTimestamp) v1;
+                final BSONTimestamp t2 = (BSONTimestamp) v2;
+                return t1.getTime() != t2.getTime()
+                    ? Integer.compare(t1.getTime(), t2.getTime())
+                    : Integer.compare(t1.getInc(), t2.getInc());
+            case 11:
+                return ((Pattern) v1).pattern().compareTo(((Pattern) v2).pattern());
+            case 12:
+                return ((Code) v1).getCode().compareTo(((Code) v2).getCode());
+            default:
+                // null, min and max keys
+                return 0;
+        }
+    }
+
+    /**
+     * Compares documents element by element: value type, then field name,
+     * then value, a document preceding the ones it is a prefix of.
+     */
+    private static int compareDocuments(BSONObject d1, BSONObject d2) {
+        final Iterator<String> fields1 = d1.keySet().iterator();
+        final Iterator<String> fields2 = d2.keySet().iterator();
+        while (fields1.hasNext() && fields2.hasNext()) {
+            final String field1 = fields1.next();
+            final String field2 = fields2.next();
+            final Object value1 = d1.get(field1);
+            final Object value2 = d2.get(field2);
+            int comparison = Integer.compare(bracket(value1), bracket(value2));
+            if (comparison == 0) {
+                comparison = field1.compareTo(field2);
+            }
+            if (comparison == 0) {
+                comparison = compareValues(value1, value2);
+            }
+            if (comparison != 0) {
+                return comparison;
+            }
+        }
+        return Boolean.compare(fields1.hasNext(), fields2.hasNext());
+    }
+
+    private static BSONObject toDocument(List<?> array) {
+        final BasicDBObject document = new BasicDBObject();
+        for (int i = 0; i < array.size(); i++) {
+            document.put(String.valueOf(i), array.get(i));
+        }
+        return document;
+    }
+
+    private static byte[] toBytes(Object value) {
+        if (value instanceof Binary) {
+            return ((Binary) value).getData();
+        }
+        if (value instanceof UUID) {
+            final UUID uuid = (UUID) value;
+            final byte[] bytes = new byte[16];
+            for (int i = 0; i < 8; i++) {
+                bytes[i] = (byte) (uuid.getMostSignificantBits() >>> (56 - 8 * i));
+                bytes[8 + i] = (byte) (uuid.getLeastSignificantBits() >>> (56 - 8 * i));
+            }
+            return bytes;
+        }
+        return (byte[]) value;
+    }
+}
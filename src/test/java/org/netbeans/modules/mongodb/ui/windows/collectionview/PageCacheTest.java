@@ -0,0 +1,83 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2014 Yann D'Isanto.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.netbeans.modules.mongodb.ui.windows.collectionview;
+
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBObject;
+import com.mongodb.DefaultDBEncoder;
+import java.util.Collections;
+import java.util.List;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Yann D'Isanto
+ */
+public class PageCacheTest {
+
+    private static List<DBObject> page(int id) {
+        return Collections.<DBObject>singletonList(new BasicDBObject("_id", id));
+    }
+
+    private static long pageSize() {
+        return new DefaultDBEncoder().encode(new BasicDBObject("_id", 0)).length;
+    }
+
+    @Test
+    public void testEvictsLeastRecentlyUsedPages() {
+        final PageCache cache = new PageCache();
+        cache.setMaxSize(2 * pageSize());
+        cache.put("a", page(1), cache.getGeneration());
+        cache.put("b", page(2), cache.getGeneration());
+        assertEquals(page(1), cache.get("a"));
+        cache.put("c", page(3), cache.getGeneration());
+        assertEquals(page(1), cache.get("a"));
+        assertNull(cache.get("b"));
+        assertEquals(page(3), cache.get("c"));
+    }
+
+    @Test
+    public void testIgnoresPagesFetchedBeforeClear() {
+        final PageCache cache = new PageCache();
+        final int generation = cache.getGeneration();
+        cache.put("a", page(1), generation);
+        cache.clear();
+        assertNull(cache.get("a"));
+        cache.put("b", page(2), generation);
+        assertNull(cache.get("b"));
+        cache.put("b", page(2), cache.getGeneration());
+        assertEquals(page(2), cache.get("b"));
+    }
+
+    @Test
+    public void testZeroSizeDisablesCache() {
+        final PageCache cache = new PageCache();
+        cache.put("a", page(1), cache.getGeneration());
+        cache.setMaxSize(0);
+        assertNull(cache.get("a"));
+        cache.put("b", page(2), cache.getGeneration());
+        assertNull(cache.get("b"));
+    }
+}
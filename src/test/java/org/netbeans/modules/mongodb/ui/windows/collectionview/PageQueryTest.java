@@ -0,0 +1,118 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2014 Yann D'Isanto.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.netbeans.modules.mongodb.ui.windows.collectionview;
+
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBObject;
+import com.mongodb.InMemoryDBCollection;
+import java.util.Date;
+import java.util.List;
+import java.util.regex.Pattern;
+import org.bson.types.MaxKey;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Yann D'Isanto
+ */
+public class PageQueryTest {
+
+    private static final DBObject SORT = new BasicDBObject("v", 1);
+
+    private static InMemoryDBCollection createCollection(Object... values) {
+        final InMemoryDBCollection collection = new InMemoryDBCollection("c");
+        for (int i = 0; i < values.length; i++) {
+            collection.add(new BasicDBObject("_id", i).append("v", values[i]));
+        }
+        return collection.addIndex(new BasicDBObject("v", 1).append("_id", 1), false);
+    }
+
+    private static PageQuery createQuery(InMemoryDBCollection collection) {
+        return new PageQuery(collection, null, null, SORT, 3, 0, new PageCache());
+    }
+
+    private static List<DBObject> expectedPage(InMemoryDBCollection collection, int page) {
+        final List<DBObject> all = collection.select(null, new BasicDBObject("v", 1).append("_id", 1));
+        return all.subList((page - 1) * 3, Math.min(page * 3, all.size()));
+    }
+
+    private static boolean isRangeQuery(DBObject criteria) {
+        return criteria != null && criteria.containsField("$or");
+    }
+
+    @Test
+    public void testPagesFollowingFetchedPageUseRanges() {
+        final InMemoryDBCollection collection = createCollection(
+            "b", 3, null, new Date(0), 1.5, "a", 2, true, 3, new Date(0), -1);
+        final PageQuery query = createQuery(collection);
+        for (int page = 1; page <= 3; page++) {
+            assertEquals(expectedPage(collection, page), query.getPage(page, -1));
+            final List<DBObject> queries = collection.getQueries();
+            assertEquals(page > 1, isRangeQuery(queries.get(queries.size() - 1)));
+        }
+        // a short range page may miss some documents, it is checked using skip
+        assertEquals(expectedPage(collection, 4), query.getPage(4, -1));
+        final List<DBObject> queries = collection.getQueries();
+        assertEquals(5, queries.size());
+        assertTrue(isRangeQuery(queries.get(3)));
+        assertFalse(isRangeQuery(queries.get(4)));
+    }
+
+    @Test
+    public void testLastPageIsFetchedBackward() {
+        final InMemoryDBCollection collection = createCollection(5, 4, 3, 2, 1, "z", "y");
+        final PageQuery query = createQuery(collection);
+        assertEquals(expectedPage(collection, 3), query.getPage(3, 1));
+        assertEquals(expectedPage(collection, 2), query.getPage(2, -1));
+        assertTrue(isRangeQuery(collection.getQueries().get(1)));
+        assertEquals(expectedPage(collection, 1), query.getPage(1, -1));
+    }
+
+    @Test
+    public void testShortRangePageFallsBackToSkip() {
+        // regular expressions sort after the timestamps but can't be matched by a range
+        final InMemoryDBCollection collection = createCollection(
+            1, 2, 3, Pattern.compile("a"), Pattern.compile("b"), new MaxKey(), 4);
+        final PageQuery query = createQuery(collection);
+        assertEquals(expectedPage(collection, 1), query.getPage(1, -1));
+        assertEquals(expectedPage(collection, 2), query.getPage(2, -1));
+        final List<DBObject> queries = collection.getQueries();
+        assertTrue(isRangeQuery(queries.get(1)));
+        assertFalse(isRangeQuery(queries.get(2)));
+        // the page ends with a regular expression: no bound to start the next page from
+        assertEquals(expectedPage(collection, 3), query.getPage(3, -1));
+    }
+
+    @Test
+    public void testHasDocumentsAfter() {
+        final InMemoryDBCollection collection = createCollection(1, 2, 3, Pattern.compile("a"), 4, 5);
+        final PageQuery query = createQuery(collection);
+        query.getPage(1, -1);
+        // only found by the skip probe
+        assertTrue(query.hasDocumentsAfter(1));
+        query.getPage(2, -1);
+        assertFalse(query.hasDocumentsAfter(2));
+    }
+}
@@ -0,0 +1,182 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2014 Yann D'Isanto.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.netbeans.modules.mongodb.util;
+
+import com.mongodb.BasicDBList;
+import com.mongodb.BasicDBObject;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import org.bson.types.ObjectId;
+import org.junit.Test;
+import org.netbeans.modules.mongodb.util.ColumnMapping.ColumnType;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Yann D'Isanto
+ */
+public class ColumnMappingTest {
+
+    @Test
+    public void testOfParsesNamesAndTypes() {
+        final ColumnMapping mapping = ColumnMapping.of(Arrays.asList(" a ", "b.c : STRING", "", "d:int"));
+        assertEquals(Arrays.asList("a", "b.c", "", "d"), mapping.getNames());
+        assertEquals(new BasicDBObject("a", "x").append("b", new BasicDBObject("c", "007")).append("d", 7),
+            mapping.toDocument(new String[]{"x", "007", "skipped", "7"}));
+    }
+
+    @Test
+    public void testOfRejectsInvalidColumns() {
+        assertRejected("a", "a");
+        assertRejected("a", "a.b");
+        assertRejected("a.b", "a");
+        assertRejected("a..b");
+        assertRejected(".a");
+        assertRejected("a:float");
+        // siblings and skipped columns do not conflict
+        ColumnMapping.of(Arrays.asList("a.b", "a.c", "", ""));
+        ColumnMapping.of(Arrays.asList("ab", "a"));
+    }
+
+    @Test
+    public void testToDocumentNestsPaths() {
+        final ColumnMapping mapping = ColumnMapping.of(Arrays.asList("a.b.c", "a.b.d", "a.e", "f"));
+        assertEquals(new BasicDBObject("a", new BasicDBObject("b", new BasicDBObject("c", 1).append("d", 2)).append("e", 3)),
+            mapping.toDocument(new String[]{"1", "2", "3", ""}));
+        assertEquals(new BasicDBObject(), mapping.toDocument(new String[]{"", " ", "", ""}));
+    }
+
+    @Test
+    public void testToDocumentChecksCellsCount() {
+        final ColumnMapping mapping = ColumnMapping.of(Arrays.asList("a", "b"));
+        assertEquals(new BasicDBObject("a", 1), mapping.toDocument(new String[]{"1"}));
+        assertEquals(new BasicDBObject("a", 1).append("b", 2), mapping.toDocument(new String[]{"1", "2", "", ""}));
+        try {
+            mapping.toDocument(new String[]{"1", "2", "", "3"});
+            fail();
+        } catch (IllegalArgumentException ex) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testToDocumentNamesColumnOfInvalidCell() {
+        final ColumnMapping mapping = ColumnMapping.of(Arrays.asList("a", "n:int"));
+        try {
+            mapping.toDocument(new String[]{"x", "y"});
+            fail();
+        } catch (IllegalArgumentException ex) {
+            assertTrue(ex.getMessage(), ex.getMessage().startsWith("column n: "));
+        }
+    }
+
+    @Test
+    public void testConvertTypes() {
+        assertEquals(" 1 ", ColumnMapping.convert(" 1 ", ColumnType.STRING));
+        assertEquals("", ColumnMapping.convert("", ColumnType.STRING));
+        assertEquals(12, ColumnMapping.convert(" 12 ", ColumnType.INT));
+        assertEquals(12L, ColumnMapping.convert("12", ColumnType.LONG));
+        assertEquals(12.0, ColumnMapping.convert("12", ColumnType.DOUBLE));
+        assertEquals(true, ColumnMapping.convert("TRUE", ColumnType.BOOLEAN));
+        assertEquals(false, ColumnMapping.convert("false", ColumnType.BOOLEAN));
+        assertEquals(new Date(0), ColumnMapping.convert("1970-01-01T00:00:00.000Z", ColumnType.DATE));
+        assertEquals(new ObjectId("507f1f77bcf86cd799439011"),
+            ColumnMapping.convert("507f1f77bcf86cd799439011", ColumnType.OBJECTID));
+        final BasicDBList list = new BasicDBList();
+        list.add(1);
+        list.add("a");
+        assertEquals(list, ColumnMapping.convert("[1, \"a\"]", ColumnType.JSON));
+        for (ColumnType type : ColumnType.values()) {
+            if (type != ColumnType.STRING) {
+                assertNull(type.name(), ColumnMapping.convert(" ", type));
+            }
+        }
+    }
+
+    @Test
+    public void testConvertRejectsInvalidCells() {
+        assertInvalid("1.5", ColumnType.INT);
+        assertInvalid("3000000000", ColumnType.INT);
+        assertInvalid("x", ColumnType.LONG);
+        assertInvalid("x", ColumnType.DOUBLE);
+        assertInvalid("yes", ColumnType.BOOLEAN);
+        assertInvalid("yesterday", ColumnType.DATE);
+        assertInvalid("123", ColumnType.OBJECTID);
+        assertInvalid("{a:", ColumnType.JSON);
+    }
+
+    @Test
+    public void testInfer() {
+        assertEquals(true, ColumnMapping.convert("true", ColumnType.AUTO));
+        assertEquals(false, ColumnMapping.convert(" false ", ColumnType.AUTO));
+        assertEquals("True", ColumnMapping.convert("True", ColumnType.AUTO));
+        assertEquals(0, ColumnMapping.convert("0", ColumnType.AUTO));
+        assertEquals(-42, ColumnMapping.convert("-42", ColumnType.AUTO));
+        assertEquals(2147483647, ColumnMapping.convert("2147483647", ColumnType.AUTO));
+        assertEquals(2147483648L, ColumnMapping.convert("2147483648", ColumnType.AUTO));
+        assertEquals(-999999999999999999L, ColumnMapping.convert("-999999999999999999", ColumnType.AUTO));
+        assertEquals("9999999999999999999", ColumnMapping.convert("9999999999999999999", ColumnType.AUTO));
+        assertEquals("01234", ColumnMapping.convert("01234", ColumnType.AUTO));
+        assertEquals("-007", ColumnMapping.convert("-007", ColumnType.AUTO));
+        assertEquals("00.5", ColumnMapping.convert("00.5", ColumnType.AUTO));
+        assertEquals(0.5, ColumnMapping.convert("0.5", ColumnType.AUTO));
+        assertEquals(0.5, ColumnMapping.convert(".5", ColumnType.AUTO));
+        assertEquals(1.0, ColumnMapping.convert("1.", ColumnType.AUTO));
+        assertEquals(-1.5e10, ColumnMapping.convert("-1.5E+10", ColumnType.AUTO));
+        assertEquals(2e-3, ColumnMapping.convert("2e-3", ColumnType.AUTO));
+        assertEquals("-", ColumnMapping.convert("-", ColumnType.AUTO));
+        assertEquals(".", ColumnMapping.convert(".", ColumnType.AUTO));
+        assertEquals("1e", ColumnMapping.convert("1e", ColumnType.AUTO));
+        assertEquals(".e5", ColumnMapping.convert(".e5", ColumnType.AUTO));
+        assertEquals("1.2.3", ColumnMapping.convert("1.2.3", ColumnType.AUTO));
+        assertEquals("12ab", ColumnMapping.convert("12ab", ColumnType.AUTO));
+        assertEquals("NaN", ColumnMapping.convert("NaN", ColumnType.AUTO));
+        assertEquals("0x1F", ColumnMapping.convert("0x1F", ColumnType.AUTO));
+    }
+
+    @Test
+    public void testSplit() {
+        assertEquals(Collections.emptyList(), ColumnMapping.split("  "));
+        assertEquals(Arrays.asList("a", "b:int", "", "c.d"), ColumnMapping.split(" a, b:int ,, c.d"));
+    }
+
+    private static void assertRejected(String... columns) {
+        try {
+            ColumnMapping.of(Arrays.asList(columns));
+            fail(Arrays.toString(columns));
+        } catch (IllegalArgumentException ex) {
+            // expected
+        }
+    }
+
+    private static void assertInvalid(String cell, ColumnType type) {
+        try {
+            ColumnMapping.convert(cell, type);
+            fail(type + " " + cell);
+        } catch (IllegalArgumentException ex) {
+            // expected
+        }
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2014 Yann D'Isanto.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.netbeans.modules.mongodb.util;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Yann D'Isanto
+ */
+public class DelimitedRowReaderTest {
+
+    @Test
+    public void testRowsCellsTextsAndLines() throws IOException {
+        final DelimitedRowReader reader = new DelimitedRowReader(new StringReader(
+            "\uFEFFa,b\r\n"
+            + "\r\n"
+            + "\"x,1\",\"say \"\"hi\"\"\"\n"
+            + "\n"
+            + "\"multi\r\nline\",2\n"
+            + ",\n"
+            + "last"), ',');
+        assertRow(reader, 1, "a,b", "a", "b");
+        assertRow(reader, 3, "\"x,1\",\"say \"\"hi\"\"\"", "x,1", "say \"hi\"");
+        assertRow(reader, 5, "\"multi\r\nline\",2", "multi\r\nline", "2");
+        assertRow(reader, 7, ",", "", "");
+        assertRow(reader, 8, "last", "last");
+        assertNull(reader.readRow());
+    }
+
+    @Test
+    public void testRowTextsCanBeReadAgain() throws IOException {
+        final String text = "1;\"a;b\";\"\"\n"
+            + "2;\"c\"\"\";\"d\n\ne\"\r\n"
+            + "3;;\n";
+        final List<String[]> rows = new ArrayList<>();
+        final StringBuilder texts = new StringBuilder();
+        final DelimitedRowReader reader = new DelimitedRowReader(new StringReader(text), ';');
+        String[] row;
+        while ((row = reader.readRow()) != null) {
+            rows.add(row);
+            texts.append(reader.getRowText()).append('\n');
+        }
+        assertEquals(3, rows.size());
+        final DelimitedRowReader again = new DelimitedRowReader(new StringReader(texts.toString()), ';');
+        for (String[] expected : rows) {
+            assertArrayEquals(expected, again.readRow());
+        }
+        assertNull(again.readRow());
+    }
+
+    @Test(expected = IOException.class)
+    public void testUnterminatedQuotedCell() throws IOException {
+        new DelimitedRowReader(new StringReader("a,\"b\n"), ',').readRow();
+    }
+
+    private static void assertRow(DelimitedRowReader reader, long line, String text, String... cells) throws IOException {
+        final String[] row = reader.readRow();
+        assertEquals(Arrays.asList(cells), Arrays.asList(row));
+        assertEquals(line, reader.getRowLine());
+        assertEquals(text, reader.getRowText());
+    }
+}
@@ -0,0 +1,168 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2014 Yann D'Isanto.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.netbeans.modules.mongodb.util;
+
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBObject;
+import com.mongodb.WriteConcern;
+import com.mongodb.util.JSON;
+import java.io.File;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Yann D'Isanto
+ */
+public class ImportCheckpointTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File importFile;
+
+    private ImportProperties properties;
+
+    @Before
+    public void setUp() throws IOException {
+        importFile = folder.newFile("documents.json");
+        properties = new ImportPropertiesBuilder("c")
+            .file(importFile)
+            .encoding(StandardCharsets.ISO_8859_1)
+            .batchSize(500)
+            .batchBytes(1024 * 1024)
+            .writeConcern(new WriteConcern("majority", 5000, false, true))
+            .parseThreads(3)
+            .insertThreads(4)
+            .bulkLoad(true)
+            .upsertKey("code")
+            .deadLetterFile(new File(folder.getRoot(), "rejected.json"))
+            .build();
+    }
+
+    private static List<DBObject> indexes() {
+        return Arrays.<DBObject>asList(
+            new BasicDBObject("v", 1).append("key", new BasicDBObject("name", 1)).append("name", "name_1"),
+            new BasicDBObject("v", 1).append("key", new BasicDBObject("a", 1).append("b", -1))
+                .append("name", "a_1_b_-1").append("sparse", true));
+    }
+
+    private ImportCheckpoint writeAndRead(ImportCheckpoint checkpoint) throws IOException {
+        checkpoint.write();
+        return ImportCheckpoint.read(ImportCheckpoint.getFile(importFile));
+    }
+
+    @Test
+    public void testRoundTrip() throws IOException {
+        final ImportCheckpoint read = writeAndRead(
+            new ImportCheckpoint("db", properties, 1234, 56, true, 78).withIndexes(indexes()));
+        assertEquals("db", read.getDatabase());
+        assertEquals(1234, read.getOffset());
+        assertEquals(56, read.getLine());
+        assertTrue(read.isInArray());
+        assertEquals(78, read.getDocumentsCount());
+        assertTrue(read.isResumable());
+        assertEquals(indexes(), read.getIndexes());
+
+        final ImportProperties readProperties = read.getProperties();
+        assertEquals("c", readProperties.getCollection());
+        assertFalse(readProperties.isDrop());
+        assertEquals(importFile.getAbsoluteFile(), readProperties.getFile());
+        assertEquals(StandardCharsets.ISO_8859_1, readProperties.getEncoding());
+        assertEquals(500, readProperties.getBatchSize());
+        assertEquals(1024 * 1024, readProperties.getBatchBytes());
+        assertEquals(properties.getWriteConcern(), readProperties.getWriteConcern());
+        assertEquals(3, readProperties.getParseThreads());
+        assertEquals(4, readProperties.getInsertThreads());
+        assertTrue(readProperties.isBulkLoad());
+        assertEquals("code", readProperties.getUpsertKey());
+        assertEquals(properties.getDeadLetterFile().getAbsoluteFile(), readProperties.getDeadLetterFile());
+    }
+
+    @Test
+    public void testNextKeepsDatabaseAndIndexes() throws IOException {
+        final ImportCheckpoint checkpoint = ImportCheckpoint.ofIndexes("db", properties, indexes())
+            .next(100, 3, false, 10);
+        final ImportCheckpoint read = writeAndRead(checkpoint);
+        assertEquals("db", read.getDatabase());
+        assertEquals(100, read.getOffset());
+        assertEquals(3, read.getLine());
+        assertFalse(read.isInArray());
+        assertEquals(10, read.getDocumentsCount());
+        assertFalse(read.isResumable());
+        assertEquals(indexes(), read.getIndexes());
+
+        final ImportCheckpoint resumable = writeAndRead(
+            new ImportCheckpoint("db", properties, 0, 1, false, 0).next(200, 4, true, 20));
+        assertTrue(resumable.isResumable());
+        assertEquals(Collections.<DBObject>emptyList(), resumable.getIndexes());
+        assertEquals(200, resumable.getOffset());
+    }
+
+    @Test
+    public void testWriteReplacesPreviousCheckpoint() throws IOException {
+        final ImportCheckpoint checkpoint = new ImportCheckpoint("db", properties, 10, 2, false, 1);
+        checkpoint.write();
+        assertEquals(30, writeAndRead(checkpoint.next(30, 5, false, 3)).getOffset());
+        assertEquals(Collections.singletonList(ImportCheckpoint.getFile(importFile).getName()),
+            Arrays.asList(folder.getRoot().list(new FilenameFilter() {
+
+                @Override
+                public boolean accept(File dir, String name) {
+                    return name.startsWith(importFile.getName() + ImportCheckpoint.EXTENSION);
+                }
+            })));
+        ImportCheckpoint.delete(importFile);
+        assertFalse(ImportCheckpoint.getFile(importFile).exists());
+    }
+
+    @Test
+    public void testMissingFieldsAreRejected() throws IOException {
+        new ImportCheckpoint("db", properties, 10, 2, false, 1).write();
+        final File file = ImportCheckpoint.getFile(importFile);
+        final DBObject object = (DBObject) JSON.parse(
+            new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8));
+        for (String field : Arrays.asList("database", "indexes", "resumable", "offset")) {
+            final DBObject incomplete = new BasicDBObject(object.toMap());
+            incomplete.removeField(field);
+            Files.write(file.toPath(), JSON.serialize(incomplete).getBytes(StandardCharsets.UTF_8));
+            try {
+                ImportCheckpoint.read(file);
+                fail("read a checkpoint without " + field);
+            } catch (IOException ex) {
+                // expected
+            }
+        }
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2014 Yann D'Isanto.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.netbeans.modules.mongodb.util;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Yann D'Isanto
+ */
+public class JsonDocumentReaderTest {
+
+    /**
+     * Documents whose strings hold braces, brackets, quotes and escapes.
+     */
+    static final String[] TRICKY_DOCUMENTS = {
+        "{\"a\": \"}\"}",
+        "{\"b\": \"\\\"}\", \"c\": [1, {\"d\": \"]\"}]}",
+        "{'e': '}\\'{', \"f\": \"'\"}",
+        "{\"g\": \"\\\\\", \"h\": {}}",
+        "{\"i\": \"\\\\\\\"}\"}"
+    };
+
+    static List<String> readAll(JsonDocumentReader reader, List<Long> lines) throws IOException {
+        final List<String> documents = new ArrayList<>();
+        String document;
+        while ((document = reader.readDocument()) != null) {
+            documents.add(document);
+            if (lines != null) {
+                lines.add(reader.getDocumentLine());
+            }
+        }
+        return documents;
+    }
+
+    private static List<String> readAll(String text) throws IOException {
+        return readAll(new JsonDocumentReader(new StringReader(text)), null);
+    }
+
+    @Test
+    public void testStringsDontEndDocuments() throws IOException {
+        final StringBuilder text = new StringBuilder();
+        for (String document : TRICKY_DOCUMENTS) {
+            text.append(document).append('\n');
+        }
+        assertEquals(Arrays.asList(TRICKY_DOCUMENTS), readAll(text.toString()));
+    }
+
+    @Test
+    public void testBufferRefillsInsideStringsAndEscapes() throws IOException {
+        final StringBuilder text = new StringBuilder("[");
+        for (String document : TRICKY_DOCUMENTS) {
+            text.append(document).append(",\n");
+        }
+        text.setLength(text.length() - 2);
+        text.append("]");
+        // a reader returning one character per read splits the text everywhere
+        final Reader reader = new StringReader(text.toString()) {
+
+            @Override
+            public int read(char[] cbuf, int off, int len) throws IOException {
+                return super.read(cbuf, off, Math.min(len, 1));
+            }
+        };
+        assertEquals(Arrays.asList(TRICKY_DOCUMENTS), readAll(new JsonDocumentReader(reader), null));
+    }
+
+    @Test
+    public void testArraysAndSeparators() throws IOException {
+        assertEquals(Arrays.asList("{\"a\": 1}", "{\"b\": [2]}", "{}"),
+            readAll("\uFEFF[{\"a\": 1}, {\"b\": [2]}]\n[\n{}\n]\n"));
+    }
+
+    @Test
+    public void testDocumentLines() throws IOException {
+        final List<Long> lines = new ArrayList<>();
+        readAll(new JsonDocumentReader(new StringReader(
+            "{\"a\": 1}\n\n{\n  \"b\": \"x\\ny\",\n  \"c\": 2\n}\n{\"d\": 3} {\"e\": 4}\n")), lines);
+        assertEquals(Arrays.asList(1L, 3L, 7L, 7L), lines);
+    }
+
+    @Test
+    public void testTextPartStartingInsideArray() throws IOException {
+        final List<Long> lines = new ArrayList<>();
+        final List<String> documents = readAll(new JsonDocumentReader(
+            new StringReader(",\n{\"a\": 1}\n]\n{\"b\": 2}"), true, 10), lines);
+        assertEquals(Arrays.asList("{\"a\": 1}", "{\"b\": 2}"), documents);
+        assertEquals(Arrays.asList(11L, 13L), lines);
+    }
+
+    @Test(expected = IOException.class)
+    public void testSeparatorOutsideArray() throws IOException {
+        readAll("{\"a\": 1}, {\"b\": 2}");
+    }
+
+    @Test(expected = IOException.class)
+    public void testUnterminatedDocument() throws IOException {
+        readAll("{\"a\": \"}");
+    }
+}
@@ -0,0 +1,248 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2014 Yann D'Isanto.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.netbeans.modules.mongodb.util;
+
+import com.mongodb.BasicDBList;
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBObject;
+import com.mongodb.InMemoryDBCollection;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.regex.Pattern;
+import org.bson.types.BSONTimestamp;
+import org.bson.types.MaxKey;
+import org.bson.types.MinKey;
+import org.bson.types.ObjectId;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Yann D'Isanto
+ */
+public class KeysetPaginationTest {
+
+    /**
+     * One value of each type bracket, in BSON sort order.
+     */
+    private static final Object[] VALUES_IN_SORT_ORDER = {
+        new MinKey(),
+        null,
+        Double.NaN,
+        Double.NEGATIVE_INFINITY,
+        -3,
+        2.5,
+        7L,
+        "",
+        "abc",
+        new BasicDBObject("x", 1),
+        new byte[]{1, 2},
+        new ObjectId("507f1f77bcf86cd799439011"),
+        false,
+        true,
+        new Date(0),
+        new Date(1000),
+        new BSONTimestamp(1, 0),
+        new BSONTimestamp(1, 5),
+        new MaxKey()
+    };
+
+    @Test
+    public void testAfterNumberMatchesFollowingBrackets() {
+        final KeysetPagination pagination = new KeysetPagination(new InMemoryDBCollection("c"), null, null);
+        final DBObject range = pagination.after(null, new BasicDBObject("_id", 5));
+        final BasicDBList or = (BasicDBList) range.get("$or");
+        assertEquals(new BasicDBObject("_id", new BasicDBObject("$gt", 5)), or.get(0));
+        assertEquals(new BasicDBObject("_id", new BasicDBObject("$gte", "")), or.get(1));
+        assertEquals(new BasicDBObject("_id", new MaxKey()), or.get(or.size() - 1));
+        // string, object, binary, object id, boolean, date, timestamp
+        assertEquals(9, or.size());
+    }
+
+    @Test
+    public void testBeforeNumberMatchesNaNAndPrecedingBrackets() {
+        final KeysetPagination pagination = new KeysetPagination(new InMemoryDBCollection("c"), null, null);
+        final DBObject range = pagination.before(null, new BasicDBObject("_id", 5));
+        final BasicDBList or = (BasicDBList) range.get("$or");
+        assertEquals(new BasicDBObject("_id", new BasicDBObject("$lt", 5)), or.get(0));
+        assertEquals(4, or.size());
+        assertTrue(Double.isNaN((Double) ((DBObject) or.get(1)).get("_id")));
+        assertTrue(((DBObject) or.get(2)).containsField("_id"));
+        assertNull(((DBObject) or.get(2)).get("_id"));
+        assertEquals(new BasicDBObject("_id", new MinKey()), or.get(3));
+    }
+
+    @Test
+    public void testRangesFollowTypeBracketsOrder() {
+        final InMemoryDBCollection collection = new InMemoryDBCollection("c");
+        for (int i = 0; i < VALUES_IN_SORT_ORDER.length; i++) {
+            collection.add(new BasicDBObject("v", VALUES_IN_SORT_ORDER[i]).append("_id", i));
+        }
+        collection.addIndex(new BasicDBObject("v", 1).append("_id", 1), false);
+        final KeysetPagination pagination = new KeysetPagination(collection, null, new BasicDBObject("v", 1));
+        assertTrue(pagination.isApplicable());
+        final List<Object> all = ids(collection.select(null, pagination.getSort()));
+        for (int i = 0; i < all.size(); i++) {
+            assertEquals(i, all.get(i));
+        }
+        for (int i = 0; i < all.size(); i++) {
+            final DBObject key = pagination.extractKey(new BasicDBObject("v", VALUES_IN_SORT_ORDER[i]).append("_id", i));
+            if (key == null) {
+                continue;
+            }
+            assertEquals("after " + key, all.subList(i + 1, all.size()),
+                ids(collection.select(pagination.after(null, key), pagination.getSort())));
+            final List<Object> before = new ArrayList<>(all.subList(0, i));
+            Collections.reverse(before);
+            assertEquals("before " + key, before,
+                ids(collection.select(pagination.before(null, key), pagination.getReversedSort())));
+        }
+    }
+
+    @Test
+    public void testCompoundKeysPageThroughMixedValues() {
+        final InMemoryDBCollection collection = new InMemoryDBCollection("c");
+        final Object[] as = {1, "x", 1, null, 2, "x", 1, 2, new Date(5), 1};
+        final Object[] bs = {"b", 3, "a", 1, 4, 3, 2.5, "b", null, 7};
+        for (int i = 0; i < as.length; i++) {
+            final DBObject document = new BasicDBObject("_id", i);
+            if (as[i] != null) {
+                document.put("a", as[i]);
+            }
+            if (bs[i] != null) {
+                document.put("b", bs[i]);
+            }
+            collection.add(document);
+        }
+        collection.addIndex(new BasicDBObject("a", 1).append("b", -1).append("_id", 1), false);
+        final KeysetPagination pagination = new KeysetPagination(collection, null,
+            new BasicDBObject("a", 1).append("b", -1));
+        assertTrue(pagination.isApplicable());
+        assertEquals(new BasicDBObject("a", 1).append("b", -1).append("_id", 1), pagination.getSort());
+
+        final List<DBObject> all = collection.select(null, pagination.getSort());
+        final List<DBObject> forward = new ArrayList<>();
+        DBObject criteria = null;
+        while (true) {
+            final List<DBObject> page = limit(collection.select(criteria, pagination.getSort()), 3);
+            forward.addAll(page);
+            if (page.size() < 3) {
+                break;
+            }
+            criteria = pagination.after(null, pagination.extractKey(page.get(page.size() - 1)));
+        }
+        assertEquals(all, forward);
+
+        final List<DBObject> backward = new ArrayList<>();
+        criteria = null;
+        while (true) {
+            final List<DBObject> page = limit(collection.select(criteria, pagination.getReversedSort()), 3);
+            backward.addAll(page);
+            if (page.size() < 3) {
+                break;
+            }
+            criteria = pagination.before(null, pagination.extractKey(page.get(page.size() - 1)));
+        }
+        Collections.reverse(backward);
+        assertEquals(all, backward);
+    }
+
+    @Test
+    public void testRangeKeepsUserCriteria() {
+        final KeysetPagination pagination = new KeysetPagination(new InMemoryDBCollection("c"), null, null);
+        final DBObject criteria = new BasicDBObject("a", 1);
+        final DBObject range = pagination.after(criteria, new BasicDBObject("_id", "k"));
+        final BasicDBList and = (BasicDBList) range.get("$and");
+        assertEquals(criteria, and.get(0));
+        // the ranges hold new byte arrays, compare their JSON form
+        assertEquals(pagination.after(null, new BasicDBObject("_id", "k")).toString(), and.get(1).toString());
+    }
+
+    @Test
+    public void testReversedSortInvertsEveryKey() {
+        final InMemoryDBCollection collection = new InMemoryDBCollection("c")
+            .addIndex(new BasicDBObject("a", -1).append("b", 1).append("_id", -1), false);
+        final KeysetPagination pagination = new KeysetPagination(collection, null,
+            new BasicDBObject("a", 1).append("b", -1));
+        assertTrue(pagination.isApplicable());
+        assertEquals(new BasicDBObject("a", 1).append("b", -1).append("_id", 1), pagination.getSort());
+        assertEquals(new BasicDBObject("a", -1).append("b", 1).append("_id", -1), pagination.getReversedSort());
+    }
+
+    @Test
+    public void testApplicability() {
+        final DBObject sort = new BasicDBObject("a", 1);
+        assertFalse(new KeysetPagination(new InMemoryDBCollection("c"), null, sort).isApplicable());
+        assertFalse(new KeysetPagination(new InMemoryDBCollection("c")
+            .addIndex(new BasicDBObject("a", 1), false), null, sort).isApplicable());
+        assertFalse(new KeysetPagination(new InMemoryDBCollection("c")
+            .addIndex(new BasicDBObject("a", 1).append("b", 1), false), null, sort).isApplicable());
+        assertTrue(new KeysetPagination(new InMemoryDBCollection("c")
+            .addIndex(new BasicDBObject("a", 1), true), null, sort).isApplicable());
+        assertTrue(new KeysetPagination(new InMemoryDBCollection("c")
+            .addIndex(new BasicDBObject("a", -1).append("_id", 1), false), null,
+            new BasicDBObject("a", 1).append("_id", -1)).isApplicable());
+        assertFalse(new KeysetPagination(new InMemoryDBCollection("c"), null,
+            new BasicDBObject("$natural", -1)).isApplicable());
+        assertFalse(new KeysetPagination(new InMemoryDBCollection("c"),
+            new BasicDBObject("_id", 0), null).isApplicable());
+        final InMemoryDBCollection indexed = new InMemoryDBCollection("c")
+            .addIndex(new BasicDBObject("a", 1), true);
+        assertFalse(new KeysetPagination(indexed, new BasicDBObject("b", 1), sort).isApplicable());
+        assertFalse(new KeysetPagination(indexed, new BasicDBObject("a", 0), sort).isApplicable());
+        assertTrue(new KeysetPagination(indexed, new BasicDBObject("a", 1), sort).isApplicable());
+    }
+
+    @Test
+    public void testExtractKeyRejectsValuesNotUsableAsBoundary() {
+        final KeysetPagination pagination = new KeysetPagination(new InMemoryDBCollection("c"), null,
+            new BasicDBObject("a.b", 1).append("_id", 1));
+        assertEquals(new BasicDBObject("a.b", "x").append("_id", 1),
+            pagination.extractKey(new BasicDBObject("_id", 1).append("a", new BasicDBObject("b", "x"))));
+        assertNull(pagination.extractKey(new BasicDBObject("_id", 1)));
+        assertNull(pagination.extractKey(new BasicDBObject("_id", 1).append("a", new BasicDBObject("b", null))));
+        assertNull(pagination.extractKey(new BasicDBObject("_id", 1).append("a", new BasicDBObject("b", Double.NaN))));
+        assertNull(pagination.extractKey(new BasicDBObject("_id", 1).append("a", new BasicDBObject("b", new BasicDBList()))));
+        assertNull(pagination.extractKey(new BasicDBObject("_id", 1).append("a", new BasicDBObject("b", Pattern.compile("x")))));
+        assertNull(pagination.extractKey(new BasicDBObject("_id", 1).append("a", new BasicDBObject("b", new MaxKey()))));
+    }
+
+    /**
+     * Documents holding NaN are not equal to themselves, their ids are
+     * compared instead.
+     */
+    private static List<Object> ids(List<DBObject> documents) {
+        final List<Object> ids = new ArrayList<>();
+        for (DBObject document : documents) {
+            ids.add(document.get("_id"));
+        }
+        return ids;
+    }
+
+    private static List<DBObject> limit(List<DBObject> documents, int limit) {
+        return documents.subList(0, Math.min(limit, documents.size()));
+    }
+}
@@ -0,0 +1,176 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2014 Yann D'Isanto.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.netbeans.modules.mongodb.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author Yann D'Isanto
+ */
+public class MappedChunkReaderTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private FileChannel open(String content) throws IOException {
+        final File file = folder.newFile();
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+        return FileChannel.open(file.toPath(), StandardOpenOption.READ);
+    }
+
+    private static String toString(ByteBuffer chunk) {
+        return StandardCharsets.UTF_8.decode(chunk).toString();
+    }
+
+    @Test
+    public void testChunksEndAfterWholeDocuments() throws IOException {
+        final StringBuilder text = new StringBuilder();
+        for (String document : JsonDocumentReaderTest.TRICKY_DOCUMENTS) {
+            text.append(document).append('\n');
+        }
+        try (FileChannel channel = open(text.toString())) {
+            final MappedChunkReader reader = new MappedChunkReader(channel);
+            final List<String> chunks = new ArrayList<>();
+            ByteBuffer chunk;
+            while ((chunk = reader.readChunk(1)) != null) {
+                chunks.add(toString(chunk));
+            }
+            final List<String> expected = new ArrayList<>();
+            for (int i = 0; i < JsonDocumentReaderTest.TRICKY_DOCUMENTS.length; i++) {
+                expected.add((i > 0 ? "\n" : "") + JsonDocumentReaderTest.TRICKY_DOCUMENTS[i]);
+            }
+            // the trailing line separator
+            expected.add("\n");
+            assertEquals(expected, chunks);
+        }
+    }
+
+    @Test
+    public void testTopLevelArraySplitAcrossChunks() throws IOException {
+        try (FileChannel channel = open("[\n{\"a\": 1},\n{\"b\": \"]\"},\n{\"c\": [1, {\"d\": 2}]}\n]\n")) {
+            final MappedChunkReader reader = new MappedChunkReader(channel);
+
+            assertEquals("[\n{\"a\": 1}", toString(reader.readChunk(1)));
+            assertFalse(reader.isChunkInArray());
+            assertTrue(reader.isInArray());
+            assertEquals(1, reader.getChunkLine());
+            assertEquals(2, reader.getLine());
+
+            assertEquals(",\n{\"b\": \"]\"}", toString(reader.readChunk(1)));
+            assertTrue(reader.isChunkInArray());
+            assertTrue(reader.isInArray());
+            assertEquals(2, reader.getChunkLine());
+            assertEquals(3, reader.getLine());
+
+            assertEquals(",\n{\"c\": [1, {\"d\": 2}]}", toString(reader.readChunk(1)));
+            assertTrue(reader.isInArray());
+
+            assertEquals("\n]\n", toString(reader.readChunk(1)));
+            assertTrue(reader.isChunkInArray());
+            assertFalse(reader.isInArray());
+            assertEquals(4, reader.getChunkLine());
+            assertEquals(6, reader.getLine());
+            assertEquals(channel.size(), reader.getPosition());
+
+            assertNull(reader.readChunk(1));
+        }
+    }
+
+    @Test
+    public void testResumeAtChunkBoundary() throws IOException {
+        try (FileChannel channel = open("[{\"a\": 1},\n{\"b\": 2},\n{\"c\": 3}]\n{\"d\": 4}\n")) {
+            final MappedChunkReader reader = new MappedChunkReader(channel);
+            reader.readChunk(1);
+            reader.readChunk(1);
+            final MappedChunkReader resumed = new MappedChunkReader(channel,
+                reader.getPosition(), reader.getLine(), reader.isInArray());
+            ByteBuffer chunk;
+            while ((chunk = reader.readChunk(1)) != null) {
+                assertEquals(toString(chunk), toString(resumed.readChunk(1)));
+                assertEquals(reader.getChunkLine(), resumed.getChunkLine());
+                assertEquals(reader.isChunkInArray(), resumed.isChunkInArray());
+            }
+            assertNull(resumed.readChunk(1));
+        }
+    }
+
+    /**
+     * Splitting the chunks texts as the import pipeline does yields the
+     * documents and lines of the whole text, whatever the chunk size.
+     */
+    @Test
+    public void testChunkTextsMatchWholeText() throws IOException {
+        final StringBuilder text = new StringBuilder("[\n");
+        for (String document : JsonDocumentReaderTest.TRICKY_DOCUMENTS) {
+            text.append("  ").append(document).append(",\n");
+        }
+        text.append("  {\n    \"z\": [\n      \"}\"\n    ]\n  }\n]\n");
+        for (String document : JsonDocumentReaderTest.TRICKY_DOCUMENTS) {
+            text.append(document).append('\n');
+        }
+        final List<Long> expectedLines = new ArrayList<>();
+        final List<String> expected = JsonDocumentReaderTest.readAll(
+            new JsonDocumentReader(new StringReader(text.toString())), expectedLines);
+        assertEquals(2 * JsonDocumentReaderTest.TRICKY_DOCUMENTS.length + 1, expected.size());
+
+        try (FileChannel channel = open(text.toString())) {
+            for (int minSize = 1; minSize <= channel.size(); minSize++) {
+                final MappedChunkReader reader = new MappedChunkReader(channel);
+                final List<String> documents = new ArrayList<>();
+                final List<Long> lines = new ArrayList<>();
+                ByteBuffer chunk;
+                while ((chunk = reader.readChunk(minSize)) != null) {
+                    documents.addAll(JsonDocumentReaderTest.readAll(new JsonDocumentReader(
+                        new StringReader(toString(chunk)), reader.isChunkInArray(), reader.getChunkLine()), lines));
+                }
+                assertEquals("chunk size " + minSize, expected, documents);
+                assertEquals("chunk size " + minSize, expectedLines, lines);
+            }
+        }
+    }
+
+    @Test
+    public void testMinimumChunkSize() throws IOException {
+        try (FileChannel channel = open("{\"a\": 1}\n{\"b\": 2}\n{\"c\": 3}\n")) {
+            final MappedChunkReader reader = new MappedChunkReader(channel);
+            assertEquals("{\"a\": 1}\n{\"b\": 2}", toString(reader.readChunk(10)));
+            assertEquals("\n{\"c\": 3}\n", toString(reader.readChunk(100)));
+            assertNull(reader.readChunk(100));
+        }
+    }
+}